@@ -85,7 +85,7 @@ public class EmbyConfigController {
      */
     @DeleteMapping("/{id}")
     public Result<Boolean> deleteConfig(@PathVariable Long id) {
-        boolean success = embyConfigService.removeById(id);
+        boolean success = embyConfigService.deleteConfig(id);
         return Result.success(success);
     }
 
@@ -142,13 +142,6 @@ public class EmbyConfigController {
      */
     @PutMapping("/{id}/toggle")
     public Result<Boolean> toggleConfig(@PathVariable Long id) {
-        EmbyConfig config = embyConfigService.getById(id);
-        if (config == null) {
-            return Result.error("配置不存在");
-        }
-
-        config.setEnabled(!config.getEnabled());
-        boolean success = embyConfigService.updateById(config);
-        return Result.success(success);
+        return Result.success(embyConfigService.toggleConfig(id));
     }
 }
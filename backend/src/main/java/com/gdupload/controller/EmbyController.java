@@ -7,6 +7,8 @@ import com.gdupload.dto.EmbyLibrary;
 import com.gdupload.dto.PagedResult;
 import com.gdupload.service.IEmbyCacheService;
 import com.gdupload.service.IEmbyService;
+import com.gdupload.util.EmbyHttpClient;
+import com.gdupload.util.EmbyStreamProxy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
@@ -29,6 +31,12 @@ public class EmbyController {
     @Autowired
     private IEmbyCacheService cacheService;
 
+    @Autowired
+    private EmbyHttpClient embyHttpClient;
+
+    @Autowired
+    private EmbyStreamProxy embyStreamProxy;
+
     /**
      * 测试Emby连接
      */
@@ -214,7 +222,7 @@ public class EmbyController {
     /**
      * 一次性全量同步所有媒体库数据到数据库
      * 包括：媒体库列表、所有媒体项、类型、标签、工作室
-     * 注意：此操作会清空旧数据，重新全量同步，可能耗时较长
+     * 注意：全量同步可能耗时较长；同步期间旧数据仍可查询，结束后删除 Emby 中已不存在的数据
      */
     @PostMapping("/sync")
     public Result<Map<String, Object>> syncAllLibraries() {
@@ -222,6 +230,16 @@ public class EmbyController {
         return Result.success(result);
     }
 
+    /**
+     * 增量同步：每个媒体库只拉取上次同步之后有变更的媒体项，并清理 Emby 中已删除的媒体项
+     * 从未同步过的媒体库自动按全量同步处理
+     */
+    @PostMapping("/sync/delta")
+    public Result<Map<String, Object>> syncDelta() {
+        Map<String, Object> result = cacheService.syncDelta();
+        return Result.success(result);
+    }
+
     /**
      * 清空所有数据库缓存
      * 注意：清空后需要重新执行同步操作
@@ -246,6 +264,14 @@ public class EmbyController {
         return Result.success(status);
     }
 
+    /**
+     * Emby 请求统计（按接口汇总请求数、失败数、重试数和耗时）
+     */
+    @GetMapping("/http-metrics")
+    public Result<List<Map<String, Object>>> getHttpMetrics() {
+        return Result.success(embyHttpClient.getMetrics());
+    }
+
     /**
      * 获取Emby媒体项的下载URL
      * 注意：此功能仅用于测试，需要Emby服务器开启下载权限
@@ -265,22 +291,34 @@ public class EmbyController {
      * 通过后端代理请求视频流，绕过直接下载限制
      *
      * @param itemId 媒体项ID
+     * @param request HTTP请求
      * @param response HTTP响应
      */
     @GetMapping("/items/{itemId}/proxy-download")
     public void proxyDownload(
             @PathVariable String itemId,
             @RequestParam(required = false, defaultValue = "video.mp4") String filename,
+            javax.servlet.http.HttpServletRequest request,
             javax.servlet.http.HttpServletResponse response) {
         log.info("代理下载媒体项: itemId={}, filename={}", itemId, filename);
         try {
-            embyService.proxyDownload(itemId, filename, response);
+            embyService.proxyDownload(itemId, filename, request, response);
         } catch (Exception e) {
             log.error("代理下载失败", e);
-            response.setStatus(500);
+            if (!request.isAsyncStarted() && !response.isCommitted()) {
+                response.setStatus(500);
+            }
         }
     }
 
+    /**
+     * 代理下载统计：进行中的下载及其吞吐、累计传输量
+     */
+    @GetMapping("/proxy-download/metrics")
+    public Result<Map<String, Object>> getProxyDownloadMetrics() {
+        return Result.success(embyStreamProxy.getMetrics());
+    }
+
     /**
      * 下载Emby媒体项到服务器本地
      * 下载到 /data/emby 目录
@@ -2,8 +2,12 @@ package com.gdupload.controller;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.gdupload.common.Result;
+import com.gdupload.entity.EmbyConfig;
 import com.gdupload.entity.EmbyDownloadHistory;
+import com.gdupload.entity.EmbyItemStatus;
 import com.gdupload.mapper.EmbyDownloadHistoryMapper;
+import com.gdupload.mapper.EmbyItemStatusMapper;
+import com.gdupload.service.IEmbyConfigService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
@@ -23,6 +27,12 @@ public class EmbyDownloadHistoryController {
     @Autowired
     private EmbyDownloadHistoryMapper downloadHistoryMapper;
 
+    @Autowired
+    private EmbyItemStatusMapper itemStatusMapper;
+
+    @Autowired
+    private IEmbyConfigService embyConfigService;
+
     /**
      * 批量检查媒体项的下载状态
      * 返回每个媒体项的最新下载状态
@@ -36,19 +46,32 @@ public class EmbyDownloadHistoryController {
 
         Map<String, String> statusMap = new HashMap<>();
 
-        for (String itemId : embyItemIds) {
-            // 查询该媒体项的最新下载记录
-            LambdaQueryWrapper<EmbyDownloadHistory> wrapper = new LambdaQueryWrapper<>();
-            wrapper.eq(EmbyDownloadHistory::getEmbyItemId, itemId)
-                    .orderByDesc(EmbyDownloadHistory::getCreateTime)
-                    .last("LIMIT 1");
-
-            EmbyDownloadHistory history = downloadHistoryMapper.selectOne(wrapper);
-
-            if (history != null) {
-                statusMap.put(itemId, history.getDownloadStatus());
-            } else {
-                statusMap.put(itemId, "none");
+        EmbyConfig config = embyConfigService.findDefaultConfig();
+        if (config != null && !embyItemIds.isEmpty()) {
+            // 最新状态由 emby_item_status 维护，一次查询
+            for (EmbyItemStatus status : itemStatusMapper.selectByItemIds(config.getId(), embyItemIds)) {
+                if (status.getDownloadStatus() != null) {
+                    statusMap.put(status.getEmbyItemId(), status.getDownloadStatus());
+                }
+            }
+            for (String itemId : embyItemIds) {
+                statusMap.putIfAbsent(itemId, "none");
+            }
+        } else {
+            for (String itemId : embyItemIds) {
+                // 查询该媒体项的最新下载记录
+                LambdaQueryWrapper<EmbyDownloadHistory> wrapper = new LambdaQueryWrapper<>();
+                wrapper.eq(EmbyDownloadHistory::getEmbyItemId, itemId)
+                        .orderByDesc(EmbyDownloadHistory::getCreateTime)
+                        .last("LIMIT 1");
+
+                EmbyDownloadHistory history = downloadHistoryMapper.selectOne(wrapper);
+
+                if (history != null) {
+                    statusMap.put(itemId, history.getDownloadStatus());
+                } else {
+                    statusMap.put(itemId, "none");
+                }
             }
         }
 
@@ -98,7 +121,9 @@ public class EmbyDownloadHistoryController {
         // 创建下载历史记录
         EmbyDownloadHistory history = new EmbyDownloadHistory();
         history.setEmbyItemId(embyItemId);
-        history.setEmbyConfigId(1L); // 默认配置ID
+        // 没有可用配置时抛出业务异常，不写入无归属的记录
+        EmbyConfig config = embyConfigService.getDefaultConfig();
+        history.setEmbyConfigId(config.getId());
         history.setDownloadStatus(status);
         history.setFilePath("手动标记");
         history.setFileSize(0L);
@@ -107,6 +132,7 @@ public class EmbyDownloadHistoryController {
         int result = downloadHistoryMapper.insert(history);
 
         if (result > 0) {
+            itemStatusMapper.upsertDownloadStatus(history.getEmbyConfigId(), embyItemId, status);
             log.info("手动标记成功: embyItemId={}, status={}", embyItemId, status);
             return Result.success("标记成功");
         } else {
@@ -6,6 +6,7 @@ import com.gdupload.common.Result;
 import com.gdupload.entity.GdAccount;
 import com.gdupload.service.IGdAccountService;
 import com.gdupload.service.ISystemLogService;
+import com.gdupload.service.ITransferTelemetryService;
 import com.gdupload.task.QuotaResetTask;
 import com.gdupload.util.RcloneUtil;
 import lombok.RequiredArgsConstructor;
@@ -31,6 +32,7 @@ public class GdAccountController {
     private final ISystemLogService systemLogService;
     private final QuotaResetTask quotaResetTask;
     private final RcloneUtil rcloneUtil;
+    private final ITransferTelemetryService telemetryService;
 
     @GetMapping("/page")
     public Result<PageResult<GdAccount>> page(
@@ -48,6 +50,24 @@ public class GdAccountController {
         return Result.success(accounts);
     }
 
+    /**
+     * 各账号当前的自适应上传并发上限
+     */
+    @GetMapping("/concurrency")
+    public Result<Map<String, Object>> concurrency() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("accounts", accountService.getUploadConcurrency());
+        return Result.success(data);
+    }
+
+    /**
+     * 各账号最近的实时吞吐采样
+     */
+    @GetMapping("/throughput")
+    public Result<Map<Long, List<Map<String, Object>>>> throughput() {
+        return Result.success(telemetryService.getAccountSeries());
+    }
+
     @GetMapping("/{id}")
     public Result<GdAccount> getById(@PathVariable Long id) {
         GdAccount account = accountService.getById(id);
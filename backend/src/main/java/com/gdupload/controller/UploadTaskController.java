@@ -10,6 +10,8 @@ import com.gdupload.service.ISystemLogService;
 import com.gdupload.service.IUploadService;
 import com.gdupload.service.IUploadTaskService;
 import com.gdupload.service.IEmbyService;
+import com.gdupload.service.ITransferTelemetryService;
+import com.gdupload.util.FairShareUploadExecutor;
 import com.gdupload.util.TaskPauseManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -35,6 +37,8 @@ public class UploadTaskController {
     private final IUploadService uploadService;
     private final ISystemLogService systemLogService;
     private final IEmbyService embyService;
+    private final ITransferTelemetryService telemetryService;
+    private final FairShareUploadExecutor uploadScheduler;
 
     @GetMapping("/page")
     public Result<PageResult<UploadTask>> page(
@@ -53,6 +57,14 @@ public class UploadTaskController {
         return Result.success(task);
     }
 
+    /**
+     * 任务最近的实时吞吐采样（速度、ETA、正在传输文件数）
+     */
+    @GetMapping("/{id}/throughput")
+    public Result<List<Map<String, Object>>> getTaskThroughput(@PathVariable Long id) {
+        return Result.success(telemetryService.getTaskSeries(id));
+    }
+
     @GetMapping("/{id}/files")
     public Result<List<FileInfo>> getTaskFiles(@PathVariable Long id) {
         List<FileInfo> files = fileInfoService.getTaskFiles(id);
@@ -67,6 +79,10 @@ public class UploadTaskController {
         Boolean uploadAll = (Boolean) params.get("uploadAll");
         Boolean recursive = (Boolean) params.get("recursive");
         List<String> fileList = (List<String>) params.get("fileList");
+        Integer schedulePolicy = params.get("schedulePolicy") != null
+            ? Integer.valueOf(params.get("schedulePolicy").toString()) : 0;
+        Integer priority = params.get("priority") != null
+            ? Integer.valueOf(params.get("priority").toString()) : null;
 
         Long taskId;
 
@@ -77,7 +93,7 @@ public class UploadTaskController {
             fileList = allFiles.stream().map(FileInfo::getFilePath).collect(java.util.stream.Collectors.toList());
 
             // 创建任务
-            taskId = uploadTaskService.createTask(taskName, sourcePath, targetPath, fileList);
+            taskId = uploadTaskService.createTask(taskName, sourcePath, targetPath, fileList, schedulePolicy, priority);
 
             // 保存文件信息
             if (taskId != null) {
@@ -85,7 +101,7 @@ public class UploadTaskController {
             }
         } else {
             // 正常创建任务（文件信息由前端单独保存）
-            taskId = uploadTaskService.createTask(taskName, sourcePath, targetPath, fileList);
+            taskId = uploadTaskService.createTask(taskName, sourcePath, targetPath, fileList, schedulePolicy, priority);
         }
 
         if (taskId != null) {
@@ -95,6 +111,23 @@ public class UploadTaskController {
         }
     }
 
+    /**
+     * 修改任务优先级（1-10），运行中的任务立即按新权重分配上传线程
+     */
+    @PutMapping("/{id}/priority")
+    public Result<Void> updatePriority(@PathVariable Long id, @RequestParam Integer priority) {
+        boolean success = uploadTaskService.updatePriority(id, priority);
+        return success ? Result.success("优先级已更新") : Result.error("更新失败");
+    }
+
+    /**
+     * 全局上传调度器状态（各任务排队 / 执行中的工作数）
+     */
+    @GetMapping("/scheduler")
+    public Result<List<Map<String, Object>>> schedulerStatus() {
+        return Result.success(uploadScheduler.getSnapshot());
+    }
+
     @PutMapping("/{id}/start")
     public Result<Void> start(@PathVariable Long id) {
         UploadTask task = uploadTaskService.getTaskDetail(id);
@@ -0,0 +1,76 @@
+package com.gdupload.dto;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 任务文件统计（由 file_info 按 status 聚合得到，避免把整个任务的文件列表载入内存）
+ *
+ * @author GD Upload Manager
+ * @since 2026-02-20
+ */
+@Data
+public class TaskFileStats {
+
+    /**
+     * 文件总数
+     */
+    private long totalCount;
+
+    /**
+     * 文件总大小(字节)
+     */
+    private long totalSize;
+
+    /**
+     * 待上传文件数（待上传0 + 失败3，即本次执行需要处理的文件）
+     */
+    private long pendingCount;
+
+    /**
+     * 已上传文件数(status=2)
+     */
+    private long uploadedCount;
+
+    /**
+     * 已上传大小(字节)
+     */
+    private long uploadedSize;
+
+    /**
+     * 失败文件数(status=3)
+     */
+    private long failedCount;
+
+    /**
+     * 由 FileInfoMapper.selectTaskFileStats 的结果构建
+     */
+    public static TaskFileStats of(List<Map<String, Object>> rows) {
+        TaskFileStats stats = new TaskFileStats();
+        for (Map<String, Object> row : rows) {
+            int status = toNumber(row.get("status")).intValue();
+            long count = toNumber(row.get("count")).longValue();
+            long size = toNumber(row.get("total_size")).longValue();
+
+            stats.totalCount += count;
+            stats.totalSize += size;
+            if (status == 0 || status == 3) {
+                stats.pendingCount += count;
+            }
+            if (status == 2) {
+                stats.uploadedCount += count;
+                stats.uploadedSize += size;
+            }
+            if (status == 3) {
+                stats.failedCount += count;
+            }
+        }
+        return stats;
+    }
+
+    private static Number toNumber(Object value) {
+        return value instanceof Number ? (Number) value : 0;
+    }
+}
@@ -17,19 +17,37 @@ public class UploadResult {
     private boolean timeout;
     private String errorMessage;
 
+    /**
+     * 是否因任务暂停/取消被中断（文件已退回待上传，不计入失败）
+     */
+    private boolean interrupted;
+
+    /**
+     * 目标目录已有相同文件，跳过传输（文件状态已直接标记，不产生上传记录）
+     */
+    private boolean skipped;
+
     public static UploadResult success() {
-        return new UploadResult(true, false, false, null);
+        return new UploadResult(true, false, false, null, false, false);
     }
 
     public static UploadResult failure(String errorMessage) {
-        return new UploadResult(false, false, false, errorMessage);
+        return new UploadResult(false, false, false, errorMessage, false, false);
     }
 
     public static UploadResult quotaExceeded(String errorMessage) {
-        return new UploadResult(false, true, false, errorMessage);
+        return new UploadResult(false, true, false, errorMessage, false, false);
     }
 
     public static UploadResult timeout(String errorMessage) {
-        return new UploadResult(false, false, true, errorMessage);
+        return new UploadResult(false, false, true, errorMessage, false, false);
+    }
+
+    public static UploadResult interrupted(String errorMessage) {
+        return new UploadResult(false, false, false, errorMessage, true, false);
+    }
+
+    public static UploadResult skipped(String message) {
+        return new UploadResult(true, false, false, message, false, true);
     }
 }
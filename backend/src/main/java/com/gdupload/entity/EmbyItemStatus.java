@@ -0,0 +1,58 @@
+package com.gdupload.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Emby 媒体项最新转存 / 下载状态
+ * <p>
+ * 每个（配置, 媒体项）一行，写转存历史、下载历史时同步更新；
+ * 媒体库按状态筛选分页时直接按主键关联此表，不再对历史表分组取最新记录。
+ *
+ * @author GD Upload Manager
+ * @since 2026-03-05
+ */
+@Data
+@TableName("emby_item_status")
+public class EmbyItemStatus implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Emby配置ID（与 emby_item_id 组成联合主键）
+     */
+    private Long embyConfigId;
+
+    /**
+     * Emby媒体项ID
+     */
+    private String embyItemId;
+
+    /**
+     * 最新转存状态：success, failed, pending；没有转存记录时为 null
+     */
+    private String transferStatus;
+
+    /**
+     * 最新转存记录时间
+     */
+    private LocalDateTime transferTime;
+
+    /**
+     * 最新下载状态：success, failed；没有下载记录时为 null
+     */
+    private String downloadStatus;
+
+    /**
+     * 最新下载记录时间
+     */
+    private LocalDateTime downloadTime;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+}
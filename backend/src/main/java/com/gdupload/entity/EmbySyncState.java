@@ -0,0 +1,55 @@
+package com.gdupload.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Emby 媒体库同步状态（增量同步水位线）
+ *
+ * @author GD Upload Manager
+ * @since 2026-03-04
+ */
+@Data
+@TableName("emby_sync_state")
+public class EmbySyncState implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Emby配置ID（与 library_id 组成联合主键）
+     */
+    private Long embyConfigId;
+
+    /**
+     * 媒体库ID
+     */
+    private String libraryId;
+
+    /**
+     * 水位线：上次成功同步的开始时间（东8区），增量同步请求此时间之后保存过的媒体项
+     */
+    private LocalDateTime watermark;
+
+    /**
+     * 最后一次全量同步完成时间
+     */
+    private LocalDateTime lastFullSyncTime;
+
+    /**
+     * 最后一次增量同步完成时间
+     */
+    private LocalDateTime lastDeltaSyncTime;
+
+    /**
+     * 同步完成时 Emby 中的媒体项数
+     */
+    private Integer itemCount;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+}
@@ -0,0 +1,69 @@
+package com.gdupload.entity;
+
+import cn.hutool.crypto.SecureUtil;
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 本地媒体文件 ffprobe 探测结果缓存（按 路径 + 大小 + 修改时间 校验）
+ *
+ * @author GD Upload Manager
+ * @since 2026-03-01
+ */
+@Data
+@TableName("media_probe_cache")
+public class MediaProbeCache implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 绝对路径的 MD5（唯一键用，避免长路径前缀冲突）
+     */
+    private String pathHash;
+
+    /**
+     * 本地文件绝对路径
+     */
+    private String filePath;
+
+    /**
+     * 探测时的文件大小（字节）
+     */
+    private Long fileSize;
+
+    /**
+     * 探测时的文件修改时间（毫秒时间戳）
+     */
+    private Long fileMtime;
+
+    /**
+     * 视频编码，如 HEVC / AVC
+     */
+    private String videoCodec;
+
+    /**
+     * 音频编码，如 AAC / FLAC
+     */
+    private String audioCodec;
+
+    /**
+     * 分辨率标准名，如 1080p
+     */
+    private String resolution;
+
+    private Integer width;
+
+    private Integer height;
+
+    private LocalDateTime updateTime;
+
+    public static String hash(String filePath) {
+        return SecureUtil.md5(filePath);
+    }
+}
@@ -0,0 +1,51 @@
+package com.gdupload.entity;
+
+import cn.hutool.crypto.SecureUtil;
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 已确认存在的远端目录（按 rclone 远程名），上传前预创建目录时跳过
+ *
+ * @author GD Upload Manager
+ * @since 2026-02-28
+ */
+@Data
+@TableName("remote_dir_cache")
+public class RemoteDirCache implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * rclone 远程名
+     */
+    private String remoteName;
+
+    /**
+     * 目录路径（不含首尾斜杠）
+     */
+    private String dirPath;
+
+    /**
+     * remoteName:dirPath 的 MD5（唯一键用，避免长路径前缀冲突）
+     */
+    private String pathHash;
+
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createTime;
+
+    /**
+     * 最近一次确认存在的时间（超过有效期未确认的记录不再使用）
+     */
+    private LocalDateTime verifyTime;
+
+    public static String hash(String remoteName, String dirPath) {
+        return SecureUtil.md5(remoteName + ":" + dirPath);
+    }
+}
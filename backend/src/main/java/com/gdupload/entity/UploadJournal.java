@@ -0,0 +1,59 @@
+package com.gdupload.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 上传日志（预写日志）实体：记录正在传输的文件，传输结束后删除。
+ * 进程崩溃后据此核对远端并续传。
+ *
+ * @author GD Upload Manager
+ * @since 2026-02-26
+ */
+@Data
+@TableName("upload_journal")
+public class UploadJournal implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 文件ID
+     */
+    @TableId(value = "file_id", type = IdType.INPUT)
+    private Long fileId;
+
+    /**
+     * 任务ID
+     */
+    private Long taskId;
+
+    /**
+     * 上传使用的账号ID
+     */
+    private Long accountId;
+
+    /**
+     * 本地文件路径（格式化重命名之后）
+     */
+    private String localPath;
+
+    /**
+     * 远端文件完整路径（含文件名）
+     */
+    private String remotePath;
+
+    /**
+     * 文件大小(字节)
+     */
+    private Long fileSize;
+
+    /**
+     * 传输开始时间
+     */
+    private LocalDateTime startTime;
+}
@@ -34,6 +34,16 @@ public class UploadTask implements Serializable {
      */
     private Integer taskType;
 
+    /**
+     * 调度策略: 0-按顺序轮询 1-大小均衡（大文件优先+小文件穿插，按剩余额度和在途字节分配账号）
+     */
+    private Integer schedulePolicy;
+
+    /**
+     * 优先级(1-10，默认5)：多个任务同时上传时按优先级加权分配上传工作线程
+     */
+    private Integer priority;
+
     /**
      * 源文件路径
      */
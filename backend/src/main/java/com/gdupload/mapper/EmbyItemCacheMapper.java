@@ -3,6 +3,7 @@ package com.gdupload.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.gdupload.dto.EmbyItem;
 import com.gdupload.entity.EmbyItemCache;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
@@ -17,47 +18,39 @@ import java.util.Map;
 public interface EmbyItemCacheMapper extends BaseMapper<EmbyItemCache> {
 
     /**
-     * 根据转存状态和下载状态筛选媒体项（分页）
+     * 批量写入媒体项（按 (id, emby_config_id) 主键已存在则更新，create_time 保持不变）
      */
-    @Select("<script>" +
-            "SELECT DISTINCT e.* FROM emby_item e " +
-            "<if test='params.transferStatus == \"success\"'>" +
-            "INNER JOIN (" +
-            "  SELECT emby_item_id, MAX(create_time) as max_time " +
-            "  FROM transfer_history " +
-            "  GROUP BY emby_item_id" +
-            ") t ON e.id = t.emby_item_id " +
-            "INNER JOIN transfer_history th ON t.emby_item_id = th.emby_item_id AND t.max_time = th.create_time " +
-            "</if>" +
-            "<if test='params.transferStatus == \"failed\"'>" +
-            "INNER JOIN (" +
-            "  SELECT emby_item_id, MAX(create_time) as max_time " +
-            "  FROM transfer_history " +
-            "  GROUP BY emby_item_id" +
-            ") t ON e.id = t.emby_item_id " +
-            "INNER JOIN transfer_history th ON t.emby_item_id = th.emby_item_id AND t.max_time = th.create_time " +
-            "</if>" +
-            "<if test='params.transferStatus == \"none\"'>" +
-            "LEFT JOIN transfer_history th ON e.id = th.emby_item_id " +
-            "</if>" +
-            "<if test='params.downloadStatus == \"success\"'>" +
-            "INNER JOIN (" +
-            "  SELECT emby_item_id, MAX(create_time) as max_time " +
-            "  FROM emby_download_history " +
-            "  GROUP BY emby_item_id" +
-            ") d ON e.id = d.emby_item_id " +
-            "INNER JOIN emby_download_history dh ON d.emby_item_id = dh.emby_item_id AND d.max_time = dh.create_time " +
-            "</if>" +
-            "<if test='params.downloadStatus == \"failed\"'>" +
-            "INNER JOIN (" +
-            "  SELECT emby_item_id, MAX(create_time) as max_time " +
-            "  FROM emby_download_history " +
-            "  GROUP BY emby_item_id" +
-            ") d ON e.id = d.emby_item_id " +
-            "INNER JOIN emby_download_history dh ON d.emby_item_id = dh.emby_item_id AND d.max_time = dh.create_time " +
-            "</if>" +
-            "<if test='params.downloadStatus == \"none\"'>" +
-            "LEFT JOIN emby_download_history dh2 ON e.id = dh2.emby_item_id " +
+    @Insert({
+        "<script>",
+        "INSERT INTO emby_item (id, emby_config_id, name, original_title, type, parent_id, production_year,",
+        "  community_rating, official_rating, overview, genres, tags, studios, people, path, size, play_count,",
+        "  media_sources, server_id, create_time, update_time, last_sync_time) VALUES",
+        "<foreach collection='list' item='c' separator=','>",
+        "  (#{c.id}, #{c.embyConfigId}, #{c.name}, #{c.originalTitle}, #{c.type}, #{c.parentId}, #{c.productionYear},",
+        "   #{c.communityRating}, #{c.officialRating}, #{c.overview}, #{c.genres}, #{c.tags}, #{c.studios},",
+        "   #{c.people}, #{c.path}, #{c.size}, #{c.playCount}, #{c.mediaSources}, #{c.serverId},",
+        "   NOW(), NOW(), #{c.lastSyncTime})",
+        "</foreach>",
+        "ON DUPLICATE KEY UPDATE name = VALUES(name), original_title = VALUES(original_title), type = VALUES(type),",
+        "  parent_id = VALUES(parent_id), production_year = VALUES(production_year),",
+        "  community_rating = VALUES(community_rating), official_rating = VALUES(official_rating),",
+        "  overview = VALUES(overview), genres = VALUES(genres), tags = VALUES(tags), studios = VALUES(studios),",
+        "  people = VALUES(people), path = VALUES(path), size = VALUES(size), play_count = VALUES(play_count),",
+        "  media_sources = VALUES(media_sources), server_id = VALUES(server_id),",
+        "  update_time = NOW(), last_sync_time = VALUES(last_sync_time)",
+        "</script>"
+    })
+    int upsertBatch(@Param("list") List<EmbyItemCache> list);
+
+    /**
+     * 按转存状态、下载状态、类型筛选的 FROM / WHERE 部分
+     * emby_item_status 按主键 (emby_config_id, emby_item_id) 关联，每个媒体项至多一行；
+     * 没有转存 / 下载记录时对应列为 NULL（或没有状态行）即为 none
+     */
+    String STATUS_FILTER_FROM_WHERE =
+            "FROM emby_item e " +
+            "<if test='(params.transferStatus != null and params.transferStatus != \"\") or (params.downloadStatus != null and params.downloadStatus != \"\")'>" +
+            "LEFT JOIN emby_item_status s ON s.emby_config_id = e.emby_config_id AND s.emby_item_id = e.id " +
             "</if>" +
             "WHERE e.emby_config_id = #{params.configId} " +
             "AND e.parent_id = #{params.libraryId} " +
@@ -68,23 +61,29 @@ public interface EmbyItemCacheMapper extends BaseMapper<EmbyItemCache> {
             "AND e.type != 'Episode' " +
             "</if>" +
             "<if test='params.transferStatus == \"success\"'>" +
-            "AND th.transfer_status = 'success' " +
+            "AND s.transfer_status = 'success' " +
             "</if>" +
             "<if test='params.transferStatus == \"failed\"'>" +
-            "AND th.transfer_status = 'failed' " +
+            "AND s.transfer_status = 'failed' " +
             "</if>" +
             "<if test='params.transferStatus == \"none\"'>" +
-            "AND th.id IS NULL " +
+            "AND s.transfer_status IS NULL " +
             "</if>" +
             "<if test='params.downloadStatus == \"success\"'>" +
-            "AND dh.download_status = 'success' " +
+            "AND s.download_status = 'success' " +
             "</if>" +
             "<if test='params.downloadStatus == \"failed\"'>" +
-            "AND dh.download_status = 'failed' " +
+            "AND s.download_status = 'failed' " +
             "</if>" +
             "<if test='params.downloadStatus == \"none\"'>" +
-            "AND dh2.id IS NULL " +
-            "</if>" +
+            "AND s.download_status IS NULL " +
+            "</if>";
+
+    /**
+     * 根据转存状态和下载状态筛选媒体项（分页）
+     */
+    @Select("<script>" +
+            "SELECT e.* " + STATUS_FILTER_FROM_WHERE +
             "ORDER BY e.update_time DESC " +
             "LIMIT #{params.limit} OFFSET #{params.offset}" +
             "</script>")
@@ -94,71 +93,7 @@ public interface EmbyItemCacheMapper extends BaseMapper<EmbyItemCache> {
      * 统计符合转存状态和下载状态的媒体项数量
      */
     @Select("<script>" +
-            "SELECT COUNT(DISTINCT e.id) FROM emby_item e " +
-            "<if test='params.transferStatus == \"success\"'>" +
-            "INNER JOIN (" +
-            "  SELECT emby_item_id, MAX(create_time) as max_time " +
-            "  FROM transfer_history " +
-            "  GROUP BY emby_item_id" +
-            ") t ON e.id = t.emby_item_id " +
-            "INNER JOIN transfer_history th ON t.emby_item_id = th.emby_item_id AND t.max_time = th.create_time " +
-            "</if>" +
-            "<if test='params.transferStatus == \"failed\"'>" +
-            "INNER JOIN (" +
-            "  SELECT emby_item_id, MAX(create_time) as max_time " +
-            "  FROM transfer_history " +
-            "  GROUP BY emby_item_id" +
-            ") t ON e.id = t.emby_item_id " +
-            "INNER JOIN transfer_history th ON t.emby_item_id = th.emby_item_id AND t.max_time = th.create_time " +
-            "</if>" +
-            "<if test='params.transferStatus == \"none\"'>" +
-            "LEFT JOIN transfer_history th ON e.id = th.emby_item_id " +
-            "</if>" +
-            "<if test='params.downloadStatus == \"success\"'>" +
-            "INNER JOIN (" +
-            "  SELECT emby_item_id, MAX(create_time) as max_time " +
-            "  FROM emby_download_history " +
-            "  GROUP BY emby_item_id" +
-            ") d ON e.id = d.emby_item_id " +
-            "INNER JOIN emby_download_history dh ON d.emby_item_id = dh.emby_item_id AND d.max_time = dh.create_time " +
-            "</if>" +
-            "<if test='params.downloadStatus == \"failed\"'>" +
-            "INNER JOIN (" +
-            "  SELECT emby_item_id, MAX(create_time) as max_time " +
-            "  FROM emby_download_history " +
-            "  GROUP BY emby_item_id" +
-            ") d ON e.id = d.emby_item_id " +
-            "INNER JOIN emby_download_history dh ON d.emby_item_id = dh.emby_item_id AND d.max_time = dh.create_time " +
-            "</if>" +
-            "<if test='params.downloadStatus == \"none\"'>" +
-            "LEFT JOIN emby_download_history dh2 ON e.id = dh2.emby_item_id " +
-            "</if>" +
-            "WHERE e.emby_config_id = #{params.configId} " +
-            "AND e.parent_id = #{params.libraryId} " +
-            "<if test='params.itemType != null and params.itemType != \"\"'>" +
-            "AND e.type = #{params.itemType} " +
-            "</if>" +
-            "<if test='params.itemType == null or params.itemType == \"\"'>" +
-            "AND e.type != 'Episode' " +
-            "</if>" +
-            "<if test='params.transferStatus == \"success\"'>" +
-            "AND th.transfer_status = 'success' " +
-            "</if>" +
-            "<if test='params.transferStatus == \"failed\"'>" +
-            "AND th.transfer_status = 'failed' " +
-            "</if>" +
-            "<if test='params.transferStatus == \"none\"'>" +
-            "AND th.id IS NULL " +
-            "</if>" +
-            "<if test='params.downloadStatus == \"success\"'>" +
-            "AND dh.download_status = 'success' " +
-            "</if>" +
-            "<if test='params.downloadStatus == \"failed\"'>" +
-            "AND dh.download_status = 'failed' " +
-            "</if>" +
-            "<if test='params.downloadStatus == \"none\"'>" +
-            "AND dh2.id IS NULL " +
-            "</if>" +
+            "SELECT COUNT(*) " + STATUS_FILTER_FROM_WHERE +
             "</script>")
     Long countItemsByTransferStatus(@Param("params") Map<String, Object> params);
 }
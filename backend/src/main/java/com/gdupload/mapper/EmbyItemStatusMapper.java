@@ -0,0 +1,81 @@
+package com.gdupload.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.gdupload.entity.EmbyItemStatus;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+/**
+ * Emby 媒体项最新状态Mapper
+ *
+ * @author GD Upload Manager
+ * @since 2026-03-05
+ */
+@Mapper
+public interface EmbyItemStatusMapper extends BaseMapper<EmbyItemStatus> {
+
+    /**
+     * 记录最新转存状态
+     * 转存历史不区分 Emby 配置，状态写到所有配置下，与按媒体项ID匹配历史的原有语义一致
+     */
+    @Insert({
+        "<script>",
+        "INSERT INTO emby_item_status (emby_config_id, emby_item_id, transfer_status, transfer_time, update_time)",
+        "SELECT c.id, #{itemId}, #{status}, NOW(), NOW() FROM emby_config c",
+        "ON DUPLICATE KEY UPDATE transfer_status = VALUES(transfer_status),",
+        "  transfer_time = VALUES(transfer_time), update_time = NOW()",
+        "</script>"
+    })
+    int upsertTransferStatus(@Param("itemId") String itemId, @Param("status") String status);
+
+    /**
+     * 新增 Emby 配置时回填转存状态：每个媒体项最新的转存记录（自增ID最大即最新）写到该配置下
+     */
+    @Insert({
+        "<script>",
+        "INSERT INTO emby_item_status (emby_config_id, emby_item_id, transfer_status, transfer_time, update_time)",
+        "SELECT #{configId}, h.emby_item_id, h.transfer_status, h.create_time, NOW()",
+        "FROM transfer_history h",
+        "INNER JOIN (SELECT MAX(id) AS max_id FROM transfer_history GROUP BY emby_item_id) m ON h.id = m.max_id",
+        "ON DUPLICATE KEY UPDATE transfer_status = VALUES(transfer_status),",
+        "  transfer_time = VALUES(transfer_time), update_time = NOW()",
+        "</script>"
+    })
+    int backfillTransferStatus(@Param("configId") Long configId);
+
+    /**
+     * 删除 Emby 配置时清除该配置下的状态
+     */
+    @Delete("DELETE FROM emby_item_status WHERE emby_config_id = #{configId}")
+    int deleteByConfigId(@Param("configId") Long configId);
+
+    /**
+     * 记录最新下载状态
+     */
+    @Insert({
+        "<script>",
+        "INSERT INTO emby_item_status (emby_config_id, emby_item_id, download_status, download_time, update_time)",
+        "VALUES (#{configId}, #{itemId}, #{status}, NOW(), NOW())",
+        "ON DUPLICATE KEY UPDATE download_status = VALUES(download_status),",
+        "  download_time = VALUES(download_time), update_time = NOW()",
+        "</script>"
+    })
+    int upsertDownloadStatus(@Param("configId") Long configId, @Param("itemId") String itemId,
+                             @Param("status") String status);
+
+    /**
+     * 批量查询媒体项的最新状态（没有任何记录的媒体项不返回）
+     */
+    @Select({
+        "<script>",
+        "SELECT * FROM emby_item_status WHERE emby_config_id = #{configId} AND emby_item_id IN",
+        "<foreach collection='itemIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>",
+        "</script>"
+    })
+    List<EmbyItemStatus> selectByItemIds(@Param("configId") Long configId, @Param("itemIds") List<String> itemIds);
+}
@@ -2,11 +2,33 @@ package com.gdupload.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.gdupload.entity.EmbyLibraryCache;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
  * Emby媒体库缓存Mapper
  */
 @Mapper
 public interface EmbyLibraryCacheMapper extends BaseMapper<EmbyLibraryCache> {
+
+    /**
+     * 批量写入媒体库（按 (id, emby_config_id) 主键已存在则更新）
+     */
+    @Insert({
+        "<script>",
+        "INSERT INTO emby_library (id, emby_config_id, name, collection_type, item_count, locations, server_id,",
+        "  create_time, update_time, last_sync_time) VALUES",
+        "<foreach collection='list' item='c' separator=','>",
+        "  (#{c.id}, #{c.embyConfigId}, #{c.name}, #{c.collectionType}, #{c.itemCount}, #{c.locations}, #{c.serverId},",
+        "   NOW(), NOW(), #{c.lastSyncTime})",
+        "</foreach>",
+        "ON DUPLICATE KEY UPDATE name = VALUES(name), collection_type = VALUES(collection_type),",
+        "  item_count = VALUES(item_count), locations = VALUES(locations), server_id = VALUES(server_id),",
+        "  update_time = NOW(), last_sync_time = VALUES(last_sync_time)",
+        "</script>"
+    })
+    int upsertBatch(@Param("list") List<EmbyLibraryCache> list);
 }
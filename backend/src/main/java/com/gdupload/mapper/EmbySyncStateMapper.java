@@ -0,0 +1,56 @@
+package com.gdupload.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.gdupload.entity.EmbySyncState;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+/**
+ * Emby 媒体库同步状态Mapper
+ *
+ * @author GD Upload Manager
+ * @since 2026-03-04
+ */
+@Mapper
+public interface EmbySyncStateMapper extends BaseMapper<EmbySyncState> {
+
+    /**
+     * 查询某个配置下所有媒体库的同步状态
+     */
+    @Select("SELECT * FROM emby_sync_state WHERE emby_config_id = #{configId}")
+    List<EmbySyncState> selectByConfig(@Param("configId") Long configId);
+
+    /**
+     * 记录同步结果（为 null 的完成时间保持原值）
+     */
+    @Insert({
+        "<script>",
+        "INSERT INTO emby_sync_state (emby_config_id, library_id, watermark, last_full_sync_time,",
+        "  last_delta_sync_time, item_count, update_time)",
+        "VALUES (#{s.embyConfigId}, #{s.libraryId}, #{s.watermark}, #{s.lastFullSyncTime},",
+        "  #{s.lastDeltaSyncTime}, #{s.itemCount}, NOW())",
+        "ON DUPLICATE KEY UPDATE watermark = VALUES(watermark),",
+        "  last_full_sync_time = COALESCE(VALUES(last_full_sync_time), last_full_sync_time),",
+        "  last_delta_sync_time = COALESCE(VALUES(last_delta_sync_time), last_delta_sync_time),",
+        "  item_count = VALUES(item_count), update_time = NOW()",
+        "</script>"
+    })
+    int upsert(@Param("s") EmbySyncState state);
+
+    /**
+     * 删除某个媒体库的同步状态（媒体库已不存在）
+     */
+    @Delete("DELETE FROM emby_sync_state WHERE emby_config_id = #{configId} AND library_id = #{libraryId}")
+    int deleteByLibrary(@Param("configId") Long configId, @Param("libraryId") String libraryId);
+
+    /**
+     * 删除某个配置的全部同步状态（清空缓存后下次同步按全量处理）
+     */
+    @Delete("DELETE FROM emby_sync_state WHERE emby_config_id = #{configId}")
+    int deleteByConfig(@Param("configId") Long configId);
+}
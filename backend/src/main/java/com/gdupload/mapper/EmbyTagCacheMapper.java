@@ -2,11 +2,30 @@ package com.gdupload.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.gdupload.entity.EmbyTagCache;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
  * Emby标签缓存Mapper
  */
 @Mapper
 public interface EmbyTagCacheMapper extends BaseMapper<EmbyTagCache> {
+
+    /**
+     * 批量写入标签（按 (id, emby_config_id) 主键已存在则更新）
+     */
+    @Insert({
+        "<script>",
+        "INSERT INTO emby_tag (id, emby_config_id, name, item_count, create_time, update_time, last_sync_time) VALUES",
+        "<foreach collection='list' item='c' separator=','>",
+        "  (#{c.id}, #{c.embyConfigId}, #{c.name}, #{c.itemCount}, NOW(), NOW(), #{c.lastSyncTime})",
+        "</foreach>",
+        "ON DUPLICATE KEY UPDATE name = VALUES(name), item_count = VALUES(item_count),",
+        "  update_time = NOW(), last_sync_time = VALUES(last_sync_time)",
+        "</script>"
+    })
+    int upsertBatch(@Param("list") List<EmbyTagCache> list);
 }
@@ -23,6 +23,42 @@ public interface FileInfoMapper extends BaseMapper<FileInfo> {
     @Select("SELECT * FROM file_info WHERE task_id = #{taskId} AND status = 0 ORDER BY file_size ASC LIMIT #{limit}")
     List<FileInfo> selectPendingFiles(@Param("taskId") Long taskId, @Param("limit") Integer limit);
 
+    /**
+     * 按主键分页获取待上传文件（待上传0 或 失败3），用于流式投喂上传线程池
+     */
+    @Select("SELECT * FROM file_info WHERE task_id = #{taskId} AND status IN (0, 3) AND id > #{afterId} ORDER BY id ASC LIMIT #{limit}")
+    List<FileInfo> selectPendingFilesAfter(@Param("taskId") Long taskId, @Param("afterId") Long afterId, @Param("limit") Integer limit);
+
+    /**
+     * 按 (file_size, id) 降序分页获取待上传文件（大文件优先），游标为上一页最后一条的 (file_size, id)
+     */
+    @Select("SELECT * FROM file_info WHERE task_id = #{taskId} AND status IN (0, 3) " +
+            "AND (file_size < #{beforeSize} OR (file_size = #{beforeSize} AND id < #{beforeId})) " +
+            "ORDER BY file_size DESC, id DESC LIMIT #{limit}")
+    List<FileInfo> selectPendingFilesBySizeDesc(@Param("taskId") Long taskId, @Param("beforeSize") Long beforeSize,
+                                                @Param("beforeId") Long beforeId, @Param("limit") Integer limit);
+
+    /**
+     * 按 (file_size, id) 升序分页获取待上传文件（小文件优先），游标为上一页最后一条的 (file_size, id)
+     */
+    @Select("SELECT * FROM file_info WHERE task_id = #{taskId} AND status IN (0, 3) " +
+            "AND (file_size > #{afterSize} OR (file_size = #{afterSize} AND id > #{afterId})) " +
+            "ORDER BY file_size ASC, id ASC LIMIT #{limit}")
+    List<FileInfo> selectPendingFilesBySizeAsc(@Param("taskId") Long taskId, @Param("afterSize") Long afterSize,
+                                               @Param("afterId") Long afterId, @Param("limit") Integer limit);
+
+    /**
+     * 获取任务涉及的所有相对目录（去重）
+     */
+    @Select("SELECT DISTINCT relative_path FROM file_info WHERE task_id = #{taskId} AND relative_path IS NOT NULL AND relative_path <> ''")
+    List<String> selectDistinctRelativePaths(@Param("taskId") Long taskId);
+
+    /**
+     * 获取任务已使用过的上传账号ID（去重）
+     */
+    @Select("SELECT DISTINCT upload_account_id FROM file_info WHERE task_id = #{taskId} AND upload_account_id IS NOT NULL")
+    List<Long> selectDistinctUploadAccountIds(@Param("taskId") Long taskId);
+
     /**
      * 统计任务文件状态
      */
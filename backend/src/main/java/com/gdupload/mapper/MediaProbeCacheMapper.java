@@ -0,0 +1,42 @@
+package com.gdupload.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.gdupload.entity.MediaProbeCache;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+/**
+ * 媒体探测结果缓存Mapper
+ *
+ * @author GD Upload Manager
+ * @since 2026-03-01
+ */
+@Mapper
+public interface MediaProbeCacheMapper extends BaseMapper<MediaProbeCache> {
+
+    /**
+     * 按路径哈希查询（唯一索引）
+     */
+    @Select("SELECT * FROM media_probe_cache WHERE path_hash = #{pathHash}")
+    MediaProbeCache selectByPathHash(@Param("pathHash") String pathHash);
+
+    /**
+     * 写入探测结果（同一路径覆盖旧结果）
+     */
+    @Insert("INSERT INTO media_probe_cache (path_hash, file_path, file_size, file_mtime, video_codec, audio_codec, " +
+            "resolution, width, height, update_time) VALUES (#{pathHash}, #{filePath}, #{fileSize}, #{fileMtime}, " +
+            "#{videoCodec}, #{audioCodec}, #{resolution}, #{width}, #{height}, NOW()) " +
+            "ON DUPLICATE KEY UPDATE file_path = VALUES(file_path), file_size = VALUES(file_size), " +
+            "file_mtime = VALUES(file_mtime), video_codec = VALUES(video_codec), audio_codec = VALUES(audio_codec), " +
+            "resolution = VALUES(resolution), width = VALUES(width), height = VALUES(height), update_time = NOW()")
+    int upsert(MediaProbeCache record);
+
+    /**
+     * 删除超过保留天数未更新的记录（每次最多 limit 行）
+     */
+    @Delete("DELETE FROM media_probe_cache WHERE update_time < DATE_SUB(NOW(), INTERVAL #{days} DAY) LIMIT #{limit}")
+    int deleteExpired(@Param("days") int days, @Param("limit") int limit);
+}
@@ -0,0 +1,56 @@
+package com.gdupload.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.gdupload.entity.RemoteDirCache;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 远端目录缓存Mapper
+ *
+ * @author GD Upload Manager
+ * @since 2026-02-28
+ */
+@Mapper
+public interface RemoteDirCacheMapper extends BaseMapper<RemoteDirCache> {
+
+    /**
+     * 在给定目录中查出 ttlHours 小时内确认过存在的目录（按 path_hash 唯一索引批量查询）
+     */
+    @Select({
+        "<script>",
+        "SELECT dir_path FROM remote_dir_cache WHERE path_hash IN",
+        "<foreach collection='hashes' item='h' open='(' separator=',' close=')'>#{h}</foreach>",
+        "AND verify_time &gt;= DATE_SUB(NOW(), INTERVAL #{ttlHours} HOUR)",
+        "</script>"
+    })
+    List<String> selectKnownPaths(@Param("hashes") Collection<String> hashes, @Param("ttlHours") int ttlHours);
+
+    /**
+     * 批量记录，已存在的刷新确认时间
+     */
+    @Insert({
+        "<script>",
+        "INSERT INTO remote_dir_cache (remote_name, dir_path, path_hash, create_time, verify_time) VALUES",
+        "<foreach collection='list' item='d' separator=','>",
+        "  (#{d.remoteName}, #{d.dirPath}, #{d.pathHash}, NOW(), NOW())",
+        "</foreach>",
+        "ON DUPLICATE KEY UPDATE verify_time = VALUES(verify_time)",
+        "</script>"
+    })
+    int upsertVerifiedBatch(@Param("list") List<RemoteDirCache> list);
+
+    /**
+     * 删除目录及其子目录的记录（远端目录被删除 / 移动后调用）
+     */
+    @Delete("DELETE FROM remote_dir_cache WHERE remote_name = #{remoteName} " +
+            "AND (dir_path = #{dirPath} OR dir_path LIKE CONCAT(#{likePrefix}, '/%'))")
+    int deleteTree(@Param("remoteName") String remoteName, @Param("dirPath") String dirPath,
+                   @Param("likePrefix") String likePrefix);
+}
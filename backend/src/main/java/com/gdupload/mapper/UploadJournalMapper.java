@@ -0,0 +1,33 @@
+package com.gdupload.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.gdupload.entity.UploadJournal;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 上传日志Mapper
+ *
+ * @author GD Upload Manager
+ * @since 2026-02-26
+ */
+@Mapper
+public interface UploadJournalMapper extends BaseMapper<UploadJournal> {
+
+    /**
+     * 批量写入（同一文件重试 / 切换账号时覆盖旧记录）
+     */
+    @Insert({
+        "<script>",
+        "REPLACE INTO upload_journal (file_id, task_id, account_id, local_path, remote_path, file_size, start_time)",
+        "VALUES",
+        "<foreach collection='list' item='j' separator=','>",
+        "  (#{j.fileId}, #{j.taskId}, #{j.accountId}, #{j.localPath}, #{j.remotePath}, #{j.fileSize}, #{j.startTime})",
+        "</foreach>",
+        "</script>"
+    })
+    int replaceBatch(@Param("list") List<UploadJournal> list);
+}
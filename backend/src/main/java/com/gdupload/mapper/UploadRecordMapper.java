@@ -2,11 +2,13 @@ package com.gdupload.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.gdupload.entity.UploadRecord;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -33,6 +35,18 @@ public interface UploadRecordMapper extends BaseMapper<UploadRecord> {
     @Select("SELECT COALESCE(SUM(upload_size), 0) FROM upload_record WHERE account_id = #{accountId} AND DATE(upload_time) = CURDATE() AND status = 1")
     Long selectTodayUploadSize(@Param("accountId") Long accountId);
 
+    /**
+     * 按账号和时间桶汇总指定时间之后的上传量（回填内存滚动窗口账本，按 upload_time 范围扫描 idx_upload_time）
+     *
+     * @param since         起始时间，调用方需对齐到桶边界，桶序号才与内存账本的桶对齐
+     * @param bucketMinutes 时间桶宽度（分钟），bucket = 距 since 的桶序号
+     */
+    @Select("SELECT account_id, FLOOR(TIMESTAMPDIFF(MINUTE, #{since}, upload_time) / #{bucketMinutes}) AS bucket, " +
+            "SUM(upload_size) AS total_size FROM upload_record " +
+            "WHERE upload_time >= #{since} AND status = 1 GROUP BY account_id, bucket")
+    List<Map<String, Object>> selectUsageBuckets(@Param("since") LocalDateTime since,
+                                                 @Param("bucketMinutes") int bucketMinutes);
+
     /**
      * 统计任务各账号上传量
      */
@@ -44,4 +58,18 @@ public interface UploadRecordMapper extends BaseMapper<UploadRecord> {
      */
     @Select("SELECT DATE(upload_time) as date, SUM(upload_size) as total_size, COUNT(*) as file_count FROM upload_record WHERE upload_time BETWEEN #{startDate} AND #{endDate} AND status = 1 GROUP BY DATE(upload_time)")
     List<Map<String, Object>> selectUploadStatsByDateRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    /**
+     * 批量插入上传记录（一次进度刷新内同一账号的已上传文件）
+     */
+    @Insert({
+        "<script>",
+        "INSERT INTO upload_record (task_id, account_id, file_id, upload_size, upload_time, status, create_time)",
+        "VALUES",
+        "<foreach collection='list' item='r' separator=','>",
+        "  (#{r.taskId}, #{r.accountId}, #{r.fileId}, #{r.uploadSize}, #{r.uploadTime}, #{r.status}, #{r.createTime})",
+        "</foreach>",
+        "</script>"
+    })
+    int insertBatch(@Param("list") List<UploadRecord> list);
 }
@@ -44,7 +44,7 @@ public interface IEmbyCacheService {
     EmbyItem getItemDetail(String itemId, boolean forceRefresh);
 
     /**
-     * 搜索媒体项（从数据库）
+     * 搜索媒体项（内存索引按相关度排序，最多 100 条；索引未就绪时查数据库）
      *
      * @param keyword      搜索关键词
      * @param forceRefresh 已废弃，保留参数仅为兼容性
@@ -54,12 +54,20 @@ public interface IEmbyCacheService {
 
     /**
      * 一次性全量同步所有数据到数据库
-     * 包括：媒体库、所有媒体项、类型、标签、工作室
+     * 包括：媒体库、所有媒体项、类型、标签、工作室（覆盖写入，结束后删除 Emby 中已不存在的数据）
      *
      * @return 同步结果
      */
     Map<String, Object> syncAllData();
 
+    /**
+     * 增量同步：按每个媒体库记录的水位线，只拉取之后有变更的媒体项，
+     * 并通过只含 ID 的列表检测删除；没有同步记录的媒体库按全量同步
+     *
+     * @return 同步结果
+     */
+    Map<String, Object> syncDelta();
+
     /**
      * 全量同步单个媒体库到数据库
      *
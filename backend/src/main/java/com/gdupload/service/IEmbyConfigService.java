@@ -11,10 +11,25 @@ import java.util.List;
 public interface IEmbyConfigService extends IService<EmbyConfig> {
 
     /**
-     * 获取默认配置
+     * 获取默认配置（内存缓存，返回副本）
      */
     EmbyConfig getDefaultConfig();
 
+    /**
+     * 获取默认配置，没有可用配置时返回 null（内存缓存，返回副本）
+     */
+    EmbyConfig findDefaultConfig();
+
+    /**
+     * 配置版本号（配置变更后递增，用于判断依赖配置的缓存是否过期）
+     */
+    long getConfigVersion();
+
+    /**
+     * 清除配置缓存（本服务的配置写入方法内部已调用；处于事务中时提交后再清除一次）
+     */
+    void evictCache();
+
     /**
      * 获取所有配置列表
      */
@@ -34,4 +49,14 @@ public interface IEmbyConfigService extends IService<EmbyConfig> {
      * 保存或更新配置
      */
     boolean saveOrUpdateConfig(EmbyConfig config);
+
+    /**
+     * 删除配置（同时清除该配置下的媒体项状态）
+     */
+    boolean deleteConfig(Long id);
+
+    /**
+     * 启用/禁用配置
+     */
+    boolean toggleConfig(Long id);
 }
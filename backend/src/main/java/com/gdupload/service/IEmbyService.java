@@ -56,6 +56,36 @@ public interface IEmbyService {
      */
     PagedResult<EmbyItem> getLibraryItemsPaged(String libraryId, Integer startIndex, Integer limit);
 
+    /**
+     * 分页获取媒体库中自某时间之后有变更的媒体项（增量同步用，字段与 getLibraryItemsPaged 相同）
+     *
+     * @param libraryId        媒体库ID
+     * @param minDateLastSaved 最早保存时间（ISO-8601 UTC，对应 Emby 的 MinDateLastSaved）
+     * @param startIndex       起始索引
+     * @param limit            每页数量
+     * @return 分页结果
+     */
+    PagedResult<EmbyItem> getLibraryItemsChangedSince(String libraryId, String minDateLastSaved,
+                                                      Integer startIndex, Integer limit);
+
+    /**
+     * 分页获取媒体库中所有媒体项的ID（不请求额外字段、图片和用户数据，用于检测删除）
+     *
+     * @param libraryId  媒体库ID
+     * @param startIndex 起始索引
+     * @param limit      每页数量
+     * @return 分页结果（只有 ID）
+     */
+    PagedResult<String> getLibraryItemIds(String libraryId, Integer startIndex, Integer limit);
+
+    /**
+     * 按ID批量获取媒体项（字段与 getLibraryItemsPaged 相同）
+     *
+     * @param ids 媒体项ID（每次不宜超过 100 个）
+     * @return 媒体项列表
+     */
+    List<EmbyItem> getItemsByIds(List<String> ids);
+
     /**
      * 获取媒体项详情
      *
@@ -133,13 +163,15 @@ public interface IEmbyService {
 
     /**
      * 代理下载媒体项（模拟播放器请求）
-     * 通过后端请求视频流并转发给前端
+     * 通过后端请求视频流并转发给前端，支持 Range 断点续传；传输以异步方式进行
      *
      * @param itemId 媒体项ID
      * @param filename 下载文件名
+     * @param request HTTP请求（读取 Range / If-Range 并开启异步）
      * @param response HTTP响应
      */
-    void proxyDownload(String itemId, String filename, javax.servlet.http.HttpServletResponse response) throws Exception;
+    void proxyDownload(String itemId, String filename, javax.servlet.http.HttpServletRequest request,
+                       javax.servlet.http.HttpServletResponse response) throws Exception;
 
     /**
      * 下载媒体项到服务器本地
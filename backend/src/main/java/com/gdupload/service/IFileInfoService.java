@@ -1,6 +1,7 @@
 package com.gdupload.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.gdupload.dto.TaskFileStats;
 import com.gdupload.entity.FileInfo;
 
 import java.util.List;
@@ -38,6 +39,35 @@ public interface IFileInfoService extends IService<FileInfo> {
      */
     List<FileInfo> getPendingFiles(Long taskId);
 
+    /**
+     * 按主键分页获取任务中待上传的文件（id > afterId，按 id 升序）
+     */
+    List<FileInfo> getPendingFilesAfter(Long taskId, Long afterId, int limit);
+
+    /**
+     * 按 (文件大小, id) 分页获取任务中待上传的文件
+     *
+     * @param descending true 为从大到小（游标之前），false 为从小到大（游标之后）
+     * @param cursorSize 上一页最后一条的文件大小
+     * @param cursorId   上一页最后一条的 id
+     */
+    List<FileInfo> getPendingFilesBySize(Long taskId, boolean descending, long cursorSize, long cursorId, int limit);
+
+    /**
+     * 按状态聚合统计任务文件（数量、大小）
+     */
+    TaskFileStats getTaskFileStats(Long taskId);
+
+    /**
+     * 获取任务涉及的所有相对目录（去重）
+     */
+    List<String> getTaskRelativePaths(Long taskId);
+
+    /**
+     * 获取任务已使用过的上传账号ID（去重）
+     */
+    List<Long> getTaskUploadAccountIds(Long taskId);
+
     /**
      * 获取任务中失败的文件
      */
@@ -48,6 +78,31 @@ public interface IFileInfoService extends IService<FileInfo> {
      */
     boolean markFileAsUploaded(Long fileId, Long accountId);
 
+    /**
+     * 批量更新文件状态（小文件批量上传用）
+     */
+    boolean updateFilesStatus(List<Long> fileIds, Integer status, String errorMessage);
+
+    /**
+     * 批量标记文件为已上传（同时插入上传记录）
+     */
+    boolean markFilesAsUploaded(List<FileInfo> files, Long accountId);
+
+    /**
+     * 目标目录已有内容相同的文件时直接标记为已上传（不插入上传记录，不占用账号额度）
+     */
+    boolean markFileAsDuplicate(Long fileId, Long accountId, String md5, String message);
+
+    /**
+     * 查询所有处于指定状态的文件（启动恢复时查找停留在“上传中”的文件）
+     */
+    List<FileInfo> getFilesByStatus(Integer status);
+
+    /**
+     * 记录文件MD5
+     */
+    boolean updateFileMd5(Long fileId, String md5);
+
     /**
      * 检查文件是否已存在
      */
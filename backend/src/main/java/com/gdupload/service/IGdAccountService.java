@@ -5,6 +5,7 @@ import com.baomidou.mybatisplus.extension.service.IService;
 import com.gdupload.entity.GdAccount;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Google Drive账号服务接口
@@ -24,6 +25,11 @@ public interface IGdAccountService extends IService<GdAccount> {
      */
     List<GdAccount> getAvailableAccounts();
 
+    /**
+     * 从账号注册表获取账号（内存缓存，只读，不要修改后写回）
+     */
+    GdAccount getCachedAccount(Long accountId);
+
     /**
      * 获取最佳可用账号
      */
@@ -34,6 +40,16 @@ public interface IGdAccountService extends IService<GdAccount> {
      */
     GdAccount getNextAvailableAccountInRotation(Long taskId, Long requiredSize);
 
+    /**
+     * 按剩余额度均衡选择账号（用于大小均衡调度：大文件优先落到剩余额度最多的账号）
+     */
+    GdAccount getBalancedAccount(Long taskId, Long requiredSize);
+
+    /**
+     * 各账号当前的自适应上传并发上限、在途数、吞吐与限流统计
+     */
+    List<Map<String, Object>> getUploadConcurrency();
+
     /**
      * 清理任务的轮询索引（任务完成或取消时调用）
      */
@@ -4,6 +4,8 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.gdupload.entity.SystemLog;
 
+import java.util.List;
+
 /**
  * 系统日志服务接口
  *
@@ -75,6 +77,19 @@ public interface ISystemLogService extends IService<SystemLog> {
     void logFileUpload(Long taskId, Long fileId, String fileName, Long fileSize,
                        Long accountId, String operation, String message, String detail);
 
+    /**
+     * 构建文件上传日志（不落库，配合 {@link #logBatch(List)} 批量写入）
+     */
+    SystemLog buildFileUploadLog(Long taskId, Long fileId, String fileName, Long fileSize,
+                                 Long accountId, String operation, String message, String detail);
+
+    /**
+     * 批量写入日志
+     *
+     * @param logs 日志列表
+     */
+    void logBatch(List<SystemLog> logs);
+
     /**
      * 记录任务操作日志（启动、暂停、取消、重试等）
      *
@@ -0,0 +1,56 @@
+package com.gdupload.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * 实时传输遥测服务接口
+ * <p>
+ * 解析 rclone 的 JSON stats，按任务 / 账号汇总速度、ETA、正在传输的文件，
+ * 定时通过 WebSocket 推送，并在内存中保留最近一段时间的采样序列。
+ *
+ * @author GD Upload Manager
+ * @since 2026-02-24
+ */
+public interface ITransferTelemetryService {
+
+    /**
+     * 单次 rclone 调用（一个进程或一个 rc job）的采集器：作为 logConsumer 传给 RcloneUtil，结束后 close
+     */
+    interface Tracker extends Consumer<String>, AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * 任务开始上传时注册（用于计算任务级 ETA）
+     *
+     * @param totalBytes     任务总字节
+     * @param completedBytes 已完成字节（读取任务进度合并器的实时计数）
+     */
+    void startTask(Long taskId, long totalBytes, LongSupplier completedBytes);
+
+    /**
+     * 任务结束（完成 / 暂停 / 取消）时注销，采样序列继续保留
+     */
+    void finishTask(Long taskId);
+
+    /**
+     * 开始采集一次 rclone 调用
+     *
+     * @param delegate 原始日志行的下游消费者，可为 null
+     */
+    Tracker track(Long taskId, Long accountId, Consumer<String> delegate);
+
+    /**
+     * 任务最近的吞吐采样（时间升序）
+     */
+    List<Map<String, Object>> getTaskSeries(Long taskId);
+
+    /**
+     * 各账号最近的吞吐采样（accountId -> 时间升序采样）
+     */
+    Map<Long, List<Map<String, Object>>> getAccountSeries();
+}
@@ -1,7 +1,5 @@
 package com.gdupload.service;
 
-import com.gdupload.dto.UploadResult;
-
 /**
  * 上传核心服务接口
  *
@@ -20,11 +18,6 @@ public interface IUploadService {
      */
     boolean uploadFile(Long taskId, Long fileId, Long accountId);
 
-    /**
-     * 内部上传方法（带事务），返回详细的上传结果
-     */
-    UploadResult uploadFileInternal(Long taskId, Long fileId, Long accountId);
-
     /**
      * 停止任务执行
      */
@@ -24,6 +24,22 @@ public interface IUploadTaskService extends IService<UploadTask> {
      */
     Long createTask(String taskName, String sourcePath, String targetPath, List<String> fileList);
 
+    /**
+     * 创建上传任务（指定调度策略：0-按顺序轮询 1-大小均衡）
+     */
+    Long createTask(String taskName, String sourcePath, String targetPath, List<String> fileList, Integer schedulePolicy);
+
+    /**
+     * 创建上传任务（指定调度策略和优先级 1-10）
+     */
+    Long createTask(String taskName, String sourcePath, String targetPath, List<String> fileList,
+                    Integer schedulePolicy, Integer priority);
+
+    /**
+     * 修改任务优先级（运行中的任务立即生效）
+     */
+    boolean updatePriority(Long taskId, Integer priority);
+
     /**
      * 开始执行任务
      */
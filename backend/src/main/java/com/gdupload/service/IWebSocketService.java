@@ -1,5 +1,8 @@
 package com.gdupload.service;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * WebSocket消息推送服务接口
  *
@@ -41,4 +44,23 @@ public interface IWebSocketService {
      * @param message 状态消息
      */
     void pushFileStatus(Long taskId, Long fileId, String fileName, Integer status, String message);
+
+    /**
+     * 推送任务实时吞吐
+     *
+     * @param taskId 任务ID
+     * @param bytesPerSecond 当前速度（字节/秒）
+     * @param etaSeconds 预计剩余秒数（未知为 null）
+     * @param activeTransfers 正在传输的文件数
+     * @param transferring 正在传输的文件（名称、大小、已传字节、百分比、速度、ETA）
+     */
+    void pushTaskThroughput(Long taskId, Long bytesPerSecond, Long etaSeconds, Integer activeTransfers,
+                            List<Map<String, Object>> transferring);
+
+    /**
+     * 推送各账号实时吞吐
+     *
+     * @param accounts 每个账号一条（accountId、速度、正在传输的文件数、在途字节）
+     */
+    void pushAccountThroughput(List<Map<String, Object>> accounts);
 }
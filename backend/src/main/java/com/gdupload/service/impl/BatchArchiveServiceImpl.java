@@ -26,6 +26,7 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import com.gdupload.util.TaskPauseManager;
+import com.gdupload.util.TaskProgressAggregator;
 
 import java.util.*;
 import java.util.concurrent.*;
@@ -71,6 +72,10 @@ public class BatchArchiveServiceImpl implements IBatchArchiveService {
     @Value("${app.archive.db-flush-interval:5}")
     private int dbFlushInterval;
 
+    /** 进度定时刷DB间隔（毫秒），与 db-flush-interval 先到先刷 */
+    @Value("${app.upload.progress-flush-interval:500}")
+    private long progressFlushInterval;
+
     public BatchArchiveServiceImpl(ArchiveBatchTaskMapper batchTaskMapper,
                                    ArchiveHistoryMapper archiveHistoryMapper,
                                    IArchiveService archiveService,
@@ -147,6 +152,7 @@ public class BatchArchiveServiceImpl implements IBatchArchiveService {
     private void processBatchTask(Long taskId, String rcloneConfigName, String sourcePath,
                                   Set<String> skipPaths) {
         final boolean isResume = !skipPaths.isEmpty();
+        TaskProgressAggregator<Void> progress = null;
         try {
             applyUpdate(taskId, t -> {
                 t.setStatus("RUNNING");
@@ -224,11 +230,14 @@ public class BatchArchiveServiceImpl implements IBatchArchiveService {
                 initFailed    = 0;
                 initManual    = 0;
             }
-            AtomicInteger processedCounter = new AtomicInteger(initProcessed);
-            AtomicInteger successCounter   = new AtomicInteger(initSuccess);
-            AtomicInteger failedCounter    = new AtomicInteger(initFailed);
-            AtomicInteger manualCounter    = new AtomicInteger(initManual);
-            AtomicInteger sinceLastFlush   = new AtomicInteger(0);
+            // 进度合并器：计数与当前文件名按节奏合并刷DB（manual 计入 other）
+            // processedFiles 可能与三项之和不一致（历史数据），用差值补偿保持原值语义
+            final int processedOffset = initProcessed - (initSuccess + initFailed + initManual);
+            progress = TaskProgressAggregator.<Void>start(
+                    taskId, progressFlushInterval, dbFlushInterval,
+                    snap -> flushCounters(taskId, snap, processedOffset))
+                .seed(initSuccess, initFailed, initManual, 0L);
+            final TaskProgressAggregator<Void> counters = progress;
 
             // ── 注册到 TaskPauseManager（初始 0，每提交一个任务时 addActiveThread）──
             TaskPauseManager.register(taskId, 0);
@@ -284,8 +293,8 @@ public class BatchArchiveServiceImpl implements IBatchArchiveService {
                 if (cancelFlag.get() != 0) break;
 
                 final String fname = file.getName();
-                // 更新当前文件名（低频操作，直接写DB）
-                applyUpdate(taskId, t -> t.setCurrentFile(fname));
+                // 当前文件名随下次进度刷新写入DB
+                progress.setCurrentItem(fname);
 
                 // 每提交一个任务，增加 activeThread 计数（与 onThreadFinished 配对）
                 TaskPauseManager.addActiveThread(taskId);
@@ -294,18 +303,10 @@ public class BatchArchiveServiceImpl implements IBatchArchiveService {
                         if (cancelFlag.get() != 0 || TaskPauseManager.shouldStop(taskId)) return;
                         int result = safeProcessOneFile(taskId, rcloneConfigName, sourcePath,
                                 file, tmdbCache, aiResultCache, aiSem);
-                        // 0=success, 1=failed, 2=manual
-                        processedCounter.incrementAndGet();
-                        if (result == 0) successCounter.incrementAndGet();
-                        else if (result == 1) failedCounter.incrementAndGet();
-                        else manualCounter.incrementAndGet();
-
-                        // 每 N 个文件刷一次 DB，减少锁争用
-                        if (sinceLastFlush.incrementAndGet() >= dbFlushInterval) {
-                            sinceLastFlush.set(0);
-                            flushCounters(taskId, processedCounter, successCounter,
-                                    failedCounter, manualCounter);
-                        }
+                        // 0=success, 1=failed, 2=manual（每 N 个文件或每个刷新周期刷一次 DB）
+                        if (result == 0) counters.recordSuccess(0L, fname);
+                        else if (result == 1) counters.recordFailure(fname);
+                        else counters.recordOther(fname);
                     } finally {
                         sem.release();
                         TaskPauseManager.onThreadFinished(taskId);
@@ -320,8 +321,8 @@ public class BatchArchiveServiceImpl implements IBatchArchiveService {
                 Thread.currentThread().interrupt();
             }
 
-            // 最终刷一次计数器
-            flushCounters(taskId, processedCounter, successCounter, failedCounter, manualCounter);
+            // 最终刷一次计数器（完成 / 暂停 / 取消）
+            progress.close();
 
             // 4. 更新最终状态（如果不是被暂停中断的）
             ArchiveBatchTask finalSnap = batchTaskMapper.selectById(taskId);
@@ -341,6 +342,7 @@ public class BatchArchiveServiceImpl implements IBatchArchiveService {
 
         } catch (Exception e) {
             log.error("[{}] 批量归档任务异常", taskId, e);
+            if (progress != null) progress.close();
             applyUpdate(taskId, t -> { t.setStatus("FAILED"); t.setErrorMessage(e.getMessage()); });
         } finally {
             TaskPauseManager.unregister(taskId);
@@ -349,17 +351,18 @@ public class BatchArchiveServiceImpl implements IBatchArchiveService {
 
     // ─── 批量刷计数器到 DB ──────────────────────────────────────────────────────
 
-    private synchronized void flushCounters(Long taskId,
-                                            AtomicInteger processed,
-                                            AtomicInteger success,
-                                            AtomicInteger failed,
-                                            AtomicInteger manual) {
-        ArchiveBatchTask t = batchTaskMapper.selectById(taskId);
-        if (t == null) return;
-        t.setProcessedFiles(processed.get());
-        t.setSuccessCount(success.get());
-        t.setFailedCount(failed.get());
-        t.setManualCount(manual.get());
+    /** 只更新计数列，不回写整行，避免覆盖期间的状态变更（PAUSING/PAUSED） */
+    private void flushCounters(Long taskId, TaskProgressAggregator.Snapshot<Void> snap, int processedOffset) {
+        ArchiveBatchTask t = new ArchiveBatchTask();
+        t.setId(taskId);
+        t.setProcessedFiles(snap.getProcessedCount() + processedOffset);
+        t.setSuccessCount(snap.getSuccessCount());
+        t.setFailedCount(snap.getFailedCount());
+        t.setManualCount(snap.getOtherCount());
+        // 最后一次刷新时任务即将结束，currentFile 交给状态更新清空
+        if (!snap.isFinalFlush()) {
+            t.setCurrentFile(snap.getCurrentItem());
+        }
         batchTaskMapper.updateById(t);
     }
 
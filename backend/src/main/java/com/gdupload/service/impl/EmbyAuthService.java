@@ -1,19 +1,23 @@
 package com.gdupload.service.impl;
 
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.http.HttpRequest;
-import cn.hutool.http.HttpResponse;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
 import com.gdupload.common.BusinessException;
 import com.gdupload.entity.EmbyConfig;
 import com.gdupload.service.IEmbyConfigService;
+import com.gdupload.util.EmbyHttpClient;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.function.Function;
+
 /**
  * Emby 认证服务
+ * <p>
+ * 当前配置、Token、用户ID 和预构建的请求头保存为一个不可变快照，请求路径上只比较配置版本号，不查库；
+ * 配置写入（版本号变化）、登录 / 登出、Emby 返回 401 时重建快照。
  */
 @Slf4j
 @Service
@@ -22,9 +26,35 @@ public class EmbyAuthService {
     @Autowired
     private IEmbyConfigService embyConfigService;
 
-    private String cachedAccessToken;
-    private String cachedUserId;
-    private Long currentConfigId;
+    @Autowired
+    private EmbyHttpClient embyHttpClient;
+
+    private volatile String cachedAccessToken;
+    private volatile String cachedUserId;
+    private volatile Long currentConfigId;
+
+    /** 当前连接快照（为 null 或版本号过期时重建） */
+    private volatile Snapshot snapshot;
+
+    private static final class Snapshot {
+        final long version;
+        final EmbyConfig config;
+        final String accessToken;
+        final String userId;
+        final int timeout;
+        /** 用户ID无法获取时为 null */
+        final EmbyHttpClient.Endpoint endpoint;
+
+        Snapshot(long version, EmbyConfig config, String accessToken, String userId, int timeout,
+                 EmbyHttpClient.Endpoint endpoint) {
+            this.version = version;
+            this.config = config;
+            this.accessToken = accessToken;
+            this.userId = userId;
+            this.timeout = timeout;
+            this.endpoint = endpoint;
+        }
+    }
 
     /**
      * 使用用户名密码登录获取 Access Token
@@ -44,48 +74,34 @@ public class EmbyAuthService {
         url += "/emby/Users/AuthenticateByName";
 
         try {
-            // 伪装成Forward app
-            String deviceId = "30c9d308e74a46a1811c851bf76a8f77";
-            String forwardVersion = "1.3.14";
-
             JSONObject requestBody = new JSONObject();
             requestBody.set("Username", config.getUsername());
             requestBody.set("Pw", config.getPassword());
 
-            // 构建 X-Emby-Authorization 请求头（Forward app 格式）
-            String embyAuth = String.format(
-                "MediaBrowser Client=\"Forward\", Device=\"iPhone\", DeviceId=\"%s\", Version=\"%s\"",
-                deviceId, forwardVersion
-            );
-
-            HttpResponse response = HttpRequest.post(url)
-                    .header("Content-Type", "application/json")
-                    .header("X-Emby-Authorization", embyAuth)
-                    .header("User-Agent", "Forward-Standard/" + forwardVersion)
-                    .header("Accept", "*/*")
-                    .header("Accept-Language", "zh-CN,zh-Hans;q=0.9")
-                    .header("Accept-Encoding", "gzip, deflate, br")
-                    .header("Connection", "keep-alive")
-                    .body(requestBody.toString())
-                    .timeout(config.getTimeout() != null ? config.getTimeout() : 30000)
-                    .setFollowRedirects(true)
-                    .execute();
-
-            if (!response.isOk()) {
-                log.error("Emby 登录失败: {} - {}", response.getStatus(), response.body());
+            // 伪装成 Forward app（登录前的 X-Emby-Authorization 不带 Token）
+            String body;
+            try {
+                body = embyHttpClient.postJson(url, EmbyHttpClient.anonymousHeaders(), requestBody.toString(),
+                    config.getTimeout() != null ? config.getTimeout() : 30000);
+            } catch (EmbyHttpClient.EmbyHttpException e) {
+                log.error("Emby 登录失败: {}", e.getMessage());
 
                 // 如果是403，说明被Cloudflare拦截
-                if (response.getStatus() == 403) {
+                if (e.getStatus() == 403) {
                     throw new BusinessException("登录被Cloudflare拦截。建议：在Forward app中登录后，将AccessToken填入API Key字段");
                 }
 
-                throw new BusinessException("Emby 登录失败: " + response.getStatus());
+                throw new BusinessException("Emby 登录失败: " + (e.getStatus() > 0 ? e.getStatus() : e.getMessage()));
             }
 
-            JSONObject result = JSONUtil.parseObj(response.body());
-            cachedAccessToken = result.getStr("AccessToken");
-            cachedUserId = result.getJSONObject("User").getStr("Id");
-            currentConfigId = config.getId();
+            JSONObject result = JSONUtil.parseObj(body);
+            // 与快照重建共用同一把锁：重建中途登录时，等重建结束后再清除，避免重建写回旧 Token 的快照
+            synchronized (this) {
+                cachedAccessToken = result.getStr("AccessToken");
+                cachedUserId = result.getJSONObject("User").getStr("Id");
+                currentConfigId = config.getId();
+                snapshot = null;
+            }
 
             log.info("Emby 登录成功，用户ID: {}", cachedUserId);
             return cachedAccessToken;
@@ -114,8 +130,112 @@ public class EmbyAuthService {
      * 获取当前的 Access Token（优先使用 API Key，其次使用登录 Token）
      */
     public String getAccessToken() {
-        EmbyConfig config = embyConfigService.getDefaultConfig();
+        return currentSnapshot().accessToken;
+    }
+
+    /**
+     * 获取当前用户ID
+     */
+    public String getUserId() {
+        String userId = currentSnapshot().userId;
+        if (StrUtil.isBlank(userId)) {
+            throw new BusinessException("无法获取用户ID，请检查配置或登录信息");
+        }
+        return userId;
+    }
+
+    /**
+     * 获取服务器地址
+     */
+    public String getServerUrl() {
+        return currentSnapshot().config.getServerUrl();
+    }
 
+    /**
+     * 获取超时时间
+     */
+    public Integer getTimeout() {
+        return currentSnapshot().timeout;
+    }
+
+    /**
+     * 当前配置的请求上下文（请求头按 服务器 + Token + 用户ID 构建一次后复用）
+     */
+    public EmbyHttpClient.Endpoint getEndpoint() {
+        EmbyHttpClient.Endpoint endpoint = currentSnapshot().endpoint;
+        if (endpoint == null) {
+            throw new BusinessException("无法获取用户ID，请检查配置或登录信息");
+        }
+        return endpoint;
+    }
+
+    /**
+     * 用当前请求上下文调用 Emby；返回 401（Token 失效或配置已被修改）时重新加载配置、重新登录后重试一次
+     */
+    public <T> T callWithEndpoint(Function<EmbyHttpClient.Endpoint, T> call) {
+        EmbyHttpClient.Endpoint endpoint = getEndpoint();
+        try {
+            return call.apply(endpoint);
+        } catch (EmbyHttpClient.EmbyHttpException e) {
+            if (e.getStatus() != 401) {
+                throw e;
+            }
+            log.warn("Emby 返回 401，重新加载配置和 Token 后重试");
+            invalidate(endpoint);
+            return call.apply(getEndpoint());
+        }
+    }
+
+    /**
+     * 登出
+     */
+    public synchronized void logout() {
+        cachedAccessToken = null;
+        cachedUserId = null;
+        currentConfigId = null;
+        snapshot = null;
+        log.info("已登出 Emby");
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null && current.version == embyConfigService.getConfigVersion()) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            long version = embyConfigService.getConfigVersion();
+            if (current != null && current.version == version) {
+                return current;
+            }
+            EmbyConfig config = embyConfigService.getDefaultConfig();
+            String accessToken = resolveAccessToken(config);
+            String userId = resolveUserId(config);
+            int timeout = config.getTimeout() != null ? config.getTimeout() : 30000;
+            EmbyHttpClient.Endpoint endpoint = StrUtil.isBlank(userId) ? null
+                : embyHttpClient.endpoint(config.getServerUrl(), accessToken, userId, timeout);
+            current = new Snapshot(version, config, accessToken, userId, timeout, endpoint);
+            snapshot = current;
+            log.info("Emby 连接快照已更新: configId={}, version={}", config.getId(), version);
+            return current;
+        }
+    }
+
+    /**
+     * 401 后清除登录 Token 和配置缓存；其他线程已经刷新过时不重复清除
+     */
+    private synchronized void invalidate(EmbyHttpClient.Endpoint failed) {
+        Snapshot current = snapshot;
+        if (current != null && current.endpoint != failed) {
+            return;
+        }
+        cachedAccessToken = null;
+        currentConfigId = null;
+        snapshot = null;
+        embyConfigService.evictCache();
+    }
+
+    private String resolveAccessToken(EmbyConfig config) {
         // 如果配置了 API Key，优先使用
         if (StrUtil.isNotBlank(config.getApiKey())) {
             return config.getApiKey();
@@ -139,58 +259,13 @@ public class EmbyAuthService {
         return cachedAccessToken;
     }
 
-    /**
-     * 获取当前用户ID
-     */
-    public String getUserId() {
-        EmbyConfig config = embyConfigService.getDefaultConfig();
-
+    private String resolveUserId(EmbyConfig config) {
         // 如果配置了用户ID，优先使用
         if (StrUtil.isNotBlank(config.getUserId())) {
-            log.debug("使用配置的用户ID: {}", config.getUserId());
             return config.getUserId();
         }
 
-        // 如果有缓存的用户ID，返回
-        if (StrUtil.isNotBlank(cachedUserId)) {
-            log.debug("使用缓存的用户ID: {}", cachedUserId);
-            return cachedUserId;
-        }
-
-        // 否则需要先登录
-        log.info("用户ID未配置且未缓存，尝试登录获取");
-        getAccessToken();
-
-        if (StrUtil.isBlank(cachedUserId)) {
-            throw new BusinessException("无法获取用户ID，请检查配置或登录信息");
-        }
-
+        // 否则使用登录得到的用户ID（API Key 且未配置用户ID时为空）
         return cachedUserId;
     }
-
-    /**
-     * 获取服务器地址
-     */
-    public String getServerUrl() {
-        EmbyConfig config = embyConfigService.getDefaultConfig();
-        return config.getServerUrl();
-    }
-
-    /**
-     * 获取超时时间
-     */
-    public Integer getTimeout() {
-        EmbyConfig config = embyConfigService.getDefaultConfig();
-        return config.getTimeout() != null ? config.getTimeout() : 30000;
-    }
-
-    /**
-     * 登出
-     */
-    public void logout() {
-        cachedAccessToken = null;
-        cachedUserId = null;
-        currentConfigId = null;
-        log.info("已登出 Emby");
-    }
 }
@@ -13,24 +13,40 @@ import com.gdupload.entity.EmbyGenreCache;
 import com.gdupload.entity.EmbyItemCache;
 import com.gdupload.entity.EmbyLibraryCache;
 import com.gdupload.entity.EmbyStudioCache;
+import com.gdupload.entity.EmbySyncState;
 import com.gdupload.entity.EmbyTagCache;
 import com.gdupload.mapper.EmbyGenreCacheMapper;
 import com.gdupload.mapper.EmbyItemCacheMapper;
 import com.gdupload.mapper.EmbyLibraryCacheMapper;
 import com.gdupload.mapper.EmbyStudioCacheMapper;
+import com.gdupload.mapper.EmbySyncStateMapper;
 import com.gdupload.mapper.EmbyTagCacheMapper;
 import com.gdupload.service.IEmbyCacheService;
 import com.gdupload.service.IEmbyConfigService;
 import com.gdupload.service.IEmbyService;
+import com.gdupload.util.DateTimeUtil;
+import com.gdupload.util.EmbySearchIndex;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -40,6 +56,15 @@ import java.util.stream.Collectors;
 @Service
 public class EmbyCacheServiceImpl implements IEmbyCacheService {
 
+    /** 搜索最多返回条数 */
+    private static final int SEARCH_LIMIT = 100;
+
+    /** 按ID补拉媒体项时每次请求的ID数（放在查询串里，不宜过长） */
+    private static final int ITEMS_BY_ID_BATCH = 100;
+
+    /** Emby 日期参数格式（UTC） */
+    private static final DateTimeFormatter EMBY_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'");
+
     @Autowired
     private EmbyLibraryCacheMapper libraryCacheMapper;
 
@@ -55,12 +80,115 @@ public class EmbyCacheServiceImpl implements IEmbyCacheService {
     @Autowired
     private EmbyStudioCacheMapper studioCacheMapper;
 
+    @Autowired
+    private EmbySyncStateMapper syncStateMapper;
+
     @Autowired
     private IEmbyService embyService;
 
     @Autowired
     private IEmbyConfigService embyConfigService;
 
+    @Autowired
+    private EmbySearchIndex searchIndex;
+
+    /** 全量同步每页条数 */
+    @Value("${app.emby.sync.page-size:200}")
+    private int syncPageSize;
+
+    /** 同时向 Emby 服务器拉取的页数（所有媒体库共用） */
+    @Value("${app.emby.sync.parallelism:4}")
+    private int syncParallelism;
+
+    /** 同时同步的媒体库数 */
+    @Value("${app.emby.sync.library-parallelism:2}")
+    private int libraryParallelism;
+
+    /** 缓存表批量写入时每条 INSERT 的行数 */
+    @Value("${app.emby.sync.upsert-chunk:200}")
+    private int upsertChunk;
+
+    /** 每个媒体库正在拉取 + 等待写库的最大页数 */
+    @Value("${app.emby.sync.queue-pages:8}")
+    private int queuePages;
+
+    /** 增量同步从水位线往前回溯的分钟数，覆盖 Emby 服务器与本机的时钟偏差 */
+    @Value("${app.emby.sync.delta-overlap-minutes:10}")
+    private int deltaOverlapMinutes;
+
+    /** 同步检测删除（与 Emby ID 列表对比）时每页拉取的ID数 */
+    @Value("${app.emby.sync.id-page-size:5000}")
+    private int idPageSize;
+
+    private ExecutorService pageFetchExecutor;
+    private ExecutorService librarySyncExecutor;
+
+    /** 正在同步的 Emby 配置：同一配置同时只允许一个同步（全量 / 增量 / 单个媒体库） */
+    private final Set<Long> syncingConfigs = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    private void initSyncExecutors() {
+        pageFetchExecutor = Executors.newFixedThreadPool(Math.max(1, syncParallelism), r -> {
+            Thread thread = new Thread(r);
+            thread.setName("emby-sync-fetch-" + thread.getId());
+            thread.setDaemon(true);
+            return thread;
+        });
+        librarySyncExecutor = Executors.newFixedThreadPool(Math.max(1, libraryParallelism), r -> {
+            Thread thread = new Thread(r);
+            thread.setName("emby-sync-library-" + thread.getId());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 拉取到的一页数据（或拉取失败的异常）
+     */
+    private static final class FetchedPage {
+        final int startIndex;
+        final List<EmbyItem> items;
+        final RuntimeException error;
+        /** Emby 返回的总数 */
+        int totalCount;
+
+        FetchedPage(int startIndex, List<EmbyItem> items, RuntimeException error) {
+            this.startIndex = startIndex;
+            this.items = items;
+            this.error = error;
+        }
+    }
+
+    /**
+     * 单个媒体库的同步结果
+     */
+    private static final class LibrarySyncResult {
+        final int upserted;
+        final int deleted;
+        final boolean full;
+
+        LibrarySyncResult(int upserted, int deleted, boolean full) {
+            this.upserted = upserted;
+            this.deleted = deleted;
+            this.full = full;
+        }
+    }
+
+    /**
+     * 与 Emby ID 列表对比的结果
+     */
+    private static final class Reconciled {
+        final int remoteCount;
+        final int deleted;
+        final int refetched;
+
+        Reconciled(int remoteCount, int deleted, int refetched) {
+            this.remoteCount = remoteCount;
+            this.deleted = deleted;
+            this.refetched = refetched;
+        }
+    }
+
     /**
      * 获取当前使用的 Emby 配置ID
      * 使用默认配置（简单方案）
@@ -73,6 +201,15 @@ public class EmbyCacheServiceImpl implements IEmbyCacheService {
         return config.getId();
     }
 
+    /**
+     * 占用配置的同步名额；已有同步在进行时抛出异常
+     */
+    private void acquireSync(Long configId) {
+        if (!syncingConfigs.add(configId)) {
+            throw new BusinessException("该 Emby 配置正在同步中，请等待当前同步完成");
+        }
+    }
+
     @Override
     public List<EmbyLibrary> getAllLibraries(boolean forceRefresh) {
         Long configId = getCurrentEmbyConfigId();
@@ -180,165 +317,93 @@ public class EmbyCacheServiceImpl implements IEmbyCacheService {
     @Override
     public List<EmbyItem> searchItems(String keyword, boolean forceRefresh) {
         Long configId = getCurrentEmbyConfigId();
-        // 直接从数据库搜索
-        log.info("从数据库搜索: {} (configId={})", keyword, configId);
-
-        // 检查数据库是否有数据
-        LambdaQueryWrapper<EmbyItemCache> countWrapper = new LambdaQueryWrapper<>();
-        countWrapper.eq(EmbyItemCache::getEmbyConfigId, configId);
-        Long cacheCount = itemCacheMapper.selectCount(countWrapper);
+        log.info("搜索媒体项: {} (configId={})", keyword, configId);
 
-        if (cacheCount == 0) {
-            log.debug("数据库中没有媒体项数据");
-            return new ArrayList<>(); // 返回空列表，不抛异常
+        // 内存索引按相关度取ID，再按主键取行
+        List<String> ids = searchIndex.search(configId, keyword, SEARCH_LIMIT);
+        if (ids != null) {
+            if (ids.isEmpty()) {
+                return new ArrayList<>();
+            }
+            LambdaQueryWrapper<EmbyItemCache> idWrapper = new LambdaQueryWrapper<>();
+            idWrapper.eq(EmbyItemCache::getEmbyConfigId, configId)
+                    .in(EmbyItemCache::getId, ids);
+            Map<String, EmbyItemCache> rows = new HashMap<>();
+            for (EmbyItemCache cache : itemCacheMapper.selectList(idWrapper)) {
+                rows.put(cache.getId(), cache);
+            }
+            List<EmbyItem> items = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                EmbyItemCache cache = rows.get(id);
+                if (cache != null) {
+                    items.add(convertToItem(cache));
+                }
+            }
+            return items;
         }
 
-        // 使用LIKE搜索
+        // 索引未就绪：使用LIKE搜索
         LambdaQueryWrapper<EmbyItemCache> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(EmbyItemCache::getEmbyConfigId, configId)
                 .and(w -> w.like(EmbyItemCache::getName, keyword)
                         .or()
                         .like(EmbyItemCache::getOriginalTitle, keyword))
                 .orderByDesc(EmbyItemCache::getUpdateTime)
-                .last("LIMIT 100");
+                .last("LIMIT " + SEARCH_LIMIT);
 
         List<EmbyItemCache> cacheList = itemCacheMapper.selectList(wrapper);
 
         return cacheList.stream().map(this::convertToItem).collect(Collectors.toList());
     }
 
+    /**
+     * 媒体项由多个线程并行拉取、写入，各自提交，不包在一个事务里（调用线程的事务管不到工作线程的写入）；
+     * 同一配置同时只允许一个同步，避免两次同步交错写入、互相删除。
+     * 覆盖写入而不是先清空，同步期间旧数据仍可查询，结束后按 Emby 的ID列表删除已不存在的媒体项
+     */
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public Map<String, Object> syncAllData() {
         log.info("========================================");
         log.info("开始一次性全量同步所有Emby数据到数据库");
         log.info("========================================");
 
         long startTime = System.currentTimeMillis();
+        Long configId = null;
 
         try {
-            // 1. 清空旧数据
-            log.info("步骤1: 清空旧数据...");
-            clearAllCache();
-            log.info("旧数据已清空");
+            Long currentConfigId = getCurrentEmbyConfigId();
+            acquireSync(currentConfigId);
+            configId = currentConfigId;
+            LocalDateTime syncStart = syncStartTime();
 
-            // 2. 获取并保存所有媒体库
-            log.info("步骤2: 同步媒体库列表...");
+            // 1. 获取并保存所有媒体库，删除 Emby 中已不存在的媒体库
+            log.info("步骤1: 同步媒体库列表...");
             List<EmbyLibrary> libraries = embyService.getAllLibraries();
             log.info("从Emby API获取到 {} 个媒体库", libraries.size());
             saveLibrariesToCache(libraries);
+            removeDeletedLibraries(libraries, configId);
             log.info("媒体库列表已保存到数据库");
 
-            // 3. 同步每个媒体库的所有媒体项（全量）
-            log.info("步骤3: 同步所有媒体库的媒体项...");
-            int totalItems = 0;
-            int successCount = 0;
-            int failedCount = 0;
-            List<String> failedLibraries = new ArrayList<>();
-
-            for (int i = 0; i < libraries.size(); i++) {
-                EmbyLibrary library = libraries.get(i);
-                log.info("正在同步媒体库 [{}/{}]: {} (ID: {})",
-                        i + 1, libraries.size(), library.getName(), library.getId());
-
-                try {
-                    int itemCount = syncLibraryItemsAll(library.getId());
-                    totalItems += itemCount;
-                    successCount++;
-                    log.info("✓ 媒体库 {} 同步完成，共 {} 个媒体项", library.getName(), itemCount);
-                } catch (Exception e) {
-                    failedCount++;
-                    failedLibraries.add(library.getName() + " (ID: " + library.getId() + ")");
-                    log.error("✗ 媒体库 {} 同步失败: {}", library.getName(), e.getMessage(), e);
-                    // 继续同步下一个媒体库，不中断整个同步过程
-                }
-            }
-
-            log.info("所有媒体项同步完成，共 {} 个", totalItems);
-            log.info("成功: {} 个媒体库，失败: {} 个媒体库", successCount, failedCount);
-            if (failedCount > 0) {
-                log.warn("失败的媒体库: {}", String.join(", ", failedLibraries));
-            }
-
-            // 4. 同步类型、标签、工作室（可选，失败不影响整体）
-            log.info("步骤4: 同步类型、标签、工作室...");
+            // 2. 同步每个媒体库的所有媒体项（全量，媒体库之间并行）
+            log.info("步骤2: 同步所有媒体库的媒体项（并行媒体库数: {}）...", libraryParallelism);
+            Map<String, Object> result = syncLibraries(libraries, configId, null);
 
-            int genresCount = 0;
-            int tagsCount = 0;
-            int studiosCount = 0;
+            // 3. 同步类型、标签、工作室（可选，失败不影响整体）
+            log.info("步骤3: 同步类型、标签、工作室...");
+            syncGenresTagsStudios(configId, syncStart, result);
 
-            List<EmbyGenre> genres = null;
-            try {
-                genres = embyService.getAllGenres();
-                if (genres != null && !genres.isEmpty()) {
-                    saveGenresToCache(genres);
-                    genresCount = genres.size();
-                    log.info("同步 {} 个类型", genresCount);
-                } else {
-                    log.info("没有类型数据，跳过");
-                }
-            } catch (Exception e) {
-                log.warn("同步类型失败（非关键错误，继续执行）: {}", e.getMessage());
-            }
-
-            List<EmbyGenre> tags = null;
-            try {
-                tags = embyService.getAllTags();
-                if (tags != null && !tags.isEmpty()) {
-                    saveTagsToCache(tags);
-                    tagsCount = tags.size();
-                    log.info("同步 {} 个标签", tagsCount);
-                } else {
-                    log.info("没有标签数据，跳过");
-                }
-            } catch (Exception e) {
-                log.warn("同步标签失败（非关键错误，继续执行）: {}", e.getMessage());
-            }
-
-            List<EmbyGenre> studios = null;
-            try {
-                studios = embyService.getAllStudios();
-                if (studios != null && !studios.isEmpty()) {
-                    saveStudiosToCache(studios);
-                    studiosCount = studios.size();
-                    log.info("同步 {} 个工作室", studiosCount);
-                } else {
-                    log.info("没有工作室数据，跳过");
-                }
-            } catch (Exception e) {
-                log.warn("同步工作室失败（非关键错误，继续执行）: {}", e.getMessage());
-            }
-
-            long endTime = System.currentTimeMillis();
-            long duration = (endTime - startTime) / 1000;
-
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", failedCount == 0); // 只有全部成功才算成功
-            result.put("totalLibraries", libraries.size());
-            result.put("successLibraries", successCount);
-            result.put("failedLibraries", failedCount);
-            result.put("totalItems", totalItems);
-            result.put("totalGenres", genresCount);
-            result.put("totalTags", tagsCount);
-            result.put("totalStudios", studiosCount);
+            long duration = (System.currentTimeMillis() - startTime) / 1000;
             result.put("duration", duration + "秒");
 
-            if (failedCount > 0) {
-                result.put("failedLibraryNames", failedLibraries);
-                result.put("message", "部分媒体库同步失败，请查看日志");
-            }
-
             log.info("========================================");
             log.info("全量同步完成！");
-            log.info("媒体库: {} 个（成功: {}，失败: {}）", libraries.size(), successCount, failedCount);
-            log.info("媒体项: {} 个", totalItems);
-            log.info("类型: {} 个", genres.size());
-            log.info("标签: {} 个", tags.size());
-            log.info("工作室: {} 个", studios.size());
+            log.info("媒体库: {} 个（成功: {}，失败: {}）",
+                    libraries.size(), result.get("successLibraries"), result.get("failedLibraries"));
+            log.info("媒体项: {} 个，删除: {} 个", result.get("totalItems"), result.get("deletedItems"));
+            log.info("类型: {} 个", result.get("totalGenres"));
+            log.info("标签: {} 个", result.get("totalTags"));
+            log.info("工作室: {} 个", result.get("totalStudios"));
             log.info("耗时: {} 秒", duration);
-            if (failedCount > 0) {
-                log.warn("失败的媒体库: {}", String.join(", ", failedLibraries));
-            }
             log.info("========================================");
 
             return result;
@@ -351,34 +416,414 @@ public class EmbyCacheServiceImpl implements IEmbyCacheService {
             result.put("success", false);
             result.put("error", e.getMessage());
             return result;
+        } finally {
+            if (configId != null) {
+                syncingConfigs.remove(configId);
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> syncDelta() {
+        log.info("开始增量同步Emby数据");
+        long startTime = System.currentTimeMillis();
+        Long configId = null;
+
+        try {
+            Long currentConfigId = getCurrentEmbyConfigId();
+            acquireSync(currentConfigId);
+            configId = currentConfigId;
+            LocalDateTime syncStart = syncStartTime();
+
+            List<EmbyLibrary> libraries = embyService.getAllLibraries();
+            saveLibrariesToCache(libraries);
+            removeDeletedLibraries(libraries, configId);
+
+            Map<String, EmbySyncState> states = new HashMap<>();
+            for (EmbySyncState state : syncStateMapper.selectByConfig(configId)) {
+                states.put(state.getLibraryId(), state);
+            }
+            Map<String, Object> result = syncLibraries(libraries, configId, states);
+            syncGenresTagsStudios(configId, syncStart, result);
+
+            long duration = System.currentTimeMillis() - startTime;
+            result.put("duration", (duration / 1000) + "秒");
+            log.info("增量同步完成: 媒体库 {} 个（成功: {}，失败: {}），写入媒体项 {} 个，删除 {} 个，耗时 {}ms",
+                    libraries.size(), result.get("successLibraries"), result.get("failedLibraries"),
+                    result.get("totalItems"), result.get("deletedItems"), duration);
+            return result;
+        } catch (Exception e) {
+            log.error("增量同步失败: {}", e.getMessage(), e);
+            Map<String, Object> result = new HashMap<>();
+            result.put("success", false);
+            result.put("error", e.getMessage());
+            return result;
+        } finally {
+            if (configId != null) {
+                syncingConfigs.remove(configId);
+            }
         }
     }
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public boolean syncLibrary(String libraryId) {
+        Long configId = null;
         try {
-            Long configId = getCurrentEmbyConfigId();
+            Long currentConfigId = getCurrentEmbyConfigId();
+            acquireSync(currentConfigId);
+            configId = currentConfigId;
             log.info("开始全量同步单个媒体库: {} (configId={})", libraryId, configId);
 
-            // 先删除该媒体库的旧数据
-            LambdaQueryWrapper<EmbyItemCache> wrapper = new LambdaQueryWrapper<>();
-            wrapper.eq(EmbyItemCache::getEmbyConfigId, configId)
-                    .eq(EmbyItemCache::getParentId, libraryId);
-            itemCacheMapper.delete(wrapper);
-            log.info("已删除媒体库 {} 的旧数据", libraryId);
-
-            // 全量同步该媒体库的所有媒体项
-            int itemCount = syncLibraryItemsAll(libraryId);
-            log.info("媒体库 {} 同步完成，共 {} 个媒体项", libraryId, itemCount);
+            // 全量覆盖写入，再按 Emby 的ID列表删除已不存在的媒体项
+            LibrarySyncResult synced = syncLibraryFull(libraryId, configId);
+            log.info("媒体库 {} 同步完成，共 {} 个媒体项，删除 {} 个", libraryId, synced.upserted, synced.deleted);
 
             return true;
         } catch (Exception e) {
             log.error("同步媒体库失败: {}", libraryId, e);
             return false;
+        } finally {
+            if (configId != null) {
+                syncingConfigs.remove(configId);
+            }
         }
     }
 
+    /**
+     * 并行同步各媒体库的媒体项
+     *
+     * @param states 各媒体库的同步状态；为 null 时全部全量同步，否则有水位线的媒体库增量同步
+     */
+    private Map<String, Object> syncLibraries(List<EmbyLibrary> libraries, Long configId,
+                                              Map<String, EmbySyncState> states) {
+        int totalItems = 0;
+        int deletedItems = 0;
+        int successCount = 0;
+        int failedCount = 0;
+        int fullCount = 0;
+        List<String> failedLibraries = new ArrayList<>();
+
+        List<CompletableFuture<LibrarySyncResult>> libraryFutures = new ArrayList<>(libraries.size());
+        for (int i = 0; i < libraries.size(); i++) {
+            EmbyLibrary library = libraries.get(i);
+            EmbySyncState state = states != null ? states.get(library.getId()) : null;
+            boolean delta = state != null && state.getWatermark() != null;
+            int index = i + 1;
+            libraryFutures.add(CompletableFuture.supplyAsync(() -> {
+                log.info("正在{}同步媒体库 [{}/{}]: {} (ID: {})", delta ? "增量" : "全量",
+                        index, libraries.size(), library.getName(), library.getId());
+                return delta
+                        ? syncLibraryDelta(library.getId(), configId, state.getWatermark())
+                        : syncLibraryFull(library.getId(), configId);
+            }, librarySyncExecutor));
+        }
+
+        for (int i = 0; i < libraries.size(); i++) {
+            EmbyLibrary library = libraries.get(i);
+            try {
+                LibrarySyncResult synced = libraryFutures.get(i).join();
+                totalItems += synced.upserted;
+                deletedItems += synced.deleted;
+                successCount++;
+                if (synced.full) {
+                    fullCount++;
+                }
+                log.info("✓ 媒体库 {} 同步完成，写入 {} 个媒体项，删除 {} 个",
+                        library.getName(), synced.upserted, synced.deleted);
+            } catch (Exception e) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                failedCount++;
+                failedLibraries.add(library.getName() + " (ID: " + library.getId() + ")");
+                log.error("✗ 媒体库 {} 同步失败: {}", library.getName(), cause.getMessage(), cause);
+                // 一个媒体库失败不影响其他媒体库
+            }
+        }
+
+        log.info("所有媒体项同步完成，写入 {} 个，删除 {} 个", totalItems, deletedItems);
+        log.info("成功: {} 个媒体库，失败: {} 个媒体库", successCount, failedCount);
+        if (failedCount > 0) {
+            log.warn("失败的媒体库: {}", String.join(", ", failedLibraries));
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", failedCount == 0); // 只有全部成功才算成功
+        result.put("totalLibraries", libraries.size());
+        result.put("successLibraries", successCount);
+        result.put("failedLibraries", failedCount);
+        result.put("fullSyncLibraries", fullCount);
+        result.put("totalItems", totalItems);
+        result.put("deletedItems", deletedItems);
+        if (failedCount > 0) {
+            result.put("failedLibraryNames", failedLibraries);
+            result.put("message", "部分媒体库同步失败，请查看日志");
+        }
+        return result;
+    }
+
+    /**
+     * 全量同步一个媒体库：覆盖写入所有媒体项，再按 Emby 的ID列表删除已不存在的媒体项、补拉分页时漏掉的媒体项，记录水位线。
+     * 不按“本次没有写到”判断删除：分页期间媒体库有增删时，某一项可能恰好没出现在任何一页里，但它并没有被删除
+     */
+    private LibrarySyncResult syncLibraryFull(String libraryId, Long configId) {
+        LocalDateTime syncStart = syncStartTime();
+        int itemCount = syncLibraryItemsAll(libraryId, configId);
+
+        // 分页也没拉到任何媒体项时，才认为媒体库确实已清空
+        Reconciled reconciled = reconcileWithRemoteIds(libraryId, configId, itemCount == 0);
+
+        saveSyncState(configId, libraryId, syncStart, reconciled.remoteCount, true);
+        return new LibrarySyncResult(itemCount + reconciled.refetched, reconciled.deleted, true);
+    }
+
+    /**
+     * 增量同步一个媒体库
+     * <ol>
+     *   <li>按 MinDateLastSaved 拉取水位线（往前回溯 delta-overlap-minutes）之后保存过的媒体项并覆盖写入</li>
+     *   <li>拉取只含 ID 的完整列表与缓存对比：缓存中多出的删除，缓存中缺少的按 ID 补拉</li>
+     *   <li>以本次开始时间作为新的水位线</li>
+     * </ol>
+     */
+    private LibrarySyncResult syncLibraryDelta(String libraryId, Long configId, LocalDateTime watermark) {
+        LocalDateTime syncStart = syncStartTime();
+        long startTime = System.currentTimeMillis();
+        String since = DateTimeUtil.toZoned(watermark.minusMinutes(Math.max(0, deltaOverlapMinutes)))
+                .withZoneSameInstant(ZoneOffset.UTC)
+                .format(EMBY_DATE_FORMAT);
+        int limit = Math.max(1, syncPageSize);
+
+        // 1. 有变更的媒体项
+        int upserted = 0;
+        for (int startIndex = 0; ; startIndex += limit) {
+            PagedResult<EmbyItem> page = embyService.getLibraryItemsChangedSince(libraryId, since, startIndex, limit);
+            List<EmbyItem> items = page.getItems() != null ? page.getItems() : Collections.emptyList();
+            if (!items.isEmpty()) {
+                saveItemsToCache(items, libraryId, configId);
+                upserted += items.size();
+            }
+            if (items.size() < limit) {
+                break;
+            }
+        }
+
+        // 2. 删除检测 / 补拉；空列表更可能是权限或服务器异常，不据此清空缓存，媒体库确实清空时由全量同步处理
+        Reconciled reconciled = reconcileWithRemoteIds(libraryId, configId, false);
+
+        saveSyncState(configId, libraryId, syncStart, reconciled.remoteCount, false);
+        log.info("媒体库 {} 增量同步完成: 变更 {} 个，补拉 {} 个，删除 {} 个，耗时 {}ms",
+                libraryId, upserted, reconciled.refetched, reconciled.deleted, System.currentTimeMillis() - startTime);
+        return new LibrarySyncResult(upserted + reconciled.refetched, reconciled.deleted, false);
+    }
+
+    /**
+     * 拉取只含 ID 的完整列表与缓存对比：缓存中多出的删除，缓存中缺少的按 ID 补拉
+     *
+     * @param allowEmpty Emby 返回空列表时是否照样删除缓存中的全部媒体项
+     */
+    private Reconciled reconcileWithRemoteIds(String libraryId, Long configId, boolean allowEmpty) {
+        Set<String> remoteIds = fetchLibraryItemIds(libraryId);
+        Set<String> cachedIds = new HashSet<>();
+        LambdaQueryWrapper<EmbyItemCache> idWrapper = new LambdaQueryWrapper<>();
+        idWrapper.select(EmbyItemCache::getId)
+                .eq(EmbyItemCache::getEmbyConfigId, configId)
+                .eq(EmbyItemCache::getParentId, libraryId);
+        for (Object id : itemCacheMapper.selectObjs(idWrapper)) {
+            cachedIds.add(String.valueOf(id));
+        }
+
+        int deleted = 0;
+        if (remoteIds.isEmpty() && !cachedIds.isEmpty() && !allowEmpty) {
+            log.warn("媒体库 {} 在Emby中没有媒体项，但缓存中有 {} 个，跳过删除检测", libraryId, cachedIds.size());
+        } else {
+            List<String> removed = new ArrayList<>();
+            for (String id : cachedIds) {
+                if (!remoteIds.contains(id)) {
+                    removed.add(id);
+                }
+            }
+            deleted = deleteItems(libraryId, configId, removed);
+        }
+
+        List<String> missing = new ArrayList<>();
+        for (String id : remoteIds) {
+            if (!cachedIds.contains(id)) {
+                missing.add(id);
+            }
+        }
+        int refetched = 0;
+        for (int from = 0; from < missing.size(); from += ITEMS_BY_ID_BATCH) {
+            List<EmbyItem> items = embyService.getItemsByIds(
+                    missing.subList(from, Math.min(missing.size(), from + ITEMS_BY_ID_BATCH)));
+            if (!items.isEmpty()) {
+                saveItemsToCache(items, libraryId, configId);
+                refetched += items.size();
+            }
+        }
+        return new Reconciled(remoteIds.size(), deleted, refetched);
+    }
+
+    /**
+     * 按ID删除媒体库中的媒体项（每 upsert-chunk 个一条语句），同时从搜索索引移除
+     */
+    private int deleteItems(String libraryId, Long configId, List<String> ids) {
+        int deleted = 0;
+        int chunk = Math.max(1, upsertChunk);
+        for (int from = 0; from < ids.size(); from += chunk) {
+            LambdaQueryWrapper<EmbyItemCache> deleteWrapper = new LambdaQueryWrapper<>();
+            deleteWrapper.eq(EmbyItemCache::getEmbyConfigId, configId)
+                    .eq(EmbyItemCache::getParentId, libraryId)
+                    .in(EmbyItemCache::getId, ids.subList(from, Math.min(ids.size(), from + chunk)));
+            deleted += itemCacheMapper.delete(deleteWrapper);
+        }
+        searchIndex.remove(configId, ids);
+        return deleted;
+    }
+
+    /**
+     * 拉取媒体库当前所有媒体项的ID
+     */
+    private Set<String> fetchLibraryItemIds(String libraryId) {
+        int limit = Math.max(1, idPageSize);
+        Set<String> ids = new HashSet<>();
+        for (int startIndex = 0; ; startIndex += limit) {
+            PagedResult<String> page = embyService.getLibraryItemIds(libraryId, startIndex, limit);
+            List<String> pageIds = page.getItems() != null ? page.getItems() : Collections.emptyList();
+            ids.addAll(pageIds);
+            if (pageIds.size() < limit) {
+                return ids;
+            }
+        }
+    }
+
+    private void saveSyncState(Long configId, String libraryId, LocalDateTime watermark, int itemCount, boolean full) {
+        LocalDateTime now = DateTimeUtil.now();
+        EmbySyncState state = new EmbySyncState();
+        state.setEmbyConfigId(configId);
+        state.setLibraryId(libraryId);
+        state.setWatermark(watermark);
+        state.setItemCount(itemCount);
+        if (full) {
+            state.setLastFullSyncTime(now);
+        } else {
+            state.setLastDeltaSyncTime(now);
+        }
+        syncStateMapper.upsert(state);
+    }
+
+    /**
+     * 删除 Emby 中已不存在的媒体库及其媒体项、同步状态
+     */
+    private void removeDeletedLibraries(List<EmbyLibrary> libraries, Long configId) {
+        if (libraries.isEmpty()) {
+            log.warn("Emby没有返回任何媒体库，跳过媒体库删除检测");
+            return;
+        }
+        Set<String> libraryIds = libraries.stream().map(EmbyLibrary::getId).collect(Collectors.toSet());
+
+        LambdaQueryWrapper<EmbyLibraryCache> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(EmbyLibraryCache::getEmbyConfigId, configId);
+        for (EmbyLibraryCache cached : libraryCacheMapper.selectList(wrapper)) {
+            if (libraryIds.contains(cached.getId())) {
+                continue;
+            }
+            LambdaQueryWrapper<EmbyLibraryCache> libraryWrapper = new LambdaQueryWrapper<>();
+            libraryWrapper.eq(EmbyLibraryCache::getEmbyConfigId, configId)
+                    .eq(EmbyLibraryCache::getId, cached.getId());
+            libraryCacheMapper.delete(libraryWrapper);
+
+            LambdaQueryWrapper<EmbyItemCache> itemWrapper = new LambdaQueryWrapper<>();
+            itemWrapper.select(EmbyItemCache::getId)
+                    .eq(EmbyItemCache::getEmbyConfigId, configId)
+                    .eq(EmbyItemCache::getParentId, cached.getId());
+            List<String> itemIds = new ArrayList<>();
+            for (Object id : itemCacheMapper.selectObjs(itemWrapper)) {
+                itemIds.add(String.valueOf(id));
+            }
+            int items = deleteItems(cached.getId(), configId, itemIds);
+
+            syncStateMapper.deleteByLibrary(configId, cached.getId());
+            log.info("媒体库 {} (ID: {}) 已从Emby删除，清理缓存媒体项 {} 个", cached.getName(), cached.getId(), items);
+        }
+    }
+
+    /**
+     * 同步类型、标签、工作室（数据量小，每次都全量覆盖），写入成功后删除本次没有写到的旧行；
+     * 失败不影响整体，数量写入 result
+     */
+    private void syncGenresTagsStudios(Long configId, LocalDateTime syncStart, Map<String, Object> result) {
+        int genresCount = 0;
+        int tagsCount = 0;
+        int studiosCount = 0;
+
+        try {
+            List<EmbyGenre> genres = embyService.getAllGenres();
+            if (genres != null && !genres.isEmpty()) {
+                saveGenresToCache(genres);
+                LambdaQueryWrapper<EmbyGenreCache> staleWrapper = new LambdaQueryWrapper<>();
+                staleWrapper.eq(EmbyGenreCache::getEmbyConfigId, configId)
+                        .and(w -> w.isNull(EmbyGenreCache::getLastSyncTime)
+                                .or()
+                                .lt(EmbyGenreCache::getLastSyncTime, syncStart));
+                genreCacheMapper.delete(staleWrapper);
+                genresCount = genres.size();
+                log.info("同步 {} 个类型", genresCount);
+            } else {
+                log.info("没有类型数据，跳过");
+            }
+        } catch (Exception e) {
+            log.warn("同步类型失败（非关键错误，继续执行）: {}", e.getMessage());
+        }
+
+        try {
+            List<EmbyGenre> tags = embyService.getAllTags();
+            if (tags != null && !tags.isEmpty()) {
+                saveTagsToCache(tags);
+                LambdaQueryWrapper<EmbyTagCache> staleWrapper = new LambdaQueryWrapper<>();
+                staleWrapper.eq(EmbyTagCache::getEmbyConfigId, configId)
+                        .and(w -> w.isNull(EmbyTagCache::getLastSyncTime)
+                                .or()
+                                .lt(EmbyTagCache::getLastSyncTime, syncStart));
+                tagCacheMapper.delete(staleWrapper);
+                tagsCount = tags.size();
+                log.info("同步 {} 个标签", tagsCount);
+            } else {
+                log.info("没有标签数据，跳过");
+            }
+        } catch (Exception e) {
+            log.warn("同步标签失败（非关键错误，继续执行）: {}", e.getMessage());
+        }
+
+        try {
+            List<EmbyGenre> studios = embyService.getAllStudios();
+            if (studios != null && !studios.isEmpty()) {
+                saveStudiosToCache(studios);
+                LambdaQueryWrapper<EmbyStudioCache> staleWrapper = new LambdaQueryWrapper<>();
+                staleWrapper.eq(EmbyStudioCache::getEmbyConfigId, configId)
+                        .and(w -> w.isNull(EmbyStudioCache::getLastSyncTime)
+                                .or()
+                                .lt(EmbyStudioCache::getLastSyncTime, syncStart));
+                studioCacheMapper.delete(staleWrapper);
+                studiosCount = studios.size();
+                log.info("同步 {} 个工作室", studiosCount);
+            } else {
+                log.info("没有工作室数据，跳过");
+            }
+        } catch (Exception e) {
+            log.warn("同步工作室失败（非关键错误，继续执行）: {}", e.getMessage());
+        }
+
+        result.put("totalGenres", genresCount);
+        result.put("totalTags", tagsCount);
+        result.put("totalStudios", studiosCount);
+    }
+
+    /**
+     * 本次同步的开始时间，用于判断哪些行没有被本次同步写到
+     * 截到整秒：DATETIME 列按秒存储（小数部分四舍五入），截断后本次写入的行不会早于它
+     */
+    private static LocalDateTime syncStartTime() {
+        return DateTimeUtil.now().withNano(0);
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean clearAllCache() {
@@ -407,6 +852,10 @@ public class EmbyCacheServiceImpl implements IEmbyCacheService {
             studioWrapper.eq(EmbyStudioCache::getEmbyConfigId, configId);
             studioCacheMapper.delete(studioWrapper);
 
+            // 没有同步状态的媒体库下次同步按全量处理
+            syncStateMapper.deleteByConfig(configId);
+            searchIndex.clear(configId);
+
             return true;
         } catch (Exception e) {
             log.error("清空缓存失败", e);
@@ -427,64 +876,126 @@ public class EmbyCacheServiceImpl implements IEmbyCacheService {
 
     /**
      * 同步媒体库的所有媒体项（全量）
+     * <p>
+     * 第一页确定总数后，其余页并行拉取（所有媒体库共用 parallelism 个拉取线程），
+     * 拉取结果经有界队列交给当前线程写库；在途 + 待写的页数不超过 queue-pages，写库慢时拉取自动放缓。
      */
-    private int syncLibraryItemsAll(String libraryId) {
-        int totalCount = 0;
-        int startIndex = 0;
-        int limit = 100; // 每次获取100条
-        int batchNumber = 1;
+    private int syncLibraryItemsAll(String libraryId, Long configId) {
+        int limit = Math.max(1, syncPageSize);
+        int window = Math.max(1, queuePages);
+        long startTime = System.currentTimeMillis();
 
-        log.info("开始全量同步媒体库 {} 的所有媒体项", libraryId);
+        log.info("开始全量同步媒体库 {} 的所有媒体项 (每页 {} 条)", libraryId, limit);
 
-        while (true) {
+        FetchedPage first = await(CompletableFuture.supplyAsync(() -> fetchPage(libraryId, 0, limit), pageFetchExecutor));
+        if (first.error != null) {
+            log.error("同步媒体库 {} 第一页数据时出错: {}", libraryId, first.error.getMessage(), first.error);
+            throw first.error;
+        }
+        if (first.items.isEmpty()) {
+            log.info("媒体库 {} 没有数据", libraryId);
+            return 0;
+        }
+        saveItemsToCache(first.items, libraryId, configId);
+        int totalCount = first.items.size();
+        int expected = first.totalCount;
+        int lastStart = 0;
+        int lastSize = first.items.size();
+
+        // 其余页并行拉取，当前线程写库
+        if (lastSize >= limit && expected > limit) {
+            BlockingQueue<FetchedPage> queue = new ArrayBlockingQueue<>(window);
+            List<CompletableFuture<Void>> fetches = new ArrayList<>();
+            int nextStart = limit;
+            int inFlight = 0;
+            boolean completed = false;
             try {
-                log.info("获取第 {} 批数据 (startIndex={}, limit={})", batchNumber, startIndex, limit);
-
-                PagedResult<EmbyItem> pagedResult = embyService.getLibraryItemsPaged(libraryId, startIndex, limit);
-                List<EmbyItem> items = pagedResult.getItems();
-
-                if (items == null || items.isEmpty()) {
-                    log.info("没有更多数据，同步完成");
-                    break;
+                while (nextStart < expected || inFlight > 0) {
+                    while (nextStart < expected && inFlight < window) {
+                        int pageStart = nextStart;
+                        // 在途页数不超过队列容量，add 不会失败
+                        fetches.add(CompletableFuture.runAsync(
+                                () -> queue.add(fetchPage(libraryId, pageStart, limit)), pageFetchExecutor));
+                        nextStart += limit;
+                        inFlight++;
+                    }
+                    FetchedPage page = queue.take();
+                    inFlight--;
+                    if (page.error != null) {
+                        log.error("同步媒体库 {} 数据时出错 (startIndex={}): {}",
+                                libraryId, page.startIndex, page.error.getMessage(), page.error);
+                        throw page.error;
+                    }
+                    saveItemsToCache(page.items, libraryId, configId);
+                    totalCount += page.items.size();
+                    if (page.startIndex > lastStart) {
+                        lastStart = page.startIndex;
+                        lastSize = page.items.size();
+                    }
+                    log.info("媒体库 {} 同步进度: {}/{} ({}%)", libraryId, totalCount, expected,
+                            (int) ((totalCount * 100.0) / expected));
                 }
-
-                // 批量保存到数据库
-                log.info("保存第 {} 批数据到数据库，共 {} 条", batchNumber, items.size());
-                saveItemsToCache(items, libraryId);
-
-                totalCount += items.size();
-                startIndex += limit;
-                batchNumber++;
-
-                // 如果返回的数量少于limit，说明已经是最后一页
-                if (items.size() < limit) {
-                    log.info("已获取所有数据（最后一批数据量: {}）", items.size());
-                    break;
-                }
-
-                // 如果有总数，可以显示进度
-                if (pagedResult.getTotalCount() != null && pagedResult.getTotalCount() > 0) {
-                    int progress = (int) ((totalCount * 100.0) / pagedResult.getTotalCount());
-                    log.info("同步进度: {}/{} ({}%)", totalCount, pagedResult.getTotalCount(), progress);
+                completed = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BusinessException("同步媒体库被中断: " + libraryId);
+            } finally {
+                if (!completed) {
+                    fetches.forEach(f -> f.cancel(false));
                 }
+            }
+        }
 
-            } catch (Exception e) {
-                log.error("同步第 {} 批数据时出错: {}", batchNumber, e.getMessage(), e);
-                throw e;
+        // 同步期间新增的媒体项：最后一页是满页时顺序拉取，直到不满一页
+        while (lastSize >= limit) {
+            lastStart += limit;
+            FetchedPage page = fetchPage(libraryId, lastStart, limit);
+            if (page.error != null) {
+                throw page.error;
             }
+            if (!page.items.isEmpty()) {
+                saveItemsToCache(page.items, libraryId, configId);
+                totalCount += page.items.size();
+            }
+            lastSize = page.items.size();
         }
 
-        log.info("媒体库 {} 全量同步完成，共 {} 个媒体项", libraryId, totalCount);
+        log.info("媒体库 {} 全量同步完成，共 {} 个媒体项，耗时 {}ms",
+                libraryId, totalCount, System.currentTimeMillis() - startTime);
         return totalCount;
     }
 
+    private FetchedPage fetchPage(String libraryId, int startIndex, int limit) {
+        try {
+            PagedResult<EmbyItem> result = embyService.getLibraryItemsPaged(libraryId, startIndex, limit);
+            List<EmbyItem> items = result.getItems() != null ? result.getItems() : Collections.emptyList();
+            FetchedPage page = new FetchedPage(startIndex, items, null);
+            page.totalCount = result.getTotalCount() != null ? result.getTotalCount() : 0;
+            return page;
+        } catch (RuntimeException e) {
+            return new FetchedPage(startIndex, Collections.emptyList(), e);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
     /**
      * 保存媒体库列表到缓存
      */
     private void saveLibrariesToCache(List<EmbyLibrary> libraries) {
         Long configId = getCurrentEmbyConfigId();
-        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime now = DateTimeUtil.now();
 
+        List<EmbyLibraryCache> rows = new ArrayList<>(libraries.size());
         for (EmbyLibrary library : libraries) {
             EmbyLibraryCache cache = new EmbyLibraryCache();
             cache.setId(library.getId());
@@ -495,41 +1006,27 @@ public class EmbyCacheServiceImpl implements IEmbyCacheService {
             cache.setLocations(JSONUtil.toJsonStr(library.getLocations()));
             cache.setServerId(library.getServerId());
             cache.setLastSyncTime(now);
-
-            // 使用 wrapper 查询是否存在（因为是联合主键）
-            LambdaQueryWrapper<EmbyLibraryCache> wrapper = new LambdaQueryWrapper<>();
-            wrapper.eq(EmbyLibraryCache::getId, library.getId())
-                    .eq(EmbyLibraryCache::getEmbyConfigId, configId);
-            EmbyLibraryCache existing = libraryCacheMapper.selectOne(wrapper);
-
-            if (existing != null) {
-                libraryCacheMapper.updateById(cache);
-            } else {
-                libraryCacheMapper.insert(cache);
-            }
+            rows.add(cache);
         }
+        upsertInChunks(rows, libraryCacheMapper::upsertBatch);
     }
 
     /**
-     * 保存媒体项列表到缓存
+     * 保存媒体项列表到缓存（多行 INSERT ... ON DUPLICATE KEY UPDATE，每 upsert-chunk 条一条语句）
      */
-    private void saveItemsToCache(List<EmbyItem> items, String libraryId) {
-        LocalDateTime now = LocalDateTime.now();
-
+    private void saveItemsToCache(List<EmbyItem> items, String libraryId, Long configId) {
+        LocalDateTime now = DateTimeUtil.now();
+        List<EmbyItemCache> rows = new ArrayList<>(items.size());
         for (EmbyItem item : items) {
             // 强制设置 parentId 为媒体库 ID，确保查询时能找到
             item.setParentId(libraryId);
-            saveItemToCache(item);
+            rows.add(toItemCache(item, configId, now));
         }
+        upsertInChunks(rows, itemCacheMapper::upsertBatch);
+        searchIndex.upsert(configId, rows);
     }
 
-    /**
-     * 保存单个媒体项到缓存
-     */
-    private void saveItemToCache(EmbyItem item) {
-        Long configId = getCurrentEmbyConfigId();
-        LocalDateTime now = LocalDateTime.now();
-
+    private EmbyItemCache toItemCache(EmbyItem item, Long configId, LocalDateTime now) {
         EmbyItemCache cache = new EmbyItemCache();
         cache.setId(item.getId());
         cache.setEmbyConfigId(configId);  // 设置配置ID
@@ -555,21 +1052,16 @@ public class EmbyCacheServiceImpl implements IEmbyCacheService {
         cache.setMediaSources(JSONUtil.toJsonStr(item.getMediaSources()));
         cache.setServerId(item.getServerId());
         cache.setLastSyncTime(now);
+        return cache;
+    }
 
-        // 使用 wrapper 查询是否存在（因为是联合主键）
-        LambdaQueryWrapper<EmbyItemCache> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(EmbyItemCache::getId, item.getId())
-                .eq(EmbyItemCache::getEmbyConfigId, configId);
-        EmbyItemCache existing = itemCacheMapper.selectOne(wrapper);
-
-        if (existing != null) {
-            // 使用 wrapper 更新，避免联合主键冲突
-            cache.setUpdateTime(now);
-            itemCacheMapper.update(cache, wrapper);
-        } else {
-            cache.setCreateTime(now);
-            cache.setUpdateTime(now);
-            itemCacheMapper.insert(cache);
+    /**
+     * 按 upsert-chunk 分段批量写入
+     */
+    private <T> void upsertInChunks(List<T> rows, Function<List<T>, Integer> upsert) {
+        int chunk = Math.max(1, upsertChunk);
+        for (int from = 0; from < rows.size(); from += chunk) {
+            upsert.apply(rows.subList(from, Math.min(rows.size(), from + chunk)));
         }
     }
 
@@ -695,8 +1187,9 @@ public class EmbyCacheServiceImpl implements IEmbyCacheService {
      */
     private void saveGenresToCache(List<EmbyGenre> genres) {
         Long configId = getCurrentEmbyConfigId();
-        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime now = DateTimeUtil.now();
 
+        List<EmbyGenreCache> rows = new ArrayList<>(genres.size());
         for (EmbyGenre genre : genres) {
             EmbyGenreCache cache = new EmbyGenreCache();
             cache.setId(genre.getId());
@@ -704,19 +1197,9 @@ public class EmbyCacheServiceImpl implements IEmbyCacheService {
             cache.setName(genre.getName());
             cache.setItemCount(genre.getItemCount());
             cache.setLastSyncTime(now);
-
-            // 使用 wrapper 查询是否存在（因为是联合主键）
-            LambdaQueryWrapper<EmbyGenreCache> wrapper = new LambdaQueryWrapper<>();
-            wrapper.eq(EmbyGenreCache::getId, genre.getId())
-                    .eq(EmbyGenreCache::getEmbyConfigId, configId);
-            EmbyGenreCache existing = genreCacheMapper.selectOne(wrapper);
-
-            if (existing != null) {
-                genreCacheMapper.updateById(cache);
-            } else {
-                genreCacheMapper.insert(cache);
-            }
+            rows.add(cache);
         }
+        upsertInChunks(rows, genreCacheMapper::upsertBatch);
     }
 
     /**
@@ -724,8 +1207,9 @@ public class EmbyCacheServiceImpl implements IEmbyCacheService {
      */
     private void saveTagsToCache(List<EmbyGenre> tags) {
         Long configId = getCurrentEmbyConfigId();
-        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime now = DateTimeUtil.now();
 
+        List<EmbyTagCache> rows = new ArrayList<>(tags.size());
         for (EmbyGenre tag : tags) {
             EmbyTagCache cache = new EmbyTagCache();
             cache.setId(tag.getId());
@@ -733,19 +1217,9 @@ public class EmbyCacheServiceImpl implements IEmbyCacheService {
             cache.setName(tag.getName());
             cache.setItemCount(tag.getItemCount());
             cache.setLastSyncTime(now);
-
-            // 使用 wrapper 查询是否存在（因为是联合主键）
-            LambdaQueryWrapper<EmbyTagCache> wrapper = new LambdaQueryWrapper<>();
-            wrapper.eq(EmbyTagCache::getId, tag.getId())
-                    .eq(EmbyTagCache::getEmbyConfigId, configId);
-            EmbyTagCache existing = tagCacheMapper.selectOne(wrapper);
-
-            if (existing != null) {
-                tagCacheMapper.updateById(cache);
-            } else {
-                tagCacheMapper.insert(cache);
-            }
+            rows.add(cache);
         }
+        upsertInChunks(rows, tagCacheMapper::upsertBatch);
     }
 
     /**
@@ -753,8 +1227,9 @@ public class EmbyCacheServiceImpl implements IEmbyCacheService {
      */
     private void saveStudiosToCache(List<EmbyGenre> studios) {
         Long configId = getCurrentEmbyConfigId();
-        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime now = DateTimeUtil.now();
 
+        List<EmbyStudioCache> rows = new ArrayList<>(studios.size());
         for (EmbyGenre studio : studios) {
             EmbyStudioCache cache = new EmbyStudioCache();
             cache.setId(studio.getId());
@@ -762,19 +1237,9 @@ public class EmbyCacheServiceImpl implements IEmbyCacheService {
             cache.setName(studio.getName());
             cache.setItemCount(studio.getItemCount());
             cache.setLastSyncTime(now);
-
-            // 使用 wrapper 查询是否存在（因为是联合主键）
-            LambdaQueryWrapper<EmbyStudioCache> wrapper = new LambdaQueryWrapper<>();
-            wrapper.eq(EmbyStudioCache::getId, studio.getId())
-                    .eq(EmbyStudioCache::getEmbyConfigId, configId);
-            EmbyStudioCache existing = studioCacheMapper.selectOne(wrapper);
-
-            if (existing != null) {
-                studioCacheMapper.updateById(cache);
-            } else {
-                studioCacheMapper.insert(cache);
-            }
+            rows.add(cache);
         }
+        upsertInChunks(rows, studioCacheMapper::upsertBatch);
     }
 
     /**
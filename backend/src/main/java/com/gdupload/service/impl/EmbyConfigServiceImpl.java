@@ -1,19 +1,24 @@
 package com.gdupload.service.impl;
 
+import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.http.HttpRequest;
-import cn.hutool.http.HttpResponse;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.gdupload.common.BusinessException;
 import com.gdupload.entity.EmbyConfig;
 import com.gdupload.mapper.EmbyConfigMapper;
+import com.gdupload.mapper.EmbyItemStatusMapper;
 import com.gdupload.service.IEmbyConfigService;
+import com.gdupload.util.EmbyHttpClient;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Emby配置服务实现
@@ -22,8 +27,79 @@ import java.util.List;
 @Service
 public class EmbyConfigServiceImpl extends ServiceImpl<EmbyConfigMapper, EmbyConfig> implements IEmbyConfigService {
 
+    @Autowired
+    private EmbyHttpClient embyHttpClient;
+
+    @Autowired
+    private EmbyItemStatusMapper itemStatusMapper;
+
+    /** 当前生效的配置（内存缓存，本类的配置写入方法中由 evictCache 清除） */
+    private volatile EmbyConfig cachedDefault;
+
+    /** 配置版本号，每次清除缓存加一 */
+    private final AtomicLong configVersion = new AtomicLong();
+
     @Override
     public EmbyConfig getDefaultConfig() {
+        EmbyConfig config = findDefaultConfig();
+        if (config == null) {
+            throw new BusinessException("未找到可用的Emby配置，请先添加配置");
+        }
+        return config;
+    }
+
+    @Override
+    public EmbyConfig findDefaultConfig() {
+        EmbyConfig config = cachedDefault;
+        if (config == null) {
+            long version = configVersion.get();
+            config = loadDefaultConfig();
+            synchronized (configVersion) {
+                // 加载期间配置被修改时不写入缓存，避免缓存旧配置
+                if (configVersion.get() == version) {
+                    cachedDefault = config;
+                }
+            }
+            if (config == null) {
+                return null;
+            }
+        }
+        // 返回副本，调用方修改不影响缓存
+        return BeanUtil.copyProperties(config, EmbyConfig.class);
+    }
+
+    @Override
+    public long getConfigVersion() {
+        return configVersion.get();
+    }
+
+    /**
+     * 清除配置缓存。
+     * <p>
+     * 处于事务中时在事务提交后再清除一次，避免其它线程在提交前重新加载到旧配置。
+     */
+    @Override
+    public void evictCache() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doEvict();
+                }
+            });
+        }
+        doEvict();
+    }
+
+    private void doEvict() {
+        synchronized (configVersion) {
+            cachedDefault = null;
+            configVersion.incrementAndGet();
+        }
+        log.info("Emby配置缓存已清除，版本: {}", configVersion.get());
+    }
+
+    private EmbyConfig loadDefaultConfig() {
         // 先查找标记为默认的配置
         LambdaQueryWrapper<EmbyConfig> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(EmbyConfig::getIsDefault, true)
@@ -42,10 +118,6 @@ public class EmbyConfigServiceImpl extends ServiceImpl<EmbyConfigMapper, EmbyCon
             config = this.getOne(wrapper);
         }
 
-        if (config == null) {
-            throw new BusinessException("未找到可用的Emby配置，请先添加配置");
-        }
-
         return config;
     }
 
@@ -78,7 +150,22 @@ public class EmbyConfigServiceImpl extends ServiceImpl<EmbyConfigMapper, EmbyCon
 
         config.setIsDefault(true);
         config.setEnabled(true);
-        return this.updateById(config);
+        boolean updated = this.updateById(config);
+        evictCache();
+        return updated;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean toggleConfig(Long id) {
+        EmbyConfig config = this.getById(id);
+        if (config == null) {
+            throw new BusinessException("配置不存在");
+        }
+        config.setEnabled(!Boolean.TRUE.equals(config.getEnabled()));
+        boolean updated = this.updateById(config);
+        evictCache();
+        return updated;
     }
 
     @Override
@@ -88,41 +175,18 @@ public class EmbyConfigServiceImpl extends ServiceImpl<EmbyConfigMapper, EmbyCon
                     config.getServerUrl(), config.getUsername(),
                     StrUtil.isNotBlank(config.getApiKey()));
 
-            String url = config.getServerUrl();
-            if (url.endsWith("/")) {
-                url = url.substring(0, url.length() - 1);
-            }
-
             // 如果有 API Key，直接测试
             if (StrUtil.isNotBlank(config.getApiKey())) {
-                url += "/emby/System/Info";
-                log.info("使用API Key测试: {}", url);
+                log.info("使用API Key测试: {}/emby/System/Info", config.getServerUrl());
 
-                // 模拟Forward app的请求格式
-                String deviceId = "30c9d308e74a46a1811c851bf76a8f77";
+                // 模拟Forward app的请求格式（请求头由 EmbyHttpClient 统一构建）
                 String userId = config.getUserId() != null ? config.getUserId() : "unknown";
+                EmbyHttpClient.Endpoint endpoint = embyHttpClient.endpoint(config.getServerUrl(), config.getApiKey(),
+                    userId, config.getTimeout() != null ? config.getTimeout() : 30000);
 
-                // 构建 X-Emby-Authorization 头部（Forward格式）
-                String embyAuth = String.format(
-                    "MediaBrowser Token=\"%s\", Emby UserId=\"%s\", Client=\"Forward\", Device=\"iPhone\", DeviceId=\"%s\", Version=\"1.3.14\"",
-                    config.getApiKey(), userId, deviceId
-                );
-
-                HttpRequest request = HttpRequest.get(url)
-                        .header("X-Emby-Token", config.getApiKey())
-                        .header("X-Emby-Authorization", embyAuth)
-                        .header("User-Agent", "Forward-Standard/1.3.14")
-                        .header("Accept", "*/*")
-                        .header("Accept-Language", "zh-CN,zh-Hans;q=0.9")
-                        .header("Accept-Encoding", "gzip, deflate, br")
-                        .header("Connection", "keep-alive")
-                        .timeout(config.getTimeout() != null ? config.getTimeout() : 30000)
-                        .setFollowRedirects(true);
-
-                HttpResponse response = request.execute();
-                log.info("API Key测试响应: status={}, body={}", response.getStatus(),
-                    response.body().substring(0, Math.min(200, response.body().length())));
-                return response.isOk();
+                String body = embyHttpClient.get(endpoint, "/emby/System/Info", null, null);
+                log.info("API Key测试响应: body={}", body.substring(0, Math.min(200, body.length())));
+                return true;
             }
             // 如果是用户名密码，跳过登录测试，直接返回true
             // 因为Cloudflare会拦截登录接口，但实际使用时EmbyAuthService会处理认证
@@ -144,8 +208,9 @@ public class EmbyConfigServiceImpl extends ServiceImpl<EmbyConfigMapper, EmbyCon
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean saveOrUpdateConfig(EmbyConfig config) {
+        boolean isNew = config.getId() == null;
         // 如果是新配置且没有其他配置，自动设为默认
-        if (config.getId() == null) {
+        if (isNew) {
             long count = this.count();
             if (count == 0) {
                 config.setIsDefault(true);
@@ -167,6 +232,24 @@ public class EmbyConfigServiceImpl extends ServiceImpl<EmbyConfigMapper, EmbyCon
             }
         }
 
-        return this.saveOrUpdate(config);
+        boolean saved = this.saveOrUpdate(config);
+        evictCache();
+        if (saved && isNew) {
+            // 转存状态写入时只覆盖已存在的配置，新配置需从转存历史回填，否则媒体库中显示为未转存
+            int count = itemStatusMapper.backfillTransferStatus(config.getId());
+            log.info("新Emby配置回填转存状态: configId={}, 行数={}", config.getId(), count);
+        }
+        return saved;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean deleteConfig(Long id) {
+        boolean removed = this.removeById(id);
+        if (removed) {
+            itemStatusMapper.deleteByConfigId(id);
+        }
+        evictCache();
+        return removed;
     }
 }
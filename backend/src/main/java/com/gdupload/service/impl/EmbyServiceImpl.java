@@ -1,10 +1,6 @@
 package com.gdupload.service.impl;
 
-import cn.hutool.core.map.MapUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.core.util.URLUtil;
-import cn.hutool.http.HttpRequest;
-import cn.hutool.http.HttpResponse;
 import cn.hutool.json.JSONArray;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
@@ -13,12 +9,16 @@ import com.gdupload.config.EmbyProperties;
 import com.gdupload.dto.*;
 import com.gdupload.entity.*;
 import com.gdupload.mapper.EmbyDownloadHistoryMapper;
-import com.gdupload.mapper.UploadRecordMapper;
+import com.gdupload.mapper.EmbyItemStatusMapper;
 import com.gdupload.service.*;
 import com.gdupload.util.DateTimeUtil;
+import com.gdupload.util.EmbyHttpClient;
+import com.gdupload.util.EmbyItemJsonReader;
+import com.gdupload.util.EmbyStreamProxy;
 import com.gdupload.util.RcloneResult;
 import com.gdupload.util.RcloneUtil;
 import com.gdupload.util.TaskPauseManager;
+import com.gdupload.util.TaskProgressAggregator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -35,7 +35,6 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -52,7 +51,7 @@ public class EmbyServiceImpl implements IEmbyService {
     private EmbyDownloadHistoryMapper downloadHistoryMapper;
 
     @Autowired
-    private UploadRecordMapper uploadRecordMapper;
+    private EmbyItemStatusMapper itemStatusMapper;
 
     @Autowired
     private IEmbyConfigService embyConfigService;
@@ -78,9 +77,18 @@ public class EmbyServiceImpl implements IEmbyService {
     @Autowired
     private RcloneUtil rcloneUtil;
 
+    @Autowired
+    private EmbyHttpClient embyHttpClient;
+
+    @Autowired
+    private EmbyStreamProxy embyStreamProxy;
+
     @Value("${app.emby.download-dir:/data/emby}")
     private String defaultEmbyDownloadDir;
 
+    /** 媒体库列表请求的字段 */
+    private static final String LIBRARY_ITEM_FIELDS = "Path,Genres,ProductionYear,CommunityRating";
+
     // 下载任务的停止标志，key=taskId
     private final Map<Long, AtomicBoolean> downloadStopFlags = new ConcurrentHashMap<>();
 
@@ -116,17 +124,6 @@ public class EmbyServiceImpl implements IEmbyService {
         log.info("========================================");
     }
 
-    /**
-     * 构建API URL
-     */
-    private String buildUrl(String path) {
-        String baseUrl = embyAuthService.getServerUrl();
-        if (baseUrl.endsWith("/")) {
-            baseUrl = baseUrl.substring(0, baseUrl.length() - 1);
-        }
-        return baseUrl + path;
-    }
-
     /**
      * 发送GET请求
      */
@@ -138,190 +135,83 @@ public class EmbyServiceImpl implements IEmbyService {
      * 发送GET请求（可指定超时时间）
      */
     private JSONObject sendGetRequest(String path, Map<String, Object> params, Integer customTimeout) {
-        // 获取 Access Token（优先使用 API Key，否则使用登录 Token）
-        String accessToken = embyAuthService.getAccessToken();
-        String userId = embyAuthService.getUserId();
-
-        String url = buildUrl(path);
-
-        try {
-            // 如果没有指定自定义超时，使用配置的超时时间
-            int timeout = customTimeout != null ? customTimeout : embyAuthService.getTimeout();
-
-            // 伪装成 Forward app 的设备ID（可以随机生成或固定）
-            String deviceId = "30c9d308e74a46a1811c851bf76a8f77";
-            String forwardVersion = "1.3.14";
-
-            // 构建 X-Emby-Authorization 请求头（Forward app 格式）
-            String embyAuth = String.format(
-                "MediaBrowser Token=\"%s\", Emby UserId=\"%s\", Client=\"Forward\", Device=\"iPhone\", DeviceId=\"%s\", Version=\"%s\"",
-                accessToken, userId, deviceId, forwardVersion
-            );
-
-            // 构建完整URL（包含查询参数）
-            StringBuilder fullUrl = new StringBuilder(url);
-            if (MapUtil.isNotEmpty(params)) {
-                fullUrl.append("?");
-                params.forEach((key, value) -> {
-                    if (value != null) {
-                        fullUrl.append(URLUtil.encode(key)).append("=").append(URLUtil.encode(String.valueOf(value))).append("&");
-                    }
-                });
-                // 移除最后一个&
-                if (fullUrl.charAt(fullUrl.length() - 1) == '&') {
-                    fullUrl.setLength(fullUrl.length() - 1);
-                }
-            }
-
-            log.info("Emby API请求URL: {}", fullUrl.toString());
+        // 连接复用、预构建请求头、5xx / 超时重试由 EmbyHttpClient 统一处理，401 时刷新 Token 重试
+        String body = embyAuthService.callWithEndpoint(
+            endpoint -> embyHttpClient.get(endpoint, path, params, customTimeout));
 
-            HttpRequest request = HttpRequest.get(fullUrl.toString())
-                    .header("Content-Type", "application/json")
-                    .header("X-Emby-Authorization", embyAuth)
-                    .header("X-Emby-Token", accessToken)
-                    .header("User-Agent", "Forward-Standard/" + forwardVersion)
-                    .header("Accept", "*/*")
-                    .header("Accept-Language", "zh-CN,zh-Hans;q=0.9")
-                    // 不设置 Accept-Encoding，让 Hutool 自动处理压缩
-                    .header("Connection", "keep-alive")
-                    .timeout(timeout);
-
-            HttpResponse response = request.execute();
-
-            if (!response.isOk()) {
-                log.error("Emby API请求失败: {} - 完整URL: {} - 响应: {}", response.getStatus(), fullUrl.toString(), response.body());
-                throw new BusinessException("Emby API请求失败: " + response.getStatus());
-            }
-
-            String body = response.body();
-
-            // 记录响应内容用于调试
-            log.info("Emby API响应 [{}]: 前200字符={}", url, body.substring(0, Math.min(200, body.length())));
-
-            // 检查响应是否为空
-            if (StrUtil.isBlank(body)) {
-                log.error("Emby API返回空响应: {}", url);
-                throw new BusinessException("Emby API返回空响应");
-            }
+        if (log.isDebugEnabled()) {
+            log.debug("Emby API响应 [{}]: 前200字符={}", path, body.substring(0, Math.min(200, body.length())));
+        }
 
-            // 检查响应是否是JSON对象
-            body = body.trim();
-            if (!body.startsWith("{")) {
-                log.error("Emby API返回非JSON对象格式: URL={}, 响应前200字符={}", url, body.substring(0, Math.min(200, body.length())));
-
-                // 如果是数组，返回包装后的对象
-                if (body.startsWith("[")) {
-                    log.info("检测到返回数组，自动包装为对象");
-                    JSONObject wrapper = new JSONObject();
-                    wrapper.set("Items", JSONUtil.parseArray(body));
-                    wrapper.set("TotalRecordCount", JSONUtil.parseArray(body).size());
-                    return wrapper;
-                }
+        // 检查响应是否为空
+        if (StrUtil.isBlank(body)) {
+            log.error("Emby API返回空响应: {}", path);
+            throw new BusinessException("Emby API返回空响应");
+        }
 
-                throw new BusinessException("Emby API返回格式错误，期望JSON对象但收到: " + body.substring(0, Math.min(50, body.length())));
+        // 检查响应是否是JSON对象
+        body = body.trim();
+        if (!body.startsWith("{")) {
+            log.error("Emby API返回非JSON对象格式: path={}, 响应前200字符={}", path, body.substring(0, Math.min(200, body.length())));
+
+            // 如果是数组，返回包装后的对象
+            if (body.startsWith("[")) {
+                log.info("检测到返回数组，自动包装为对象");
+                JSONArray array = JSONUtil.parseArray(body);
+                JSONObject wrapper = new JSONObject();
+                wrapper.set("Items", array);
+                wrapper.set("TotalRecordCount", array.size());
+                return wrapper;
             }
 
-            return JSONUtil.parseObj(body);
-
-        } catch (cn.hutool.http.HttpException e) {
-            if (e.getMessage().contains("timed out")) {
-                log.error("Emby API请求超时: {} - 参数: {}", url, params);
-                throw new BusinessException("Emby服务器响应超时，请稍后重试或减少每页数量");
-            }
-            log.error("调用Emby API异常: {} - URL: {}", e.getMessage(), url, e);
-            throw new BusinessException("调用Emby API异常: " + e.getMessage());
-        } catch (BusinessException e) {
-            // 直接抛出业务异常
-            throw e;
-        } catch (Exception e) {
-            log.error("调用Emby API异常: {} - URL: {}", e.getMessage(), url, e);
-            throw new BusinessException("调用Emby API异常: " + e.getMessage());
+            throw new BusinessException("Emby API返回格式错误，期望JSON对象但收到: " + body.substring(0, Math.min(50, body.length())));
         }
+
+        return JSONUtil.parseObj(body);
     }
 
     /**
      * 发送GET请求（返回数组）
      */
     private JSONArray sendGetRequestArray(String path, Map<String, Object> params) {
-        // 获取 Access Token
-        String accessToken = embyAuthService.getAccessToken();
-        String userId = embyAuthService.getUserId();
-
-        String url = buildUrl(path);
-
-        try {
-            // 伪装成 Forward app 的设备ID
-            String deviceId = "30c9d308e74a46a1811c851bf76a8f77";
-            String forwardVersion = "1.3.13";
-
-            // 构建 X-Emby-Authorization 请求头（Forward app 格式）
-            String embyAuth = String.format(
-                "MediaBrowser Token=\"%s\", Emby UserId=\"%s\", Client=\"Forward\", Device=\"iPhone\", DeviceId=\"%s\", Version=\"%s\"",
-                accessToken, userId, deviceId, forwardVersion
-            );
-
-            // 构建完整URL（包含查询参数）
-            StringBuilder fullUrl = new StringBuilder(url);
-            if (MapUtil.isNotEmpty(params)) {
-                fullUrl.append("?");
-                params.forEach((key, value) -> {
-                    if (value != null) {
-                        fullUrl.append(URLUtil.encode(key)).append("=").append(URLUtil.encode(String.valueOf(value))).append("&");
-                    }
-                });
-                // 移除最后一个&
-                if (fullUrl.charAt(fullUrl.length() - 1) == '&') {
-                    fullUrl.setLength(fullUrl.length() - 1);
-                }
-            }
-
-            log.info("Emby API请求URL: {}", fullUrl.toString());
-
-            HttpRequest request = HttpRequest.get(fullUrl.toString())
-                    .header("Content-Type", "application/json")
-                    .header("X-Emby-Authorization", embyAuth)
-                    .header("X-Emby-Token", accessToken)
-                    .header("User-Agent", "Forward/" + forwardVersion)
-                    .header("Accept", "*/*")
-                    .header("Accept-Language", "zh-CN,zh-Hans;q=0.9")
-                    // 不设置 Accept-Encoding，让 Hutool 自动处理压缩
-                    .header("Connection", "keep-alive")
-                    .timeout(embyAuthService.getTimeout());
-
-            HttpResponse response = request.execute();
-
-            if (!response.isOk()) {
-                log.error("Emby API请求失败: {} - 完整URL: {} - 响应: {}", response.getStatus(), fullUrl.toString(), response.body());
-                throw new BusinessException("Emby API请求失败: " + response.getStatus());
-            }
+        String body = embyAuthService.callWithEndpoint(
+            endpoint -> embyHttpClient.get(endpoint, path, params, null));
 
-            String body = response.body();
+        if (log.isDebugEnabled()) {
+            log.debug("Emby API响应 [{}]: {}", path, body.length() > 500 ? body.substring(0, 500) + "..." : body);
+        }
 
-            // 记录响应内容用于调试
-            log.debug("Emby API响应 [{}]: {}", url, body.length() > 500 ? body.substring(0, 500) + "..." : body);
+        // 检查响应是否为空
+        if (StrUtil.isBlank(body)) {
+            log.error("Emby API返回空响应: {}", path);
+            throw new BusinessException("Emby API返回空响应");
+        }
 
-            // 检查响应是否为空
-            if (StrUtil.isBlank(body)) {
-                log.error("Emby API返回空响应: {}", url);
-                throw new BusinessException("Emby API返回空响应");
-            }
+        // 检查响应是否是JSON数组
+        body = body.trim();
+        if (!body.startsWith("[")) {
+            log.error("Emby API返回非JSON数组格式: path={}, 响应前100字符={}", path, body.substring(0, Math.min(100, body.length())));
+            throw new BusinessException("Emby API返回格式错误，期望JSON数组但收到: " + body.substring(0, Math.min(50, body.length())));
+        }
 
-            // 检查响应是否是JSON数组
-            body = body.trim();
-            if (!body.startsWith("[")) {
-                log.error("Emby API返回非JSON数组格式: URL={}, 响应前100字符={}", url, body.substring(0, Math.min(100, body.length())));
-                throw new BusinessException("Emby API返回格式错误，期望JSON数组但收到: " + body.substring(0, Math.min(50, body.length())));
-            }
+        return JSONUtil.parseArray(body);
+    }
 
-            return JSONUtil.parseArray(body);
+    /**
+     * 发送GET请求，媒体项列表直接从响应流解码（不经过字符串和 JSON 树）
+     */
+    private PagedResult<EmbyItem> sendItemsRequest(String path, Map<String, Object> params, Integer customTimeout,
+                                                   Integer startIndex, Integer limit) {
+        return embyAuthService.callWithEndpoint(endpoint -> embyHttpClient.get(endpoint, path, params, customTimeout,
+            in -> EmbyItemJsonReader.readPage(in, startIndex, limit)));
+    }
 
-        } catch (BusinessException e) {
-            // 直接抛出业务异常
-            throw e;
-        } catch (Exception e) {
-            log.error("调用Emby API异常: {} - URL: {}", e.getMessage(), url, e);
-            throw new BusinessException("调用Emby API异常: " + e.getMessage());
-        }
+    /**
+     * 发送GET请求，单个媒体项直接从响应流解码
+     */
+    private EmbyItem sendItemRequest(String path, Map<String, Object> params) {
+        return embyAuthService.callWithEndpoint(
+            endpoint -> embyHttpClient.get(endpoint, path, params, null, EmbyItemJsonReader::readItem));
     }
 
     @Override
@@ -426,15 +316,74 @@ public class EmbyServiceImpl implements IEmbyService {
     public PagedResult<EmbyItem> getLibraryItemsPaged(String libraryId, Integer startIndex, Integer limit) {
         log.info("开始获取媒体库[{}]的媒体项, startIndex={}, limit={}", libraryId, startIndex, limit);
 
-        String userId = embyAuthService.getUserId();
+        Map<String, Object> params = libraryItemParams(libraryId, startIndex, limit);
+        String path = "/Users/" + embyAuthService.getUserId() + "/Items";
 
+        // 对于大量数据的请求，使用更长的超时时间（60秒）
+        int timeout = 60000;
+        PagedResult<EmbyItem> result = sendItemsRequest(path, params, timeout, startIndex, limit);
+
+        log.info("成功获取媒体库[{}]的{}个媒体项，总数: {}", libraryId, result.getItems().size(), result.getTotalCount());
+
+        return result;
+    }
+
+    @Override
+    public PagedResult<EmbyItem> getLibraryItemsChangedSince(String libraryId, String minDateLastSaved,
+                                                             Integer startIndex, Integer limit) {
+        Map<String, Object> params = libraryItemParams(libraryId, startIndex, limit);
+        params.put("MinDateLastSaved", minDateLastSaved);
+        String path = "/Users/" + embyAuthService.getUserId() + "/Items";
+
+        PagedResult<EmbyItem> result = sendItemsRequest(path, params, 60000, startIndex, limit);
+        log.info("媒体库[{}]自 {} 起有变更的媒体项: 本页{}个，总数: {}",
+            libraryId, minDateLastSaved, result.getItems().size(), result.getTotalCount());
+        return result;
+    }
+
+    @Override
+    public PagedResult<String> getLibraryItemIds(String libraryId, Integer startIndex, Integer limit) {
+        Map<String, Object> params = libraryItemParams(libraryId, startIndex, limit);
+        params.remove("Fields");
+        params.put("EnableImages", false);
+        params.put("EnableUserData", false);
+        String path = "/Users/" + embyAuthService.getUserId() + "/Items";
+
+        PagedResult<EmbyItem> result = sendItemsRequest(path, params, 60000, startIndex, limit);
+        List<String> ids = new ArrayList<>(result.getItems().size());
+        for (EmbyItem item : result.getItems()) {
+            ids.add(item.getId());
+        }
+        return new PagedResult<>(ids, result.getTotalCount(), startIndex, limit);
+    }
+
+    @Override
+    public List<EmbyItem> getItemsByIds(List<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<String, Object> params = new HashMap<>();
+        params.put("Ids", String.join(",", ids));
+        params.put("Fields", LIBRARY_ITEM_FIELDS);
+        String path = "/Users/" + embyAuthService.getUserId() + "/Items";
+        return sendItemsRequest(path, params, 60000, null, null).getItems();
+    }
+
+    /**
+     * 媒体库列表（全量 / 增量同步）共用的查询参数
+     */
+    private Map<String, Object> libraryItemParams(String libraryId, Integer startIndex, Integer limit) {
         Map<String, Object> params = new HashMap<>();
         params.put("ParentId", libraryId);
         params.put("Recursive", true);
         // 只请求必要的字段，减少服务器负载
-        params.put("Fields", "Path,Genres,ProductionYear,CommunityRating");
+        params.put("Fields", LIBRARY_ITEM_FIELDS);
         // 排除Episode类型，只显示Movie和Series
         params.put("ExcludeItemTypes", "Episode");
+        // 按偏移量并行分页时必须有确定的顺序，否则各页之间可能重复或漏掉媒体项；
+        // 按创建时间排序，同步期间新增的媒体项排在末尾，不会挤动前面的页
+        params.put("SortBy", "DateCreated,SortName,Id");
+        params.put("SortOrder", "Ascending");
 
         if (startIndex != null) {
             params.put("StartIndex", startIndex);
@@ -442,33 +391,7 @@ public class EmbyServiceImpl implements IEmbyService {
         if (limit != null) {
             params.put("Limit", limit);
         }
-
-        String path = "/Users/" + userId + "/Items";
-
-        // 对于大量数据的请求，使用更长的超时时间（60秒）
-        int timeout = 60000;
-        JSONObject response = sendGetRequest(path, params, timeout);
-
-        // 获取总数
-        Integer totalCount = response.getInt("TotalRecordCount");
-        if (totalCount == null) {
-            totalCount = 0;
-        }
-
-        JSONArray items = response.getJSONArray("Items");
-        List<EmbyItem> embyItems = new ArrayList<>();
-
-        if (items != null && !items.isEmpty()) {
-            for (int i = 0; i < items.size(); i++) {
-                JSONObject item = items.getJSONObject(i);
-                EmbyItem embyItem = parseEmbyItem(item);
-                embyItems.add(embyItem);
-            }
-        }
-
-        log.info("成功获取媒体库[{}]的{}个媒体项，总数: {}", libraryId, embyItems.size(), totalCount);
-
-        return new PagedResult<>(embyItems, totalCount, startIndex, limit);
+        return params;
     }
 
     @Override
@@ -480,8 +403,7 @@ public class EmbyServiceImpl implements IEmbyService {
         params.put("Fields", "Path,MediaSources,Genres,Tags,Studios,People,Overview");
 
         try {
-            JSONObject response = sendGetRequest(path, params);
-            EmbyItem item = parseEmbyItem(response);
+            EmbyItem item = sendItemRequest(path, params);
 
             log.info("成功获取媒体项[{}]的详情: name={}, type={}", itemId, item.getName(), item.getType());
             return item;
@@ -493,8 +415,7 @@ public class EmbyServiceImpl implements IEmbyService {
                 try {
                     String userId = embyAuthService.getUserId();
                     path = "/Users/" + userId + "/Items/" + itemId;
-                    JSONObject response = sendGetRequest(path, params);
-                    EmbyItem item = parseEmbyItem(response);
+                    EmbyItem item = sendItemRequest(path, params);
                     log.info("成功通过用户ID获取媒体项[{}]的详情", itemId);
                     return item;
                 } catch (Exception ex) {
@@ -517,17 +438,7 @@ public class EmbyServiceImpl implements IEmbyService {
         params.put("Fields", "Path,MediaSources,Overview");
 
         try {
-            JSONObject response = sendGetRequest(path, params);
-            JSONArray items = response.getJSONArray("Items");
-
-            List<EmbyItem> episodes = new ArrayList<>();
-            if (items != null) {
-                for (int i = 0; i < items.size(); i++) {
-                    JSONObject itemJson = items.getJSONObject(i);
-                    EmbyItem episode = parseEmbyItem(itemJson);
-                    episodes.add(episode);
-                }
-            }
+            List<EmbyItem> episodes = sendItemsRequest(path, params, null, null, null).getItems();
 
             log.info("成功获取电视剧[{}]的剧集，共{}集", seriesId, episodes.size());
             return episodes;
@@ -598,21 +509,13 @@ public class EmbyServiceImpl implements IEmbyService {
         params.put("Recursive", true);
         params.put("Fields", "Path,MediaSources,Genres,Tags,Studios,People,Overview");
 
-        JSONObject response = sendGetRequest(path, params);
-        JSONArray items = response.getJSONArray("Items");
+        List<EmbyItem> embyItems = sendItemsRequest(path, params, null, null, null).getItems();
 
-        if (items == null || items.isEmpty()) {
+        if (embyItems.isEmpty()) {
             log.warn("未找到匹配的媒体项");
             return new ArrayList<>();
         }
 
-        List<EmbyItem> embyItems = new ArrayList<>();
-        for (int i = 0; i < items.size(); i++) {
-            JSONObject item = items.getJSONObject(i);
-            EmbyItem embyItem = parseEmbyItem(item);
-            embyItems.add(embyItem);
-        }
-
         log.info("搜索到{}个匹配的媒体项", embyItems.size());
         return embyItems;
     }
@@ -705,94 +608,6 @@ public class EmbyServiceImpl implements IEmbyService {
         return users.getJSONObject(0).getStr("Id");
     }
 
-    /**
-     * 解析媒体项
-     */
-    private EmbyItem parseEmbyItem(JSONObject json) {
-        EmbyItem item = new EmbyItem();
-
-        item.setId(json.getStr("Id"));
-        item.setName(json.getStr("Name"));
-        item.setOriginalTitle(json.getStr("OriginalTitle"));
-        item.setType(json.getStr("Type"));
-        item.setMediaType(json.getStr("MediaType"));
-        item.setParentId(json.getStr("ParentId"));
-
-        // 解析剧集信息（仅Episode类型有效）
-        item.setSeriesId(json.getStr("SeriesId"));
-        item.setSeriesName(json.getStr("SeriesName"));
-        item.setParentIndexNumber(json.getInt("ParentIndexNumber"));
-        item.setIndexNumber(json.getInt("IndexNumber"));
-
-        item.setPath(json.getStr("Path"));
-        item.setProductionYear(json.getInt("ProductionYear"));
-        item.setPremiereDate(json.getStr("PremiereDate"));
-        item.setCommunityRating(json.getDouble("CommunityRating"));
-        item.setOfficialRating(json.getStr("OfficialRating"));
-        item.setOverview(json.getStr("Overview"));
-        item.setRunTimeTicks(json.getLong("RunTimeTicks"));
-        item.setPlayed(json.getBool("Played", false));
-        item.setPlayCount(json.getInt("PlayCount", 0));
-        item.setDateCreated(json.getStr("DateCreated"));
-        item.setDateModified(json.getStr("DateModified"));
-
-        // 解析标签
-        JSONArray tags = json.getJSONArray("Tags");
-        if (tags != null && !tags.isEmpty()) {
-            item.setTags(tags.toList(String.class));
-        }
-
-        // 解析类型
-        JSONArray genres = json.getJSONArray("Genres");
-        if (genres != null && !genres.isEmpty()) {
-            item.setGenres(genres.toList(String.class));
-        }
-
-        // 解析工作室
-        JSONArray studios = json.getJSONArray("Studios");
-        if (studios != null && !studios.isEmpty()) {
-            List<String> studioNames = new ArrayList<>();
-            for (int i = 0; i < studios.size(); i++) {
-                studioNames.add(studios.getJSONObject(i).getStr("Name"));
-            }
-            item.setStudios(studioNames);
-        }
-
-        // 解析演员
-        JSONArray people = json.getJSONArray("People");
-        if (people != null && !people.isEmpty()) {
-            List<String> peopleNames = new ArrayList<>();
-            for (int i = 0; i < people.size(); i++) {
-                peopleNames.add(people.getJSONObject(i).getStr("Name"));
-            }
-            item.setPeople(peopleNames);
-        }
-
-        // 解析媒体源
-        JSONArray mediaSources = json.getJSONArray("MediaSources");
-        if (mediaSources != null && !mediaSources.isEmpty()) {
-            List<EmbyItem.MediaSource> sources = new ArrayList<>();
-            for (int i = 0; i < mediaSources.size(); i++) {
-                JSONObject source = mediaSources.getJSONObject(i);
-                EmbyItem.MediaSource ms = new EmbyItem.MediaSource();
-                ms.setId(source.getStr("Id"));
-                ms.setPath(source.getStr("Path"));
-                ms.setContainer(source.getStr("Container"));
-                ms.setSize(source.getLong("Size"));
-                ms.setBitrate(source.getLong("Bitrate"));
-                sources.add(ms);
-
-                // 设置文件大小（使用第一个媒体源的大小）
-                if (i == 0) {
-                    item.setSize(ms.getSize());
-                }
-            }
-            item.setMediaSources(sources);
-        }
-
-        return item;
-    }
-
     /**
      * 解析类型/标签列表
      */
@@ -859,89 +674,20 @@ public class EmbyServiceImpl implements IEmbyService {
     }
 
     @Override
-    public void proxyDownload(String itemId, String filename, javax.servlet.http.HttpServletResponse response) throws Exception {
-        log.info("开始代理下载: itemId={}, filename={}", itemId, filename);
+    public void proxyDownload(String itemId, String filename, javax.servlet.http.HttpServletRequest request,
+                              javax.servlet.http.HttpServletResponse response) throws Exception {
+        log.info("开始代理下载: itemId={}, filename={}, Range={}", itemId, filename, request.getHeader("Range"));
 
-        String accessToken = embyAuthService.getAccessToken();
-        String userId = embyAuthService.getUserId();
-        String baseUrl = embyAuthService.getServerUrl();
-        if (baseUrl.endsWith("/")) {
-            baseUrl = baseUrl.substring(0, baseUrl.length() - 1);
-        }
+        EmbyHttpClient.Endpoint endpoint = embyAuthService.getEndpoint();
 
         // 构建流URL（模拟播放器请求，Static=true表示不转码）
         String streamUrl = String.format("%s/Videos/%s/stream?api_key=%s&Static=true&MediaSourceId=%s",
-            baseUrl, itemId, accessToken, itemId);
-
-        log.info("请求流URL: {}", streamUrl);
+            endpoint.getBaseUrl(), itemId, endpoint.getAccessToken(), itemId);
 
-        try {
-            // 伪装成播放器的请求头
-            String deviceId = "30c9d308e74a46a1811c851bf76a8f77";
-            String forwardVersion = "1.3.14";
-            String embyAuth = String.format(
-                "MediaBrowser Token=\"%s\", Emby UserId=\"%s\", Client=\"Forward\", Device=\"iPhone\", DeviceId=\"%s\", Version=\"%s\"",
-                accessToken, userId, deviceId, forwardVersion
-            );
-
-            // 使用HttpRequest发送请求
-            HttpResponse embyResponse = HttpRequest.get(streamUrl)
-                .header("X-Emby-Authorization", embyAuth)
-                .header("X-Emby-Token", accessToken)
-                .header("User-Agent", "Forward/1.3.14 (iPhone; iOS 17.0)")
-                .timeout(300000) // 5分钟超时
-                .execute();
-
-            if (!embyResponse.isOk()) {
-                log.error("Emby返回错误状态: {}", embyResponse.getStatus());
-                response.setStatus(embyResponse.getStatus());
-                response.getWriter().write("Emby服务器返回错误: " + embyResponse.getStatus());
-                return;
-            }
+        log.debug("请求流URL: {}", streamUrl);
 
-            // 获取内容类型
-            String contentType = embyResponse.header("Content-Type");
-            if (contentType == null || contentType.isEmpty()) {
-                contentType = "video/mp4";
-            }
-
-            // 获取文件大小
-            String contentLength = embyResponse.header("Content-Length");
-
-            log.info("Emby响应 - ContentType: {}, ContentLength: {}", contentType, contentLength);
-
-            // 设置响应头
-            response.setContentType(contentType);
-            response.setHeader("Content-Disposition", "attachment; filename=\"" + filename + "\"");
-            if (contentLength != null && !contentLength.isEmpty()) {
-                response.setHeader("Content-Length", contentLength);
-            }
-            response.setHeader("Accept-Ranges", "bytes");
-
-            // 流式传输数据
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            java.io.InputStream inputStream = embyResponse.bodyStream();
-            java.io.OutputStream outputStream = response.getOutputStream();
-
-            long totalBytes = 0;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
-                totalBytes += bytesRead;
-
-                // 每10MB打印一次进度
-                if (totalBytes % (10 * 1024 * 1024) == 0) {
-                    log.info("已传输: {} MB", totalBytes / (1024 * 1024));
-                }
-            }
-
-            outputStream.flush();
-            log.info("代理下载完成，总大小: {} MB", totalBytes / (1024 * 1024));
-
-        } catch (Exception e) {
-            log.error("代理下载失败", e);
-            throw e;
-        }
+        // 透传 Range 并以异步非阻塞方式转发，返回时传输仍在进行
+        embyStreamProxy.proxy(endpoint, streamUrl, itemId, filename, request, response);
     }
 
     @Override
@@ -1256,12 +1002,8 @@ public class EmbyServiceImpl implements IEmbyService {
      * 下载单个媒体项到指定目录，filenameOverride 不为空时强制使用该文件名（用于平铺命名）
      */
     private Map<String, Object> downloadSingleItem(EmbyItem item, String downloadDir, String filenameOverride) throws Exception {
-        String accessToken = embyAuthService.getAccessToken();
-        String userId = embyAuthService.getUserId();
-        String baseUrl = embyAuthService.getServerUrl();
-        if (baseUrl.endsWith("/")) {
-            baseUrl = baseUrl.substring(0, baseUrl.length() - 1);
-        }
+        EmbyHttpClient.Endpoint endpoint = embyAuthService.getEndpoint();
+        String baseUrl = endpoint.getBaseUrl();
 
         // 获取真实扩展名（从 mediaSource 或 path 推断）
         String ext = getMediaExtension(item);
@@ -1368,14 +1110,6 @@ public class EmbyServiceImpl implements IEmbyService {
                 baseUrl, item.getId())
         };
 
-        // 完全模仿Forward客户端（iPhone）
-        String deviceId = "gdupload-" + System.currentTimeMillis();
-        String clientVersion = "1.3.14";
-        String embyAuth = String.format(
-            "MediaBrowser Token=\"%s\", Emby UserId=\"%s\", Client=\"Forward\", Device=\"iPhone\", DeviceId=\"%s\", Version=\"%s\"",
-            accessToken, userId, deviceId, clientVersion
-        );
-
         Exception lastException = null;
 
         // 尝试所有URL方式
@@ -1385,23 +1119,8 @@ public class EmbyServiceImpl implements IEmbyService {
 
             java.net.HttpURLConnection connection = null;
             try {
-                // 使用HttpURLConnection进行流式下载，避免内存溢出
-                java.net.URL url = new java.net.URL(streamUrl);
-                connection = (java.net.HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("GET");
-
-                // 完全模仿Forward客户端的请求头
-                connection.setRequestProperty("Content-Type", "application/json");
-                connection.setRequestProperty("X-Emby-Authorization", embyAuth);
-                connection.setRequestProperty("X-Emby-Token", accessToken);
-                connection.setRequestProperty("Accept", "*/*");
-                connection.setRequestProperty("User-Agent", "Forward-Standard/" + clientVersion);
-                connection.setRequestProperty("Accept-Language", "zh-CN,zh-Hans;q=0.9");
-                connection.setRequestProperty("Accept-Encoding", "gzip, deflate, br");
-                connection.setRequestProperty("Connection", "keep-alive");
-
-                connection.setConnectTimeout(30000); // 30秒连接超时
-                connection.setReadTimeout(300000); // 5分钟读取超时
+                // 流式下载（5分钟读取超时），避免内存溢出；请求头与 API 请求共用同一份
+                connection = embyHttpClient.openStream(endpoint, streamUrl, 300000);
 
                 int responseCode = connection.getResponseCode();
                 if (responseCode != 200) {
@@ -1501,7 +1220,7 @@ public class EmbyServiceImpl implements IEmbyService {
                 } catch (Exception deleteEx) {
                     log.warn("删除不完整文件失败: {}", deleteEx.getMessage());
                 }
-            } finally {
+                // 异常中断的连接不能再复用；正常读完的连接留给 keep-alive
                 if (connection != null) {
                     connection.disconnect();
                 }
@@ -1544,13 +1263,26 @@ public class EmbyServiceImpl implements IEmbyService {
             history.setCreateTime(LocalDateTime.now());
             history.setUpdateTime(LocalDateTime.now());
 
-            downloadHistoryMapper.insert(history);
+            insertDownloadHistory(history);
             log.info("保存下载记录成功: itemId={}, status={}", embyItemId, status);
         } catch (Exception e) {
             log.error("保存下载记录失败: {}", e.getMessage(), e);
         }
     }
 
+    /**
+     * 写入下载历史，并更新媒体项的最新下载状态
+     */
+    private void insertDownloadHistory(EmbyDownloadHistory history) {
+        downloadHistoryMapper.insert(history);
+        try {
+            itemStatusMapper.upsertDownloadStatus(history.getEmbyConfigId(), history.getEmbyItemId(),
+                history.getDownloadStatus());
+        } catch (Exception e) {
+            log.error("更新媒体项下载状态失败: {}", history.getEmbyItemId(), e);
+        }
+    }
+
     @Override
     public void downloadToServerAsync(String itemId) {
         // 在新线程中执行下载任务
@@ -1653,6 +1385,14 @@ public class EmbyServiceImpl implements IEmbyService {
     @Value("${app.emby.upload-dir:/data/upload}")
     private String defaultUploadDir;
 
+    /** 下载上传任务进度合并刷新间隔（毫秒） */
+    @Value("${app.upload.progress-flush-interval:500}")
+    private long progressFlushInterval;
+
+    /** 累计处理多少个媒体项后立即刷新一次进度 */
+    @Value("${app.upload.progress-flush-files:50}")
+    private int progressFlushFiles;
+
 
     @Override
     public Long batchDownloadAndUploadAsync(List<String> itemIds, String uploadDir, String gdTargetPath) {
@@ -1718,9 +1458,16 @@ public class EmbyServiceImpl implements IEmbyService {
         TaskPauseManager.register(finalTaskId, itemIds.size());
 
         new Thread(() -> {
-            // 使用 AtomicInteger 保证线程安全
-            AtomicInteger successCount = new AtomicInteger(0);
-            AtomicInteger failedCount = new AtomicInteger(0);
+            // 进度合并器：成功/失败计数在工作线程中原子累加，进度按固定节奏落库和推送
+            final int totalItems = itemIds.size();
+            TaskProgressAggregator<Void> progressAggregator = TaskProgressAggregator.start(
+                finalTaskId, progressFlushInterval, progressFlushFiles, snap -> {
+                    int completed = snap.getProcessedCount();
+                    int progress = (int) ((completed * 100L) / totalItems);
+                    uploadTaskService.updateTaskProgress(finalTaskId, completed, 0L, progress);
+                    webSocketService.pushTaskProgress(finalTaskId, progress,
+                        completed, totalItems, 0L, 0L, snap.getCurrentItem());
+                });
 
             // 获取并发下载数配置
             int concurrentDownloads = embyProperties.getConcurrentDownloads();
@@ -1969,25 +1716,15 @@ public class EmbyServiceImpl implements IEmbyService {
                                         throw new BusinessException("上传失败: " + uploadResult.getErrorMessage());
                                     }
 
-                                    // 标记文件为已上传
+                                    // 标记文件为已上传（同时插入 upload_record 上传记录）
                                     fileInfoService.markFileAsUploaded(currentFile.getId(), account.getId());
 
-                                    // 插入上传记录
-                                    UploadRecord uploadRecord = new UploadRecord();
-                                    uploadRecord.setTaskId(finalTaskId);
-                                    uploadRecord.setAccountId(account.getId());
-                                    uploadRecord.setFileId(currentFile.getId());
-                                    uploadRecord.setUploadSize(currentFile.getFileSize());
-                                    uploadRecord.setUploadTime(DateTimeUtil.now());
-                                    uploadRecord.setStatus(1);
-                                    uploadRecordMapper.insert(uploadRecord);
-
                                     // 更新账号配额
                                     gdAccountService.updateAccountQuota(account.getId(), currentFile.getFileSize());
                                 }
 
                                 log.info("[{}/{}] 上传成功!", index + 1, itemIds.size());
-                                successCount.incrementAndGet();
+                                progressAggregator.recordSuccess(0L, currentFile.getFileName());
 
                                 fileInfoService.updateFileStatus(currentFile.getId(), 2, null);
                                 webSocketService.pushFileStatus(finalTaskId, currentFile.getId(), currentFile.getFileName(), 2, "完成");
@@ -2007,11 +1744,11 @@ public class EmbyServiceImpl implements IEmbyService {
                                     history.setFileSize(fileSize);
                                     history.setCreateTime(LocalDateTime.now());
                                     history.setUpdateTime(LocalDateTime.now());
-                                    downloadHistoryMapper.insert(history);
+                                    insertDownloadHistory(history);
                                 }
 
                             } catch (Exception e) {
-                                failedCount.incrementAndGet();
+                                progressAggregator.recordFailure(currentFile.getFileName());
                                 log.error("[{}/{}] 处理失败: {}, 错误: {}", index + 1, itemIds.size(), currentFile.getFileName(), e.getMessage());
                                 fileInfoService.updateFileStatus(currentFile.getId(), 3, e.getMessage());
                                 webSocketService.pushFileStatus(finalTaskId, currentFile.getId(), currentFile.getFileName(), 3, e.getMessage());
@@ -2027,20 +1764,14 @@ public class EmbyServiceImpl implements IEmbyService {
                                     history.setErrorMessage(e.getMessage());
                                     history.setCreateTime(LocalDateTime.now());
                                     history.setUpdateTime(LocalDateTime.now());
-                                    downloadHistoryMapper.insert(history);
+                                    insertDownloadHistory(history);
                                 }
                             } finally {
                                 // 完成一个任务
                                 latch.countDown();
                                 TaskPauseManager.onThreadFinished(finalTaskId);
-
-                                // 更新任务进度
-                                int completed = successCount.get() + failedCount.get();
-                                int progress = (int) ((completed * 100L) / itemIds.size());
-                                uploadTaskService.updateTaskProgress(finalTaskId, completed, 0L, progress);
-                                webSocketService.pushTaskProgress(finalTaskId, progress,
-                                    completed, itemIds.size(), 0L, 0L,
-                                    currentFile.getFileName());
+                                // 进度由 progressAggregator 按节奏刷新，这里只记录当前项
+                                progressAggregator.setCurrentItem(currentFile.getFileName());
                             }
                         } catch (Exception threadEx) {
                             // 内层 finally 已保证 countDown + onThreadFinished，此处仅记录日志
@@ -2059,9 +1790,12 @@ public class EmbyServiceImpl implements IEmbyService {
                 log.info("所有任务已提交完成，等待线程池关闭...");
                 executor.awaitTermination(1, java.util.concurrent.TimeUnit.HOURS);
 
+                // 强制刷出最后一次进度（完成 / 暂停 / 取消）
+                progressAggregator.close();
+
                 // 更新最终状态
-                int finalSuccessCount = successCount.get();
-                int finalFailedCount = failedCount.get();
+                int finalSuccessCount = progressAggregator.getSuccessCount();
+                int finalFailedCount = progressAggregator.getFailedCount();
 
                 if (stopFlag.get()) {
                     // 暂停中 → 由 TaskPauseManager 回调处理状态变更
@@ -2089,6 +1823,7 @@ public class EmbyServiceImpl implements IEmbyService {
                 uploadTaskService.updateTaskStatus(finalTaskId, 3, e.getMessage());
                 webSocketService.pushTaskStatus(finalTaskId, 3, "任务异常");
             } finally {
+                progressAggregator.close();
                 executor.shutdownNow();
                 downloadStopFlags.remove(finalTaskId);
                 TaskPauseManager.unregister(finalTaskId);
@@ -1,7 +1,9 @@
 package com.gdupload.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.gdupload.dto.TaskFileStats;
 import com.gdupload.entity.FileInfo;
 import com.gdupload.entity.UploadRecord;
 import com.gdupload.mapper.FileInfoMapper;
@@ -252,6 +254,33 @@ public class FileInfoServiceImpl extends ServiceImpl<FileInfoMapper, FileInfo> i
         return this.list(wrapper);
     }
 
+    @Override
+    public List<FileInfo> getPendingFilesAfter(Long taskId, Long afterId, int limit) {
+        return baseMapper.selectPendingFilesAfter(taskId, afterId == null ? 0L : afterId, limit);
+    }
+
+    @Override
+    public List<FileInfo> getPendingFilesBySize(Long taskId, boolean descending, long cursorSize, long cursorId, int limit) {
+        return descending
+            ? baseMapper.selectPendingFilesBySizeDesc(taskId, cursorSize, cursorId, limit)
+            : baseMapper.selectPendingFilesBySizeAsc(taskId, cursorSize, cursorId, limit);
+    }
+
+    @Override
+    public TaskFileStats getTaskFileStats(Long taskId) {
+        return TaskFileStats.of(baseMapper.selectTaskFileStats(taskId));
+    }
+
+    @Override
+    public List<String> getTaskRelativePaths(Long taskId) {
+        return baseMapper.selectDistinctRelativePaths(taskId);
+    }
+
+    @Override
+    public List<Long> getTaskUploadAccountIds(Long taskId) {
+        return baseMapper.selectDistinctUploadAccountIds(taskId);
+    }
+
     @Override
     public List<FileInfo> getFailedFiles(Long taskId) {
         LambdaQueryWrapper<FileInfo> wrapper = new LambdaQueryWrapper<>();
@@ -294,6 +323,89 @@ public class FileInfoServiceImpl extends ServiceImpl<FileInfoMapper, FileInfo> i
         return updated;
     }
 
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean updateFilesStatus(List<Long> fileIds, Integer status, String errorMessage) {
+        if (fileIds == null || fileIds.isEmpty()) {
+            return false;
+        }
+        LambdaUpdateWrapper<FileInfo> wrapper = new LambdaUpdateWrapper<FileInfo>()
+            .in(FileInfo::getId, fileIds)
+            .set(FileInfo::getStatus, status);
+        if (status == 1) {
+            wrapper.set(FileInfo::getUploadStartTime, DateTimeUtil.now());
+        } else if (status == 2) {
+            wrapper.set(FileInfo::getUploadEndTime, DateTimeUtil.now());
+        }
+        if (errorMessage != null) {
+            wrapper.set(FileInfo::getErrorMessage, errorMessage);
+        }
+        return this.update(wrapper);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean markFilesAsUploaded(List<FileInfo> files, Long accountId) {
+        if (files == null || files.isEmpty()) {
+            return false;
+        }
+        LocalDateTime now = DateTimeUtil.now();
+        List<Long> fileIds = new ArrayList<>(files.size());
+        for (FileInfo file : files) {
+            fileIds.add(file.getId());
+        }
+        boolean updated = this.update(new LambdaUpdateWrapper<FileInfo>()
+            .in(FileInfo::getId, fileIds)
+            .set(FileInfo::getStatus, 2)
+            .set(FileInfo::getUploadAccountId, accountId)
+            .set(FileInfo::getUploadEndTime, now));
+
+        if (updated) {
+            // 插入上传记录（同一事务内一条多值 INSERT，与单文件上传的记录格式一致）
+            List<UploadRecord> records = new ArrayList<>(files.size());
+            for (FileInfo file : files) {
+                UploadRecord record = new UploadRecord();
+                record.setTaskId(file.getTaskId());
+                record.setAccountId(accountId);
+                record.setFileId(file.getId());
+                record.setUploadSize(file.getFileSize());
+                record.setUploadTime(now);
+                record.setStatus(1); // 成功
+                record.setCreateTime(now);
+                records.add(record);
+            }
+            uploadRecordMapper.insertBatch(records);
+            log.info("批量插入上传记录: accountId={}, 文件数={}", accountId, files.size());
+        }
+
+        return updated;
+    }
+
+    @Override
+    public boolean markFileAsDuplicate(Long fileId, Long accountId, String md5, String message) {
+        FileInfo update = new FileInfo();
+        update.setId(fileId);
+        update.setStatus(2); // 已上传
+        update.setUploadAccountId(accountId);
+        update.setUploadEndTime(DateTimeUtil.now());
+        update.setFileMd5(md5);
+        update.setErrorMessage(message);
+        return this.updateById(update);
+    }
+
+    @Override
+    public List<FileInfo> getFilesByStatus(Integer status) {
+        return this.list(new LambdaQueryWrapper<FileInfo>().eq(FileInfo::getStatus, status));
+    }
+
+    @Override
+    public boolean updateFileMd5(Long fileId, String md5) {
+        FileInfo update = new FileInfo();
+        update.setId(fileId);
+        update.setFileMd5(md5);
+        return this.updateById(update);
+    }
+
     @Override
     public boolean checkFileExists(String filePath, String md5) {
         LambdaQueryWrapper<FileInfo> wrapper = new LambdaQueryWrapper<>();
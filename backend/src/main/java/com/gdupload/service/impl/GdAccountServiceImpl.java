@@ -9,15 +9,23 @@ import com.gdupload.entity.GdAccount;
 import com.gdupload.mapper.GdAccountMapper;
 import com.gdupload.mapper.UploadRecordMapper;
 import com.gdupload.service.IGdAccountService;
+import com.gdupload.util.AccountRegistry;
+import com.gdupload.util.AccountUsageLedger;
+import com.gdupload.util.AdaptiveConcurrencyLimiter;
 import com.gdupload.util.DateTimeUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
 
 /**
  * Google Drive账号服务实现
@@ -32,8 +40,45 @@ public class GdAccountServiceImpl extends ServiceImpl<GdAccountMapper, GdAccount
 
     private final UploadRecordMapper uploadRecordMapper;
 
-    // 用于轮询的账号索引缓存（taskId -> 上次使用的账号索引）
-    private final ConcurrentHashMap<Long, Integer> taskAccountRotationIndex = new ConcurrentHashMap<>();
+    // 账号内存注册表（启用账号缓存 + 在途/错误率/冷却状态 + 无锁轮询游标）
+    private final AccountRegistry accountRegistry;
+
+    // 账号滚动24小时上传量账本
+    private final AccountUsageLedger usageLedger;
+
+    // 按账号自适应上传并发（AIMD）
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    @Value("${app.account.warning-threshold:0.9}")
+    private double warningThreshold;
+
+    @Override
+    public boolean save(GdAccount entity) {
+        boolean saved = super.save(entity);
+        accountRegistry.invalidate();
+        return saved;
+    }
+
+    @Override
+    public boolean updateById(GdAccount entity) {
+        boolean updated = super.updateById(entity);
+        accountRegistry.invalidate();
+        return updated;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean removed = super.removeById(id);
+        accountRegistry.invalidate();
+        return removed;
+    }
+
+    @Override
+    public boolean removeByIds(Collection<?> list) {
+        boolean removed = super.removeByIds(list);
+        accountRegistry.invalidate();
+        return removed;
+    }
 
     @Override
     public Page<GdAccount> pageAccounts(Page<GdAccount> page, String keyword) {
@@ -49,7 +94,12 @@ public class GdAccountServiceImpl extends ServiceImpl<GdAccountMapper, GdAccount
 
     @Override
     public List<GdAccount> getAvailableAccounts() {
-        return baseMapper.selectAvailableAccounts();
+        return accountRegistry.getEnabledAccounts();
+    }
+
+    @Override
+    public GdAccount getCachedAccount(Long accountId) {
+        return accountRegistry.getAccount(accountId);
     }
 
     @Override
@@ -67,51 +117,101 @@ public class GdAccountServiceImpl extends ServiceImpl<GdAccountMapper, GdAccount
 
     @Override
     public GdAccount getNextAvailableAccountInRotation(Long taskId, Long requiredSize) {
-        List<GdAccount> accounts = getAvailableAccounts();
-        if (accounts.isEmpty()) {
+        if (!accountRegistry.hasEnabledAccounts()) {
             throw new BusinessException("没有可用的账号");
         }
 
-        // 使用所有可用账号进行轮询
-        final int accountCount = accounts.size();
+        // 内存快照 + 原子游标轮询，跳过冷却中和24小时剩余额度不足的账号（都不可用时返回 null）
+        GdAccount selectedAccount = accountRegistry.select(taskId, requiredSize);
 
-        // 使用 compute 保证原子性操作
-        // 获取并更新索引（原子操作）
-        int nextIndex = taskAccountRotationIndex.compute(taskId, (key, currentIndex) -> {
-            if (currentIndex == null) {
-                return 0;  // 第一次使用，从0开始
-            }
-            // 使用绝对递增，然后对当前可用账号数取模
-            return (currentIndex + 1) % accountCount;
-        });
+        if (log.isDebugEnabled() && selectedAccount != null) {
+            log.debug("轮询选择账号: taskId={}, accountName={}, threadId={}",
+                taskId, selectedAccount.getAccountName(), Thread.currentThread().getName());
+        }
+
+        return selectedAccount;
+    }
+
+    @Override
+    public GdAccount getBalancedAccount(Long taskId, Long requiredSize) {
+        if (!accountRegistry.hasEnabledAccounts()) {
+            throw new BusinessException("没有可用的账号");
+        }
 
-        GdAccount selectedAccount = accounts.get(nextIndex);
+        // 剩余额度（扣除在途字节）最多的健康账号，都放不下时返回 null
+        GdAccount selectedAccount = accountRegistry.selectBalanced(taskId, requiredSize);
 
-        log.info("轮询选择账号: taskId={}, accountName={}, index={}/{}, threadId={}",
-            taskId, selectedAccount.getAccountName(),
-            nextIndex + 1, accountCount, Thread.currentThread().getName());
+        if (log.isDebugEnabled() && selectedAccount != null) {
+            log.debug("均衡选择账号: taskId={}, accountName={}, requiredSize={}",
+                taskId, selectedAccount.getAccountName(), requiredSize);
+        }
 
         return selectedAccount;
     }
 
+    @Override
+    public List<Map<String, Object>> getUploadConcurrency() {
+        Map<Long, Map<String, Object>> byAccount = new LinkedHashMap<>();
+        for (Map<String, Object> item : concurrencyLimiter.getLimits()) {
+            byAccount.put((Long) item.get("accountId"), item);
+        }
+
+        // 启用账号在前（尚未上传过的账号显示初始上限），已禁用但仍有统计的账号在后
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (GdAccount account : accountRegistry.getEnabledAccounts()) {
+            Map<String, Object> item = byAccount.remove(account.getId());
+            if (item == null) {
+                item = new LinkedHashMap<>();
+                item.put("accountId", account.getId());
+                item.put("limit", concurrencyLimiter.getInitialLimit());
+                item.put("inFlight", 0);
+                item.put("throughput", 0L);
+                item.put("rateLimitCount", 0L);
+                item.put("lastDecreaseTime", null);
+                item.put("holdUntil", null);
+            }
+            item.put("accountName", account.getAccountName());
+            item.put("maxLimit", concurrencyLimiter.getMaxLimit());
+            item.put("enabled", true);
+            result.add(item);
+        }
+        for (Map<String, Object> item : byAccount.values()) {
+            GdAccount account = accountRegistry.getAccount((Long) item.get("accountId"));
+            item.put("accountName", account != null ? account.getAccountName() : null);
+            item.put("maxLimit", concurrencyLimiter.getMaxLimit());
+            item.put("enabled", false);
+            result.add(item);
+        }
+        return result;
+    }
+
     /**
      * 清理任务的轮询索引（任务完成或取消时调用）
      */
     @Override
     public void clearTaskRotationIndex(Long taskId) {
-        taskAccountRotationIndex.remove(taskId);
+        accountRegistry.clearTask(taskId);
         log.debug("清理任务轮询索引: taskId={}", taskId);
     }
 
     @Override
-    @Transactional(rollbackFor = Exception.class)
     public boolean updateAccountQuota(Long accountId, Long size) {
-        // 不再使用配额检查，此方法保留为空实现以保持接口兼容性
-        GdAccount account = this.getById(accountId);
+        // 上传成功后累加到内存滚动24小时账本（upload_record 由 markFileAsUploaded 写入）
+        GdAccount account = accountRegistry.getAccount(accountId);
         if (account == null) {
             throw new BusinessException("账号不存在");
         }
-        return true;
+        long before = usageLedger.getUsedBytes(accountId);
+        usageLedger.record(accountId, size != null ? size : 0L);
+        long used = before + (size != null ? size : 0L);
+
+        // 跨过预警阈值时记录一次
+        long threshold = (long) (usageLedger.getDailyLimit() * warningThreshold);
+        if (before < threshold && used >= threshold) {
+            log.warn("账号24小时上传量接近上限: accountName={}, used={}, limit={}",
+                account.getAccountName(), used, usageLedger.getDailyLimit());
+        }
+        return used < usageLedger.getDailyLimit();
     }
 
     @Override
@@ -128,18 +228,18 @@ public class GdAccountServiceImpl extends ServiceImpl<GdAccountMapper, GdAccount
 
     @Override
     public boolean checkAccountQuota(Long accountId, Long requiredSize) {
-        // 不再检查配额，只检查账号是否启用
-        GdAccount account = this.getById(accountId);
-        if (account == null) {
+        // 账号启用且滚动24小时剩余额度足够
+        GdAccount account = accountRegistry.getAccount(accountId);
+        if (account == null || account.getStatus() != 1) {
             return false;
         }
-        return account.getStatus() == 1;
+        return requiredSize == null || usageLedger.getRemainingBytes(accountId) >= requiredSize;
     }
 
     @Override
     public Long getTodayUsedQuota(Long accountId) {
-        // 配额功能已移除，返回 0
-        return 0L;
+        // 滚动24小时窗口内已上传字节数（内存账本，启动时从 upload_record 回填）
+        return usageLedger.getUsedBytes(accountId);
     }
 
     @Override
@@ -174,7 +274,12 @@ public class GdAccountServiceImpl extends ServiceImpl<GdAccountMapper, GdAccount
         }
 
         account.setStatus(status);
-        return this.updateById(account);
+        boolean updated = this.updateById(account);
+        if (updated && status == 1) {
+            // 手动启用视为问题已处理，清除冷却期和错误率
+            accountRegistry.resetHealth(accountId);
+        }
+        return updated;
     }
 
     @Override
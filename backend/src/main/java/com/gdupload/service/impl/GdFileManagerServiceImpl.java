@@ -9,6 +9,7 @@ import com.gdupload.dto.PagedResult;
 import com.gdupload.service.IGdFileManagerService;
 import com.gdupload.util.RcloneResult;
 import com.gdupload.util.RcloneUtil;
+import com.gdupload.util.RemoteDirPlanner;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -26,6 +27,7 @@ public class GdFileManagerServiceImpl implements IGdFileManagerService {
 
     private final RcloneUtil rcloneUtil;
     private final ObjectMapper objectMapper;
+    private final RemoteDirPlanner remoteDirPlanner;
 
     // ── 目录列表缓存（60s TTL，写操作自动失效） ───────────────────────────────────
     /** 缓存条目：已排序的完整文件列表 + 写入时间戳 */
@@ -113,6 +115,7 @@ public class GdFileManagerServiceImpl implements IGdFileManagerService {
     public void deleteDirectory(String rcloneConfigName, String dirPath) {
         boolean success = rcloneUtil.purgeDirectory(rcloneConfigName, dirPath);
         if (!success) throw new BusinessException("删除目录失败: " + dirPath);
+        remoteDirPlanner.forget(rcloneConfigName, dirPath);
         invalidateCache(rcloneConfigName, dirPath);
     }
 
@@ -120,6 +123,9 @@ public class GdFileManagerServiceImpl implements IGdFileManagerService {
     public void moveItem(String rcloneConfigName, String oldPath, String newPath, boolean isDir) {
         boolean success = rcloneUtil.moveItem(rcloneConfigName, oldPath, newPath, isDir);
         if (!success) throw new BusinessException("移动/重命名失败: " + oldPath + " -> " + newPath);
+        if (isDir) {
+            remoteDirPlanner.forget(rcloneConfigName, oldPath);
+        }
         invalidateCache(rcloneConfigName, oldPath);
         invalidateCache(rcloneConfigName, newPath);
     }
@@ -157,6 +163,7 @@ public class GdFileManagerServiceImpl implements IGdFileManagerService {
         }
         boolean success = rcloneUtil.purgeDirectory(rcloneConfigName, dirPath);
         if (success) {
+            remoteDirPlanner.forget(rcloneConfigName, dirPath);
             invalidateCache(rcloneConfigName, dirPath);
         }
         return success;
@@ -192,6 +199,7 @@ public class GdFileManagerServiceImpl implements IGdFileManagerService {
             if (isDirEmpty(rcloneConfigName, dirPath)) {
                 boolean success = rcloneUtil.purgeDirectory(rcloneConfigName, dirPath);
                 if (success) {
+                    remoteDirPlanner.forget(rcloneConfigName, dirPath);
                     deleted.add(dir.getName());
                     log.info("已删除空文件夹: {}", dirPath);
                 }
@@ -12,6 +12,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 系统日志服务实现
@@ -101,6 +102,12 @@ public class SystemLogServiceImpl extends ServiceImpl<SystemLogMapper, SystemLog
     @Transactional(rollbackFor = Exception.class)
     public void logFileUpload(Long taskId, Long fileId, String fileName, Long fileSize,
                               Long accountId, String operation, String message, String detail) {
+        this.save(buildFileUploadLog(taskId, fileId, fileName, fileSize, accountId, operation, message, detail));
+    }
+
+    @Override
+    public SystemLog buildFileUploadLog(Long taskId, Long fileId, String fileName, Long fileSize,
+                                        Long accountId, String operation, String message, String detail) {
         SystemLog systemLog = new SystemLog();
         systemLog.setLogType(1); // 信息
         systemLog.setLogLevel("INFO");
@@ -114,8 +121,16 @@ public class SystemLogServiceImpl extends ServiceImpl<SystemLogMapper, SystemLog
         systemLog.setMessage(message);
         systemLog.setDetail(detail);
         systemLog.setCreateTime(DateTimeUtil.now());
+        return systemLog;
+    }
 
-        this.save(systemLog);
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void logBatch(List<SystemLog> logs) {
+        if (logs == null || logs.isEmpty()) {
+            return;
+        }
+        this.saveBatch(logs);
     }
 
     @Override
@@ -1,8 +1,12 @@
 package com.gdupload.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.gdupload.entity.EmbyConfig;
+import com.gdupload.entity.EmbyItemStatus;
 import com.gdupload.entity.TransferHistory;
+import com.gdupload.mapper.EmbyItemStatusMapper;
 import com.gdupload.mapper.TransferHistoryMapper;
+import com.gdupload.service.IEmbyConfigService;
 import com.gdupload.service.ITransferHistoryService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,14 +27,28 @@ public class TransferHistoryServiceImpl implements ITransferHistoryService {
     @Autowired
     private TransferHistoryMapper historyMapper;
 
+    @Autowired
+    private EmbyItemStatusMapper itemStatusMapper;
+
+    @Autowired
+    private IEmbyConfigService embyConfigService;
+
     @Override
     public boolean saveHistory(TransferHistory history) {
         try {
-            return historyMapper.insert(history) > 0;
+            if (historyMapper.insert(history) <= 0) {
+                return false;
+            }
         } catch (Exception e) {
             log.error("保存转存记录失败", e);
             return false;
         }
+        try {
+            itemStatusMapper.upsertTransferStatus(history.getEmbyItemId(), history.getTransferStatus());
+        } catch (Exception e) {
+            log.error("更新媒体项转存状态失败: {}", history.getEmbyItemId(), e);
+        }
+        return true;
     }
 
     @Override
@@ -63,30 +81,32 @@ public class TransferHistoryServiceImpl implements ITransferHistoryService {
             return new HashMap<>();
         }
 
-        // 查询所有相关的转存记录
-        LambdaQueryWrapper<TransferHistory> wrapper = new LambdaQueryWrapper<>();
-        wrapper.in(TransferHistory::getEmbyItemId, embyItemIds)
-                .orderByDesc(TransferHistory::getCreateTime);
-
-        List<TransferHistory> allHistories = historyMapper.selectList(wrapper);
-
-        // 按embyItemId分组，取最新的记录
-        Map<String, TransferHistory> latestHistoryMap = new HashMap<>();
-        for (TransferHistory history : allHistories) {
-            String itemId = history.getEmbyItemId();
-            if (!latestHistoryMap.containsKey(itemId)) {
-                latestHistoryMap.put(itemId, history);
+        // 最新状态由 emby_item_status 维护；没有 Emby 配置时退回按历史记录取最新
+        Map<String, String> latestStatusMap = new HashMap<>();
+        EmbyConfig config = embyConfigService.findDefaultConfig();
+        if (config != null) {
+            for (EmbyItemStatus status : itemStatusMapper.selectByItemIds(config.getId(), embyItemIds)) {
+                if (status.getTransferStatus() != null) {
+                    latestStatusMap.put(status.getEmbyItemId(), status.getTransferStatus());
+                }
+            }
+        } else {
+            LambdaQueryWrapper<TransferHistory> wrapper = new LambdaQueryWrapper<>();
+            wrapper.in(TransferHistory::getEmbyItemId, embyItemIds)
+                    .orderByDesc(TransferHistory::getCreateTime);
+            for (TransferHistory history : historyMapper.selectList(wrapper)) {
+                latestStatusMap.putIfAbsent(history.getEmbyItemId(), history.getTransferStatus());
             }
         }
 
         // 构建结果Map
         Map<String, String> resultMap = new HashMap<>();
         for (String itemId : embyItemIds) {
-            TransferHistory latestHistory = latestHistoryMap.get(itemId);
-            if (latestHistory == null) {
+            String latestStatus = latestStatusMap.get(itemId);
+            if (latestStatus == null) {
                 // 没有转存记录
                 resultMap.put(itemId, "none");
-            } else if ("success".equals(latestHistory.getTransferStatus())) {
+            } else if ("success".equals(latestStatus)) {
                 // 最新记录是成功
                 resultMap.put(itemId, "success");
             } else {
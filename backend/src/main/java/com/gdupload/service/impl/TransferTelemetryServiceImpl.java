@@ -0,0 +1,263 @@
+package com.gdupload.service.impl;
+
+import com.gdupload.service.ITransferTelemetryService;
+import com.gdupload.service.IWebSocketService;
+import com.gdupload.util.RcloneStats;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * 实时传输遥测服务实现
+ * <p>
+ * 每次 rclone 调用对应一个 {@link TrackerImpl}，只保存最新一次 stats；
+ * 定时任务每个周期把所有采集器按任务 / 账号汇总成一个采样点，推送并追加到环形序列。
+ *
+ * @author GD Upload Manager
+ * @since 2026-02-24
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransferTelemetryServiceImpl implements ITransferTelemetryService {
+
+    /** stats 超过该时间没有更新视为已停滞（速度按 0 计） */
+    private static final long STALE_MILLIS = 10_000L;
+    /** 推送时每个任务最多带的正在传输文件数（按大小倒序） */
+    private static final int MAX_PUSH_TRANSFERS = 20;
+    /** 最多保留多少个任务的采样序列 */
+    private static final int MAX_TASK_SERIES = 50;
+
+    private final IWebSocketService webSocketService;
+
+    /** 每个任务 / 账号保留的采样点数（默认 300 个 × 1 秒 = 5 分钟） */
+    @Value("${app.upload.telemetry.history-points:300}")
+    private int historyPoints;
+
+    private final AtomicLong trackerIds = new AtomicLong();
+    private final Map<Long, TrackerImpl> trackers = new ConcurrentHashMap<>();
+    private final Map<Long, TaskTotals> runningTasks = new ConcurrentHashMap<>();
+
+    /** taskId -> 采样序列（按访问顺序淘汰最久未更新的任务） */
+    private final Map<Long, Deque<Map<String, Object>>> taskSeries = new LinkedHashMap<Long, Deque<Map<String, Object>>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Deque<Map<String, Object>>> eldest) {
+            return size() > MAX_TASK_SERIES;
+        }
+    };
+    private final Map<Long, Deque<Map<String, Object>>> accountSeries = new HashMap<>();
+
+    private static final class TaskTotals {
+        final long totalBytes;
+        final LongSupplier completedBytes;
+
+        TaskTotals(long totalBytes, LongSupplier completedBytes) {
+            this.totalBytes = totalBytes;
+            this.completedBytes = completedBytes;
+        }
+    }
+
+    private final class TrackerImpl implements Tracker {
+        final long id;
+        final Long taskId;
+        final Long accountId;
+        final Consumer<String> delegate;
+        volatile RcloneStats latest;
+        volatile long updatedAt;
+
+        TrackerImpl(long id, Long taskId, Long accountId, Consumer<String> delegate) {
+            this.id = id;
+            this.taskId = taskId;
+            this.accountId = accountId;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void accept(String line) {
+            RcloneStats stats = RcloneStats.parseLine(line);
+            if (stats != null) {
+                latest = stats;
+                updatedAt = System.currentTimeMillis();
+            }
+            if (delegate != null) {
+                delegate.accept(line);
+            }
+        }
+
+        @Override
+        public void close() {
+            trackers.remove(id);
+        }
+    }
+
+    @Override
+    public void startTask(Long taskId, long totalBytes, LongSupplier completedBytes) {
+        runningTasks.put(taskId, new TaskTotals(totalBytes, completedBytes));
+    }
+
+    @Override
+    public void finishTask(Long taskId) {
+        runningTasks.remove(taskId);
+    }
+
+    @Override
+    public Tracker track(Long taskId, Long accountId, Consumer<String> delegate) {
+        long id = trackerIds.incrementAndGet();
+        TrackerImpl tracker = new TrackerImpl(id, taskId, accountId, delegate);
+        trackers.put(id, tracker);
+        return tracker;
+    }
+
+    /**
+     * 汇总 + 推送 + 记录采样
+     */
+    @Scheduled(fixedDelayString = "${app.upload.telemetry.interval-ms:1000}")
+    public void sample() {
+        if (runningTasks.isEmpty() && trackers.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Map<Long, Aggregate> byTask = new HashMap<>();
+        Map<Long, Aggregate> byAccount = new HashMap<>();
+        for (Long taskId : runningTasks.keySet()) {
+            byTask.put(taskId, new Aggregate());
+        }
+        for (TrackerImpl tracker : trackers.values()) {
+            RcloneStats stats = tracker.latest;
+            if (stats == null) {
+                continue;
+            }
+            boolean stale = now - tracker.updatedAt > STALE_MILLIS;
+            if (tracker.taskId != null) {
+                byTask.computeIfAbsent(tracker.taskId, id -> new Aggregate()).add(stats, stale);
+            }
+            if (tracker.accountId != null) {
+                byAccount.computeIfAbsent(tracker.accountId, id -> new Aggregate()).add(stats, stale);
+            }
+        }
+
+        for (Map.Entry<Long, Aggregate> entry : byTask.entrySet()) {
+            Long taskId = entry.getKey();
+            Aggregate agg = entry.getValue();
+            Long eta = null;
+            TaskTotals totals = runningTasks.get(taskId);
+            if (totals != null && agg.speed > 0) {
+                long remaining = totals.totalBytes - totals.completedBytes.getAsLong() - agg.inFlightBytes;
+                eta = Math.max(0L, remaining) / agg.speed;
+            }
+            Map<String, Object> point = point(now, agg, eta);
+            append(taskSeries, taskId, point);
+            try {
+                webSocketService.pushTaskThroughput(taskId, agg.speed, eta, agg.transfers.size(), agg.topTransfers());
+            } catch (Exception e) {
+                log.debug("推送任务吞吐失败: taskId={}, {}", taskId, e.getMessage());
+            }
+        }
+
+        if (!byAccount.isEmpty()) {
+            List<Map<String, Object>> accounts = new ArrayList<>(byAccount.size());
+            for (Map.Entry<Long, Aggregate> entry : byAccount.entrySet()) {
+                Map<String, Object> point = point(now, entry.getValue(), null);
+                append(accountSeries, entry.getKey(), point);
+                Map<String, Object> item = new HashMap<>(point);
+                item.put("accountId", entry.getKey());
+                accounts.add(item);
+            }
+            try {
+                webSocketService.pushAccountThroughput(accounts);
+            } catch (Exception e) {
+                log.debug("推送账号吞吐失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private Map<String, Object> point(long time, Aggregate agg, Long eta) {
+        Map<String, Object> point = new HashMap<>();
+        point.put("time", time);
+        point.put("speed", agg.speed);
+        point.put("eta", eta);
+        point.put("activeTransfers", agg.transfers.size());
+        point.put("inFlightBytes", agg.inFlightBytes);
+        return point;
+    }
+
+    private void append(Map<Long, Deque<Map<String, Object>>> seriesMap, Long key, Map<String, Object> point) {
+        synchronized (seriesMap) {
+            Deque<Map<String, Object>> series = seriesMap.computeIfAbsent(key, k -> new ArrayDeque<>());
+            series.addLast(point);
+            while (series.size() > Math.max(1, historyPoints)) {
+                series.pollFirst();
+            }
+        }
+    }
+
+    @Override
+    public List<Map<String, Object>> getTaskSeries(Long taskId) {
+        synchronized (taskSeries) {
+            Deque<Map<String, Object>> series = taskSeries.get(taskId);
+            return series != null ? new ArrayList<>(series) : new ArrayList<>();
+        }
+    }
+
+    @Override
+    public Map<Long, List<Map<String, Object>>> getAccountSeries() {
+        Map<Long, List<Map<String, Object>>> result = new HashMap<>();
+        synchronized (accountSeries) {
+            for (Map.Entry<Long, Deque<Map<String, Object>>> entry : accountSeries.entrySet()) {
+                result.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 一个周期内某个任务 / 账号的汇总
+     */
+    private static final class Aggregate {
+        long speed;
+        /** 正在传输文件的已传字节（尚未计入任务进度） */
+        long inFlightBytes;
+        final List<RcloneStats.Transfer> transfers = new ArrayList<>();
+
+        void add(RcloneStats stats, boolean stale) {
+            if (!stale) {
+                speed += stats.getSpeed();
+            }
+            for (RcloneStats.Transfer transfer : stats.getTransferring()) {
+                inFlightBytes += transfer.getBytes();
+                transfers.add(transfer);
+            }
+        }
+
+        List<Map<String, Object>> topTransfers() {
+            List<RcloneStats.Transfer> sorted = new ArrayList<>(transfers);
+            sorted.sort((a, b) -> Long.compare(b.getSize(), a.getSize()));
+            List<Map<String, Object>> result = new ArrayList<>();
+            for (RcloneStats.Transfer transfer : sorted.subList(0, Math.min(MAX_PUSH_TRANSFERS, sorted.size()))) {
+                Map<String, Object> item = new HashMap<>();
+                item.put("name", transfer.getName());
+                item.put("size", transfer.getSize());
+                item.put("bytes", transfer.getBytes());
+                item.put("percentage", transfer.getPercentage());
+                item.put("speed", transfer.getSpeed());
+                item.put("eta", transfer.getEta());
+                result.add(item);
+            }
+            return result;
+        }
+    }
+}
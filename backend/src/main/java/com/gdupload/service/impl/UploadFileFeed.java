@@ -0,0 +1,166 @@
+package com.gdupload.service.impl;
+
+import com.gdupload.entity.FileInfo;
+import com.gdupload.service.IFileInfoService;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 上传任务待上传文件的投喂顺序（按主键分页读取，内存占用与任务规模无关）
+ * <ul>
+ *   <li>调度策略 0（按顺序）：按 id 升序</li>
+ *   <li>调度策略 1（大小均衡）：大文件按大小降序优先投喂，每个大文件之后穿插若干个最小的文件，
+ *       两端游标在中间相遇即结束。大文件尽早开始，避免任务末尾只剩几个超大文件串行拖尾；
+ *       小文件填补空闲槽位</li>
+ * </ul>
+ *
+ * @author GD Upload Manager
+ * @since 2026-02-21
+ */
+abstract class UploadFileFeed {
+
+    /** 调度策略：按顺序轮询 */
+    static final int POLICY_SEQUENTIAL = 0;
+    /** 调度策略：大小均衡 */
+    static final int POLICY_SIZE_BALANCED = 1;
+
+    /**
+     * 下一个待上传文件，没有更多时返回 null
+     */
+    abstract FileInfo next();
+
+    static UploadFileFeed of(Integer policy, IFileInfoService fileInfoService, Long taskId,
+                             int pageSize, int smallPerLarge) {
+        if (policy != null && policy == POLICY_SIZE_BALANCED) {
+            return new SizeBalancedFeed(fileInfoService, taskId, pageSize, smallPerLarge);
+        }
+        return new SequentialFeed(fileInfoService, taskId, pageSize);
+    }
+
+    /**
+     * 按 id 升序
+     */
+    private static final class SequentialFeed extends UploadFileFeed {
+        private final IFileInfoService fileInfoService;
+        private final Long taskId;
+        private final int pageSize;
+        private List<FileInfo> page = Collections.emptyList();
+        private int index;
+        private long lastId;
+        private boolean exhausted;
+
+        SequentialFeed(IFileInfoService fileInfoService, Long taskId, int pageSize) {
+            this.fileInfoService = fileInfoService;
+            this.taskId = taskId;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        FileInfo next() {
+            if (index >= page.size()) {
+                if (exhausted) {
+                    return null;
+                }
+                page = fileInfoService.getPendingFilesAfter(taskId, lastId, pageSize);
+                index = 0;
+                exhausted = page.size() < pageSize;
+                if (page.isEmpty()) {
+                    return null;
+                }
+            }
+            FileInfo file = page.get(index++);
+            lastId = file.getId();
+            return file;
+        }
+    }
+
+    /**
+     * 大文件降序 + 小文件升序穿插，(file_size, id) 双向 keyset
+     */
+    private static final class SizeBalancedFeed extends UploadFileFeed {
+        private final IFileInfoService fileInfoService;
+        private final Long taskId;
+        private final int pageSize;
+        private final int smallPerLarge;
+
+        private final Cursor large = new Cursor(true, Long.MAX_VALUE, Long.MAX_VALUE);
+        private final Cursor small = new Cursor(false, -1L, 0L);
+        /** 当前大文件之后已穿插的小文件数 */
+        private int smallSinceLarge;
+
+        SizeBalancedFeed(IFileInfoService fileInfoService, Long taskId, int pageSize, int smallPerLarge) {
+            this.fileInfoService = fileInfoService;
+            this.taskId = taskId;
+            this.pageSize = pageSize;
+            this.smallPerLarge = Math.max(0, smallPerLarge);
+        }
+
+        @Override
+        FileInfo next() {
+            boolean preferSmall = smallSinceLarge < smallPerLarge;
+            FileInfo file = preferSmall ? take(small, large) : null;
+            if (file != null) {
+                smallSinceLarge++;
+                return file;
+            }
+            file = take(large, small);
+            if (file != null) {
+                smallSinceLarge = 0;
+                return file;
+            }
+            // 大文件端已耗尽，剩余的全部从小文件端读取
+            return take(small, large);
+        }
+
+        /**
+         * 从 from 端取下一个文件；越过另一端游标（两端相遇）时视为耗尽
+         */
+        private FileInfo take(Cursor from, Cursor other) {
+            if (from.done) {
+                return null;
+            }
+            if (from.index >= from.page.size()) {
+                from.page = fileInfoService.getPendingFilesBySize(taskId, from.descending, from.size, from.id, pageSize);
+                from.index = 0;
+                if (from.page.isEmpty()) {
+                    from.done = true;
+                    return null;
+                }
+            }
+            FileInfo file = from.page.get(from.index);
+            long size = file.getFileSize() != null ? file.getFileSize() : 0L;
+            if (!other.isBefore(size, file.getId())) {
+                from.done = true;
+                return null;
+            }
+            from.index++;
+            from.size = size;
+            from.id = file.getId();
+            return file;
+        }
+    }
+
+    private static final class Cursor {
+        final boolean descending;
+        long size;
+        long id;
+        List<FileInfo> page = Collections.emptyList();
+        int index;
+        boolean done;
+
+        Cursor(boolean descending, long size, long id) {
+            this.descending = descending;
+            this.size = size;
+            this.id = id;
+        }
+
+        /**
+         * (size, id) 是否还在本游标尚未走到的一侧
+         */
+        boolean isBefore(long otherSize, long otherId) {
+            int cmp = otherSize != size ? Long.compare(otherSize, size) : Long.compare(otherId, id);
+            return descending ? cmp < 0 : cmp > 0;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.gdupload.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.gdupload.entity.FileInfo;
+import com.gdupload.entity.GdAccount;
+import com.gdupload.entity.UploadJournal;
+import com.gdupload.entity.UploadTask;
+import com.gdupload.service.IFileInfoService;
+import com.gdupload.service.IGdAccountService;
+import com.gdupload.service.ISystemLogService;
+import com.gdupload.service.IUploadService;
+import com.gdupload.service.IUploadTaskService;
+import com.gdupload.util.FileHashCache;
+import com.gdupload.util.RcloneResult;
+import com.gdupload.util.RcloneUtil;
+import com.gdupload.util.RemoteHashIndex;
+import com.gdupload.util.TaskPauseManager;
+import com.gdupload.util.UploadJournalWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 上传任务崩溃恢复
+ * <p>
+ * JVM 异常退出后，正在传输的文件停留在 status=1（上传中，状态批量落库前崩溃的仍为 0），
+ * 任务停留在 1（上传中）/ 6（暂停中）。
+ * 启动完成后在后台执行一次：
+ * <ol>
+ *   <li>按预写日志（{@link UploadJournalWriter}）找到每个“上传中”文件的账号和远端路径，
+ *       没有日志的按任务目标目录 + 文件名推断</li>
+ *   <li>远端大小一致（本地文件仍在时再比对 MD5）视为已传完，直接标记已上传</li>
+ *   <li>远端缺失或不完整且本地文件仍在的，用 {@link RcloneUtil#copyWithResume}（续传并发配置）补传</li>
+ *   <li>暂停中的任务改为已暂停；上传中的任务重新投喂剩余的待上传文件</li>
+ * </ol>
+ *
+ * @author GD Upload Manager
+ * @since 2026-02-26
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UploadRecoveryService {
+
+    private final IFileInfoService fileInfoService;
+    private final IUploadTaskService uploadTaskService;
+    private final IGdAccountService gdAccountService;
+    private final IUploadService uploadService;
+    private final ISystemLogService systemLogService;
+    private final RcloneUtil rcloneUtil;
+    private final RemoteHashIndex remoteHashIndex;
+    private final FileHashCache fileHashCache;
+    private final UploadJournalWriter uploadJournal;
+
+    @Value("${app.upload.recovery.enabled:true}")
+    private boolean enabled;
+
+    /** 恢复完成后自动继续执行中断的任务 */
+    @Value("${app.upload.recovery.auto-resume:true}")
+    private boolean autoResume;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        Thread thread = new Thread(this::recover, "upload-recovery");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 核对并恢复上次运行中断的上传
+     */
+    public void recover() {
+        try {
+            List<UploadJournal> journals = uploadJournal.listAll();
+            List<FileInfo> uploading = new ArrayList<>(fileInfoService.getFilesByStatus(1));
+            // “上传中”状态随进度刷新批量落库，崩溃时正在传输的文件可能还是待上传：按预写日志补充
+            Set<Long> uploadingIds = new HashSet<>();
+            for (FileInfo file : uploading) {
+                uploadingIds.add(file.getId());
+            }
+            List<Long> pendingIds = new ArrayList<>();
+            for (UploadJournal journal : journals) {
+                if (!uploadingIds.contains(journal.getFileId())) {
+                    pendingIds.add(journal.getFileId());
+                }
+            }
+            if (!pendingIds.isEmpty()) {
+                for (FileInfo file : fileInfoService.listByIds(pendingIds)) {
+                    if (file.getStatus() != null && file.getStatus() == 0) {
+                        uploading.add(file);
+                    }
+                }
+            }
+            List<UploadTask> pausing = uploadTaskService.list(
+                new LambdaQueryWrapper<UploadTask>().eq(UploadTask::getStatus, 6));
+            List<UploadTask> running = uploadTaskService.list(
+                new LambdaQueryWrapper<UploadTask>().eq(UploadTask::getStatus, 1));
+            if (journals.isEmpty() && uploading.isEmpty() && pausing.isEmpty() && running.isEmpty()) {
+                return;
+            }
+            log.info("========== 上传崩溃恢复 ==========");
+            log.info("未结束的上传日志: {}, 上传中文件: {}, 暂停中任务: {}, 上传中任务: {}",
+                journals.size(), uploading.size(), pausing.size(), running.size());
+
+            Map<Long, UploadJournal> journalByFile = new HashMap<>();
+            for (UploadJournal journal : journals) {
+                journalByFile.put(journal.getFileId(), journal);
+            }
+            Map<Long, List<FileInfo>> byTask = new LinkedHashMap<>();
+            for (FileInfo file : uploading) {
+                byTask.computeIfAbsent(file.getTaskId(), k -> new ArrayList<>()).add(file);
+            }
+
+            for (Map.Entry<Long, List<FileInfo>> entry : byTask.entrySet()) {
+                UploadTask task = uploadTaskService.getTaskDetail(entry.getKey());
+                int completed = 0, resumed = 0, reset = 0, failed = 0;
+                for (FileInfo file : entry.getValue()) {
+                    switch (recoverFile(task, file, journalByFile.get(file.getId()))) {
+                        case COMPLETED: completed++; break;
+                        case RESUMED: resumed++; break;
+                        case RESET: reset++; break;
+                        default: failed++;
+                    }
+                }
+                log.info("任务文件恢复完成: taskId={}, 远端已完成={}, 续传成功={}, 退回待上传={}, 失败={}",
+                    entry.getKey(), completed, resumed, reset, failed);
+                if (task != null) {
+                    systemLogService.logTaskOperation(task.getId(), task.getTaskName(), "TASK_RECOVER",
+                        String.format("服务重启恢复 - 远端已完成: %d, 续传成功: %d, 退回待上传: %d, 失败: %d",
+                            completed, resumed, reset, failed));
+                }
+            }
+
+            List<Long> journalIds = new ArrayList<>(journalByFile.keySet());
+            uploadJournal.end(journalIds);
+
+            for (UploadTask task : pausing) {
+                uploadTaskService.completePause(task.getId());
+                log.info("暂停中任务已标记为已暂停: taskId={}", task.getId());
+            }
+            if (autoResume) {
+                for (UploadTask task : running) {
+                    log.info("继续执行中断的任务: taskId={}, taskName={}", task.getId(), task.getTaskName());
+                    TaskPauseManager.beginRun(task.getId());
+                    uploadService.executeTask(task.getId());
+                }
+            }
+            log.info("========== 上传崩溃恢复结束 ==========");
+        } catch (Exception e) {
+            log.error("上传崩溃恢复失败", e);
+        }
+    }
+
+    private enum Outcome { COMPLETED, RESUMED, RESET, FAILED }
+
+    private Outcome recoverFile(UploadTask task, FileInfo file, UploadJournal journal) {
+        Long accountId = journal != null ? journal.getAccountId() : file.getUploadAccountId();
+        GdAccount account = accountId != null ? gdAccountService.getCachedAccount(accountId) : null;
+        String localPath = journal != null ? journal.getLocalPath() : file.getFilePath();
+        String remotePath = journal != null ? journal.getRemotePath() : defaultRemotePath(task, file);
+        long size = file.getFileSize() != null ? file.getFileSize() : 0L;
+        Path local = localPath != null ? Paths.get(localPath) : null;
+        boolean localExists = local != null && Files.isRegularFile(local);
+
+        if (account == null || remotePath == null) {
+            // 不知道传到了哪个账号：退回待上传，由正常流程重新上传（上传前的 MD5 去重会跳过已存在的文件）
+            return resetToPending(file, localExists);
+        }
+        String remoteName = account.getRcloneConfigName();
+        int slash = remotePath.lastIndexOf('/');
+        String remoteDir = slash > 0 ? remotePath.substring(0, slash) : "";
+        String remoteFileName = remotePath.substring(slash + 1);
+
+        Long remoteSize = rcloneUtil.getRemoteFileSize(remoteName, remotePath);
+        boolean remoteComplete = size > 0 && remoteSize != null && remoteSize == size;
+        if (remoteComplete && localExists) {
+            // 大小一致但本地还在（move 尚未删除源文件）：比对 MD5 确认
+            String md5 = fileHashCache.md5(local);
+            remoteComplete = remoteHashIndex.matches(remoteName, remoteDir, remoteFileName, md5);
+        }
+
+        if (remoteComplete) {
+            markUploaded(file, accountId, local, localExists);
+            log.info("远端已完成，标记为已上传: fileId={}, {}:{}", file.getId(), remoteName, remotePath);
+            return Outcome.COMPLETED;
+        }
+        if (!localExists) {
+            fileInfoService.updateFileStatus(file.getId(), 3, "服务重启恢复：本地文件已不存在，远端未找到完整文件");
+            return Outcome.FAILED;
+        }
+        if (!local.getFileName().toString().equals(remoteFileName)) {
+            return resetToPending(file, true);
+        }
+
+        // 远端有不完整的同名文件时先删除（copyWithResume 使用 --ignore-existing）
+        if (remoteSize != null && remoteSize > 0) {
+            rcloneUtil.deleteFile(remoteName, remotePath);
+        }
+        log.info("续传中断的文件: fileId={}, {} -> {}:{}", file.getId(), localPath, remoteName, remoteDir);
+        RcloneResult result = rcloneUtil.copyWithResume(localPath, remoteName, remoteDir,
+            line -> log.debug("续传进度: {}", line));
+        if (result.isSuccess()) {
+            markUploaded(file, accountId, local, false);
+            return Outcome.RESUMED;
+        }
+        log.warn("续传失败，退回待上传: fileId={}, error={}", file.getId(), result.getErrorMessage());
+        return resetToPending(file, true);
+    }
+
+    private Outcome resetToPending(FileInfo file, boolean localExists) {
+        if (!localExists) {
+            fileInfoService.updateFileStatus(file.getId(), 3, "服务重启恢复：本地文件已不存在");
+            return Outcome.FAILED;
+        }
+        fileInfoService.updateFileStatus(file.getId(), 0, null);
+        return Outcome.RESET;
+    }
+
+    /**
+     * 标记已上传并计入账号额度；本地源文件仍在时按 move 语义删除
+     */
+    private void markUploaded(FileInfo file, Long accountId, Path local, boolean deleteLocal) {
+        fileInfoService.markFileAsUploaded(file.getId(), accountId);
+        gdAccountService.updateAccountQuota(accountId, file.getFileSize());
+        if (deleteLocal) {
+            try {
+                Files.deleteIfExists(local);
+            } catch (IOException e) {
+                log.warn("删除已上传的本地文件失败: {}, {}", local, e.getMessage());
+            }
+            fileHashCache.invalidate(local);
+        }
+    }
+
+    private static String defaultRemotePath(UploadTask task, FileInfo file) {
+        if (task == null || task.getTargetPath() == null || file.getFileName() == null) {
+            return null;
+        }
+        String target = task.getTargetPath().endsWith("/") ? task.getTargetPath() : task.getTargetPath() + "/";
+        return target + file.getFileName();
+    }
+}
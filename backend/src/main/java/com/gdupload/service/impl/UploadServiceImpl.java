@@ -1,44 +1,53 @@
 package com.gdupload.service.impl;
 
+import com.gdupload.dto.TaskFileStats;
 import com.gdupload.dto.UploadResult;
 import com.gdupload.entity.FileInfo;
 import com.gdupload.entity.GdAccount;
-import com.gdupload.entity.UploadRecord;
+import com.gdupload.entity.SystemLog;
+import com.gdupload.entity.UploadJournal;
 import com.gdupload.entity.UploadTask;
-import com.gdupload.mapper.UploadRecordMapper;
 import com.gdupload.service.*;
+import com.gdupload.util.AccountRegistry;
+import com.gdupload.util.AdaptiveConcurrencyLimiter;
 import com.gdupload.util.DateTimeUtil;
 import com.gdupload.util.DbRetryUtil;
+import com.gdupload.util.FairShareUploadExecutor;
+import com.gdupload.util.FileHashCache;
+import com.gdupload.util.MediaInfoProber;
+import com.gdupload.util.RcloneBatchResult;
 import com.gdupload.util.RcloneResult;
 import com.gdupload.util.RcloneUtil;
+import com.gdupload.util.RemoteDirPlanner;
+import com.gdupload.util.RemoteHashIndex;
 import com.gdupload.util.TaskPauseManager;
+import com.gdupload.util.TaskProgressAggregator;
+import com.gdupload.util.UploadJournalWriter;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Lazy;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import javax.annotation.PostConstruct;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.stream.Collectors;
 import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
 
 /**
  * 上传核心服务实现
@@ -57,37 +66,61 @@ public class UploadServiceImpl implements IUploadService {
     private final RcloneUtil rcloneUtil;
     private final IWebSocketService webSocketService;
     private final ISystemLogService systemLogService;
-    private final UploadRecordMapper uploadRecordMapper;
     private final IArchiveService archiveService;
-
-    // 自注入，用于解决 Spring 事务自调用问题
-    @Autowired
-    @Lazy
-    private IUploadService self;
+    private final AccountRegistry accountRegistry;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final ITransferTelemetryService telemetryService;
+    private final FileHashCache fileHashCache;
+    private final RemoteHashIndex remoteHashIndex;
+    private final UploadJournalWriter uploadJournal;
+    private final FairShareUploadExecutor uploadScheduler;
+    private final RemoteDirPlanner remoteDirPlanner;
+    private final MediaInfoProber mediaInfoProber;
 
     // 存储正在运行的任务
     private final Map<Long, Boolean> runningTasks = new ConcurrentHashMap<>();
 
-    // 存储任务的中断标志（用于暂停/取消任务）
-    private final Map<Long, AtomicBoolean> taskStopFlags = new ConcurrentHashMap<>();
-
     @Value("${app.upload.concurrent-files:10}")
     private int concurrentFiles;
 
-    // 并发上传线程池（由 @PostConstruct 初始化，大小从 app.upload.concurrent-files 读取）
-    private ExecutorService uploadExecutor;
-
-    @PostConstruct
-    private void initExecutor() {
-        int poolSize = Math.max(1, concurrentFiles);
-        uploadExecutor = Executors.newFixedThreadPool(poolSize, r -> {
-            Thread thread = new Thread(r);
-            thread.setName("upload-worker-" + thread.getId());
-            thread.setDaemon(true);
-            return thread;
-        });
-        log.info("上传线程池初始化完成，并发数: {}", poolSize);
-    }
+    @Value("${app.upload.feed-page-size:500}")
+    private int feedPageSize;
+
+    /** 进度合并刷新间隔（毫秒） */
+    @Value("${app.upload.progress-flush-interval:500}")
+    private long progressFlushInterval;
+
+    /** 累计处理多少个文件后立即刷新一次进度 */
+    @Value("${app.upload.progress-flush-files:50}")
+    private int progressFlushFiles;
+
+    /** 大小均衡调度：每投喂一个大文件后穿插多少个小文件 */
+    @Value("${app.upload.small-files-per-large:4}")
+    private int smallFilesPerLarge;
+
+    /** 小文件批量上传：同一目录下的小文件合并为一次 rclone 调用 */
+    @Value("${app.upload.batch.enabled:true}")
+    private boolean batchEnabled;
+
+    /** 小文件阈值（字节），不超过该大小的非媒体文件参与批量上传 */
+    @Value("${app.upload.batch.small-file-threshold:16777216}")
+    private long batchSmallFileThreshold;
+
+    /** 每批最多文件数 */
+    @Value("${app.upload.batch.max-files:200}")
+    private int batchMaxFiles;
+
+    /** 每批最大总字节数 */
+    @Value("${app.upload.batch.max-bytes:1073741824}")
+    private long batchMaxBytes;
+
+    /** 上传前按 MD5 检查目标目录是否已有相同文件（有则跳过上传） */
+    @Value("${app.upload.hash.skip-enabled:true}")
+    private boolean hashSkipEnabled;
+
+    /** 上传前按媒体信息格式化媒体文件名（补充分辨率 / 编码） */
+    @Value("${app.upload.format-media-names:true}")
+    private boolean formatMediaNames;
 
     @Override
     @Async("taskExecutor")
@@ -96,10 +129,6 @@ public class UploadServiceImpl implements IUploadService {
             log.warn("任务已在运行中: taskId={}", taskId);
             return;
         }
-        // 创建任务中断标志（通过 TaskPauseManager 统一管理）
-        AtomicBoolean stopFlag = new AtomicBoolean(false);
-        taskStopFlags.put(taskId, stopFlag);
-
         try {
             log.info("开始执行上传任务（并发模式）: taskId={}", taskId);
 
@@ -113,10 +142,10 @@ public class UploadServiceImpl implements IUploadService {
             systemLogService.logTaskOperation(taskId, task.getTaskName(), "TASK_START",
                 String.format("任务开始执行（并发模式） - 源路径: %s, 目标路径: %s", task.getSourcePath(), task.getTargetPath()));
 
-            // 获取待上传的文件列表
-            List<FileInfo> pendingFiles = fileInfoService.getPendingFiles(taskId);
+            // 按状态聚合统计（SQL 聚合，不再把整个任务的 FileInfo 载入内存）
+            TaskFileStats fileStats = fileInfoService.getTaskFileStats(taskId);
 
-            if (pendingFiles.isEmpty()) {
+            if (fileStats.getPendingCount() == 0) {
                 log.info("没有待上传的文件: taskId={}", taskId);
                 systemLogService.logTaskOperation(taskId, task.getTaskName(), "TASK_COMPLETE",
                     "任务完成 - 没有待上传的文件");
@@ -124,27 +153,22 @@ public class UploadServiceImpl implements IUploadService {
                 return;
             }
 
-            // 计算总大小（包括待上传和已上传的文件）
-            List<FileInfo> allFiles = fileInfoService.getTaskFiles(taskId);
-
-            // ── 注册到 TaskPauseManager（pendingFiles.size 为工作项数量）──
-            TaskPauseManager.register(taskId, pendingFiles.size());
+            // ── 注册到 TaskPauseManager（按需投喂模式：每提交一个文件 addActiveThread）──
+            TaskPauseManager.register(taskId, 0);
+            // 全局调度器按任务优先级加权轮询各任务的工作
+            uploadScheduler.register(taskId, task.getPriority());
+            // 任务中断标志由 TaskPauseManager 统一管理：pauseTask/cancelTask 直接置位并终止 rclone 进程
+            AtomicBoolean stopFlag = TaskPauseManager.getStopFlag(taskId);
 
-            long totalSize = allFiles.stream().mapToLong(FileInfo::getFileSize).sum();
-            task.setTotalSize(totalSize);
+            // 计算总大小（包括待上传和已上传的文件）
+            task.setTotalSize(fileStats.getTotalSize());
 
             // 基于实际已上传的文件重新计算uploadedCount和uploadedSize
-            List<FileInfo> uploadedFiles = allFiles.stream()
-                .filter(f -> f.getStatus() == 2) // 已上传
-                .collect(Collectors.toList());
-            int initialUploadedCount = uploadedFiles.size();
-            long initialUploadedSize = uploadedFiles.stream().mapToLong(FileInfo::getFileSize).sum();
+            int initialUploadedCount = (int) fileStats.getUploadedCount();
+            long initialUploadedSize = fileStats.getUploadedSize();
 
             // 计算已处理的文件数（包括成功和失败）
-            List<FileInfo> processedFiles = allFiles.stream()
-                .filter(f -> f.getStatus() == 2 || f.getStatus() == 3) // 已上传或失败
-                .collect(Collectors.toList());
-            int initialProcessedCount = processedFiles.size();
+            int initialProcessedCount = (int) (fileStats.getUploadedCount() + fileStats.getFailedCount());
 
             // 更新任务的初始状态
             task.setUploadedCount(initialUploadedCount);
@@ -156,173 +180,133 @@ public class UploadServiceImpl implements IUploadService {
                 // 收集所有需要创建的目录路径（去重）
                 java.util.Set<String> dirsToCreate = new java.util.HashSet<>();
                 dirsToCreate.add(task.getTargetPath()); // 根目录
-                for (FileInfo file : allFiles) {
-                    if (file.getRelativePath() != null && !file.getRelativePath().trim().isEmpty()) {
+                for (String relativePath : fileInfoService.getTaskRelativePaths(taskId)) {
+                    if (!relativePath.trim().isEmpty()) {
                         String dirPath = task.getTargetPath();
                         if (!dirPath.endsWith("/")) dirPath += "/";
-                        dirPath += file.getRelativePath();
+                        dirPath += relativePath;
                         dirsToCreate.add(dirPath);
                     }
                 }
-                // 为每个账号创建目录
-                java.util.Set<Long> accountIds = allFiles.stream()
-                    .map(FileInfo::getUploadAccountId)
-                    .filter(id -> id != null)
-                    .collect(Collectors.toSet());
-                for (Long accountId : accountIds) {
-                    GdAccount account = gdAccountService.getById(accountId);
+                // 为每个账号创建目录：只建叶子目录，按账号并行，已记录存在的目录跳过
+                Set<String> remoteNames = new LinkedHashSet<>();
+                for (Long accountId : fileInfoService.getTaskUploadAccountIds(taskId)) {
+                    GdAccount account = gdAccountService.getCachedAccount(accountId);
                     if (account != null) {
-                        for (String dirPath : dirsToCreate) {
-                            rcloneUtil.makeDirectory(account.getRcloneConfigName(), dirPath);
-                        }
+                        remoteNames.add(account.getRcloneConfigName());
                     }
                 }
-                log.info("目标目录预创建完成: {} 个目录", dirsToCreate.size());
+                int mkdirCalls = remoteDirPlanner.ensureDirectories(remoteNames, dirsToCreate);
+                log.info("目标目录预创建完成: {} 个目录, {} 个账号, mkdir {} 次",
+                    dirsToCreate.size(), remoteNames.size(), mkdirCalls);
             } catch (Exception e) {
                 log.warn("预创建目录失败（不影响上传）: {}", e.getMessage());
             }
             // ═══════════════════════════════════════════════
 
-            // 使用原子计数器确保线程安全
-            AtomicInteger uploadedCount = new AtomicInteger(initialUploadedCount);
-            AtomicLong uploadedSize = new AtomicLong(initialUploadedSize);
-            AtomicInteger processedCount = new AtomicInteger(initialProcessedCount);
-
-            // 使用CountDownLatch等待所有上传任务完成
-            CountDownLatch latch = new CountDownLatch(pendingFiles.size());
-
-            // 提交所有上传任务到线程池
-            for (FileInfo fileInfo : pendingFiles) {
-                // 关键：创建final局部变量，避免lambda闭包问题
-                final FileInfo currentFile = fileInfo;
-                final UploadTask taskSnapshot = task;
-
-                uploadExecutor.submit(() -> {
-                    try {
-                        // 检查任务是否被中断
-                        if (stopFlag.get()) {
-                            log.info("任务已被中断，跳过文件: taskId={}, fileId={}, fileName={}",
-                                taskId, currentFile.getId(), currentFile.getFileName());
-                            return;
-                        }
-
-                        // 获取下一个可用账号（轮询模式，线程安全）
-                        GdAccount account = gdAccountService.getNextAvailableAccountInRotation(taskId, currentFile.getFileSize());
-
-                        if (account == null) {
-                            log.warn("没有账号有足够配额上传文件: taskId={}, fileId={}, fileName={}, fileSize={}",
-                                taskId, currentFile.getId(), currentFile.getFileName(), currentFile.getFileSize());
+            // 进度合并器：工作线程只做原子计数，DB 进度 / WebSocket / 文件日志按固定节奏批量刷出
+            final UploadTask taskSnapshot = task;
+            TaskProgressAggregator<FileEvent> progressAggregator = TaskProgressAggregator.<FileEvent>start(
+                    taskId, progressFlushInterval, progressFlushFiles,
+                    snap -> flushUploadProgress(taskSnapshot, snap))
+                .seed(initialUploadedCount, initialProcessedCount - initialUploadedCount, 0, initialUploadedSize);
+            telemetryService.startTask(taskId, fileStats.getTotalSize(), progressAggregator::getBytes);
+
+            // 任务上下文只构建一次：工作线程直接使用投喂时读出的文件和注册表中的账号，不再按文件重新查询
+            final UploadContext ctx = new UploadContext(taskSnapshot, formatMediaNames, stopFlag, progressAggregator);
+
+            // 有界投喂：同一任务最多 concurrentFiles 个文件在线程池中（运行 + 排队），
+            // 待上传文件按调度策略分页读取，内存占用与任务规模无关
+            final int maxInFlight = Math.max(1, concurrentFiles);
+            final Semaphore slots = new Semaphore(maxInFlight);
+            UploadFileFeed fileFeed = UploadFileFeed.of(task.getSchedulePolicy(), fileInfoService, taskId,
+                feedPageSize, smallFilesPerLarge);
+            int fedCount = 0;
 
-                            // 标记文件为失败
-                            fileInfoService.updateFileStatus(currentFile.getId(), 3, "所有账号配额不足");
-                            processedCount.incrementAndGet();
-
-                            // 推送文件失败状态
-                            webSocketService.pushFileStatus(taskId, currentFile.getId(), currentFile.getFileName(), 3, "所有账号配额不足");
-
-                            return;
+            try {
+                // 小文件按本地目录攒批，每批一个 rclone 进程
+                SmallFileBatcher batcher = batchEnabled ? new SmallFileBatcher(batchMaxFiles, batchMaxBytes) : null;
+                FileInfo fileInfo;
+                while (!stopFlag.get() && (fileInfo = fileFeed.next()) != null) {
+                    if (batcher != null && isBatchable(fileInfo)) {
+                        List<FileInfo> batch = batcher.add(fileInfo);
+                        if (batch != null) {
+                            if (!acquireSlot(taskId, slots, stopFlag)) {
+                                break;
+                            }
+                            fedCount += batch.size();
+                            submitBatch(ctx, batch, slots);
                         }
+                        continue;
+                    }
 
-                        // 上传文件（支持自动切换账号）
-                        boolean success = uploadFileWithRetry(taskId, currentFile.getId(), account.getId());
-
-                        // 更新计数器（原子操作）
-                        int currentProcessed = processedCount.incrementAndGet();
-
-                        if (success) {
-                            int currentUploaded = uploadedCount.incrementAndGet();
-                            long currentSize = uploadedSize.addAndGet(currentFile.getFileSize());
-
-                            // 更新任务进度（进度 = 已处理文件数 / 总文件数）
-                            int progress = (int) ((currentProcessed * 100.0) / taskSnapshot.getTotalCount());
-
-                            // 使用重试机制更新任务进度
-                            DbRetryUtil.executeVoid(() ->
-                                uploadTaskService.updateTaskProgress(taskId, currentUploaded, currentSize, progress)
-                            );
-
-                            // 推送进度更新到WebSocket
-                            webSocketService.pushTaskProgress(taskId, progress, currentUploaded, taskSnapshot.getTotalCount(),
-                                currentSize, taskSnapshot.getTotalSize(), currentFile.getFileName());
-
-                            // 推送文件状态
-                            webSocketService.pushFileStatus(taskId, currentFile.getId(), currentFile.getFileName(), 2, "上传成功");
-
-                            // 记录文件上传成功日志
-                            systemLogService.logFileUpload(taskId, currentFile.getId(), currentFile.getFileName(),
-                                currentFile.getFileSize(), account.getId(), "FILE_UPLOAD_SUCCESS",
-                                String.format("文件上传成功 - 使用账号: %s, 进度: %d%%", account.getAccountName(), progress),
-                                String.format("文件大小: %s, 已处理: %d/%d", formatSize(currentFile.getFileSize()), currentProcessed, taskSnapshot.getTotalCount()));
-
-                            log.info("文件上传成功: taskId={}, fileId={}, fileName={}, progress={}%",
-                                taskId, currentFile.getId(), currentFile.getFileName(), progress);
-                        } else {
-                            // 失败也要更新进度
-                            int progress = (int) ((currentProcessed * 100.0) / taskSnapshot.getTotalCount());
+                    if (!acquireSlot(taskId, slots, stopFlag)) {
+                        break;
+                    }
 
-                            // 使用重试机制更新任务进度
-                            DbRetryUtil.executeVoid(() ->
-                                uploadTaskService.updateTaskProgress(taskId, uploadedCount.get(), uploadedSize.get(), progress)
-                            );
+                    // 关键：创建final局部变量，避免lambda闭包问题
+                    final FileInfo currentFile = fileInfo;
+                    fedCount++;
+
+                    uploadScheduler.submit(taskId, () -> {
+                        // 绑定任务：暂停/取消时本线程内正在执行的 rclone 进程会被立即终止
+                        TaskPauseManager.bindWorker(taskId);
+                        try {
+                            // 检查任务是否被中断
+                            if (stopFlag.get()) {
+                                log.info("任务已被中断，跳过文件: taskId={}, fileId={}, fileName={}",
+                                    taskId, currentFile.getId(), currentFile.getFileName());
+                                return;
+                            }
 
-                            // 推送进度更新到WebSocket（失败也算处理完成）
-                            webSocketService.pushTaskProgress(taskId, progress, uploadedCount.get(), taskSnapshot.getTotalCount(),
-                                uploadedSize.get(), taskSnapshot.getTotalSize(), currentFile.getFileName());
+                            // 获取下一个可用账号（按调度策略，线程安全）
+                            GdAccount account = selectAccount(taskId, currentFile.getFileSize(), ctx.sizeBalanced);
 
-                            // 推送文件失败状态
-                            webSocketService.pushFileStatus(taskId, currentFile.getId(), currentFile.getFileName(), 3, "上传失败");
+                            if (account == null) {
+                                reportNoAccount(ctx, currentFile);
+                                return;
+                            }
 
-                            // 记录文件上传失败日志
-                            systemLogService.logFileUpload(taskId, currentFile.getId(), currentFile.getFileName(),
-                                currentFile.getFileSize(), account.getId(), "FILE_UPLOAD_FAILED",
-                                String.format("文件上传失败 - 使用账号: %s, 进度: %d%%", account.getAccountName(), progress),
-                                String.format("已处理: %d/%d", currentProcessed, taskSnapshot.getTotalCount()));
+                            // 上传文件（支持自动切换账号），成功 / 失败在其中上报
+                            boolean success = uploadFileWithRetry(ctx, currentFile, account);
 
-                            log.error("文件上传失败: taskId={}, fileId={}, fileName={}",
-                                taskId, currentFile.getId(), currentFile.getFileName());
+                            if (!success && stopFlag.get()) {
+                                // 暂停/取消打断的上传：文件退回待上传，不计入失败
+                                log.info("任务已停止，文件上传被中断: taskId={}, fileId={}, fileName={}",
+                                    taskId, currentFile.getId(), currentFile.getFileName());
+                            }
+                        } catch (Exception e) {
+                            log.error("并发上传文件异常: taskId={}, fileId={}, fileName={}",
+                                taskId, currentFile.getId(), currentFile.getFileName(), e);
+                            reportUnexpectedFailure(ctx, currentFile, e);
+                        } finally {
+                            TaskPauseManager.unbindWorker();
+                            TaskPauseManager.onThreadFinished(taskId);
+                            slots.release();
                         }
-                    } catch (Exception e) {
-                        log.error("并发上传文件异常: taskId={}, fileId={}, fileName={}",
-                            taskId, currentFile.getId(), currentFile.getFileName(), e);
-                        processedCount.incrementAndGet();
-                    } finally {
-                        TaskPauseManager.onThreadFinished(taskId);
-                        latch.countDown();
-                    }
-                });
-            }
+                    });
+                }
 
-            // 启动一个监控线程，定期检查任务是否被暂停或取消
-            Thread monitorThread = new Thread(() -> {
-                try {
-                    while (!latch.await(1, TimeUnit.SECONDS)) {
-                        // 检查任务状态
-                        UploadTask currentTask = uploadTaskService.getTaskDetail(taskId);
-                        if (currentTask.getStatus() == 6 || currentTask.getStatus() == 3) {
-                            // 6=暂停中, 3=已暂停（兼容直接设3的旧场景）
-                            log.info("任务被暂停，设置中断标志: taskId={}", taskId);
-                            stopFlag.set(true);
-                            break;
-                        }
-                        if (currentTask.getStatus() == 4) {
-                            log.info("任务被取消，设置中断标志: taskId={}", taskId);
-                            stopFlag.set(true);
+                // 投喂结束：提交未攒满的小文件批次（暂停/取消时留在待上传状态）
+                if (batcher != null) {
+                    for (List<FileInfo> batch : batcher.drain()) {
+                        if (stopFlag.get() || !acquireSlot(taskId, slots, stopFlag)) {
                             break;
                         }
+                        fedCount += batch.size();
+                        submitBatch(ctx, batch, slots);
                     }
-                } catch (InterruptedException e) {
-                    log.warn("监控线程被中断: taskId={}", taskId);
                 }
-            });
-            monitorThread.setName("task-monitor-" + taskId);
-            monitorThread.start();
 
-            // 等待所有上传任务完成
-            latch.await();
-
-            // 等待监控线程结束
-            monitorThread.interrupt();
-            monitorThread.join(1000);
+                // 等待所有在途文件完成
+                slots.acquire(maxInFlight);
+                slots.release(maxInFlight);
+            } finally {
+                // 完成 / 暂停 / 取消都会走到这里：强制刷出最后一次进度
+                progressAggregator.close();
+                telemetryService.finishTask(taskId);
+            }
+            log.info("任务文件投喂完成: taskId={}, fed={}", taskId, fedCount);
 
             // 检查任务是否被中断
             if (stopFlag.get()) {
@@ -334,9 +318,8 @@ public class UploadServiceImpl implements IUploadService {
 
             // 检查任务是否完成
             task = uploadTaskService.getTaskDetail(taskId);
-            List<FileInfo> failedFiles = fileInfoService.getFailedFiles(taskId);
-            int successCount = uploadedCount.get();
-            int failedCount = failedFiles.size();
+            int successCount = progressAggregator.getSuccessCount();
+            int failedCount = (int) fileInfoService.getTaskFileStats(taskId).getFailedCount();
             int processedTotal = successCount + failedCount;
 
             // 更新任务的失败文件数
@@ -364,7 +347,7 @@ public class UploadServiceImpl implements IUploadService {
                 // 记录任务完成日志
                 systemLogService.logTaskOperation(taskId, task.getTaskName(), "TASK_COMPLETE",
                     String.format("任务执行完成（并发模式） - 成功: %d, 失败: %d, 总计: %d, 总大小: %s",
-                        successCount, failedCount, task.getTotalCount(), formatSize(uploadedSize.get())));
+                        successCount, failedCount, task.getTotalCount(), formatSize(progressAggregator.getBytes())));
 
                 log.info("任务执行完成: taskId={}, successCount={}, failedCount={}, totalCount={}",
                     taskId, successCount, failedCount, task.getTotalCount());
@@ -386,100 +369,668 @@ public class UploadServiceImpl implements IUploadService {
             }
         } finally {
             runningTasks.remove(taskId);
-            taskStopFlags.remove(taskId);
             TaskPauseManager.unregister(taskId);
+            uploadScheduler.unregister(taskId);
+        }
+    }
+
+    /**
+     * 刷新上传任务进度：期间累积的文件状态批量落库，一次任务进度更新 + 一次进度推送，
+     * 并批量下发文件状态和上传日志
+     */
+    private void flushUploadProgress(UploadTask task, TaskProgressAggregator.Snapshot<FileEvent> snap) {
+        Long taskId = task.getId();
+        int progress = calcProgress(snap.getProcessedCount(), task.getTotalCount());
+
+        // 先落库文件状态再更新任务进度，任务的已上传数不会领先于文件状态；
+        // 落库失败时抛出，本次不更新任务进度，事件由合并器保留到下次刷新重新落库
+        List<FileEvent> latest = latestPerFile(snap.getEvents());
+        persistFileEvents(taskId, latest);
+
+        DbRetryUtil.executeVoid(() ->
+            uploadTaskService.updateTaskProgress(taskId, snap.getSuccessCount(), snap.getBytes(), progress)
+        );
+        webSocketService.pushTaskProgress(taskId, progress, snap.getSuccessCount(), task.getTotalCount(),
+            snap.getBytes(), task.getTotalSize(), snap.getCurrentItem());
+
+        pushFileEvents(taskId, latest, snap.getEvents());
+    }
+
+    /**
+     * 同一文件在一次刷新内可能有多个状态（上传中 → 已上传），只保留最后一个
+     */
+    private static List<FileEvent> latestPerFile(List<FileEvent> events) {
+        Map<Long, FileEvent> latest = new LinkedHashMap<>();
+        for (FileEvent event : events) {
+            latest.remove(event.getFile().getId());
+            latest.put(event.getFile().getId(), event);
         }
+        return new ArrayList<>(latest.values());
     }
 
     /**
-     * 上传文件（支持配额超限时自动切换账号重试）
+     * 批量落库文件状态：已上传按账号分组（一次状态更新 + 一条多值 INSERT 上传记录），
+     * 其余状态按（状态, 错误信息）分组各一次更新；落库成功后删除已结束文件的预写日志。
+     * 某组失败时抛出异常，已写入的组标记为无需再落库，重试时不会重复写上传记录
+     */
+    private void persistFileEvents(Long taskId, List<FileEvent> events) {
+        Map<Long, List<FileEvent>> uploaded = new LinkedHashMap<>();
+        Map<Integer, Map<String, List<FileEvent>>> others = new LinkedHashMap<>();
+        List<Long> finished = new ArrayList<>();
+        for (FileEvent event : events) {
+            Long fileId = event.getFile().getId();
+            int status = event.getStatus();
+            if (status != 1) {
+                finished.add(fileId);
+            }
+            if (!event.isPersist()) {
+                continue;
+            }
+            if (status == 2) {
+                uploaded.computeIfAbsent(event.getAccountId(), k -> new ArrayList<>()).add(event);
+            } else {
+                // 只有失败状态记录错误信息
+                String message = status == 3 ? event.getMessage() : null;
+                others.computeIfAbsent(status, k -> new HashMap<>())
+                    .computeIfAbsent(message, k -> new ArrayList<>()).add(event);
+            }
+        }
+        try {
+            for (Map.Entry<Long, List<FileEvent>> group : uploaded.entrySet()) {
+                List<FileInfo> files = new ArrayList<>(group.getValue().size());
+                for (FileEvent event : group.getValue()) {
+                    files.add(event.getFile());
+                }
+                DbRetryUtil.executeVoid(() -> fileInfoService.markFilesAsUploaded(files, group.getKey()));
+                markPersisted(group.getValue());
+            }
+            for (Map.Entry<Integer, Map<String, List<FileEvent>>> byStatus : others.entrySet()) {
+                for (Map.Entry<String, List<FileEvent>> group : byStatus.getValue().entrySet()) {
+                    List<Long> fileIds = new ArrayList<>(group.getValue().size());
+                    for (FileEvent event : group.getValue()) {
+                        fileIds.add(event.getFile().getId());
+                    }
+                    DbRetryUtil.executeVoid(() ->
+                        fileInfoService.updateFilesStatus(fileIds, byStatus.getKey(), group.getKey()));
+                    markPersisted(group.getValue());
+                }
+            }
+        } catch (RuntimeException e) {
+            // 保留预写日志；抛出让本次刷新失败，任务进度不会领先于文件状态
+            log.error("批量更新文件状态失败，下次刷新重试: taskId={}, 文件数={}", taskId, events.size(), e);
+            throw e;
+        }
+        uploadJournal.end(finished);
+    }
+
+    private static void markPersisted(List<FileEvent> events) {
+        for (FileEvent event : events) {
+            event.setPersist(false);
+        }
+    }
+
+    /**
+     * 推送文件状态（每个文件只推最后一个状态）并批量写入上传日志
+     */
+    private void pushFileEvents(Long taskId, List<FileEvent> latest, List<FileEvent> all) {
+        if (all.isEmpty()) {
+            return;
+        }
+        for (FileEvent event : latest) {
+            webSocketService.pushFileStatus(taskId, event.getFile().getId(), event.getFile().getFileName(),
+                event.getStatus(), event.getMessage());
+        }
+        List<SystemLog> logs = new ArrayList<>();
+        for (FileEvent event : all) {
+            if (event.getSystemLog() != null) {
+                logs.add(event.getSystemLog());
+            }
+        }
+        if (logs.isEmpty()) {
+            return;
+        }
+        try {
+            systemLogService.logBatch(logs);
+        } catch (Exception e) {
+            log.warn("批量写入文件上传日志失败: taskId={}, count={}, {}", taskId, logs.size(), e.getMessage());
+        }
+    }
+
+    private static int calcProgress(int processed, Integer totalCount) {
+        if (totalCount == null || totalCount <= 0) {
+            return 0;
+        }
+        return (int) ((processed * 100.0) / totalCount);
+    }
+
+    /**
+     * 随进度批量下发的单文件事件（文件状态落库与推送 + 可选的上传日志）
+     */
+    @Data
+    @AllArgsConstructor
+    private static class FileEvent {
+        private FileInfo file;
+        private Integer status;
+        private String message;
+        private SystemLog systemLog;
+        /** 上传账号（已上传状态写入 upload_account_id 和上传记录） */
+        private Long accountId;
+        /** 是否需要落库（目标目录已有相同文件时状态已直接写入，只推送） */
+        private boolean persist;
+    }
+
+    /**
+     * 任务执行上下文：executeTask 开始时构建一次，所有工作线程共用（只读）
+     */
+    private static final class UploadContext {
+        final Long taskId;
+        /** 远端目标目录（以 / 结尾） */
+        final String targetDir;
+        final int totalCount;
+        /** 切换账号时是否按剩余额度均衡选择 */
+        final boolean sizeBalanced;
+        /** 上传前是否格式化媒体文件名 */
+        final boolean formatMediaNames;
+        final AtomicBoolean stopFlag;
+        final TaskProgressAggregator<FileEvent> progress;
+
+        UploadContext(UploadTask task, boolean formatMediaNames, AtomicBoolean stopFlag,
+                      TaskProgressAggregator<FileEvent> progress) {
+            this.taskId = task.getId();
+            String target = task.getTargetPath() != null ? task.getTargetPath() : "";
+            this.targetDir = target.endsWith("/") ? target : target + "/";
+            this.totalCount = task.getTotalCount() != null ? task.getTotalCount() : 0;
+            this.sizeBalanced = task.getSchedulePolicy() != null
+                && task.getSchedulePolicy() == UploadFileFeed.POLICY_SIZE_BALANCED;
+            this.formatMediaNames = formatMediaNames;
+            this.stopFlag = stopFlag;
+            this.progress = progress;
+        }
+    }
+
+    /**
+     * 按任务调度策略选择账号：大小均衡时选剩余额度最多的账号，否则轮询
+     */
+    private GdAccount selectAccount(Long taskId, Long fileSize, boolean sizeBalanced) {
+        return sizeBalanced
+            ? gdAccountService.getBalancedAccount(taskId, fileSize)
+            : gdAccountService.getNextAvailableAccountInRotation(taskId, fileSize);
+    }
+
+    /**
+     * 为下一个投喂单元（单个文件或一个小文件批次）占用一个并发槽位；任务已停止时返回 false
+     */
+    private boolean acquireSlot(Long taskId, Semaphore slots, AtomicBoolean stopFlag) throws InterruptedException {
+        slots.acquire();
+
+        // 先计数再检查 stopFlag，避免与暂停回调（activeThreads 归零时触发）产生竞态
+        TaskPauseManager.addActiveThread(taskId);
+        if (stopFlag.get()) {
+            TaskPauseManager.onThreadFinished(taskId);
+            slots.release();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 上报上传成功
      *
-     * @param taskId 任务ID
-     * @param fileId 文件ID
-     * @param accountId 初始账号ID
-     * @return 上传是否成功
+     * @param persist 是否需要落库（目标目录已有相同文件时状态已直接写入）
      */
-    private boolean uploadFileWithRetry(Long taskId, Long fileId, Long accountId) {
-        FileInfo fileInfo = fileInfoService.getById(fileId);
-        if (fileInfo == null) {
-            log.error("文件不存在: fileId={}", fileId);
+    private void reportUploadSuccess(UploadContext ctx, FileInfo file, GdAccount account, boolean persist) {
+        TaskProgressAggregator<FileEvent> progress = ctx.progress;
+        progress.recordSuccess(file.getFileSize(), file.getFileName());
+        int currentProcessed = progress.getProcessedCount();
+
+        // 文件状态、上传记录与上传日志随下次进度刷新批量写入 / 推送
+        progress.addEvent(new FileEvent(file, 2, "上传成功",
+            systemLogService.buildFileUploadLog(ctx.taskId, file.getId(), file.getFileName(),
+                file.getFileSize(), account.getId(), "FILE_UPLOAD_SUCCESS",
+                String.format("文件上传成功 - 使用账号: %s, 进度: %d%%", account.getAccountName(),
+                    calcProgress(currentProcessed, ctx.totalCount)),
+                String.format("文件大小: %s, 已处理: %d/%d", formatSize(file.getFileSize()), currentProcessed, ctx.totalCount)),
+            account.getId(), persist));
+
+        log.info("文件上传成功: taskId={}, fileId={}, fileName={}, processed={}/{}",
+            ctx.taskId, file.getId(), file.getFileName(), currentProcessed, ctx.totalCount);
+    }
+
+    private void reportUploadFailure(UploadContext ctx, FileInfo file, GdAccount account, String errorMessage) {
+        TaskProgressAggregator<FileEvent> progress = ctx.progress;
+        // 失败也算处理完成
+        progress.recordFailure(file.getFileName());
+        int currentProcessed = progress.getProcessedCount();
+
+        String message = errorMessage != null ? errorMessage : "上传失败";
+        progress.addEvent(new FileEvent(file, 3, message,
+            systemLogService.buildFileUploadLog(ctx.taskId, file.getId(), file.getFileName(),
+                file.getFileSize(), account.getId(), "FILE_UPLOAD_FAILED",
+                String.format("文件上传失败 - 使用账号: %s, 进度: %d%%", account.getAccountName(),
+                    calcProgress(currentProcessed, ctx.totalCount)),
+                String.format("%s, 已处理: %d/%d", message, currentProcessed, ctx.totalCount)),
+            account.getId(), true));
+
+        log.error("文件上传失败: taskId={}, fileId={}, fileName={}, error={}",
+            ctx.taskId, file.getId(), file.getFileName(), message);
+    }
+
+    private void reportNoAccount(UploadContext ctx, FileInfo file) {
+        log.warn("没有账号有足够配额上传文件: taskId={}, fileId={}, fileName={}, fileSize={}",
+            ctx.taskId, file.getId(), file.getFileName(), file.getFileSize());
+
+        // 文件失败状态随下次进度刷新落库并推送
+        ctx.progress.recordFailure(file.getFileName());
+        ctx.progress.addEvent(new FileEvent(file, 3, "所有账号配额不足", null, null, true));
+    }
+
+    /**
+     * 上传过程中抛出意外异常：与其他失败一样记为失败并落库（文件可能已被标记为上传中）；
+     * 任务已暂停/取消时退回待上传
+     */
+    private void reportUnexpectedFailure(UploadContext ctx, FileInfo file, Exception e) {
+        if (ctx.stopFlag.get()) {
+            markPending(ctx, file);
+            return;
+        }
+        ctx.progress.recordFailure(file.getFileName());
+        ctx.progress.addEvent(new FileEvent(file, 3, "上传异常: " + e.getMessage(), null, null, true));
+    }
+
+    /**
+     * 文件开始上传（状态随进度刷新落库；同一次刷新内已结束的文件不会再写“上传中”）
+     */
+    private static void markUploading(UploadContext ctx, FileInfo file, Long accountId) {
+        ctx.progress.addEvent(new FileEvent(file, 1, "上传中", null, accountId, true));
+    }
+
+    /**
+     * 任务暂停/取消打断的文件退回待上传，恢复后重新上传
+     */
+    private static void markPending(UploadContext ctx, FileInfo file) {
+        ctx.progress.addEvent(new FileEvent(file, 0, "待上传", null, null, true));
+    }
+
+    /**
+     * 目标文件是否已存在且内容相同：远端有同名同大小的文件时才计算本地 MD5（结果写回 file_info）。
+     * 只认目标文件名本身，其他文件名下的相同内容不算（跳过后会删除本地源文件）
+     *
+     * @param remoteFileName 上传后的远端文件名
+     */
+    private boolean isRemoteDuplicate(FileInfo file, Path localPath, String remoteName, String targetDir,
+                                      String remoteFileName) {
+        if (!hashSkipEnabled || file.getFileSize() == null || file.getFileSize() <= 0) {
+            return false;
+        }
+        try {
+            if (!remoteHashIndex.hasCandidate(remoteName, targetDir, remoteFileName, file.getFileSize())) {
+                return false;
+            }
+            String md5 = fileHashCache.md5(localPath);
+            if (md5 == null) {
+                return false;
+            }
+            if (!md5.equalsIgnoreCase(file.getFileMd5())) {
+                file.setFileMd5(md5);
+                fileInfoService.updateFileMd5(file.getId(), md5);
+            }
+            return remoteHashIndex.matches(remoteName, targetDir, remoteFileName, md5);
+        } catch (Exception e) {
+            log.warn("MD5去重检查失败（继续上传）: file={}, {}", localPath, e.getMessage());
             return false;
         }
+    }
+
+    /**
+     * 跳过已存在的文件：标记为已上传，并与 move 语义一致删除本地源文件
+     */
+    private void skipDuplicate(FileInfo file, Path localPath, Long accountId, String remoteFileName) {
+        log.info("目标文件已存在且MD5一致，跳过上传: {} == {}", localPath, remoteFileName);
+        fileInfoService.markFileAsDuplicate(file.getId(), accountId, file.getFileMd5(),
+            "目标目录已存在相同文件，跳过上传: " + remoteFileName);
+        try {
+            Files.deleteIfExists(localPath);
+        } catch (IOException e) {
+            log.warn("删除已存在于远端的本地文件失败: {}, {}", localPath, e.getMessage());
+        }
+        fileHashCache.invalidate(localPath);
+    }
+
+    // ─── 小文件批量上传 ───────────────────────────────────────────
+
+    /**
+     * 是否可以走小文件批量上传：不超过阈值、非媒体文件（媒体文件上传前可能需要格式化重命名）、
+     * 文件名不含需要清理的特殊字符（批量上传保留本地文件名）
+     */
+    private boolean isBatchable(FileInfo file) {
+        if (file.getFileSize() == null || file.getFileSize() > batchSmallFileThreshold || file.getFilePath() == null) {
+            return false;
+        }
+        Path path = Paths.get(file.getFilePath());
+        if (path.getParent() == null || path.getFileName() == null) {
+            return false;
+        }
+        String name = path.getFileName().toString();
+        return !isMediaFile(name) && name.equals(sanitizeFileName(name));
+    }
+
+    private void submitBatch(UploadContext ctx, List<FileInfo> batch, Semaphore slots) {
+        Long taskId = ctx.taskId;
+        uploadScheduler.submit(taskId, () -> {
+            TaskPauseManager.bindWorker(taskId);
+            try {
+                if (ctx.stopFlag.get()) {
+                    return;
+                }
+                uploadSmallFileBatch(ctx, batch);
+            } catch (Exception e) {
+                log.error("小文件批量上传异常: taskId={}, 文件数={}", taskId, batch.size(), e);
+            } finally {
+                TaskPauseManager.unbindWorker();
+                TaskPauseManager.onThreadFinished(taskId);
+                slots.release();
+            }
+        });
+    }
+
+    /**
+     * 用一个 rclone 进程上传同一本地目录下的一批小文件，按 JSON 日志逐个上报结果（随进度刷新批量落库）。
+     * <p>
+     * rclone 明确报错的文件直接标记失败；配额超限 / 超时 / 进程异常退出时未确认结果的文件，
+     * 回退到逐个上传（{@link #uploadFileWithRetry}，支持切换账号）。
+     */
+    private void uploadSmallFileBatch(UploadContext ctx, List<FileInfo> batch) {
+        Long taskId = ctx.taskId;
+        // 选账号时按整批估算；缺失 / 重复的文件过滤后再按实际上传的文件计算
+        long estimatedBytes = 0L;
+        for (FileInfo file : batch) {
+            estimatedBytes += file.getFileSize();
+        }
+
+        GdAccount account = selectAccount(taskId, estimatedBytes, ctx.sizeBalanced);
+        if (account == null) {
+            for (FileInfo file : batch) {
+                reportNoAccount(ctx, file);
+            }
+            return;
+        }
+        Long accountId = account.getId();
+
+        // 本地文件检查（与单文件上传一致）
+        List<FileInfo> files = new ArrayList<>(batch.size());
+        List<String> names = new ArrayList<>(batch.size());
+        for (FileInfo file : batch) {
+            Path path = Paths.get(file.getFilePath());
+            if (!Files.isRegularFile(path)) {
+                String errorMsg = "文件不存在: " + file.getFilePath();
+                log.error(errorMsg);
+                reportUploadFailure(ctx, file, account, errorMsg);
+                continue;
+            }
+            // 批量上传保留本地文件名
+            String remoteFileName = path.getFileName().toString();
+            if (isRemoteDuplicate(file, path, account.getRcloneConfigName(), ctx.targetDir, remoteFileName)) {
+                skipDuplicate(file, path, accountId, remoteFileName);
+                reportUploadSuccess(ctx, file, account, false);
+                continue;
+            }
+            files.add(file);
+            names.add(path.getFileName().toString());
+        }
+        if (files.isEmpty()) {
+            return;
+        }
+
+        long totalBytes = 0L;
+        for (FileInfo file : files) {
+            totalBytes += file.getFileSize();
+            markUploading(ctx, file, accountId);
+        }
+
+        String sourceDir = Paths.get(files.get(0).getFilePath()).getParent().toString();
+        log.info("小文件批量上传: taskId={}, 目录={}, 文件数={}, 大小={}, 账号={}",
+            taskId, sourceDir, files.size(), formatSize(totalBytes), account.getAccountName());
+
+        // 一个批次占用账号的一个自适应并发名额
+        if (!concurrencyLimiter.acquire(accountId)) {
+            for (FileInfo file : files) {
+                markPending(ctx, file);
+            }
+            return;
+        }
+        RcloneBatchResult batchResult = null;
+        List<UploadJournal> journal = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            FileInfo file = files.get(i);
+            journal.add(UploadJournalWriter.entry(taskId, file.getId(), accountId, file.getFilePath(),
+                ctx.targetDir + names.get(i), file.getFileSize()));
+        }
+        // 预写日志在文件状态落库后删除
+        uploadJournal.begin(journal);
+        accountRegistry.beginUpload(accountId, totalBytes);
+        try (ITransferTelemetryService.Tracker tracker = telemetryService.track(taskId, accountId,
+                line -> log.debug("批量上传输出: {}", line))) {
+            batchResult = rcloneUtil.uploadBatch(sourceDir, names, account.getRcloneConfigName(), ctx.targetDir, tracker);
+        } finally {
+            accountRegistry.endUpload(accountId, totalBytes);
+            RcloneResult processResult = batchResult != null ? batchResult.getResult() : null;
+            concurrencyLimiter.release(accountId, processResult != null && processResult.isSuccess() ? totalBytes : 0L,
+                processResult != null ? processResult.getRateLimitHits() : 0);
+        }
+        RcloneResult result = batchResult.getResult();
+        if (!result.isInterrupted()) {
+            accountRegistry.recordOutcome(accountId, !result.isSuccess());
+        }
+        if (result.isQuotaExceeded() || result.isTimeout()) {
+            // 账号的禁用由逐个重试时的单文件上传处理，这里先让它退出本任务的选择
+            log.warn("批量上传遇到{}，账号进入冷却，未完成的文件逐个重试: accountId={}",
+                result.isQuotaExceeded() ? "配额超限" : "超时", accountId);
+            accountRegistry.markCooldown(accountId);
+        }
+        boolean processFailed = result.isQuotaExceeded() || result.isTimeout() || result.isInterrupted();
+
+        List<FileInfo> retry = new ArrayList<>();
+        long uploadedBytes = 0L;
+        for (int i = 0; i < files.size(); i++) {
+            FileInfo file = files.get(i);
+            String name = names.get(i);
+            if (batchResult.isSucceeded(name)) {
+                // 文件状态与 upload_record 上传记录随进度刷新按账号批量写入
+                uploadedBytes += file.getFileSize();
+                reportUploadSuccess(ctx, file, account, true);
+            } else if (batchResult.isFailed(name) && !processFailed) {
+                reportUploadFailure(ctx, file, account, "上传失败: " + batchResult.getFailed().get(name));
+            } else {
+                retry.add(file);
+            }
+        }
+        if (uploadedBytes > 0) {
+            // 累加账号滚动24小时上传量
+            gdAccountService.updateAccountQuota(accountId, uploadedBytes);
+        }
+
+        // 未确认结果的文件逐个重试
+        for (FileInfo file : retry) {
+            if (ctx.stopFlag.get()) {
+                // 任务暂停/取消：剩余文件退回待上传，恢复后重新上传
+                markPending(ctx, file);
+                continue;
+            }
+            GdAccount retryAccount = selectAccount(taskId, file.getFileSize(), ctx.sizeBalanced);
+            if (retryAccount == null) {
+                reportNoAccount(ctx, file);
+                continue;
+            }
+            uploadFileWithRetry(ctx, file, retryAccount);
+        }
+    }
+
+    /**
+     * 按本地目录攒批小文件（同一批次同一源目录、同一账号、同一远端目录）。
+     * 打开的批次数有上限，超过时先提交最早打开的批次，内存占用有界。
+     */
+    private static final class SmallFileBatcher {
+        private static final int MAX_OPEN_BATCHES = 32;
+
+        private final int maxFiles;
+        private final long maxBytes;
+        private final LinkedHashMap<String, Batch> open = new LinkedHashMap<>();
+
+        private static final class Batch {
+            final List<FileInfo> files = new ArrayList<>();
+            long bytes;
+        }
+
+        SmallFileBatcher(int maxFiles, long maxBytes) {
+            this.maxFiles = Math.max(1, maxFiles);
+            this.maxBytes = maxBytes;
+        }
+
+        /**
+         * 加入一个文件，某个批次攒满时返回该批次（否则返回 null）
+         */
+        List<FileInfo> add(FileInfo file) {
+            String dir = Paths.get(file.getFilePath()).getParent().toString();
+            Batch batch = open.get(dir);
+            if (batch == null) {
+                if (open.size() >= MAX_OPEN_BATCHES) {
+                    // 先提交最早打开的批次，再为新目录开批次（本次调用只返回一个批次）
+                    Iterator<Map.Entry<String, Batch>> it = open.entrySet().iterator();
+                    Batch eldest = it.next().getValue();
+                    it.remove();
+                    batch = new Batch();
+                    open.put(dir, batch);
+                    batch.files.add(file);
+                    batch.bytes += file.getFileSize();
+                    return eldest.files;
+                }
+                batch = new Batch();
+                open.put(dir, batch);
+            }
+            batch.files.add(file);
+            batch.bytes += file.getFileSize();
+            if (batch.files.size() >= maxFiles || batch.bytes >= maxBytes) {
+                open.remove(dir);
+                return batch.files;
+            }
+            return null;
+        }
+
+        /**
+         * 取出所有未攒满的批次
+         */
+        List<List<FileInfo>> drain() {
+            List<List<FileInfo>> rest = new ArrayList<>(open.size());
+            for (Batch batch : open.values()) {
+                rest.add(batch.files);
+            }
+            open.clear();
+            return rest;
+        }
+    }
+
+    /**
+     * 上传文件（支持配额超限时自动切换账号重试），成功 / 失败在这里上报，文件状态随进度刷新批量落库
+     *
+     * @param ctx 任务上下文
+     * @param file 投喂时读出的文件信息
+     * @param account 初始账号
+     * @return 上传是否成功（任务暂停/取消打断时返回 false，文件退回待上传，不计入失败）
+     */
+    private boolean uploadFileWithRetry(UploadContext ctx, FileInfo file, GdAccount account) {
+        Long taskId = ctx.taskId;
 
         // 最多尝试3次（初始账号 + 2次切换）
         int maxRetries = 3;
-        Long currentAccountId = accountId;
+        GdAccount currentAccount = account;
 
         for (int attempt = 1; attempt <= maxRetries; attempt++) {
             log.info("尝试上传文件 (第{}/{}次): taskId={}, fileId={}, fileName={}, accountId={}",
-                attempt, maxRetries, taskId, fileId, fileInfo.getFileName(), currentAccountId);
+                attempt, maxRetries, taskId, file.getId(), file.getFileName(), currentAccount.getId());
 
             // 尝试上传
-            UploadResult uploadResult = self.uploadFileInternal(taskId, fileId, currentAccountId);
+            UploadResult uploadResult = uploadFileInternal(ctx, file, currentAccount);
 
             if (uploadResult.isSuccess()) {
-                // 上传成功
+                // 上传成功（跳过的重复文件状态已直接写入）
+                reportUploadSuccess(ctx, file, currentAccount, !uploadResult.isSkipped());
                 return true;
             }
 
+            if (uploadResult.isInterrupted()) {
+                // 任务暂停/取消，不再切换账号重试
+                markPending(ctx, file);
+                return false;
+            }
+
             if (uploadResult.isQuotaExceeded() || uploadResult.isTimeout()) {
                 // 配额超限或超时，尝试切换账号
                 String reason = uploadResult.isQuotaExceeded() ? "配额超限" : "超时（可能IP被封）";
-                log.warn("账号{}，尝试切换账号: accountId={}, attempt={}/{}", reason, currentAccountId, attempt, maxRetries);
+                log.warn("账号{}，尝试切换账号: accountId={}, attempt={}/{}", reason, currentAccount.getId(), attempt, maxRetries);
 
-                // 获取下一个可用账号（使用轮询）
-                GdAccount nextAccount = gdAccountService.getNextAvailableAccountInRotation(taskId, fileInfo.getFileSize());
+                // 获取下一个可用账号（按调度策略）
+                GdAccount nextAccount = selectAccount(taskId, file.getFileSize(), ctx.sizeBalanced);
 
                 if (nextAccount == null) {
                     // 没有可用账号了
-                    log.error("没有更多可用账号，文件上传失败: fileId={}, fileName={}", fileId, fileInfo.getFileName());
-                    fileInfoService.updateFileStatus(fileId, 3, "所有账号配额不足");
+                    log.error("没有更多可用账号，文件上传失败: fileId={}, fileName={}", file.getId(), file.getFileName());
+                    reportUploadFailure(ctx, file, currentAccount, "所有账号配额不足");
                     return false;
                 }
 
                 // 切换到新账号
-                currentAccountId = nextAccount.getId();
-                log.info("切换到新账号: accountId={}, accountName={}", currentAccountId, nextAccount.getAccountName());
+                currentAccount = nextAccount;
+                log.info("切换到新账号: accountId={}, accountName={}", currentAccount.getId(), currentAccount.getAccountName());
 
                 // 继续下一次尝试
                 continue;
             } else {
                 // 其他错误，不重试
                 log.error("文件上传失败（非配额问题）: fileId={}, fileName={}, error={}",
-                    fileId, fileInfo.getFileName(), uploadResult.getErrorMessage());
+                    file.getId(), file.getFileName(), uploadResult.getErrorMessage());
+                reportUploadFailure(ctx, file, currentAccount, uploadResult.getErrorMessage());
                 return false;
             }
         }
 
         // 达到最大重试次数
-        log.error("文件上传失败，已达到最大重试次数: fileId={}, fileName={}", fileId, fileInfo.getFileName());
-        fileInfoService.updateFileStatus(fileId, 3, "达到最大重试次数");
+        log.error("文件上传失败，已达到最大重试次数: fileId={}, fileName={}", file.getId(), file.getFileName());
+        reportUploadFailure(ctx, file, currentAccount, "达到最大重试次数");
         return false;
     }
 
     @Override
     public boolean uploadFile(Long taskId, Long fileId, Long accountId) {
-        UploadResult result = self.uploadFileInternal(taskId, fileId, accountId);
-        return result.isSuccess();
+        UploadTask task = uploadTaskService.getTaskDetail(taskId);
+        FileInfo fileInfo = fileInfoService.getById(fileId);
+        GdAccount account = gdAccountService.getCachedAccount(accountId);
+        if (fileInfo == null || account == null || task == null) {
+            log.error("文件、账号或任务不存在: fileId={}, accountId={}, taskId={}", fileId, accountId, taskId);
+            return false;
+        }
+        // 单独上传一个文件：临时上下文，关闭时刷出文件状态
+        try (TaskProgressAggregator<FileEvent> progress = TaskProgressAggregator.<FileEvent>start(
+                taskId, progressFlushInterval, progressFlushFiles, snap -> {
+                    List<FileEvent> latest = latestPerFile(snap.getEvents());
+                    persistFileEvents(taskId, latest);
+                    pushFileEvents(taskId, latest, snap.getEvents());
+                })) {
+            UploadContext ctx = new UploadContext(task, formatMediaNames, new AtomicBoolean(false), progress);
+            return uploadFileWithRetry(ctx, fileInfo, account);
+        }
     }
 
     /**
-     * 内部上传方法，返回详细的上传结果
+     * 内部上传方法，返回详细的上传结果。
+     * <p>
+     * 任务、账号来自上下文，文件为投喂时读出的实体，不再重新查询；文件状态以事件形式随进度刷新批量落库，
+     * 传输前只同步写一条预写日志。
      */
-    @Override
-    @Transactional(rollbackFor = Exception.class)
-    public UploadResult uploadFileInternal(Long taskId, Long fileId, Long accountId) {
+    private UploadResult uploadFileInternal(UploadContext ctx, FileInfo fileInfo, GdAccount account) {
+        Long taskId = ctx.taskId;
+        Long fileId = fileInfo.getId();
+        Long accountId = account.getId();
         try {
-            FileInfo fileInfo = fileInfoService.getById(fileId);
-            GdAccount account = gdAccountService.getById(accountId);
-            UploadTask task = uploadTaskService.getTaskDetail(taskId);
-
-            if (fileInfo == null || account == null || task == null) {
-                log.error("文件、账号或任务不存在: fileId={}, accountId={}, taskId={}",
-                    fileId, accountId, taskId);
-                return UploadResult.failure("文件、账号或任务不存在");
-            }
-
             // 处理文件名中的特殊符号
             String originalFilePath = fileInfo.getFilePath();
             Path originalPath = Paths.get(originalFilePath);
@@ -488,15 +1039,14 @@ public class UploadServiceImpl implements IUploadService {
             String fileName = originalPath.getFileName().toString();
             String sanitizedFileName = sanitizeFileName(fileName);
 
-            // 更新文件状态为上传中
-            fileInfoService.updateFileStatus(fileId, 1, null);
+            // 更新文件状态为上传中（随进度刷新落库）
+            markUploading(ctx, fileInfo, accountId);
 
             // 检查文件是否存在
             Path filePath = Paths.get(originalFilePath);
             if (!Files.exists(filePath)) {
                 String errorMsg = "文件不存在: " + originalFilePath;
                 log.error(errorMsg);
-                fileInfoService.updateFileStatus(fileId, 3, errorMsg);
                 return UploadResult.failure(errorMsg);
             }
 
@@ -504,7 +1054,6 @@ public class UploadServiceImpl implements IUploadService {
             if (!Files.isRegularFile(filePath)) {
                 String errorMsg = "路径不是文件: " + originalFilePath;
                 log.error(errorMsg);
-                fileInfoService.updateFileStatus(fileId, 3, errorMsg);
                 return UploadResult.failure(errorMsg);
             }
 
@@ -516,7 +1065,7 @@ public class UploadServiceImpl implements IUploadService {
             log.info("原始文件名: {}", sanitizedFileName);
             log.info("是否为媒体文件: {}", isMediaFile(sanitizedFileName));
 
-            if (isMediaFile(sanitizedFileName)) {
+            if (ctx.formatMediaNames && isMediaFile(sanitizedFileName)) {
                 try {
                     log.info(">>> 步骤1: 解析文件名");
                     // 1. 解析当前文件名
@@ -539,8 +1088,8 @@ public class UploadServiceImpl implements IUploadService {
                         log.info(">>> 步骤3: 开始ffprobe探测");
                         log.info("探测文件路径: {}", filePath.toString());
 
-                        // 3. 本地 ffprobe 探测（很快，0.1秒）
-                        com.gdupload.dto.MediaInfoDto mediaInfo = archiveService.getMediaInfo(filePath.toString(), null);
+                        // 3. 本地 ffprobe 探测（按 路径+大小+修改时间 缓存；同目录同发布组的剧集沿用首集结果）
+                        com.gdupload.dto.MediaInfoDto mediaInfo = mediaInfoProber.probe(filePath, analyzed);
 
                         if (mediaInfo != null) {
                             log.info("ffprobe探测成功 - 分辨率: {}, 视频编码: {}, 音频编码: {}",
@@ -584,10 +1133,14 @@ public class UploadServiceImpl implements IUploadService {
 
                                     log.info("✓ 文件格式化成功: {} → {}", sanitizedFileName, newFileName);
 
-                                    // 更新 FileInfo 中的文件名和路径
+                                    // 更新 FileInfo 中的文件名和路径（本地文件已改名，需立即落库；只写这两列）
                                     fileInfo.setFileName(newFileName);
                                     fileInfo.setFilePath(newFilePath.toString());
-                                    fileInfoService.updateById(fileInfo);
+                                    FileInfo renamed = new FileInfo();
+                                    renamed.setId(fileId);
+                                    renamed.setFileName(newFileName);
+                                    renamed.setFilePath(newFilePath.toString());
+                                    fileInfoService.updateById(renamed);
                                     log.info("✓ 数据库已更新");
                                 } else {
                                     log.info("新旧文件名相同，无需重命名");
@@ -612,17 +1165,14 @@ public class UploadServiceImpl implements IUploadService {
                     // 格式化失败不影响上传，继续使用原文件名
                 }
             } else {
-                log.info("非媒体文件，跳过格式化");
+                log.info("非媒体文件或未启用格式化，跳过格式化");
             }
             log.info("========== 文件格式化检查完成 ==========");
             log.info("最终文件名: {}", finalFileName);
             // ═══════════════════════════════════════════════
 
             // 构建完整的目标文件路径（包含文件名）
-            String targetPath = task.getTargetPath();
-            if (!targetPath.endsWith("/")) {
-                targetPath += "/";
-            }
+            String targetPath = ctx.targetDir;
 
             // 构建完整的远程文件路径（目录 + 文件名）
             String remoteFilePath = targetPath + finalFileName;
@@ -631,13 +1181,40 @@ public class UploadServiceImpl implements IUploadService {
                 finalFilePath, account.getRcloneConfigName(), remoteFilePath,
                 formatSize(fileInfo.getFileSize()));
 
+            // 目标文件已存在且内容相同（如任务崩溃前已传完）：不再启动传输
+            if (isRemoteDuplicate(fileInfo, finalFilePath, account.getRcloneConfigName(), targetPath, finalFileName)) {
+                skipDuplicate(fileInfo, finalFilePath, accountId, finalFileName);
+                return UploadResult.skipped("目标目录已存在相同文件: " + finalFileName);
+            }
+
             // 使用 rclone moveto 直接上传文件到指定路径（文件到文件）
-            RcloneResult result = rcloneUtil.uploadSingleFileTo(
-                finalFilePath.toString(),             // 本地文件路径（可能已重命名）
-                account.getRcloneConfigName(),        // remoteName
-                remoteFilePath,                       // 完整远程文件路径（含文件名）
-                line -> log.debug("上传进度: {}", line)  // logConsumer
-            );
+            long uploadBytes = fileInfo.getFileSize() != null ? fileInfo.getFileSize() : 0L;
+            // 占用账号的自适应并发名额（名额已满时等待，任务暂停/取消时退出）
+            if (!concurrencyLimiter.acquire(accountId)) {
+                return UploadResult.interrupted("任务已停止，等待上传名额时退出");
+            }
+            RcloneResult result = null;
+            // 预写日志：进程崩溃后启动时据此核对远端并续传（文件状态落库后删除）
+            uploadJournal.begin(taskId, fileId, accountId, finalFilePath.toString(), remoteFilePath, fileInfo.getFileSize());
+            accountRegistry.beginUpload(accountId, uploadBytes);
+            // 实时吞吐采集：解析 rclone JSON stats，按任务/账号汇总推送
+            try (ITransferTelemetryService.Tracker tracker = telemetryService.track(taskId, accountId,
+                    line -> log.debug("上传进度: {}", line))) {
+                result = rcloneUtil.uploadSingleFileTo(
+                    finalFilePath.toString(),             // 本地文件路径（可能已重命名）
+                    account.getRcloneConfigName(),        // remoteName
+                    remoteFilePath,                       // 完整远程文件路径（含文件名）
+                    tracker                               // logConsumer
+                );
+            } finally {
+                accountRegistry.endUpload(accountId, uploadBytes);
+                concurrencyLimiter.release(accountId, result != null && result.isSuccess() ? uploadBytes : 0L,
+                    result != null ? result.getRateLimitHits() : 0);
+            }
+            // 中断不计入账号错误率
+            if (!result.isInterrupted()) {
+                accountRegistry.recordOutcome(accountId, !result.isSuccess());
+            }
 
             // 检查是否配额超限
             if (result.isQuotaExceeded()) {
@@ -646,18 +1223,19 @@ public class UploadServiceImpl implements IUploadService {
                     account.getId(), account.getAccountName(), account.getStatus());
                 log.error("错误信息: {}", result.getErrorMessage());
 
-                // 记录禁用时间
+                // 禁用账号并记录禁用时间（account 为注册表缓存实例，只写需要变更的列）
                 LocalDateTime now = DateTimeUtil.now();
-                account.setDisabledTime(now);
-
-                // 禁用账号
                 Integer oldStatus = account.getStatus();
-                account.setStatus(0);
+                GdAccount disabled = new GdAccount();
+                disabled.setId(account.getId());
+                disabled.setStatus(0);
+                disabled.setDisabledTime(now);
+                accountRegistry.markCooldown(account.getId());
 
                 log.error("准备更新账号状态: {} -> 0 (禁用)", oldStatus);
                 log.error("禁用时间: {}",
                     now.format(java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-                boolean updateResult = gdAccountService.updateById(account);
+                boolean updateResult = gdAccountService.updateById(disabled);
                 log.error("账号状态更新结果: {}, 账号ID: {}", updateResult ? "成功" : "失败", account.getId());
 
                 // 验证更新是否成功
@@ -684,18 +1262,19 @@ public class UploadServiceImpl implements IUploadService {
                     account.getId(), account.getAccountName(), account.getStatus());
                 log.error("错误信息: {}", result.getErrorMessage());
 
-                // 记录禁用时间
+                // 禁用账号并记录禁用时间（account 为注册表缓存实例，只写需要变更的列）
                 LocalDateTime now = DateTimeUtil.now();
-                account.setDisabledTime(now);
-
-                // 禁用账号
                 Integer oldStatus = account.getStatus();
-                account.setStatus(0);
+                GdAccount disabled = new GdAccount();
+                disabled.setId(account.getId());
+                disabled.setStatus(0);
+                disabled.setDisabledTime(now);
+                accountRegistry.markCooldown(account.getId());
 
                 log.error("准备更新账号状态: {} -> 0 (禁用)", oldStatus);
                 log.error("禁用时间: {}",
                     now.format(java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-                boolean updateResult = gdAccountService.updateById(account);
+                boolean updateResult = gdAccountService.updateById(disabled);
                 log.error("账号状态更新结果: {}, 账号ID: {}", updateResult ? "成功" : "失败", account.getId());
 
                 // 验证更新是否成功
@@ -715,31 +1294,18 @@ public class UploadServiceImpl implements IUploadService {
                 return UploadResult.timeout(errorMsg);
             }
 
-            if (result.isSuccess()) {
-                // 标记文件为已上传
-                fileInfoService.markFileAsUploaded(fileId, accountId);
-
-                // 插入上传记录（用于实时计算配额）
-                UploadRecord uploadRecord = new UploadRecord();
-                uploadRecord.setTaskId(taskId);
-                uploadRecord.setAccountId(accountId);
-                uploadRecord.setFileId(fileId);
-                uploadRecord.setUploadSize(fileInfo.getFileSize());
-                uploadRecord.setUploadTime(DateTimeUtil.now());
-                uploadRecord.setStatus(1); // 1-成功
-
-                log.info("准备插入上传记录: taskId={}, accountId={}, fileId={}, size={}, uploadTime={}",
-                    taskId, accountId, fileId, fileInfo.getFileSize(), uploadRecord.getUploadTime());
-
-                int insertResult = uploadRecordMapper.insert(uploadRecord);
-
-                log.info("上传记录插入结果: insertResult={}, recordId={}", insertResult, uploadRecord.getId());
+            if (result.isInterrupted()) {
+                // 任务暂停/取消终止了 rclone 进程：文件退回待上传，恢复后重新上传
+                return UploadResult.interrupted(result.getErrorMessage());
+            }
 
-                // 验证插入是否成功
-                Long todayUsed = gdAccountService.getTodayUsedQuota(accountId);
-                log.info("插入后查询今日已使用配额: accountId={}, todayUsed={}", accountId, todayUsed);
+            if (result.isSuccess()) {
+                // 文件状态与 upload_record 上传记录由上层上报成功后随进度刷新批量写入
+                remoteHashIndex.record(account.getRcloneConfigName(), targetPath, finalFileName,
+                    uploadBytes, fileInfo.getFileMd5());
+                fileHashCache.invalidate(finalFilePath);
 
-                // 更新账号配额状态（检查是否达到上限）
+                // 累加账号滚动24小时上传量（检查是否接近上限）
                 gdAccountService.updateAccountQuota(accountId, fileInfo.getFileSize());
 
                 // 已移除上传后的探测逻辑（账号管理页面的探测功能保留）
@@ -748,14 +1314,13 @@ public class UploadServiceImpl implements IUploadService {
 
                 return UploadResult.success();
             } else {
-                // 标记文件为失败
-                fileInfoService.updateFileStatus(fileId, 3, "上传失败");
+                // 目标目录可能已在本服务之外被删除：清除目录记录，重试时重新 mkdir 确认
+                remoteDirPlanner.forget(account.getRcloneConfigName(), targetPath);
                 return UploadResult.failure("上传失败: " + result.getErrorMessage());
             }
 
         } catch (Exception e) {
             log.error("上传文件异常: fileId={}, accountId={}", fileId, accountId, e);
-            fileInfoService.updateFileStatus(fileId, 3, e.getMessage());
             return UploadResult.failure(e.getMessage());
         }
     }
@@ -767,12 +1332,6 @@ public class UploadServiceImpl implements IUploadService {
         // 先设置状态为6(暂停中)
         uploadTaskService.pauseTask(taskId);
 
-        // 同时设置本地 stopFlag，让工作线程立即停止（不依赖监控线程的1秒DB轮询延迟）
-        AtomicBoolean localFlag = taskStopFlags.get(taskId);
-        if (localFlag != null) {
-            localFlag.set(true);
-        }
-
         // 通过 TaskPauseManager 请求暂停，当所有线程结束后自动变为3(已暂停)
         TaskPauseManager.requestPause(taskId, id -> {
             uploadTaskService.completePause(id);
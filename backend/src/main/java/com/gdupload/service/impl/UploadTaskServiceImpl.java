@@ -9,6 +9,8 @@ import com.gdupload.mapper.UploadTaskMapper;
 import com.gdupload.service.ISystemLogService;
 import com.gdupload.service.IUploadTaskService;
 import com.gdupload.util.DateTimeUtil;
+import com.gdupload.util.FairShareUploadExecutor;
+import com.gdupload.util.TaskPauseManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -30,6 +32,7 @@ public class UploadTaskServiceImpl extends ServiceImpl<UploadTaskMapper, UploadT
 
     private final ISystemLogService systemLogService;
     private final FileInfoMapper fileInfoMapper;
+    private final FairShareUploadExecutor uploadScheduler;
 
     @Override
     public Page<UploadTask> pageTasks(Page<UploadTask> page, String keyword, Integer status) {
@@ -86,6 +89,20 @@ public class UploadTaskServiceImpl extends ServiceImpl<UploadTaskMapper, UploadT
     @Override
     @Transactional(rollbackFor = Exception.class)
     public Long createTask(String taskName, String sourcePath, String targetPath, List<String> fileList) {
+        return createTask(taskName, sourcePath, targetPath, fileList, 0);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public Long createTask(String taskName, String sourcePath, String targetPath, List<String> fileList,
+                           Integer schedulePolicy) {
+        return createTask(taskName, sourcePath, targetPath, fileList, schedulePolicy, FairShareUploadExecutor.DEFAULT_PRIORITY);
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public Long createTask(String taskName, String sourcePath, String targetPath, List<String> fileList,
+                           Integer schedulePolicy, Integer priority) {
         UploadTask task = new UploadTask();
         task.setTaskName(taskName);
         task.setSourcePath(sourcePath);
@@ -96,6 +113,8 @@ public class UploadTaskServiceImpl extends ServiceImpl<UploadTaskMapper, UploadT
         task.setUploadedSize(0L);
         task.setProgress(0);
         task.setStatus(0); // 待开始
+        task.setSchedulePolicy(schedulePolicy != null ? schedulePolicy : 0);
+        task.setPriority(FairShareUploadExecutor.normalize(priority));
         task.setCreateTime(DateTimeUtil.now());
 
         boolean saved = this.save(task);
@@ -136,6 +155,8 @@ public class UploadTaskServiceImpl extends ServiceImpl<UploadTaskMapper, UploadT
 
         if (updated) {
             log.info("启动任务成功: taskId={}", taskId);
+            // 新的一次执行：之前（如取消已暂停的任务时）留下的停止信号不再生效
+            TaskPauseManager.beginRun(taskId);
         }
 
         return updated;
@@ -156,6 +177,9 @@ public class UploadTaskServiceImpl extends ServiceImpl<UploadTaskMapper, UploadT
         if (updated) {
             log.info("暂停任务（暂停中）: taskId={}", taskId);
 
+            // 进程内直接通知运行中的任务停止（置 stopFlag 并终止正在执行的 rclone 进程）
+            TaskPauseManager.signalStop(taskId);
+
             // 记录任务暂停日志
             systemLogService.logTaskOperation(taskId, task.getTaskName(), "TASK_PAUSE",
                 String.format("暂停任务 - 已上传: %d/%d, 进度: %d%%",
@@ -201,6 +225,8 @@ public class UploadTaskServiceImpl extends ServiceImpl<UploadTaskMapper, UploadT
 
         if (updated) {
             log.info("恢复任务成功: taskId={}", taskId);
+            // 之前的暂停信号若还未被取走，不能作用到这次恢复后的执行上
+            TaskPauseManager.beginRun(taskId);
 
             // 记录任务恢复日志
             systemLogService.logTaskOperation(taskId, task.getTaskName(), "TASK_RESUME",
@@ -227,6 +253,9 @@ public class UploadTaskServiceImpl extends ServiceImpl<UploadTaskMapper, UploadT
         if (updated) {
             log.info("取消任务成功: taskId={}", taskId);
 
+            // 进程内直接通知运行中的任务停止（置 stopFlag 并终止正在执行的 rclone 进程）
+            TaskPauseManager.signalStop(taskId);
+
             // 记录任务取消日志
             systemLogService.logTaskOperation(taskId, task.getTaskName(), "TASK_CANCEL",
                 String.format("取消任务 - 已上传: %d/%d, 进度: %d%%",
@@ -253,6 +282,8 @@ public class UploadTaskServiceImpl extends ServiceImpl<UploadTaskMapper, UploadT
 
         if (updated) {
             log.info("重试任务成功: taskId={}", taskId);
+            // 之前的取消 / 暂停信号若还未被取走，不能作用到这次重试的执行上
+            TaskPauseManager.beginRun(taskId);
 
             // 记录任务重试日志
             systemLogService.logTaskOperation(taskId, task.getTaskName(), "TASK_RETRY",
@@ -263,6 +294,21 @@ public class UploadTaskServiceImpl extends ServiceImpl<UploadTaskMapper, UploadT
         return updated;
     }
 
+    @Override
+    public boolean updatePriority(Long taskId, Integer priority) {
+        int normalized = FairShareUploadExecutor.normalize(priority);
+        // 只更新优先级列，避免覆盖后台线程写入的进度
+        UploadTask update = new UploadTask();
+        update.setId(taskId);
+        update.setPriority(normalized);
+        boolean updated = this.updateById(update);
+        if (updated) {
+            uploadScheduler.setPriority(taskId, normalized);
+            log.info("修改任务优先级: taskId={}, priority={}", taskId, normalized);
+        }
+        return updated;
+    }
+
     @Override
     public UploadTask getTaskDetail(Long taskId) {
         return this.getById(taskId);
@@ -271,16 +317,14 @@ public class UploadTaskServiceImpl extends ServiceImpl<UploadTaskMapper, UploadT
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean updateTaskProgress(Long taskId, Integer uploadedCount, Long uploadedSize, Integer progress) {
-        UploadTask task = this.getById(taskId);
-        if (task == null) {
-            return false;
-        }
-
-        task.setUploadedCount(uploadedCount);
-        task.setUploadedSize(uploadedSize);
-        task.setProgress(progress);
-
-        return this.updateById(task);
+        // 只更新进度列：进度由后台线程异步刷新，整行回写会覆盖期间发生的状态变更（暂停/取消）
+        UploadTask update = new UploadTask();
+        update.setId(taskId);
+        update.setUploadedCount(uploadedCount);
+        update.setUploadedSize(uploadedSize);
+        update.setProgress(progress);
+
+        return this.updateById(update);
     }
 
     @Override
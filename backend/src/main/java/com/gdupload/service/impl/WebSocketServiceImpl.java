@@ -10,6 +10,7 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -86,4 +87,30 @@ public class WebSocketServiceImpl implements IWebSocketService {
         log.debug("推送文件状态: taskId={}, fileId={}, fileName={}, status={}",
             taskId, fileId, fileName, status);
     }
+
+    @Override
+    public void pushTaskThroughput(Long taskId, Long bytesPerSecond, Long etaSeconds, Integer activeTransfers,
+                                   List<Map<String, Object>> transferring) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("type", "TASK_THROUGHPUT");
+        message.put("taskId", taskId);
+        message.put("speed", bytesPerSecond);
+        message.put("eta", etaSeconds);
+        message.put("activeTransfers", activeTransfers);
+        message.put("transferring", transferring);
+        message.put("timestamp", DateTimeUtil.now().format(TIME_FORMATTER));
+
+        // 每秒一次，只推送到特定任务的订阅者
+        messagingTemplate.convertAndSend("/topic/task/" + taskId, message);
+    }
+
+    @Override
+    public void pushAccountThroughput(List<Map<String, Object>> accounts) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("type", "ACCOUNT_THROUGHPUT");
+        message.put("accounts", accounts);
+        message.put("timestamp", DateTimeUtil.now().format(TIME_FORMATTER));
+
+        messagingTemplate.convertAndSend("/topic/accounts/throughput", message);
+    }
 }
@@ -0,0 +1,365 @@
+package com.gdupload.util;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.gdupload.entity.GdAccount;
+import com.gdupload.mapper.GdAccountMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 账号内存注册表
+ * <p>
+ * 缓存全部 {@link GdAccount}（启用账号按创建时间倒序单独成组），并维护每个账号的实时状态：
+ * 在途上传数与在途字节数、近期错误率（指数滑动平均）、配额/超时错误后的冷却期。
+ * 上传时的账号选择只读不可变快照 + 原子游标，不查库、不加锁。
+ * <p>
+ * 账号新增/修改/启停/删除后调用 {@link #invalidate()}，下次访问时重新加载；
+ * 账号实时状态按 ID 保留，重新加载不会丢失。
+ * <p>
+ * 缓存中的 GdAccount 对象为共享只读实例，调用方不要修改后直接写回数据库。
+ *
+ * @author GD Upload Manager
+ * @since 2026-01-26
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AccountRegistry {
+
+    private final GdAccountMapper gdAccountMapper;
+    private final AccountUsageLedger usageLedger;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    /** 配额超限/超时后的冷却时间（分钟），冷却期内不参与选择 */
+    @Value("${app.account.error-cooldown-minutes:60}")
+    private long errorCooldownMinutes;
+
+    /** 近期错误率超过该值的账号仅在没有更健康账号时才会被选中 */
+    @Value("${app.account.max-error-rate:0.5}")
+    private double maxErrorRate;
+
+    /** 当前快照，null 表示需要重新加载 */
+    private volatile Snapshot snapshot;
+
+    /** 账号实时状态（accountId -> state），跨快照保留 */
+    private final Map<Long, AccountState> states = new ConcurrentHashMap<>();
+
+    /** 每个任务的轮询游标 */
+    private final Map<Long, AtomicInteger> taskCursors = new ConcurrentHashMap<>();
+
+    // ─── 快照 ───────────────────────────────────────────────────
+
+    private static final class Snapshot {
+        /** 启用账号（status=1），顺序与 selectAvailableAccounts 一致 */
+        final AccountState[] enabled;
+        /** 全部账号 */
+        final Map<Long, AccountState> all;
+
+        Snapshot(AccountState[] enabled, Map<Long, AccountState> all) {
+            this.enabled = enabled;
+            this.all = all;
+        }
+    }
+
+    /**
+     * 单个账号的实时状态
+     */
+    public static final class AccountState {
+        private volatile GdAccount account;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong inFlightBytes = new AtomicLong();
+        private volatile double errorRate;
+        private volatile long cooldownUntil;
+
+        public GdAccount getAccount() {
+            return account;
+        }
+
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        public long getInFlightBytes() {
+            return inFlightBytes.get();
+        }
+
+        public double getErrorRate() {
+            return errorRate;
+        }
+
+        public long getCooldownUntil() {
+            return cooldownUntil;
+        }
+
+        public boolean isCoolingDown(long now) {
+            return cooldownUntil > now;
+        }
+
+        private synchronized void recordOutcome(boolean failed) {
+            // 指数滑动平均，约等于最近 10 次上传的失败比例
+            errorRate = errorRate * 0.9 + (failed ? 0.1 : 0.0);
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot snap = snapshot;
+        if (snap != null) {
+            return snap;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = load();
+            }
+            return snapshot;
+        }
+    }
+
+    private Snapshot load() {
+        List<GdAccount> accounts = gdAccountMapper.selectList(new LambdaQueryWrapper<GdAccount>()
+                .orderByDesc(GdAccount::getCreateTime));
+
+        Map<Long, AccountState> all = new HashMap<>(accounts.size() * 2);
+        List<AccountState> enabled = new ArrayList<>();
+        for (GdAccount account : accounts) {
+            AccountState state = states.computeIfAbsent(account.getId(), id -> new AccountState());
+            state.account = account;
+            all.put(account.getId(), state);
+            if (account.getStatus() != null && account.getStatus() == 1) {
+                enabled.add(state);
+            }
+        }
+        // 已删除账号的状态不再保留
+        states.keySet().retainAll(all.keySet());
+
+        log.info("账号注册表已加载: 总数={}, 启用={}", all.size(), enabled.size());
+        return new Snapshot(enabled.toArray(new AccountState[0]), all);
+    }
+
+    /**
+     * 使缓存失效（账号新增/修改/启停/删除后调用）。
+     * <p>
+     * 处于事务中时在事务提交后失效，避免其它线程在提交前重新加载到旧数据。
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    snapshot = null;
+                }
+            });
+        }
+        snapshot = null;
+    }
+
+    // ─── 查询 ───────────────────────────────────────────────────
+
+    /**
+     * 按ID获取账号（缓存实例，只读）
+     */
+    public GdAccount getAccount(Long accountId) {
+        if (accountId == null) return null;
+        AccountState state = snapshot().all.get(accountId);
+        return state != null ? state.account : null;
+    }
+
+    /**
+     * 启用账号列表（新列表，元素为缓存实例）
+     */
+    public List<GdAccount> getEnabledAccounts() {
+        AccountState[] enabled = snapshot().enabled;
+        List<GdAccount> result = new ArrayList<>(enabled.length);
+        for (AccountState state : enabled) {
+            result.add(state.account);
+        }
+        return result;
+    }
+
+    /**
+     * 全部账号的实时状态（监控用）
+     */
+    public List<AccountState> getStates() {
+        return Collections.unmodifiableList(new ArrayList<>(snapshot().all.values()));
+    }
+
+    public AccountState getState(Long accountId) {
+        return accountId != null ? snapshot().all.get(accountId) : null;
+    }
+
+    // ─── 选择 ───────────────────────────────────────────────────
+
+    /**
+     * 为任务轮询选择一个健康账号：跳过冷却中和滚动24小时剩余额度不足的账号；
+     * 自适应并发名额已满的账号、错误率过高的账号依次作为兜底。
+     *
+     * @param requiredSize 待上传文件大小（字节），为 null 时不检查额度
+     * @return 选中的账号；没有满足条件的账号时返回 null
+     */
+    public GdAccount select(Long taskId, Long requiredSize) {
+        AccountState[] enabled = snapshot().enabled;
+        int n = enabled.length;
+        if (n == 0) {
+            return null;
+        }
+
+        int start = Math.floorMod(taskCursors.computeIfAbsent(taskId, id -> new AtomicInteger()).getAndIncrement(), n);
+        long now = System.currentTimeMillis();
+        AccountState busy = null;
+        AccountState fallback = null;
+        for (int i = 0; i < n; i++) {
+            AccountState state = enabled[(start + i) % n];
+            if (state.isCoolingDown(now)) {
+                continue;
+            }
+            if (requiredSize != null && availableBytes(state) < requiredSize) {
+                continue;
+            }
+            if (state.errorRate <= maxErrorRate) {
+                if (concurrencyLimiter.hasCapacity(state.account.getId())) {
+                    return state.account;
+                }
+                if (busy == null) {
+                    busy = state;
+                }
+            } else if (fallback == null) {
+                fallback = state;
+            }
+        }
+        if (busy != null) {
+            return busy.account;
+        }
+        return fallback != null ? fallback.account : null;
+    }
+
+    /**
+     * 按剩余额度均衡选择账号（worst-fit）：在可放下该文件的健康账号中，选滚动24小时剩余额度
+     * 减去在途字节后最多的一个，让大文件落到最空的账号上，各账号额度尽量同步消耗。
+     * 剩余额度相同时从轮询游标位置开始取第一个，避免总是压在同一个账号上。
+     * 自适应并发名额未满的账号优先。
+     *
+     * @param requiredSize 待上传文件大小（字节），为 null 时按 0 处理
+     * @return 选中的账号；没有满足条件的账号时返回 null
+     */
+    public GdAccount selectBalanced(Long taskId, Long requiredSize) {
+        AccountState[] enabled = snapshot().enabled;
+        int n = enabled.length;
+        if (n == 0) {
+            return null;
+        }
+
+        long size = requiredSize != null ? requiredSize : 0L;
+        int start = Math.floorMod(taskCursors.computeIfAbsent(taskId, id -> new AtomicInteger()).getAndIncrement(), n);
+        long now = System.currentTimeMillis();
+        AccountState best = null;
+        long bestAvailable = -1;
+        AccountState busy = null;
+        long busyAvailable = -1;
+        AccountState fallback = null;
+        long fallbackAvailable = -1;
+        for (int i = 0; i < n; i++) {
+            AccountState state = enabled[(start + i) % n];
+            if (state.isCoolingDown(now)) {
+                continue;
+            }
+            long available = availableBytes(state);
+            if (available < size) {
+                continue;
+            }
+            if (state.errorRate <= maxErrorRate) {
+                if (!concurrencyLimiter.hasCapacity(state.account.getId())) {
+                    if (available > busyAvailable) {
+                        busy = state;
+                        busyAvailable = available;
+                    }
+                } else if (available > bestAvailable) {
+                    best = state;
+                    bestAvailable = available;
+                }
+            } else if (available > fallbackAvailable) {
+                fallback = state;
+                fallbackAvailable = available;
+            }
+        }
+        if (best != null) {
+            return best.account;
+        }
+        if (busy != null) {
+            return busy.account;
+        }
+        return fallback != null ? fallback.account : null;
+    }
+
+    /**
+     * 账号当前可分配的字节数：滚动24小时剩余额度 - 在途上传字节
+     */
+    private long availableBytes(AccountState state) {
+        return usageLedger.getRemainingBytes(state.account.getId()) - state.inFlightBytes.get();
+    }
+
+    public boolean hasEnabledAccounts() {
+        return snapshot().enabled.length > 0;
+    }
+
+    public void clearTask(Long taskId) {
+        taskCursors.remove(taskId);
+    }
+
+    // ─── 实时状态 ─────────────────────────────────────────────────
+
+    /** 开始上传（在途数 +1，在途字节 +bytes） */
+    public void beginUpload(Long accountId, long bytes) {
+        AccountState state = getState(accountId);
+        if (state != null) {
+            state.inFlight.incrementAndGet();
+            state.inFlightBytes.addAndGet(Math.max(0L, bytes));
+        }
+    }
+
+    /** 结束上传（与 beginUpload 成对调用） */
+    public void endUpload(Long accountId, long bytes) {
+        AccountState state = getState(accountId);
+        if (state != null) {
+            state.inFlight.decrementAndGet();
+            state.inFlightBytes.addAndGet(-Math.max(0L, bytes));
+        }
+    }
+
+    /** 记录一次上传结果，用于计算近期错误率 */
+    public void recordOutcome(Long accountId, boolean failed) {
+        AccountState state = getState(accountId);
+        if (state != null) {
+            state.recordOutcome(failed);
+        }
+    }
+
+    /** 配额超限/超时后进入冷却期 */
+    public void markCooldown(Long accountId) {
+        AccountState state = getState(accountId);
+        if (state != null) {
+            state.cooldownUntil = System.currentTimeMillis() + errorCooldownMinutes * 60_000L;
+            log.warn("账号进入冷却期: accountId={}, {} 分钟", accountId, errorCooldownMinutes);
+        }
+    }
+
+    /** 清除冷却期与错误率（手动启用账号时调用） */
+    public void resetHealth(Long accountId) {
+        AccountState state = states.get(accountId);
+        if (state != null) {
+            state.cooldownUntil = 0;
+            state.errorRate = 0;
+        }
+    }
+}
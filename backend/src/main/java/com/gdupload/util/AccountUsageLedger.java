@@ -0,0 +1,162 @@
+package com.gdupload.util;
+
+import com.gdupload.mapper.UploadRecordMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 账号滚动24小时上传量账本（内存）
+ * <p>
+ * 每个账号一个 5 分钟粒度的环形桶（共 288 个），维护窗口内总字节数，查询 O(1)。
+ * 启动后首次访问时按 upload_record（upload_time 范围）回填过去24小时数据，
+ * 之后每次上传成功由 {@link #record(Long, long)} 增量累加。
+ * <p>
+ * 用于：账号轮询时按剩余额度过滤（Google Drive 每账号每24小时 750GB 上传上限），
+ * 以及仪表盘的上传量统计。
+ *
+ * @author GD Upload Manager
+ * @since 2026-01-26
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AccountUsageLedger {
+
+    private static final long BUCKET_MILLIS = 5 * 60_000L;
+    private static final int BUCKET_COUNT = 288; // 24h / 5min
+
+    private final UploadRecordMapper uploadRecordMapper;
+
+    /** 每账号每24小时上传上限（字节） */
+    @Value("${app.account.daily-limit:805306368000}")
+    private long dailyLimit;
+
+    private final Map<Long, Window> windows = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    /**
+     * 单个账号的滑动窗口
+     */
+    private static final class Window {
+        private final long[] slotIds = new long[BUCKET_COUNT];
+        private final long[] bytes = new long[BUCKET_COUNT];
+        private long total;
+        private long sweptSlot = -1;
+
+        synchronized void add(long slot, long size) {
+            int idx = (int) Math.floorMod(slot, (long) BUCKET_COUNT);
+            if (slot < slotIds[idx]) {
+                return; // 比桶内数据还旧，已在窗口之外
+            }
+            if (slotIds[idx] != slot) {
+                // 桶已过期（属于24小时之前），复用前先扣除
+                total -= bytes[idx];
+                bytes[idx] = 0;
+                slotIds[idx] = slot;
+            }
+            bytes[idx] += size;
+            total += size;
+        }
+
+        synchronized long sum(long currentSlot) {
+            // 每个桶周期最多清扫一次过期桶，其余时间直接返回累计值
+            if (currentSlot != sweptSlot) {
+                long oldest = currentSlot - BUCKET_COUNT + 1;
+                for (int i = 0; i < BUCKET_COUNT; i++) {
+                    if (bytes[i] != 0 && slotIds[i] < oldest) {
+                        total -= bytes[i];
+                        bytes[i] = 0;
+                    }
+                }
+                sweptSlot = currentSlot;
+            }
+            return total;
+        }
+    }
+
+    private static long currentSlot() {
+        return System.currentTimeMillis() / BUCKET_MILLIS;
+    }
+
+    /**
+     * 首次访问时从 upload_record 回填过去24小时的上传量
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            // 起点对齐到桶边界（窗口内最旧的桶），SQL 算出的桶序号与内存中按纪元划分的桶一一对应
+            long sinceSlot = currentSlot() - BUCKET_COUNT + 1;
+            LocalDateTime since = LocalDateTime.ofInstant(Instant.ofEpochMilli(sinceSlot * BUCKET_MILLIS),
+                DateTimeUtil.ZONE_SHANGHAI);
+            try {
+                List<Map<String, Object>> rows = uploadRecordMapper.selectUsageBuckets(since, (int) (BUCKET_MILLIS / 60_000L));
+                long totalBytes = 0;
+                for (Map<String, Object> row : rows) {
+                    Long accountId = ((Number) row.get("account_id")).longValue();
+                    long bucket = ((Number) row.get("bucket")).longValue();
+                    long size = ((Number) row.get("total_size")).longValue();
+                    long slot = sinceSlot + bucket;
+                    window(accountId).add(slot, size);
+                    totalBytes += size;
+                }
+                log.info("账号上传量账本已回填: 账号数={}, 24小时上传量={}", windows.size(), totalBytes);
+            } catch (Exception e) {
+                // 回填失败不影响上传，仅统计从本次启动开始计算
+                log.error("账号上传量账本回填失败: {}", e.getMessage());
+            }
+            loaded = true;
+        }
+    }
+
+    private Window window(Long accountId) {
+        return windows.computeIfAbsent(accountId, id -> new Window());
+    }
+
+    /**
+     * 记录一次成功上传
+     */
+    public void record(Long accountId, long size) {
+        if (accountId == null || size <= 0) {
+            return;
+        }
+        ensureLoaded();
+        window(accountId).add(currentSlot(), size);
+    }
+
+    /**
+     * 账号过去24小时已上传字节数
+     */
+    public long getUsedBytes(Long accountId) {
+        if (accountId == null) {
+            return 0L;
+        }
+        ensureLoaded();
+        Window window = windows.get(accountId);
+        return window != null ? window.sum(currentSlot()) : 0L;
+    }
+
+    /**
+     * 账号过去24小时剩余可上传字节数
+     */
+    public long getRemainingBytes(Long accountId) {
+        return Math.max(0L, dailyLimit - getUsedBytes(accountId));
+    }
+
+    public long getDailyLimit() {
+        return dailyLimit;
+    }
+}
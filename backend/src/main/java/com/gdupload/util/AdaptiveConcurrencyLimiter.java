@@ -0,0 +1,265 @@
+package com.gdupload.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按账号自适应的上传并发控制（AIMD）
+ * <p>
+ * 每个账号维护一个并发上限，上传前 {@link #acquire(Long)} 占用一个名额，结束后 {@link #release} 归还并反馈结果：
+ * <ul>
+ *   <li>乘性减：rclone 输出中出现限流错误（403 rateLimitExceeded / 429 等）时上限减半，
+ *       之后 hold 一段时间内不再加减，避免同一波限流连续减半</li>
+ *   <li>加性增：一个统计窗口内没有限流、并发曾经跑满、且吞吐没有下降时上限 +1；
+ *       上一次加并发后吞吐明显下降则退回 -1（带宽已饱和，继续加只会增加 API 压力）</li>
+ * </ul>
+ * 账号轮询时跳过已跑满的账号（见 {@link AccountRegistry#select}），都跑满时 acquire 阻塞等待。
+ *
+ * @author GD Upload Manager
+ * @since 2026-02-23
+ */
+@Slf4j
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    @Value("${app.upload.adaptive.enabled:true}")
+    private boolean enabled;
+
+    /** 新账号的初始并发上限 */
+    @Value("${app.upload.adaptive.initial-per-account:4}")
+    private int initialLimit;
+
+    @Value("${app.upload.adaptive.min-per-account:1}")
+    private int minLimit;
+
+    /** 单账号并发上限的最大值（不会超过上传线程池大小 app.upload.concurrent-files） */
+    @Value("${app.upload.adaptive.max-per-account:20}")
+    private int maxLimit;
+
+    /** 吞吐统计窗口（秒） */
+    @Value("${app.upload.adaptive.window-seconds:30}")
+    private int windowSeconds;
+
+    /** 限流减半后保持不变的时间（秒） */
+    @Value("${app.upload.adaptive.hold-seconds:60}")
+    private int holdSeconds;
+
+    @Value("${app.upload.concurrent-files:10}")
+    private int concurrentFiles;
+
+    private final Map<Long, Limiter> limiters = new ConcurrentHashMap<>();
+
+    /**
+     * 单个账号的并发状态
+     */
+    private final class Limiter {
+        private final Long accountId;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition released = lock.newCondition();
+
+        private int limit;
+        private int inFlight;
+
+        // 当前统计窗口
+        private long windowStart = System.currentTimeMillis();
+        private long windowBytes;
+        private int windowCompleted;
+        private int windowRateLimits;
+        private int windowPeakInFlight;
+
+        /** 上一窗口吞吐（字节/秒） */
+        private long lastThroughput;
+        /** 当前窗口吞吐（用于展示） */
+        private long throughput;
+        /** 上一次调整是否为加并发 */
+        private boolean lastIncrease;
+        private long holdUntil;
+
+        private long totalRateLimits;
+        private long lastDecreaseTime;
+
+        Limiter(Long accountId) {
+            this.accountId = accountId;
+            this.limit = clamp(initialLimit);
+        }
+    }
+
+    private Limiter limiter(Long accountId) {
+        return limiters.computeIfAbsent(accountId, Limiter::new);
+    }
+
+    private int upperBound() {
+        return Math.max(1, Math.min(maxLimit, concurrentFiles));
+    }
+
+    private int clamp(int value) {
+        return Math.max(Math.max(1, minLimit), Math.min(upperBound(), value));
+    }
+
+    /**
+     * 账号当前是否还有空闲并发名额（账号选择时用，不占用名额）
+     */
+    public boolean hasCapacity(Long accountId) {
+        if (!enabled || accountId == null) {
+            return true;
+        }
+        Limiter l = limiters.get(accountId);
+        if (l == null) {
+            return true;
+        }
+        l.lock.lock();
+        try {
+            return l.inFlight < l.limit;
+        } finally {
+            l.lock.unlock();
+        }
+    }
+
+    /**
+     * 占用账号的一个上传名额，名额已满时等待；所属任务被暂停/取消时返回 false
+     */
+    public boolean acquire(Long accountId) {
+        if (!enabled || accountId == null) {
+            return true;
+        }
+        Limiter l = limiter(accountId);
+        l.lock.lock();
+        try {
+            while (l.inFlight >= l.limit) {
+                if (TaskPauseManager.isCurrentTaskStopping()) {
+                    return false;
+                }
+                try {
+                    l.released.await(500, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            l.inFlight++;
+            l.windowPeakInFlight = Math.max(l.windowPeakInFlight, l.inFlight);
+            return true;
+        } finally {
+            l.lock.unlock();
+        }
+    }
+
+    /**
+     * 归还名额并反馈本次上传结果
+     *
+     * @param bytes         成功上传的字节数（失败传 0）
+     * @param rateLimitHits 本次 rclone 输出中的限流错误次数
+     */
+    public void release(Long accountId, long bytes, int rateLimitHits) {
+        if (!enabled || accountId == null) {
+            return;
+        }
+        Limiter l = limiter(accountId);
+        l.lock.lock();
+        try {
+            l.inFlight = Math.max(0, l.inFlight - 1);
+            long now = System.currentTimeMillis();
+
+            if (rateLimitHits > 0) {
+                l.windowRateLimits += rateLimitHits;
+                l.totalRateLimits += rateLimitHits;
+                if (now >= l.holdUntil) {
+                    int old = l.limit;
+                    l.limit = clamp(l.limit / 2);
+                    l.lastIncrease = false;
+                    l.holdUntil = now + holdSeconds * 1000L;
+                    l.lastDecreaseTime = now;
+                    log.warn("账号触发限流，并发上限减半: accountId={}, {} -> {}, 限流次数={}",
+                        accountId, old, l.limit, rateLimitHits);
+                }
+            }
+            if (bytes > 0) {
+                l.windowBytes += bytes;
+                l.windowCompleted++;
+            }
+
+            long elapsed = now - l.windowStart;
+            if (elapsed >= windowSeconds * 1000L && l.windowCompleted > 0) {
+                evaluateWindow(l, now, elapsed);
+            }
+            l.released.signalAll();
+        } finally {
+            l.lock.unlock();
+        }
+    }
+
+    /**
+     * 窗口结束：根据吞吐变化加性增 / 回退
+     */
+    private void evaluateWindow(Limiter l, long now, long elapsed) {
+        l.throughput = l.windowBytes * 1000L / Math.max(1L, elapsed);
+        boolean saturated = l.windowPeakInFlight >= l.limit;
+        int old = l.limit;
+
+        if (l.windowRateLimits == 0 && now >= l.holdUntil) {
+            if (l.lastIncrease && l.lastThroughput > 0 && l.throughput < l.lastThroughput * 0.8) {
+                // 上次加并发后吞吐明显下降，退回
+                l.limit = clamp(l.limit - 1);
+                l.lastIncrease = false;
+            } else if (saturated && (l.lastThroughput == 0 || l.throughput >= l.lastThroughput * 0.95)) {
+                l.limit = clamp(l.limit + 1);
+                l.lastIncrease = l.limit > old;
+            } else {
+                l.lastIncrease = false;
+            }
+        }
+        if (l.limit != old) {
+            log.info("账号并发上限调整: accountId={}, {} -> {}, 吞吐={}/s, 上一窗口={}/s",
+                l.accountId, old, l.limit, l.throughput, l.lastThroughput);
+        }
+
+        l.lastThroughput = l.throughput;
+        l.windowStart = now;
+        l.windowBytes = 0;
+        l.windowCompleted = 0;
+        l.windowRateLimits = 0;
+        l.windowPeakInFlight = l.inFlight;
+    }
+
+    /**
+     * 当前各账号的并发上限与状态（监控用）
+     */
+    public List<Map<String, Object>> getLimits() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Limiter l : limiters.values()) {
+            l.lock.lock();
+            try {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("accountId", l.accountId);
+                item.put("limit", l.limit);
+                item.put("inFlight", l.inFlight);
+                item.put("throughput", l.throughput);
+                item.put("rateLimitCount", l.totalRateLimits);
+                item.put("lastDecreaseTime", l.lastDecreaseTime > 0 ? l.lastDecreaseTime : null);
+                item.put("holdUntil", l.holdUntil > System.currentTimeMillis() ? l.holdUntil : null);
+                result.add(item);
+            } finally {
+                l.lock.unlock();
+            }
+        }
+        return result;
+    }
+
+    public int getInitialLimit() {
+        return clamp(initialLimit);
+    }
+
+    public int getMaxLimit() {
+        return upperBound();
+    }
+}
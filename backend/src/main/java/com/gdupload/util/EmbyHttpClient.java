@@ -0,0 +1,505 @@
+package com.gdupload.util;
+
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.map.MapUtil;
+import cn.hutool.core.util.URLUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.gdupload.common.BusinessException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Emby HTTP 客户端
+ * <p>
+ * 所有 Emby 请求（API、登录、流式下载）统一从这里发出：
+ * <ul>
+ *   <li>连接复用：基于 JDK HttpURLConnection 的 keep-alive 连接池；每个服务器同时在途的 API 请求
+ *       不超过 max-connections，响应体读完并关闭即归还连接（成功的请求不调用 disconnect）。
+ *       每个服务器保留的空闲连接数由 JVM 参数 -Dhttp.maxConnections 决定（JDK 默认 5，
+ *       只在首次建立 HTTP 连接前生效，不能在运行时设置），应与 max-connections 一致，见 start.sh</li>
+ *   <li>gzip：API 请求带 Accept-Encoding: gzip, deflate，响应按 Content-Encoding 解压</li>
+ *   <li>响应可以按流读取（{@link ResponseReader}），大列表直接从连接解码，不先拼成字符串</li>
+ *   <li>请求头按（服务器, Token, 用户ID）构建一次（{@link Endpoint}），之后所有请求直接复用</li>
+ *   <li>5xx / 429 / 超时 / 连接失败按指数退避重试，其余 4xx 不重试；
+ *       POST（登录）请求发出后的读超时不重试，避免重复提交</li>
+ *   <li>按接口（路径中的 ID 归一化为 {id}）统计请求数、失败数、重试数和耗时</li>
+ * </ul>
+ *
+ * @author GD Upload Manager
+ * @since 2026-03-02
+ */
+@Slf4j
+@Component
+public class EmbyHttpClient {
+
+    /** 伪装成 Forward app 的设备ID */
+    public static final String DEVICE_ID = "30c9d308e74a46a1811c851bf76a8f77";
+    public static final String CLIENT_VERSION = "1.3.14";
+
+    /** 路径中的 Emby ID（32 位十六进制或纯数字） */
+    private static final Pattern ID_SEGMENT = Pattern.compile("/(?:[0-9a-fA-F]{32}|\\d+)(?=/|$)");
+
+    /** 最多缓存的请求头快照数（配置切换时旧快照被淘汰） */
+    private static final int MAX_ENDPOINTS = 16;
+
+    /** 每个服务器的最大连接数（同时在途的 API 请求 + keep-alive 空闲连接） */
+    @Value("${app.emby.http.max-connections:16}")
+    private int maxConnections;
+
+    /** 5xx / 超时的最大重试次数 */
+    @Value("${app.emby.http.max-retries:2}")
+    private int maxRetries;
+
+    /** 首次重试等待（毫秒），之后每次翻倍 */
+    @Value("${app.emby.http.retry-backoff-ms:500}")
+    private long retryBackoffMs;
+
+    @Value("${app.emby.http.connect-timeout:10000}")
+    private int connectTimeout;
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+    private final Map<String, Metric> metrics = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    private void init() {
+        // keep-alive 空闲连接数只能通过 JVM 参数配置（JDK 在首次建立 HTTP 连接时读取一次）
+        String keepAlive = System.getProperty("http.maxConnections");
+        if (keepAlive == null) {
+            log.warn("未设置 -Dhttp.maxConnections，每个Emby服务器只保留 5 个空闲连接（建议与 max-connections={} 一致）",
+                maxConnections);
+        }
+        log.info("Emby HTTP 客户端初始化完成: 每服务器最大连接数={}, keep-alive空闲连接数={}, 最大重试={}",
+            maxConnections, keepAlive != null ? keepAlive : "5", maxRetries);
+    }
+
+    /**
+     * 一个 Emby 服务器 + 身份的请求上下文（不可变，构建后所有请求共用）
+     */
+    public static final class Endpoint {
+        private final String baseUrl;
+        private final String accessToken;
+        private final Map<String, String> headers;
+        private final int timeout;
+
+        private Endpoint(String baseUrl, String accessToken, Map<String, String> headers, int timeout) {
+            this.baseUrl = baseUrl;
+            this.accessToken = accessToken;
+            this.headers = headers;
+            this.timeout = timeout;
+        }
+
+        /** 服务器地址（不含末尾斜杠） */
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+
+        public String getAccessToken() {
+            return accessToken;
+        }
+
+        /** 预先构建的请求头（只读） */
+        public Map<String, String> getHeaders() {
+            return headers;
+        }
+
+        public int getTimeout() {
+            return timeout;
+        }
+    }
+
+    /**
+     * Emby 请求失败（重试后仍失败）；status 为 0 表示网络异常 / 超时
+     */
+    public static class EmbyHttpException extends BusinessException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        public EmbyHttpException(int status, String message, Throwable cause) {
+            super(500, message, cause);
+            this.status = status;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+    }
+
+    /**
+     * 从（已解压的）响应体流中读取结果；流由客户端负责关闭
+     */
+    @FunctionalInterface
+    public interface ResponseReader<T> {
+        T read(InputStream in) throws IOException;
+    }
+
+    private static final ResponseReader<String> STRING_READER =
+        in -> IoUtil.read(in, StandardCharsets.UTF_8);
+
+    /**
+     * 获取（服务器, Token, 用户ID）对应的请求上下文，请求头只在首次使用时构建
+     */
+    public Endpoint endpoint(String serverUrl, String accessToken, String userId, int timeout) {
+        String baseUrl = trimSlash(serverUrl);
+        String key = baseUrl + '\n' + accessToken + '\n' + userId + '\n' + timeout;
+        Endpoint endpoint = endpoints.get(key);
+        if (endpoint != null) {
+            return endpoint;
+        }
+        if (endpoints.size() >= MAX_ENDPOINTS) {
+            endpoints.clear();
+        }
+        return endpoints.computeIfAbsent(key, k ->
+            new Endpoint(baseUrl, accessToken, buildHeaders(accessToken, userId), timeout));
+    }
+
+    /**
+     * 登录前（尚无 Token）使用的请求头
+     */
+    public static Map<String, String> anonymousHeaders() {
+        Map<String, String> headers = baseHeaders();
+        headers.put("X-Emby-Authorization", String.format(
+            "MediaBrowser Client=\"Forward\", Device=\"iPhone\", DeviceId=\"%s\", Version=\"%s\"",
+            DEVICE_ID, CLIENT_VERSION));
+        return headers;
+    }
+
+    /**
+     * GET 请求
+     *
+     * @param path    API 路径（如 /emby/Users/{userId}/Items）
+     * @param params  查询参数（null 值忽略）
+     * @param timeout 读超时（毫秒），为 null 时使用 Endpoint 的超时
+     * @return 响应体
+     */
+    public String get(Endpoint endpoint, String path, Map<String, Object> params, Integer timeout) {
+        return get(endpoint, path, params, timeout, STRING_READER);
+    }
+
+    /**
+     * GET 请求，响应体直接交给 reader 按流解码
+     */
+    public <T> T get(Endpoint endpoint, String path, Map<String, Object> params, Integer timeout,
+                     ResponseReader<T> reader) {
+        String url = buildUrl(endpoint.getBaseUrl() + path, params);
+        int readTimeout = timeout != null ? timeout : endpoint.getTimeout();
+        log.debug("Emby API请求: {}", url);
+        return execute("GET " + normalizePath(path), endpoint.getBaseUrl(), "GET", url,
+            endpoint.getHeaders(), null, readTimeout, reader);
+    }
+
+    /**
+     * POST JSON 请求（登录等）
+     */
+    public String postJson(String url, Map<String, String> headers, String body, int timeout) {
+        int idx = url.indexOf("/", url.indexOf("//") + 2);
+        String host = idx > 0 ? url.substring(0, idx) : url;
+        String path = idx > 0 ? url.substring(idx) : "/";
+        return execute("POST " + normalizePath(path), host, "POST", url, headers,
+            body != null ? body.getBytes(StandardCharsets.UTF_8) : null, timeout, STRING_READER);
+    }
+
+    /**
+     * 打开流式下载连接（不重试、不占用 API 并发名额；调用方负责读取响应并关闭流）
+     *
+     * @param url         完整 URL
+     * @param readTimeout 读超时（毫秒）
+     */
+    public HttpURLConnection openStream(Endpoint endpoint, String url, int readTimeout) throws IOException {
+        return openStream(endpoint, url, readTimeout, null);
+    }
+
+    /**
+     * 打开流式下载连接，附加请求头（如 Range / If-Range）
+     *
+     * @param extraHeaders 附加请求头，可为 null
+     */
+    public HttpURLConnection openStream(Endpoint endpoint, String url, int readTimeout,
+                                        Map<String, String> extraHeaders) throws IOException {
+        long start = System.nanoTime();
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("GET");
+        for (Map.Entry<String, String> header : endpoint.getHeaders().entrySet()) {
+            connection.setRequestProperty(header.getKey(), header.getValue());
+        }
+        if (extraHeaders != null) {
+            for (Map.Entry<String, String> header : extraHeaders.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+        }
+        connection.setRequestProperty("Connection", "keep-alive");
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        Metric metric = metrics.computeIfAbsent("STREAM " + normalizePath(new URL(url).getPath()), Metric::new);
+        try {
+            int status = connection.getResponseCode();
+            metric.record((System.nanoTime() - start) / 1_000_000, status >= 200 && status < 300, false);
+        } catch (IOException e) {
+            metric.record((System.nanoTime() - start) / 1_000_000, false, false);
+            connection.disconnect();
+            throw e;
+        }
+        return connection;
+    }
+
+    /**
+     * 各接口的请求统计
+     */
+    public List<Map<String, Object>> getMetrics() {
+        List<Map<String, Object>> result = new ArrayList<>(metrics.size());
+        for (Metric metric : metrics.values()) {
+            result.add(metric.toMap());
+        }
+        result.sort((a, b) -> Long.compare((Long) b.get("count"), (Long) a.get("count")));
+        return result;
+    }
+
+    private <T> T execute(String metricKey, String host, String method, String url, Map<String, String> headers,
+                          byte[] body, int readTimeout, ResponseReader<T> reader) {
+        Metric metric = metrics.computeIfAbsent(metricKey, Metric::new);
+        Semaphore permit = permits.computeIfAbsent(host, h -> new Semaphore(Math.max(1, maxConnections), true));
+        long backoff = Math.max(0L, retryBackoffMs);
+        for (int attempt = 0; ; attempt++) {
+            long start = System.nanoTime();
+            int status = 0;
+            T result = null;
+            String errorBody = null;
+            Exception error = null;
+            try {
+                permit.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EmbyHttpException(0, "Emby 请求被中断", e);
+            }
+            HttpURLConnection connection = null;
+            try {
+                connection = open(method, url, headers, body, readTimeout);
+                status = connection.getResponseCode();
+                boolean success = status >= 200 && status < 300;
+                InputStream raw = success ? connection.getInputStream() : connection.getErrorStream();
+                try (InputStream in = decode(connection, raw)) {
+                    if (success) {
+                        result = reader.read(in);
+                        // 读到流末尾，连接才会回到 keep-alive 缓存
+                        drain(in);
+                    } else if (in != null) {
+                        errorBody = IoUtil.read(in, StandardCharsets.UTF_8);
+                    }
+                }
+            } catch (BusinessException | JsonProcessingException e) {
+                // 响应内容本身有问题，重试无意义
+                disconnect(connection);
+                metric.record((System.nanoTime() - start) / 1_000_000, false, attempt > 0);
+                if (e instanceof BusinessException) {
+                    throw (BusinessException) e;
+                }
+                log.error("Emby API响应解析失败: {} - {}", metricKey, e.getMessage());
+                throw new EmbyHttpException(status, "Emby API响应格式错误: " + e.getMessage(), e);
+            } catch (Exception e) {
+                error = e;
+                disconnect(connection);
+            } finally {
+                permit.release();
+            }
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            boolean ok = error == null && status >= 200 && status < 300;
+            metric.record(elapsed, ok, attempt > 0);
+            if (ok) {
+                return result;
+            }
+
+            boolean timeout = error instanceof SocketTimeoutException
+                || (error != null && error.getCause() instanceof SocketTimeoutException);
+            // POST 请求已发出后的失败（读超时、连接中断）可能已被服务器处理，只在连接阶段失败时重试
+            boolean retryable = error != null
+                ? !"POST".equals(method) || isConnectFailure(error)
+                : status >= 500 || status == 429;
+            if (!retryable || attempt >= maxRetries) {
+                if (error == null) {
+                    log.error("Emby API请求失败: {} - {} - 响应: {}", status, metricKey,
+                        errorBody != null ? errorBody.substring(0, Math.min(200, errorBody.length())) : null);
+                    throw new EmbyHttpException(status, "Emby API请求失败: " + status, null);
+                }
+                if (timeout) {
+                    log.error("Emby API请求超时: {}, 耗时={}ms", metricKey, elapsed);
+                    throw new EmbyHttpException(0, "Emby服务器响应超时，请稍后重试或减少每页数量", error);
+                }
+                log.error("调用Emby API异常: {} - {}", metricKey, error.getMessage());
+                throw new EmbyHttpException(0, "调用Emby API异常: " + error.getMessage(), error);
+            }
+            log.warn("Emby 请求失败，{}ms 后重试（第{}/{}次）: {} - {}", backoff, attempt + 1, maxRetries, metricKey,
+                error != null ? (timeout ? "超时" : error.getMessage()) : "HTTP " + status);
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EmbyHttpException(0, "Emby 请求被中断", e);
+            }
+            backoff *= 2;
+        }
+    }
+
+    private HttpURLConnection open(String method, String url, Map<String, String> headers, byte[] body,
+                                   int readTimeout) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            connection.setRequestProperty(header.getKey(), header.getValue());
+        }
+        connection.setRequestProperty("Accept-Encoding", "gzip, deflate");
+        connection.setRequestProperty("Connection", "keep-alive");
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        connection.setInstanceFollowRedirects(true);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+        }
+        return connection;
+    }
+
+    private static InputStream decode(HttpURLConnection connection, InputStream raw) throws IOException {
+        if (raw == null) {
+            return null;
+        }
+        String encoding = connection.getContentEncoding();
+        if ("gzip".equalsIgnoreCase(encoding)) {
+            return new GZIPInputStream(raw, 64 * 1024);
+        }
+        if ("deflate".equalsIgnoreCase(encoding)) {
+            return new InflaterInputStream(raw);
+        }
+        return raw;
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (in.read(buffer) != -1) {
+            // 丢弃 reader 未读取的尾部内容
+        }
+    }
+
+    /**
+     * 建立连接阶段的失败（请求一定没有发出）
+     */
+    private static boolean isConnectFailure(Exception error) {
+        if (error instanceof ConnectException) {
+            return true;
+        }
+        return error instanceof SocketTimeoutException
+            && error.getMessage() != null && error.getMessage().contains("connect timed out");
+    }
+
+    private static void disconnect(HttpURLConnection connection) {
+        if (connection != null) {
+            connection.disconnect();
+        }
+    }
+
+    private static Map<String, String> buildHeaders(String accessToken, String userId) {
+        Map<String, String> headers = baseHeaders();
+        headers.put("X-Emby-Authorization", String.format(
+            "MediaBrowser Token=\"%s\", Emby UserId=\"%s\", Client=\"Forward\", Device=\"iPhone\", DeviceId=\"%s\", Version=\"%s\"",
+            accessToken, userId, DEVICE_ID, CLIENT_VERSION));
+        headers.put("X-Emby-Token", accessToken);
+        return Collections.unmodifiableMap(headers);
+    }
+
+    private static Map<String, String> baseHeaders() {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Content-Type", "application/json");
+        headers.put("User-Agent", "Forward-Standard/" + CLIENT_VERSION);
+        headers.put("Accept", "*/*");
+        headers.put("Accept-Language", "zh-CN,zh-Hans;q=0.9");
+        return headers;
+    }
+
+    private static String buildUrl(String url, Map<String, Object> params) {
+        if (MapUtil.isEmpty(params)) {
+            return url;
+        }
+        StringBuilder fullUrl = new StringBuilder(url.length() + params.size() * 24).append(url);
+        char separator = url.indexOf('?') >= 0 ? '&' : '?';
+        for (Map.Entry<String, Object> param : params.entrySet()) {
+            if (param.getValue() == null) {
+                continue;
+            }
+            fullUrl.append(separator).append(URLUtil.encode(param.getKey()))
+                .append('=').append(URLUtil.encode(String.valueOf(param.getValue())));
+            separator = '&';
+        }
+        return fullUrl.toString();
+    }
+
+    private static String normalizePath(String path) {
+        int query = path.indexOf('?');
+        String p = query >= 0 ? path.substring(0, query) : path;
+        return ID_SEGMENT.matcher(p).replaceAll("/{id}");
+    }
+
+    private static String trimSlash(String url) {
+        return url != null && url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    private static final class Metric {
+        final String name;
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong retries = new AtomicLong();
+        final AtomicLong totalMs = new AtomicLong();
+        final AtomicLong maxMs = new AtomicLong();
+
+        Metric(String name) {
+            this.name = name;
+        }
+
+        void record(long elapsedMs, boolean ok, boolean retry) {
+            count.incrementAndGet();
+            totalMs.addAndGet(elapsedMs);
+            maxMs.accumulateAndGet(elapsedMs, Math::max);
+            if (!ok) {
+                errors.incrementAndGet();
+            }
+            if (retry) {
+                retries.incrementAndGet();
+            }
+        }
+
+        Map<String, Object> toMap() {
+            long n = count.get();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("request", name);
+            map.put("count", n);
+            map.put("errors", errors.get());
+            map.put("retries", retries.get());
+            map.put("avgMs", n > 0 ? totalMs.get() / n : 0L);
+            map.put("maxMs", maxMs.get());
+            return map;
+        }
+    }
+}
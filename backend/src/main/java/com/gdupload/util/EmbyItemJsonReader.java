@@ -0,0 +1,361 @@
+package com.gdupload.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.gdupload.common.BusinessException;
+import com.gdupload.dto.EmbyItem;
+import com.gdupload.dto.PagedResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Emby 媒体项响应的流式解码
+ * <p>
+ * 直接从 HTTP 响应流逐个 token 解码到 {@link EmbyItem}，不把响应体拼成字符串、也不构建 JSON 树；
+ * 只保留 EmbyItem 用到的字段，其余字段（ImageTags、UserData、MediaStreams 等）整段跳过。
+ * 500 条一页、带 MediaSources / People 的响应，解码时只分配最终 DTO 本身。
+ *
+ * @author GD Upload Manager
+ * @since 2026-03-03
+ */
+public class EmbyItemJsonReader {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private EmbyItemJsonReader() {
+    }
+
+    /**
+     * 解码 Items 列表响应：{"Items": [...], "TotalRecordCount": n}；
+     * 部分接口直接返回数组，此时总数为数组长度
+     */
+    public static PagedResult<EmbyItem> readPage(InputStream in, Integer startIndex, Integer limit) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw new BusinessException("Emby API返回空响应");
+            }
+            List<EmbyItem> items = new ArrayList<>();
+            Integer totalCount = null;
+            if (token == JsonToken.START_ARRAY) {
+                readItems(parser, items);
+                totalCount = items.size();
+            } else if (token == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    if ("Items".equals(field) && value == JsonToken.START_ARRAY) {
+                        readItems(parser, items);
+                    } else if ("TotalRecordCount".equals(field)) {
+                        totalCount = intValue(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                throw new BusinessException("Emby API返回格式错误，期望JSON对象但收到: " + token);
+            }
+            return new PagedResult<>(items, totalCount != null ? totalCount : 0, startIndex, limit);
+        }
+    }
+
+    /**
+     * 解码单个媒体项响应（/Items/{id}）
+     */
+    public static EmbyItem readItem(InputStream in) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw new BusinessException("Emby API返回空响应");
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new BusinessException("Emby API返回格式错误，期望JSON对象但收到: " + token);
+            }
+            return readItem(parser);
+        }
+    }
+
+    private static void readItems(JsonParser parser, List<EmbyItem> items) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token == JsonToken.START_OBJECT) {
+                items.add(readItem(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * 调用时 parser 位于对象的 START_OBJECT，返回时位于对应的 END_OBJECT
+     */
+    private static EmbyItem readItem(JsonParser parser) throws IOException {
+        EmbyItem item = new EmbyItem();
+        item.setPlayed(false);
+        item.setPlayCount(0);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "Id":
+                    item.setId(text(parser));
+                    break;
+                case "Name":
+                    item.setName(text(parser));
+                    break;
+                case "OriginalTitle":
+                    item.setOriginalTitle(text(parser));
+                    break;
+                case "Type":
+                    item.setType(text(parser));
+                    break;
+                case "MediaType":
+                    item.setMediaType(text(parser));
+                    break;
+                case "ParentId":
+                    item.setParentId(text(parser));
+                    break;
+                case "SeriesId":
+                    item.setSeriesId(text(parser));
+                    break;
+                case "SeriesName":
+                    item.setSeriesName(text(parser));
+                    break;
+                case "ParentIndexNumber":
+                    item.setParentIndexNumber(intValue(parser));
+                    break;
+                case "IndexNumber":
+                    item.setIndexNumber(intValue(parser));
+                    break;
+                case "Path":
+                    item.setPath(text(parser));
+                    break;
+                case "ProductionYear":
+                    item.setProductionYear(intValue(parser));
+                    break;
+                case "PremiereDate":
+                    item.setPremiereDate(text(parser));
+                    break;
+                case "CommunityRating":
+                    item.setCommunityRating(doubleValue(parser));
+                    break;
+                case "OfficialRating":
+                    item.setOfficialRating(text(parser));
+                    break;
+                case "Overview":
+                    item.setOverview(text(parser));
+                    break;
+                case "RunTimeTicks":
+                    item.setRunTimeTicks(longValue(parser));
+                    break;
+                case "Played":
+                    Boolean played = boolValue(parser);
+                    item.setPlayed(played != null ? played : false);
+                    break;
+                case "PlayCount":
+                    Integer playCount = intValue(parser);
+                    item.setPlayCount(playCount != null ? playCount : 0);
+                    break;
+                case "DateCreated":
+                    item.setDateCreated(text(parser));
+                    break;
+                case "DateModified":
+                    item.setDateModified(text(parser));
+                    break;
+                case "Tags":
+                    item.setTags(stringList(parser));
+                    break;
+                case "Genres":
+                    item.setGenres(stringList(parser));
+                    break;
+                case "Studios":
+                    item.setStudios(nameList(parser));
+                    break;
+                case "People":
+                    item.setPeople(nameList(parser));
+                    break;
+                case "ProviderIds":
+                    item.setProviderIds(stringMap(parser));
+                    break;
+                case "MediaSources":
+                    List<EmbyItem.MediaSource> sources = mediaSources(parser);
+                    if (sources != null) {
+                        item.setMediaSources(sources);
+                        // 文件大小使用第一个媒体源的大小
+                        item.setSize(sources.get(0).getSize());
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        return item;
+    }
+
+    private static List<EmbyItem.MediaSource> mediaSources(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        List<EmbyItem.MediaSource> sources = new ArrayList<>(1);
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            EmbyItem.MediaSource source = new EmbyItem.MediaSource();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "Id":
+                        source.setId(text(parser));
+                        break;
+                    case "Path":
+                        source.setPath(text(parser));
+                        break;
+                    case "Container":
+                        source.setContainer(text(parser));
+                        break;
+                    case "Size":
+                        source.setSize(longValue(parser));
+                        break;
+                    case "Bitrate":
+                        source.setBitrate(longValue(parser));
+                        break;
+                    default:
+                        // MediaStreams 等大字段整段跳过
+                        parser.skipChildren();
+                        break;
+                }
+            }
+            sources.add(source);
+        }
+        return sources.isEmpty() ? null : sources;
+    }
+
+    /**
+     * ["a", "b"]，空数组返回 null
+     */
+    private static List<String> stringList(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            values.add(text(parser));
+        }
+        return values.isEmpty() ? null : values;
+    }
+
+    /**
+     * [{"Name": "a", ...}, ...] 只取 Name，空数组返回 null
+     */
+    private static List<String> nameList(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        List<String> names = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            String name = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("Name".equals(field)) {
+                    name = text(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            names.add(name);
+        }
+        return names.isEmpty() ? null : names;
+    }
+
+    private static Map<String, String> stringMap(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        Map<String, String> values = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.getCurrentName();
+            parser.nextToken();
+            values.put(key, text(parser));
+        }
+        return values;
+    }
+
+    /**
+     * 标量转字符串；对象 / 数组跳过并返回 null
+     */
+    private static String text(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        return token == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+    }
+
+    private static Integer intValue(JsonParser parser) throws IOException {
+        return isNumber(parser) ? Integer.valueOf(parser.getValueAsInt()) : null;
+    }
+
+    private static Long longValue(JsonParser parser) throws IOException {
+        return isNumber(parser) ? Long.valueOf(parser.getValueAsLong()) : null;
+    }
+
+    private static Double doubleValue(JsonParser parser) throws IOException {
+        return isNumber(parser) ? Double.valueOf(parser.getValueAsDouble()) : null;
+    }
+
+    private static Boolean boolValue(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE || token == JsonToken.VALUE_STRING) {
+            return parser.getValueAsBoolean();
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    /**
+     * 数字或数字字符串；其余（null、对象、数组）跳过
+     */
+    private static boolean isNumber(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return true;
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            String text = parser.getText().trim();
+            if (!text.isEmpty()) {
+                try {
+                    Double.parseDouble(text);
+                    return true;
+                } catch (NumberFormatException ignored) {
+                    return false;
+                }
+            }
+            return false;
+        }
+        parser.skipChildren();
+        return false;
+    }
+}
@@ -0,0 +1,559 @@
+package com.gdupload.util;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.gdupload.entity.EmbyItemCache;
+import com.gdupload.mapper.EmbyItemCacheMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.Charset;
+import java.text.Normalizer;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Emby 媒体项内存搜索索引
+ * <ul>
+ *   <li>每个 emby_config_id 一份索引，对规范化后的名称、原始名称和名称的拼音首字母建立字符 bigram 倒排表，
+ *       中日韩文字不需要分词；规范化包括全角转半角、去掉重音符号、去掉空格和标点、转小写</li>
+ *   <li>查询的 bigram 全部命中的为候选，再校验子串并按 完全相同 / 前缀 / 包含、名称 / 原始名称 / 首字母 打分；
+ *       没有子串匹配但命中大部分 bigram 的作为模糊结果排在后面</li>
+ *   <li>启动后从 emby_item 按主键分批加载，同步写库时增量更新；索引未就绪时调用方回退到数据库查询</li>
+ * </ul>
+ * 拼音首字母按 GB2312 一级汉字的拼音排序推算（不依赖拼音库），二级汉字、繁体字和多音字不处理。
+ *
+ * @author GD Upload Manager
+ * @since 2026-03-06
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EmbySearchIndex {
+
+    /** 字段分隔符，bigram 不跨字段 */
+    private static final char FIELD_SEP = '\u0001';
+
+    /** 模糊匹配至少命中的查询 bigram 比例 */
+    private static final double FUZZY_MIN_RATIO = 0.6;
+
+    /** 启动加载时每批读取的行数 */
+    private static final int LOAD_BATCH = 5000;
+
+    /** 已删除的文档槽位超过此数且超过一半时整理索引 */
+    private static final int COMPACT_MIN_DEAD = 10000;
+
+    /** GB2312 一级汉字按拼音排序，各声母第一个字的区位码 */
+    private static final int[] GB2312_BOUNDARIES = {
+        45217, 45253, 45761, 46318, 46826, 47010, 47297, 47614, 48119, 49062, 49324, 49896,
+        50371, 50614, 50622, 50906, 51387, 51446, 52218, 52698, 52980, 53689, 54481
+    };
+    private static final char[] GB2312_INITIALS = "abcdefghjklmnopqrstwxyz".toCharArray();
+    /** GB2312 一级汉字的最后一个区位码 */
+    private static final int GB2312_LEVEL1_END = 55289;
+
+    private static final char HANZI_FIRST = '\u4E00';
+    private static final char HANZI_LAST = '\u9FA5';
+    /** 基本汉字的拼音首字母，0 表示不在 GB2312 一级汉字中 */
+    private static final char[] HANZI_INITIALS = buildHanziInitials();
+
+    /** 得分高的在前，同分时最近更新的在前 */
+    private static final Comparator<Hit> BEST_FIRST = Comparator.<Hit>comparingInt(h -> h.score).reversed()
+        .thenComparing(Comparator.<Hit>comparingLong(h -> h.doc.updateTime).reversed())
+        .thenComparing(h -> h.doc.id);
+
+    private final EmbyItemCacheMapper itemCacheMapper;
+
+    /** 是否启用内存搜索索引（关闭时搜索直接查数据库） */
+    @Value("${app.emby.search.index-enabled:true}")
+    private boolean enabled;
+
+    private final ConcurrentHashMap<Long, ConfigIndex> indexes = new ConcurrentHashMap<>();
+
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "emby-search-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final class Doc {
+        final String id;
+        /** 规范化后的名称 */
+        final String name;
+        /** 规范化后的原始名称 */
+        final String title;
+        /** 名称的拼音首字母（名称中没有汉字时为空） */
+        final String initials;
+        final long updateTime;
+
+        Doc(String id, String name, String title, String initials, long updateTime) {
+            this.id = id;
+            this.name = name;
+            this.title = title;
+            this.initials = initials;
+            this.updateTime = updateTime;
+        }
+    }
+
+    private static final class Hit {
+        final Doc doc;
+        final int score;
+
+        Hit(Doc doc, int score) {
+            this.doc = doc;
+            this.score = score;
+        }
+    }
+
+    /**
+     * 倒排表：按写入顺序递增的文档槽位
+     */
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                int[] grown = new int[size * 2];
+                System.arraycopy(values, 0, grown, 0, size);
+                values = grown;
+            }
+            values[size++] = value;
+        }
+    }
+
+    /**
+     * 单个 Emby 配置的索引；读写都在 lock 内
+     */
+    private static final class ConfigIndex {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        /** 槽位 -> 文档，更新 / 删除后旧槽位置 null */
+        final List<Doc> docs = new ArrayList<>();
+        final Map<String, Integer> slots = new HashMap<>();
+        final Map<String, IntList> postings = new HashMap<>();
+        int dead;
+        volatile boolean ready;
+        /** 加载期间删除的ID，加载时不再加入 */
+        Set<String> removedWhileLoading = new HashSet<>();
+
+        void put(Doc doc) {
+            Integer old = slots.get(doc.id);
+            if (old != null) {
+                docs.set(old, null);
+                dead++;
+            }
+            int slot = docs.size();
+            docs.add(doc);
+            slots.put(doc.id, slot);
+            for (String gram : docGrams(doc)) {
+                postings.computeIfAbsent(gram, k -> new IntList()).add(slot);
+            }
+            if (dead > COMPACT_MIN_DEAD && dead > docs.size() / 2) {
+                compact();
+            }
+        }
+
+        /**
+         * 加载时使用：已由同步写入（更新）或已删除的媒体项以内存中为准
+         */
+        void putLoaded(Doc doc) {
+            if (!slots.containsKey(doc.id)
+                && (removedWhileLoading == null || !removedWhileLoading.contains(doc.id))) {
+                put(doc);
+            }
+        }
+
+        void remove(String id) {
+            Integer slot = slots.remove(id);
+            if (slot != null) {
+                docs.set(slot, null);
+                dead++;
+            }
+            if (removedWhileLoading != null) {
+                removedWhileLoading.add(id);
+            }
+        }
+
+        void compact() {
+            List<Doc> live = new ArrayList<>(docs.size() - dead);
+            for (Doc doc : docs) {
+                if (doc != null) {
+                    live.add(doc);
+                }
+            }
+            docs.clear();
+            slots.clear();
+            postings.clear();
+            dead = 0;
+            for (Doc doc : live) {
+                put(doc);
+            }
+        }
+
+        List<Hit> find(String query, int limit) {
+            PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, BEST_FIRST.reversed());
+            if (query.length() == 1) {
+                // 单字查询没有 bigram，直接扫描
+                for (Doc doc : docs) {
+                    if (doc != null) {
+                        offer(top, doc, score(doc, query, 0), limit);
+                    }
+                }
+            } else {
+                Set<String> grams = grams(query);
+                int[] counts = new int[docs.size()];
+                for (String gram : grams) {
+                    IntList posting = postings.get(gram);
+                    if (posting != null) {
+                        for (int i = 0; i < posting.size; i++) {
+                            counts[posting.values[i]]++;
+                        }
+                    }
+                }
+                int need = Math.max(1, (int) Math.ceil(grams.size() * FUZZY_MIN_RATIO));
+                for (int slot = 0; slot < counts.length; slot++) {
+                    Doc doc;
+                    if (counts[slot] >= need && (doc = docs.get(slot)) != null) {
+                        offer(top, doc, score(doc, query, (double) counts[slot] / grams.size()), limit);
+                    }
+                }
+            }
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort(BEST_FIRST);
+            return hits;
+        }
+    }
+
+    /**
+     * 搜索媒体项
+     *
+     * @param configId Emby配置ID
+     * @param keyword  关键词
+     * @param limit    最多返回条数
+     * @return 按相关度排序的媒体项ID；索引未启用 / 未就绪或关键词规范化后为空时返回 null，由调用方查数据库
+     */
+    public List<String> search(Long configId, String keyword, int limit) {
+        if (!enabled || configId == null || keyword == null) {
+            return null;
+        }
+        ConfigIndex index = indexes.get(configId);
+        if (index == null || !index.ready) {
+            return null;
+        }
+        String query = normalize(keyword);
+        if (query.isEmpty()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        List<Hit> hits;
+        index.lock.readLock().lock();
+        try {
+            hits = index.find(query, Math.max(1, limit));
+        } finally {
+            index.lock.readLock().unlock();
+        }
+        List<String> ids = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            ids.add(hit.doc.id);
+        }
+        log.debug("内存索引搜索: configId={}, keyword={}, 命中 {} 条, 耗时 {}μs",
+            configId, keyword, ids.size(), (System.nanoTime() - start) / 1000);
+        return ids;
+    }
+
+    /**
+     * 同步写库后更新索引（该配置的索引尚未建立时先从数据库加载）
+     */
+    public void upsert(Long configId, List<EmbyItemCache> rows) {
+        if (!enabled || configId == null || rows.isEmpty()) {
+            return;
+        }
+        long now = DateTimeUtil.now().toInstant(ZoneOffset.UTC).toEpochMilli();
+        List<Doc> docs = new ArrayList<>(rows.size());
+        for (EmbyItemCache row : rows) {
+            docs.add(toDoc(row, now));
+        }
+        ConfigIndex index = indexFor(configId);
+        index.lock.writeLock().lock();
+        try {
+            for (Doc doc : docs) {
+                index.put(doc);
+            }
+        } finally {
+            index.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除媒体项后从索引移除
+     */
+    public void remove(Long configId, Collection<String> ids) {
+        if (!enabled || configId == null || ids.isEmpty()) {
+            return;
+        }
+        ConfigIndex index = indexes.get(configId);
+        if (index == null) {
+            return;
+        }
+        index.lock.writeLock().lock();
+        try {
+            for (String id : ids) {
+                index.remove(id);
+            }
+        } finally {
+            index.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 缓存清空后重置为空索引
+     */
+    public void clear(Long configId) {
+        if (!enabled || configId == null) {
+            return;
+        }
+        ConfigIndex empty = new ConfigIndex();
+        empty.removedWhileLoading = null;
+        empty.ready = true;
+        indexes.put(configId, empty);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        loadExecutor.execute(() -> {
+            try {
+                QueryWrapper<EmbyItemCache> wrapper = new QueryWrapper<>();
+                wrapper.select("DISTINCT emby_config_id");
+                for (Object configId : itemCacheMapper.selectObjs(wrapper)) {
+                    if (configId != null) {
+                        indexFor(((Number) configId).longValue());
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("读取 Emby 配置列表失败，搜索索引将在首次同步时建立: {}", e.getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loadExecutor.shutdownNow();
+    }
+
+    /**
+     * 取配置的索引，不存在时创建并排队从数据库加载
+     */
+    private ConfigIndex indexFor(Long configId) {
+        ConfigIndex index = indexes.get(configId);
+        if (index != null) {
+            return index;
+        }
+        ConfigIndex created = new ConfigIndex();
+        index = indexes.putIfAbsent(configId, created);
+        if (index != null) {
+            return index;
+        }
+        loadExecutor.execute(() -> load(configId, created));
+        return created;
+    }
+
+    private void load(Long configId, ConfigIndex index) {
+        long start = System.currentTimeMillis();
+        try {
+            String lastId = "";
+            int total = 0;
+            while (true) {
+                LambdaQueryWrapper<EmbyItemCache> wrapper = new LambdaQueryWrapper<>();
+                wrapper.select(EmbyItemCache::getId, EmbyItemCache::getName,
+                        EmbyItemCache::getOriginalTitle, EmbyItemCache::getUpdateTime)
+                    .eq(EmbyItemCache::getEmbyConfigId, configId)
+                    .gt(EmbyItemCache::getId, lastId)
+                    .orderByAsc(EmbyItemCache::getId)
+                    .last("LIMIT " + LOAD_BATCH);
+                List<EmbyItemCache> rows = itemCacheMapper.selectList(wrapper);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                List<Doc> docs = new ArrayList<>(rows.size());
+                for (EmbyItemCache row : rows) {
+                    docs.add(toDoc(row, 0L));
+                }
+                index.lock.writeLock().lock();
+                try {
+                    for (Doc doc : docs) {
+                        index.putLoaded(doc);
+                    }
+                } finally {
+                    index.lock.writeLock().unlock();
+                }
+                total += rows.size();
+                lastId = rows.get(rows.size() - 1).getId();
+                if (rows.size() < LOAD_BATCH) {
+                    break;
+                }
+            }
+            index.lock.writeLock().lock();
+            try {
+                index.removedWhileLoading = null;
+                index.ready = true;
+            } finally {
+                index.lock.writeLock().unlock();
+            }
+            log.info("Emby 搜索索引已加载: configId={}, {} 个媒体项, 耗时 {}ms",
+                configId, total, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // 移除后下次同步写入时重新加载，期间搜索回退到数据库
+            indexes.remove(configId, index);
+            log.warn("加载 Emby 搜索索引失败，搜索回退到数据库: configId={}, {}", configId, e.getMessage());
+        }
+    }
+
+    private static Doc toDoc(EmbyItemCache row, long defaultUpdateTime) {
+        String name = normalize(row.getName());
+        long updateTime = row.getUpdateTime() != null
+            ? row.getUpdateTime().toInstant(ZoneOffset.UTC).toEpochMilli() : defaultUpdateTime;
+        return new Doc(row.getId(), name, normalize(row.getOriginalTitle()), initials(name), updateTime);
+    }
+
+    /**
+     * 全角转半角、去掉重音符号、只保留字母和数字并转小写
+     */
+    static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK && Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 汉字取拼音首字母，ASCII 字母数字原样保留，例如 "钢铁侠3" -> "gtx3"；不含可识别汉字时返回空串
+     */
+    static String initials(String normalized) {
+        StringBuilder sb = new StringBuilder(normalized.length());
+        boolean hasHanzi = false;
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (c >= HANZI_FIRST && c <= HANZI_LAST) {
+                char initial = HANZI_INITIALS[c - HANZI_FIRST];
+                if (initial != 0) {
+                    sb.append(initial);
+                    hasHanzi = true;
+                }
+            } else if (c < 128) {
+                sb.append(c);
+            }
+        }
+        return hasHanzi ? sb.toString() : "";
+    }
+
+    private static Set<String> docGrams(Doc doc) {
+        String text = doc.name + FIELD_SEP + doc.title + FIELD_SEP + doc.initials;
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 1 < text.length(); i++) {
+            if (text.charAt(i) != FIELD_SEP && text.charAt(i + 1) != FIELD_SEP) {
+                grams.add(text.substring(i, i + 2));
+            }
+        }
+        return grams;
+    }
+
+    private static Set<String> grams(String query) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 1 < query.length(); i++) {
+            grams.add(query.substring(i, i + 2));
+        }
+        return grams;
+    }
+
+    /**
+     * 名称 > 原始名称 > 拼音首字母；同一字段 完全相同 > 前缀 > 包含，匹配部分占比越大越靠前；
+     * 都不包含时按命中的 bigram 比例给模糊分
+     */
+    private static int score(Doc doc, String query, double gramRatio) {
+        int score = Math.max(fieldScore(doc.name, query, 100), fieldScore(doc.title, query, 90));
+        score = Math.max(score, fieldScore(doc.initials, query, 60));
+        if (score == 0 && gramRatio >= FUZZY_MIN_RATIO) {
+            score = (int) (40 * gramRatio);
+        }
+        return score;
+    }
+
+    private static int fieldScore(String field, String query, int base) {
+        int pos = field.indexOf(query);
+        if (pos < 0) {
+            return 0;
+        }
+        if (field.length() == query.length()) {
+            return base;
+        }
+        int coverage = query.length() * 10 / field.length();
+        return (pos == 0 ? base - 15 : base - 30) + coverage;
+    }
+
+    private static void offer(PriorityQueue<Hit> top, Doc doc, int score, int limit) {
+        if (score <= 0) {
+            return;
+        }
+        top.add(new Hit(doc, score));
+        if (top.size() > limit) {
+            top.poll();
+        }
+    }
+
+    private static char[] buildHanziInitials() {
+        char[] table = new char[HANZI_LAST - HANZI_FIRST + 1];
+        Charset gb2312;
+        try {
+            gb2312 = Charset.forName("GB2312");
+        } catch (Exception e) {
+            return table;
+        }
+        for (char c = HANZI_FIRST; c <= HANZI_LAST; c++) {
+            byte[] bytes = String.valueOf(c).getBytes(gb2312);
+            if (bytes.length != 2) {
+                continue;
+            }
+            int code = ((bytes[0] & 0xFF) << 8) | (bytes[1] & 0xFF);
+            if (code < GB2312_BOUNDARIES[0] || code > GB2312_LEVEL1_END) {
+                continue;
+            }
+            for (int i = GB2312_BOUNDARIES.length - 1; i >= 0; i--) {
+                if (code >= GB2312_BOUNDARIES[i]) {
+                    table[c - HANZI_FIRST] = GB2312_INITIALS[i];
+                    break;
+                }
+            }
+        }
+        return table;
+    }
+
+}
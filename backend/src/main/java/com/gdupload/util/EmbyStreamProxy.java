@@ -0,0 +1,297 @@
+package com.gdupload.util;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Emby 视频流代理下载
+ * <ul>
+ *   <li>透传客户端的 Range / If-Range，按 Emby 的响应返回 200 / 206 / 416 及 Content-Range、ETag、Last-Modified，
+ *       浏览器拖动进度或断点续传时只传输所需区间</li>
+ *   <li>Servlet 3.1 异步非阻塞写：只在响应可写时由容器回调继续搬运，客户端慢时不占用 Tomcat 工作线程；
+ *       上游读取仍是阻塞的（Emby 通常在内网，读一块很快）</li>
+ *   <li>每个下载一块大缓冲区（默认 1MB）在上游流与响应流之间搬运</li>
+ *   <li>统计进行中的下载以及累计的字节数、吞吐量</li>
+ * </ul>
+ *
+ * @author GD Upload Manager
+ * @since 2026-03-07
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EmbyStreamProxy {
+
+    /** 上游读超时（毫秒） */
+    private static final int STREAM_READ_TIMEOUT = 300000;
+
+    /** 透传给客户端的上游响应头 */
+    private static final String[] PASS_HEADERS = {"Content-Range", "Accept-Ranges", "ETag", "Last-Modified"};
+
+    private static final double MB = 1024.0 * 1024.0;
+
+    private final EmbyHttpClient embyHttpClient;
+
+    /** 每个下载的搬运缓冲区大小（字节） */
+    @Value("${app.emby.proxy.buffer-size:1048576}")
+    private int bufferSize;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentHashMap<Long, Transfer> active = new ConcurrentHashMap<>();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong aborted = new AtomicLong();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong totalMillis = new AtomicLong();
+
+    /**
+     * 代理一次视频流请求；返回时传输已交给容器异步进行
+     *
+     * @param streamUrl 完整的 Emby 流 URL
+     */
+    public void proxy(EmbyHttpClient.Endpoint endpoint, String streamUrl, String itemId, String filename,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        String range = request.getHeader("Range");
+        if (range != null && range.trim().startsWith("bytes=")) {
+            range = range.trim();
+            headers.put("Range", range);
+            String ifRange = request.getHeader("If-Range");
+            if (ifRange != null) {
+                headers.put("If-Range", ifRange);
+            }
+        } else {
+            range = null;
+        }
+
+        HttpURLConnection upstream = embyHttpClient.openStream(endpoint, streamUrl, STREAM_READ_TIMEOUT, headers);
+        int status = upstream.getResponseCode();
+
+        if (status == HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+            log.info("请求区间无效: itemId={}, Range={}", itemId, range);
+            String contentRange = upstream.getHeaderField("Content-Range");
+            upstream.disconnect();
+            response.setStatus(status);
+            if (contentRange != null) {
+                response.setHeader("Content-Range", contentRange);
+            }
+            return;
+        }
+        if (status != HttpServletResponse.SC_OK && status != HttpServletResponse.SC_PARTIAL_CONTENT) {
+            log.error("Emby返回错误状态: {}", status);
+            upstream.disconnect();
+            response.setStatus(status);
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write("Emby服务器返回错误: " + status);
+            return;
+        }
+
+        InputStream in;
+        try {
+            in = upstream.getInputStream();
+        } catch (IOException e) {
+            upstream.disconnect();
+            throw e;
+        }
+
+        String contentType = upstream.getContentType();
+        long length = upstream.getContentLengthLong();
+        log.info("Emby响应 - Status: {}, ContentType: {}, ContentLength: {}, Content-Range: {}",
+            status, contentType, length, upstream.getHeaderField("Content-Range"));
+
+        response.setStatus(status);
+        response.setContentType(contentType != null && !contentType.isEmpty() ? contentType : "video/mp4");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + filename + "\"");
+        if (length >= 0) {
+            response.setContentLengthLong(length);
+        }
+        for (String name : PASS_HEADERS) {
+            String value = upstream.getHeaderField(name);
+            if (value != null) {
+                response.setHeader(name, value);
+            }
+        }
+
+        AsyncContext async = request.startAsync();
+        // 大文件传输时间不可预估，不设整体超时；客户端断开由写失败回调处理
+        async.setTimeout(0);
+        Transfer transfer = new Transfer(sequence.incrementAndGet(), itemId, filename, range, status, length,
+            upstream, in, async, response.getOutputStream());
+        active.put(transfer.id, transfer);
+        async.addListener(transfer);
+        transfer.out.setWriteListener(transfer);
+    }
+
+    /**
+     * 代理下载统计：进行中的下载、完成 / 中断数、累计传输量和平均吞吐
+     */
+    public Map<String, Object> getMetrics() {
+        List<Map<String, Object>> running = new ArrayList<>(active.size());
+        for (Transfer transfer : active.values()) {
+            running.add(transfer.toMap());
+        }
+        running.sort((a, b) -> Long.compare((Long) a.get("id"), (Long) b.get("id")));
+
+        long bytes = totalBytes.get();
+        long millis = totalMillis.get();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("active", running);
+        map.put("completed", completed.get());
+        map.put("aborted", aborted.get());
+        map.put("totalMB", round(bytes / MB));
+        map.put("avgMBps", millis > 0 ? round(bytes / MB / (millis / 1000.0)) : 0.0);
+        return map;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    /**
+     * 单个下载：可写时由容器回调 onWritePossible，读一块写一块，直到输出不可写或上游读完
+     */
+    private final class Transfer implements WriteListener, AsyncListener {
+        final long id;
+        final String itemId;
+        final String filename;
+        final String range;
+        final int status;
+        final long length;
+        final HttpURLConnection upstream;
+        final InputStream in;
+        final AsyncContext async;
+        final ServletOutputStream out;
+        final byte[] buffer = new byte[Math.max(8192, bufferSize)];
+        final long startTime = System.currentTimeMillis();
+        final AtomicBoolean finished = new AtomicBoolean();
+        /** 只由容器回调线程（同一时刻一个）累加 */
+        volatile long bytes;
+
+        Transfer(long id, String itemId, String filename, String range, int status, long length,
+                 HttpURLConnection upstream, InputStream in, AsyncContext async, ServletOutputStream out) {
+            this.id = id;
+            this.itemId = itemId;
+            this.filename = filename;
+            this.range = range;
+            this.status = status;
+            this.length = length;
+            this.upstream = upstream;
+            this.in = in;
+            this.async = async;
+            this.out = out;
+        }
+
+        @Override
+        public void onWritePossible() {
+            try {
+                while (out.isReady()) {
+                    int read = in.read(buffer);
+                    if (read < 0) {
+                        finish(true, null);
+                        return;
+                    }
+                    out.write(buffer, 0, read);
+                    bytes += read;
+                }
+            } catch (IOException e) {
+                finish(false, e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            finish(false, t);
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            finish(false, null);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            finish(false, event.getThrowable());
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            finish(false, event.getThrowable());
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        private void finish(boolean ok, Throwable error) {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            active.remove(id);
+            long elapsed = Math.max(1L, System.currentTimeMillis() - startTime);
+            totalBytes.addAndGet(bytes);
+            totalMillis.addAndGet(elapsed);
+            if (ok) {
+                completed.incrementAndGet();
+                // 读完后关闭输入流，连接回到 keep-alive 连接池
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                    upstream.disconnect();
+                }
+                log.info("代理下载完成: itemId={}, {}{} MB, 耗时 {}s, 平均 {} MB/s", itemId,
+                    range != null ? range + ", " : "", round(bytes / MB), elapsed / 1000, mbps(elapsed));
+            } else {
+                aborted.incrementAndGet();
+                // 未读完的连接不能复用
+                upstream.disconnect();
+                log.info("代理下载中断: itemId={}, 已传输 {} MB, 耗时 {}s, 平均 {} MB/s, 原因: {}", itemId,
+                    round(bytes / MB), elapsed / 1000, mbps(elapsed),
+                    error != null ? error.getMessage() : "连接已结束");
+            }
+            try {
+                async.complete();
+            } catch (IllegalStateException ignored) {
+                // 容器已结束该请求
+            }
+        }
+
+        double mbps(long elapsedMillis) {
+            return round(bytes / MB / (elapsedMillis / 1000.0));
+        }
+
+        Map<String, Object> toMap() {
+            long elapsed = Math.max(1L, System.currentTimeMillis() - startTime);
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("id", id);
+            map.put("itemId", itemId);
+            map.put("filename", filename);
+            map.put("range", range);
+            map.put("status", status);
+            map.put("transferredMB", round(bytes / MB));
+            map.put("totalMB", length >= 0 ? round(length / MB) : null);
+            map.put("elapsedSeconds", elapsed / 1000);
+            map.put("MBps", mbps(elapsed));
+            return map;
+        }
+    }
+}
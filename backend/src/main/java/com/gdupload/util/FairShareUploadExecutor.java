@@ -0,0 +1,234 @@
+package com.gdupload.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 全局公平上传调度器（按任务加权的 Deficit Round Robin）
+ * <p>
+ * 所有任务共用一组上传工作线程（app.upload.concurrent-files 个），但每个任务有自己的队列：
+ * 工作线程空闲时按轮询顺序从有待执行工作的任务中取一个，每轮每个任务可连续执行“优先级”个工作单元
+ * （一个文件或一个小文件批次）。这样多个任务同时推进，后启动的小任务不会被先启动的大任务饿死；
+ * 优先级高的任务按比例获得更多工作线程。
+ * <p>
+ * 各任务的投喂线程本身有界（每个任务最多 concurrent-files 个工作在途），队列长度与任务规模无关。
+ *
+ * @author GD Upload Manager
+ * @since 2026-02-27
+ */
+@Slf4j
+@Component
+public class FairShareUploadExecutor {
+
+    /** 默认优先级（权重） */
+    public static final int DEFAULT_PRIORITY = 5;
+    public static final int MIN_PRIORITY = 1;
+    public static final int MAX_PRIORITY = 10;
+
+    @Value("${app.upload.concurrent-files:10}")
+    private int concurrentFiles;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasWork = lock.newCondition();
+
+    /** taskId -> 队列；迭代顺序即轮询顺序，有工作的任务才在其中 */
+    private final LinkedHashMap<Long, TaskQueue> active = new LinkedHashMap<>();
+    /** 任务权重（任务开始执行时登记，可运行中调整） */
+    private final Map<Long, Integer> weights = new HashMap<>();
+    /** 当前正在服务的任务（DRR 指针） */
+    private TaskQueue current;
+
+    private static final class TaskQueue {
+        final Long taskId;
+        final Deque<Runnable> jobs = new ArrayDeque<>();
+        /** 本轮剩余可执行的工作单元数 */
+        int deficit;
+        /** 正在执行的工作数（监控用） */
+        int running;
+        long completed;
+
+        TaskQueue(Long taskId) {
+            this.taskId = taskId;
+        }
+    }
+
+    /** 全部任务队列（含暂时没有待执行工作的），用于统计正在执行的工作数 */
+    private final Map<Long, TaskQueue> queues = new HashMap<>();
+
+    @PostConstruct
+    private void init() {
+        int poolSize = Math.max(1, concurrentFiles);
+        for (int i = 0; i < poolSize; i++) {
+            Thread thread = new Thread(this::workerLoop);
+            thread.setName("upload-worker-" + thread.getId());
+            thread.setDaemon(true);
+            thread.start();
+        }
+        log.info("上传调度器初始化完成（按任务加权轮询），工作线程数: {}", poolSize);
+    }
+
+    /**
+     * 任务开始执行时登记优先级
+     */
+    public void register(Long taskId, Integer priority) {
+        lock.lock();
+        try {
+            weights.put(taskId, normalize(priority));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 调整运行中任务的优先级；未登记（未运行）的任务忽略，下次开始时从数据库读取
+     */
+    public void setPriority(Long taskId, Integer priority) {
+        int weight = normalize(priority);
+        lock.lock();
+        try {
+            weights.computeIfPresent(taskId, (id, old) -> weight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 任务结束时清理
+     */
+    public void unregister(Long taskId) {
+        lock.lock();
+        try {
+            weights.remove(taskId);
+            TaskQueue queue = queues.get(taskId);
+            if (queue != null && queue.jobs.isEmpty() && queue.running == 0) {
+                queues.remove(taskId);
+                active.remove(taskId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 提交任务的一个工作单元
+     */
+    public void submit(Long taskId, Runnable job) {
+        lock.lock();
+        try {
+            TaskQueue queue = queues.computeIfAbsent(taskId, TaskQueue::new);
+            queue.jobs.addLast(job);
+            if (!active.containsKey(taskId)) {
+                active.put(taskId, queue);
+            }
+            hasWork.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void workerLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            TaskQueue queue;
+            Runnable job;
+            lock.lock();
+            try {
+                while (active.isEmpty()) {
+                    hasWork.await();
+                }
+                queue = next();
+                job = queue.jobs.pollFirst();
+                queue.running++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                job.run();
+            } catch (Throwable t) {
+                log.error("上传工作执行异常: taskId={}", queue.taskId, t);
+            } finally {
+                lock.lock();
+                try {
+                    queue.running--;
+                    queue.completed++;
+                    if (queue.jobs.isEmpty() && queue.running == 0 && !weights.containsKey(queue.taskId)) {
+                        queues.remove(queue.taskId);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * DRR 选择：当前任务本轮额度用完或队列为空时轮到下一个任务，新一轮补充“权重”个额度。
+     * 调用时持有锁且 active 非空。
+     */
+    private TaskQueue next() {
+        if (current == null || current.deficit <= 0 || current.jobs.isEmpty() || !active.containsKey(current.taskId)) {
+            current = rotate();
+            current.deficit = weights.getOrDefault(current.taskId, DEFAULT_PRIORITY);
+        }
+        current.deficit--;
+        if (current.jobs.size() == 1) {
+            // 取走最后一个工作后队列为空，移出轮询
+            active.remove(current.taskId);
+        }
+        return current;
+    }
+
+    /**
+     * 取轮询顺序中的下一个任务（移到末尾，被选中的任务总在末尾，队首即下一个）
+     */
+    private TaskQueue rotate() {
+        TaskQueue queue = active.values().iterator().next();
+        active.remove(queue.taskId);
+        active.put(queue.taskId, queue);
+        return queue;
+    }
+
+    /**
+     * 当前各任务的调度状态（监控用）
+     */
+    public List<Map<String, Object>> getSnapshot() {
+        lock.lock();
+        try {
+            List<Map<String, Object>> result = new ArrayList<>();
+            for (TaskQueue queue : queues.values()) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("taskId", queue.taskId);
+                item.put("priority", weights.getOrDefault(queue.taskId, DEFAULT_PRIORITY));
+                item.put("queued", queue.jobs.size());
+                item.put("running", queue.running);
+                item.put("completed", queue.completed);
+                result.add(item);
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public static int normalize(Integer priority) {
+        if (priority == null) {
+            return DEFAULT_PRIORITY;
+        }
+        return Math.max(MIN_PRIORITY, Math.min(MAX_PRIORITY, priority));
+    }
+}
@@ -0,0 +1,139 @@
+package com.gdupload.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 本地文件 MD5 缓存
+ * <p>
+ * 以（路径, 大小, 修改时间）为键：文件未变化时直接返回上次结果，任务崩溃后重跑不必重新读盘。
+ * 计算时用 FileChannel + 直接缓冲区顺序读取，每个线程复用一块缓冲区，避免堆内拷贝和频繁分配。
+ *
+ * @author GD Upload Manager
+ * @since 2026-02-25
+ */
+@Slf4j
+@Component
+public class FileHashCache {
+
+    /** 每次读取的缓冲区大小 */
+    private static final int BUFFER_SIZE = 4 * 1024 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> BUFFERS =
+        ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    /** 缓存条目数上限（按访问顺序淘汰） */
+    @Value("${app.upload.hash.local-cache-size:100000}")
+    private int maxEntries;
+
+    private final Map<String, Entry> cache = new LinkedHashMap<String, Entry>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > Math.max(1, maxEntries);
+        }
+    };
+
+    private static final class Entry {
+        final long size;
+        final long mtime;
+        final String md5;
+
+        Entry(long size, long mtime, String md5) {
+            this.size = size;
+            this.mtime = mtime;
+            this.md5 = md5;
+        }
+    }
+
+    /**
+     * 获取文件 MD5（小写十六进制），文件大小或修改时间变化后重新计算
+     *
+     * @return MD5，文件不存在或读取失败时返回 null
+     */
+    public String md5(Path file) {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            log.debug("读取文件属性失败: {}, {}", file, e.getMessage());
+            return null;
+        }
+        if (!attrs.isRegularFile()) {
+            return null;
+        }
+        String key = file.toAbsolutePath().toString();
+        long size = attrs.size();
+        long mtime = attrs.lastModifiedTime().toMillis();
+
+        synchronized (cache) {
+            Entry entry = cache.get(key);
+            if (entry != null && entry.size == size && entry.mtime == mtime) {
+                return entry.md5;
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        String md5;
+        try {
+            md5 = compute(file);
+        } catch (IOException e) {
+            log.warn("计算文件MD5失败: {}, {}", file, e.getMessage());
+            return null;
+        }
+        long cost = System.currentTimeMillis() - start;
+        if (cost > 5000) {
+            log.info("计算文件MD5: {}, 大小={}, 耗时={}ms", file, size, cost);
+        }
+
+        synchronized (cache) {
+            cache.put(key, new Entry(size, mtime, md5));
+        }
+        return md5;
+    }
+
+    /**
+     * 文件移动 / 删除后清除缓存
+     */
+    public void invalidate(Path file) {
+        synchronized (cache) {
+            cache.remove(file.toAbsolutePath().toString());
+        }
+    }
+
+    private static String compute(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5计算失败", e);
+        }
+        ByteBuffer buffer = BUFFERS.get();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer.clear();
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        byte[] bytes = digest.digest();
+        StringBuilder sb = new StringBuilder(32);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
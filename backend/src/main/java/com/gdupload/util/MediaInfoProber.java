@@ -0,0 +1,246 @@
+package com.gdupload.util;
+
+import com.gdupload.dto.ArchiveAnalyzeResult;
+import com.gdupload.dto.MediaInfoDto;
+import com.gdupload.entity.MediaProbeCache;
+import com.gdupload.mapper.MediaProbeCacheMapper;
+import com.gdupload.service.IArchiveService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 上传前本地媒体探测（ffprobe）结果缓存
+ * <ul>
+ *   <li>以（绝对路径, 大小, 修改时间）为键持久化在 media_probe_cache 表中，任务重试 / 重跑时不再探测同一文件；
+ *       最近使用的结果同时保留在内存中，命中时不查库</li>
+ *   <li>目录级推断：同一目录下发布组、分辨率标记、扩展名都相同的剧集，编码几乎总是一致，
+ *       探测其中一集后其余各集直接沿用（并发上传时其余各集等待首集探测完成）；
+ *       文件名中没有分辨率标记时不推断，避免把一集的分辨率套到其他集</li>
+ *   <li>超过 retention-days 未更新的记录每天清理一次（上传后本地文件通常已删除，记录不会再命中）</li>
+ * </ul>
+ *
+ * @author GD Upload Manager
+ * @since 2026-03-01
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MediaInfoProber {
+
+    /** 目录级推断最多记录的（目录, 发布组）数 */
+    private static final int MAX_SIBLING_GROUPS = 2000;
+
+    /** 清理过期记录时每批删除的行数 */
+    private static final int PRUNE_BATCH = 5000;
+
+    private final IArchiveService archiveService;
+    private final MediaProbeCacheMapper mediaProbeCacheMapper;
+
+    /** 内存缓存条目数上限（按访问顺序淘汰） */
+    @Value("${app.upload.media-probe.cache-size:20000}")
+    private int maxEntries;
+
+    /** 是否启用目录级推断 */
+    @Value("${app.upload.media-probe.dir-inference:true}")
+    private boolean dirInference;
+
+    /** 持久化记录的保留天数（按最后更新时间） */
+    @Value("${app.upload.media-probe.retention-days:30}")
+    private int retentionDays;
+
+    private final Map<String, MediaProbeCache> cache = new LinkedHashMap<String, MediaProbeCache>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, MediaProbeCache> eldest) {
+            return size() > Math.max(1, maxEntries);
+        }
+    };
+
+    /** 目录级推断结果：key = 目录|发布组|分辨率标记|扩展名 */
+    private final Map<String, MediaInfoDto> siblings = new LinkedHashMap<String, MediaInfoDto>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, MediaInfoDto> eldest) {
+            return size() > MAX_SIBLING_GROUPS;
+        }
+    };
+
+    /** 同一组剧集只探测一次 */
+    private final ConcurrentHashMap<String, Object> probeLocks = new ConcurrentHashMap<>();
+
+    /**
+     * 获取本地媒体文件的编码信息
+     *
+     * @param file     本地文件
+     * @param analyzed 文件名解析结果（发布组、分辨率标记用于目录级推断，可为 null）
+     * @return 探测结果（每次返回新对象），ffprobe 不可用或文件无法读取时返回 null
+     */
+    public MediaInfoDto probe(Path file, ArchiveAnalyzeResult analyzed) {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            log.debug("读取文件属性失败: {}, {}", file, e.getMessage());
+            return null;
+        }
+        if (!attrs.isRegularFile()) {
+            return null;
+        }
+        String path = file.toAbsolutePath().toString();
+        long size = attrs.size();
+        long mtime = attrs.lastModifiedTime().toMillis();
+
+        MediaProbeCache cached = lookup(path, size, mtime);
+        if (cached != null) {
+            log.info("媒体探测缓存命中: {}", path);
+            return toDto(cached);
+        }
+
+        String siblingKey = siblingKey(file, analyzed);
+        if (siblingKey == null) {
+            return probeAndSave(path, size, mtime);
+        }
+        Object lock = probeLocks.computeIfAbsent(siblingKey, k -> new Object());
+        try {
+            synchronized (lock) {
+                MediaInfoDto inferred;
+                synchronized (siblings) {
+                    inferred = siblings.get(siblingKey);
+                }
+                if (inferred != null) {
+                    log.info("沿用同目录同发布组剧集的探测结果: {} -> [{}, {}, {}]", path,
+                        inferred.getResolution(), inferred.getVideoCodec(), inferred.getAudioCodec());
+                    return copy(inferred);
+                }
+                MediaInfoDto info = probeAndSave(path, size, mtime);
+                if (info != null) {
+                    synchronized (siblings) {
+                        siblings.put(siblingKey, copy(info));
+                    }
+                }
+                return info;
+            }
+        } finally {
+            probeLocks.remove(siblingKey, lock);
+        }
+    }
+
+    /**
+     * 清理超过保留天数的探测记录（分批删除，避免长时间锁表）
+     */
+    @Scheduled(cron = "${app.upload.media-probe.prune-cron:0 30 4 * * ?}")
+    public void pruneExpired() {
+        if (retentionDays <= 0) {
+            return;
+        }
+        int total = 0;
+        try {
+            int deleted;
+            do {
+                deleted = mediaProbeCacheMapper.deleteExpired(retentionDays, PRUNE_BATCH);
+                total += deleted;
+            } while (deleted >= PRUNE_BATCH);
+        } catch (Exception e) {
+            log.warn("清理媒体探测缓存失败: {}", e.getMessage());
+        }
+        if (total > 0) {
+            log.info("清理过期媒体探测缓存: {} 条（保留 {} 天）", total, retentionDays);
+        }
+    }
+
+    private MediaInfoDto probeAndSave(String path, long size, long mtime) {
+        MediaInfoDto info = archiveService.getMediaInfo(path, null);
+        if (info == null) {
+            return null;
+        }
+        MediaProbeCache record = new MediaProbeCache();
+        record.setPathHash(MediaProbeCache.hash(path));
+        record.setFilePath(path);
+        record.setFileSize(size);
+        record.setFileMtime(mtime);
+        record.setVideoCodec(info.getVideoCodec());
+        record.setAudioCodec(info.getAudioCodec());
+        record.setResolution(info.getResolution());
+        record.setWidth(info.getWidth());
+        record.setHeight(info.getHeight());
+        synchronized (cache) {
+            cache.put(path, record);
+        }
+        try {
+            mediaProbeCacheMapper.upsert(record);
+        } catch (Exception e) {
+            log.warn("写入媒体探测缓存失败: {}, {}", path, e.getMessage());
+        }
+        return info;
+    }
+
+    private MediaProbeCache lookup(String path, long size, long mtime) {
+        MediaProbeCache entry;
+        synchronized (cache) {
+            entry = cache.get(path);
+        }
+        if (entry == null) {
+            try {
+                entry = mediaProbeCacheMapper.selectByPathHash(MediaProbeCache.hash(path));
+            } catch (Exception e) {
+                log.warn("读取媒体探测缓存失败: {}, {}", path, e.getMessage());
+                return null;
+            }
+            if (entry == null) {
+                return null;
+            }
+            synchronized (cache) {
+                cache.put(path, entry);
+            }
+        }
+        boolean valid = entry.getFileSize() != null && entry.getFileSize() == size
+            && entry.getFileMtime() != null && entry.getFileMtime() == mtime;
+        return valid ? entry : null;
+    }
+
+    private String siblingKey(Path file, ArchiveAnalyzeResult analyzed) {
+        if (!dirInference || analyzed == null || analyzed.getSubtitleGroup() == null
+            || analyzed.getSubtitleGroup().trim().isEmpty() || file.getParent() == null) {
+            return null;
+        }
+        // 没有分辨率标记时无法确认各集分辨率一致，不推断
+        if (analyzed.getResolution() == null || analyzed.getResolution().trim().isEmpty()) {
+            return null;
+        }
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String ext = dot >= 0 ? name.substring(dot + 1).toLowerCase() : "";
+        String resolution = analyzed.getResolution().trim().toLowerCase();
+        return file.toAbsolutePath().getParent() + "|" + analyzed.getSubtitleGroup().trim().toLowerCase()
+            + "|" + resolution + "|" + ext;
+    }
+
+    private static MediaInfoDto toDto(MediaProbeCache record) {
+        MediaInfoDto dto = new MediaInfoDto();
+        dto.setVideoCodec(record.getVideoCodec());
+        dto.setAudioCodec(record.getAudioCodec());
+        dto.setResolution(record.getResolution());
+        dto.setWidth(record.getWidth());
+        dto.setHeight(record.getHeight());
+        return dto;
+    }
+
+    private static MediaInfoDto copy(MediaInfoDto info) {
+        MediaInfoDto dto = new MediaInfoDto();
+        dto.setVideoCodec(info.getVideoCodec());
+        dto.setAudioCodec(info.getAudioCodec());
+        dto.setResolution(info.getResolution());
+        dto.setWidth(info.getWidth());
+        dto.setHeight(info.getHeight());
+        return dto;
+    }
+}
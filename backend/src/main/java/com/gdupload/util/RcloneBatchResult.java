@@ -0,0 +1,52 @@
+package com.gdupload.util;
+
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 批量上传（rclone move --files-from-raw）执行结果
+ * <p>
+ * {@link #getResult()} 为整个 rclone 进程的结果（配额超限 / 超时 / 中断 / 退出码），
+ * 每个文件的结果从 JSON 日志中按对象名（相对源目录的文件名）解析。
+ *
+ * @author GD Upload Manager
+ * @since 2026-02-22
+ */
+@Getter
+public class RcloneBatchResult {
+
+    /** 整个 rclone 进程的执行结果 */
+    private final RcloneResult result;
+
+    /** 日志中确认已上传（或目标端已存在、源文件已删除）的文件名 */
+    private final Set<String> succeeded;
+
+    /** 日志中报错且最终未成功的文件名 -> 错误信息 */
+    private final Map<String, String> failed;
+
+    public RcloneBatchResult(RcloneResult result, Set<String> succeeded, Map<String, String> failed) {
+        this.result = result;
+        this.succeeded = succeeded;
+        this.failed = failed;
+    }
+
+    /**
+     * 文件是否确定上传成功。
+     * 日志中没有该文件的任何记录时，以进程是否正常退出为准（rclone 对未变化的文件不输出 info 日志）。
+     */
+    public boolean isSucceeded(String name) {
+        if (succeeded.contains(name)) {
+            return true;
+        }
+        return !failed.containsKey(name) && result.isSuccess();
+    }
+
+    /**
+     * 文件是否被 rclone 明确报告为失败
+     */
+    public boolean isFailed(String name) {
+        return failed.containsKey(name) && !succeeded.contains(name);
+    }
+}
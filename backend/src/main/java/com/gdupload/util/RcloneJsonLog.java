@@ -0,0 +1,78 @@
+package com.gdupload.util;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * rclone --use-json-log 日志行解析
+ * <p>
+ * 每行形如：
+ * <pre>
+ * {"level":"info","msg":"Copied (new)","object":"a.srt","objectType":"*local.Object","source":"operations/copy.go:...","time":"..."}
+ * {"level":"error","msg":"Failed to copy: googleapi: ...","object":"b.nfo",...}
+ * </pre>
+ * 非 JSON 行（rclone 启动前的输出、panic 信息等）返回 null。
+ *
+ * @author GD Upload Manager
+ * @since 2026-02-22
+ */
+public final class RcloneJsonLog {
+
+    private RcloneJsonLog() {
+    }
+
+    /**
+     * 单条日志
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Entry {
+        /** debug / info / notice / warning / error */
+        private String level;
+        private String msg;
+        /** 日志关联的对象（相对源/目标根目录的路径），与对象无关的日志为 null */
+        private String object;
+        /** 原始 JSON，供需要额外字段（如 stats）的调用方使用 */
+        private JSONObject raw;
+
+        public boolean isError() {
+            return "error".equals(level) || "critical".equals(level);
+        }
+
+        /**
+         * 对象已传输到目标端（copy 的 "Copied (new)" / "Copied (replaced existing)"，
+         * 服务端移动的 "Moved (server-side)"）
+         */
+        public boolean isTransferred() {
+            return object != null && msg != null && (msg.startsWith("Copied") || msg.startsWith("Moved"));
+        }
+
+        /**
+         * move 模式下源文件已删除（目标端已有相同文件时 rclone 直接删除源文件，不会输出 Copied）
+         */
+        public boolean isSourceDeleted() {
+            return object != null && "Deleted".equals(msg);
+        }
+    }
+
+    /**
+     * 解析一行日志，非 JSON 行返回 null
+     */
+    public static Entry parse(String line) {
+        if (line == null) {
+            return null;
+        }
+        String trimmed = line.trim();
+        if (!trimmed.startsWith("{") || !JSONUtil.isTypeJSONObject(trimmed)) {
+            return null;
+        }
+        try {
+            JSONObject json = JSONUtil.parseObj(trimmed);
+            return new Entry(json.getStr("level"), json.getStr("msg"), json.getStr("object"), json);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
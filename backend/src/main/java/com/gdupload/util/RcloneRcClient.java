@@ -0,0 +1,633 @@
+package com.gdupload.util;
+
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.http.HttpRequest;
+import cn.hutool.http.HttpResponse;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * rclone rcd 常驻进程客户端。
+ * <p>
+ * 通过本地 remote-control HTTP API 调用 rclone，避免每次操作都 fork 新进程、重新解析配置、重新加载 OAuth token。
+ * 守护进程在首次调用时按需启动（也可连接已在运行的外部 rcd），HTTP 连接由 JDK keep-alive 复用。
+ * <p>
+ * 调用失败分两类：
+ * <ul>
+ *   <li>连接失败（rcd 未启动/连接被拒）→ 抛出 {@link RcloneRcException#isUnavailable()} = true，由 RcloneUtil 回退到进程模式</li>
+ *   <li>请求已发出但响应丢失（读超时、连接中途断开）→ {@link RcloneRcException#isOutcomeUnknown()} = true，
+ *       rcd 可能已经执行了操作，不能回退到进程模式重复执行</li>
+ *   <li>rclone 返回的业务错误（文件不存在、配额超限等）→ 正常返回错误信息，不回退</li>
+ * </ul>
+ * rc 接口始终带认证：未配置用户名时每次启动生成随机凭据，凭据通过环境变量传给 rcd，不出现在进程命令行里。
+ * <p>
+ * 默认启用（app.rclone.rc.enabled 缺省为 true，与 application.yml 一致）。监听地址上已有 rcd 但认证失败时
+ * （通常是上次运行遗留、使用上次随机凭据的 rcd），不会再启动新的 rcd，启动时和探测时都打印告警并回退到进程模式。
+ *
+ * @author GD Upload Manager
+ * @since 2026-01-18
+ */
+@Slf4j
+@Component
+public class RcloneRcClient {
+
+    @Value("${app.rclone.rc.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.rclone.rc.address:127.0.0.1:5572}")
+    private String address;
+
+    @Value("${app.rclone.rc.user:}")
+    private String user;
+
+    @Value("${app.rclone.rc.pass:}")
+    private String pass;
+
+    @Value("${app.rclone.rc.auto-start:true}")
+    private boolean autoStart;
+
+    @Value("${app.rclone.rc.connect-timeout:3000}")
+    private int connectTimeout;
+
+    @Value("${app.rclone.rc.poll-interval:1000}")
+    private long pollInterval;
+
+    @Value("${app.rclone.rc.log-file:logs/rclone-rcd.log}")
+    private String logFile;
+
+    @Value("${app.rclone.path:/usr/bin/rclone}")
+    private String rclonePath;
+
+    @Value("${app.rclone.config-path:~/.config/rclone/rclone.conf}")
+    private String rcloneConfigPath;
+
+    @Value("${app.rclone.multi-thread-streams:24}")
+    private Integer multiThreadStreams;
+
+    @Value("${app.rclone.buffer-size:512M}")
+    private String bufferSize;
+
+    @Value("${app.rclone.drive-chunk-size:512M}")
+    private String driveChunkSize;
+
+    @Value("${app.rclone.timeout:3600}")
+    private Integer timeout;
+
+    /** 不可用后的冷却时间：期间直接走进程模式，不反复探测 */
+    private static final long UNAVAILABLE_COOLDOWN_MS = 30_000;
+
+    /** 由本服务启动的 rcd 进程（连接外部 rcd 时为 null） */
+    private volatile Process daemon;
+
+    private volatile boolean healthy;
+    private volatile long unavailableUntil;
+
+    // ─── 可用性 / 守护进程生命周期 ─────────────────────────────────
+
+    /**
+     * rc 模式是否可用（未启用、启动失败、冷却期内均返回 false）
+     */
+    public boolean isAvailable() {
+        if (!enabled) return false;
+        if (healthy && (daemon == null || daemon.isAlive())) return true;
+        if (System.currentTimeMillis() < unavailableUntil) return false;
+        return ensureDaemon();
+    }
+
+    private synchronized boolean ensureDaemon() {
+        if (healthy && (daemon == null || daemon.isAlive())) return true;
+        if (System.currentTimeMillis() < unavailableUntil) return false;
+
+        int status = probe();
+        if (status == 200) {
+            log.info("已连接 rclone rcd: {}", address);
+            healthy = true;
+            return true;
+        }
+        if (isAuthRejected(status)) {
+            // 端口已被占用，启动新的 rcd 也会失败
+            warnStaleDaemon(status);
+            markUnavailable("rcd 认证失败");
+            return false;
+        }
+
+        if (autoStart) {
+            startDaemon();
+            // rcd 启动需要一点时间，最多等待 10 秒
+            for (int i = 0; i < 20; i++) {
+                if (ping()) {
+                    log.info("rclone rcd 已启动: address={}", address);
+                    healthy = true;
+                    return true;
+                }
+                if (daemon != null && !daemon.isAlive()) break;
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        markUnavailable("rcd 不可达");
+        return false;
+    }
+
+    private void startDaemon() {
+        if (daemon != null && daemon.isAlive()) return;
+
+        List<String> command = new ArrayList<>();
+        command.add(rclonePath);
+        command.add("rcd");
+        command.add("--rc-addr");
+        command.add(address);
+        command.add("--config");
+        command.add(rcloneConfigPath);
+        // 全局传输参数与进程模式 uploadSingleFileTo 保持一致
+        command.add("--buffer-size");
+        command.add(bufferSize);
+        command.add("--drive-chunk-size");
+        command.add(driveChunkSize);
+        command.add("--drive-upload-cutoff");
+        command.add(driveChunkSize);
+        command.add("--multi-thread-streams");
+        command.add(String.valueOf(multiThreadStreams));
+        command.add("--ignore-checksum");
+        command.add("--timeout");
+        command.add("30m");
+        command.add("--contimeout");
+        command.add("120s");
+        command.add("--low-level-retries");
+        command.add("10");
+        command.add("-v");
+
+        try {
+            File out = new File(logFile);
+            if (out.getParentFile() != null) {
+                out.getParentFile().mkdirs();
+            }
+            ProcessBuilder pb = new ProcessBuilder(command);
+            // 认证信息走环境变量（等价 --rc-user/--rc-pass），避免通过 ps 泄露
+            pb.environment().put("RCLONE_RC_USER", user);
+            pb.environment().put("RCLONE_RC_PASS", pass);
+            pb.redirectErrorStream(true);
+            pb.redirectOutput(ProcessBuilder.Redirect.appendTo(out));
+            daemon = pb.start();
+            log.info("启动 rclone rcd: {}", String.join(" ", command));
+        } catch (Exception e) {
+            log.error("启动 rclone rcd 失败: {}", e.getMessage());
+            daemon = null;
+        }
+    }
+
+    private boolean ping() {
+        return probe() == 200;
+    }
+
+    /**
+     * 探测 rcd：返回 HTTP 状态码，连接失败返回 -1
+     */
+    private int probe() {
+        try {
+            HttpResponse response = newRequest("rc/noop", new JSONObject(), connectTimeout).execute();
+            return response.getStatus();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static boolean isAuthRejected(int status) {
+        return status == 401 || status == 403;
+    }
+
+    private void warnStaleDaemon(int status) {
+        log.warn("rclone rcd 地址 {} 上已有进程在监听但认证失败(HTTP {})，可能是上次运行遗留的 rcd（使用上次的随机凭据）。"
+            + "请结束该进程，或在 app.rclone.rc.user/pass 中配置与其一致的凭据；在此之前全部走进程模式", address, status);
+    }
+
+    /**
+     * 启动时检查监听地址上是否有无法认证的 rcd（不主动启动 rcd，首次调用时再按需启动）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkStaleDaemon() {
+        if (!enabled) {
+            return;
+        }
+        int status = probe();
+        if (isAuthRejected(status)) {
+            warnStaleDaemon(status);
+        }
+    }
+
+    private void markUnavailable(String reason) {
+        healthy = false;
+        unavailableUntil = System.currentTimeMillis() + UNAVAILABLE_COOLDOWN_MS;
+        log.warn("rclone rc 不可用，{} 秒内回退到进程模式: {}", UNAVAILABLE_COOLDOWN_MS / 1000, reason);
+    }
+
+    /**
+     * 未配置 rc 用户名时生成随机凭据，不以 --rc-no-auth 暴露 rc 接口
+     * （rc 可对所有已配置远端执行复制/移动/删除，本机任意进程都能访问监听地址）
+     */
+    @PostConstruct
+    public void initCredentials() {
+        if (StrUtil.isBlank(user)) {
+            byte[] bytes = new byte[24];
+            new SecureRandom().nextBytes(bytes);
+            user = "gdupload";
+            pass = HexUtil.encodeHexStr(bytes);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Process p = daemon;
+        if (p != null && p.isAlive()) {
+            log.info("关闭 rclone rcd");
+            p.destroy();
+        }
+    }
+
+    // ─── 通用调用 ─────────────────────────────────────────────────
+
+    /**
+     * 同步调用 rc 接口
+     *
+     * @param path   rc 路径，如 operations/mkdir
+     * @param params 参数
+     * @return 响应 JSON
+     * @throws RcloneRcException 连接失败（unavailable=true）、请求已发出但结果未知（outcomeUnknown=true）
+     *                           或 rclone 返回错误
+     */
+    public JSONObject call(String path, Map<String, Object> params) {
+        HttpResponse response;
+        try {
+            response = newRequest(path, params, timeout * 1000).execute();
+        } catch (Exception e) {
+            if (isConnectFailure(e)) {
+                markUnavailable(e.getMessage());
+                throw new RcloneRcException("rc 调用失败: " + path + ", " + e.getMessage(), true);
+            }
+            // 连接已建立、请求可能已被 rcd 执行，只是没拿到响应：不标记不可用，也不允许调用方回退重做
+            throw new RcloneRcException("rc 调用结果未知: " + path + ", " + e.getMessage(), false, true);
+        }
+
+        String body = response.body();
+        JSONObject json = JSONUtil.isTypeJSONObject(body) ? JSONUtil.parseObj(body) : new JSONObject();
+        if (!response.isOk()) {
+            String error = json.getStr("error", "HTTP " + response.getStatus());
+            throw new RcloneRcException(error, false);
+        }
+        return json;
+    }
+
+    /**
+     * 是否为建立连接阶段的失败（此时请求一定没有到达 rcd）
+     */
+    private static boolean isConnectFailure(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ConnectException || t instanceof NoRouteToHostException || t instanceof UnknownHostException) {
+                return true;
+            }
+            if (t instanceof SocketTimeoutException && StrUtil.containsIgnoreCase(t.getMessage(), "connect")) {
+                return true;
+            }
+            if (t.getCause() == t) break;
+        }
+        return false;
+    }
+
+    /**
+     * 以异步 job 方式执行长耗时操作（上传/移动），轮询 job/status 直到结束。
+     * 调用线程被中断时会通过 job/stop 终止 rclone 侧的传输。
+     */
+    public RcloneResult callJob(String path, Map<String, Object> params, Consumer<String> logConsumer) {
+        Map<String, Object> asyncParams = new LinkedHashMap<>(params);
+        asyncParams.put("_async", true);
+
+        long jobId;
+        try {
+            jobId = call(path, asyncParams).getLong("jobid");
+        } catch (RcloneRcException e) {
+            if (e.isUnavailable()) throw e;
+            if (e.isOutcomeUnknown()) {
+                // 提交请求的响应丢失，job 可能已在运行：返回失败而不是回退到进程模式重复执行
+                log.error("提交 rc job 结果未知，不重复执行: path={}, err={}", path, e.getMessage());
+                return RcloneResult.failure(e.getMessage(), false);
+            }
+            return toResult(e.getMessage());
+        }
+
+        Map<String, Object> statusParams = new LinkedHashMap<>();
+        statusParams.put("jobid", jobId);
+        // 所属任务被暂停/取消时立即终止 job（job 结束后下面的轮询自然返回）
+        final long stoppableJob = jobId;
+        TaskPauseManager.Registration stopRegistration = TaskPauseManager.onStop(() -> stopJob(stoppableJob));
+        try {
+            while (true) {
+                Thread.sleep(pollInterval);
+                if (logConsumer != null) {
+                    emitJobStats(jobId, logConsumer);
+                }
+                JSONObject status = call("job/status", statusParams);
+                if (status.getBool("finished", false)) {
+                    if (status.getBool("success", false)) {
+                        if (logConsumer != null) {
+                            logConsumer.accept(String.format("rc job %d 完成: %s, 耗时 %.1fs", jobId, path, status.getDouble("duration", 0d)));
+                        }
+                        return RcloneResult.success();
+                    }
+                    String error = status.getStr("error", "unknown error");
+                    if (logConsumer != null) {
+                        logConsumer.accept("rc job " + jobId + " 失败: " + error);
+                    }
+                    if (TaskPauseManager.isCurrentTaskStopping()) {
+                        return RcloneResult.interrupted("任务已停止，rc job 已终止: " + jobId);
+                    }
+                    return toResult(error);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopJob(jobId);
+            return RcloneResult.interrupted("rc job 被中断: " + jobId);
+        } catch (RcloneRcException e) {
+            // job 已提交到 rcd，传输可能仍在进行，不能回退到进程模式重复上传
+            log.error("轮询 rc job 状态失败: jobId={}, err={}", jobId, e.getMessage());
+            return RcloneResult.failure(e.getMessage(), false);
+        } finally {
+            stopRegistration.close();
+        }
+    }
+
+    /**
+     * 把 job 的传输统计按进程模式 --use-json-log 的格式（{"level":"info","msg":"stats","stats":{...}}）交给 logConsumer，
+     * 两种模式共用同一套解析（见 RcloneStats）
+     */
+    private void emitJobStats(long jobId, Consumer<String> logConsumer) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("group", "job/" + jobId);
+        try {
+            JSONObject stats = call("core/stats", params);
+            JSONObject line = new JSONObject();
+            line.set("level", "info");
+            line.set("msg", "stats");
+            line.set("stats", stats);
+            logConsumer.accept(line.toString());
+        } catch (RcloneRcException e) {
+            log.debug("获取 rc job 统计失败: jobId={}, err={}", jobId, e.getMessage());
+        }
+    }
+
+    /**
+     * 终止 rc job
+     */
+    public void stopJob(long jobId) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("jobid", jobId);
+        try {
+            call("job/stop", params);
+            log.info("已终止 rc job: {}", jobId);
+        } catch (RcloneRcException e) {
+            log.warn("终止 rc job 失败: jobId={}, err={}", jobId, e.getMessage());
+        }
+    }
+
+    private HttpRequest newRequest(String path, Map<String, Object> params, int readTimeout) {
+        HttpRequest request = HttpRequest.post("http://" + address + "/" + path)
+                .header("Content-Type", "application/json")
+                .body(JSONUtil.toJsonStr(params))
+                .keepAlive(true)
+                .setConnectionTimeout(connectTimeout)
+                .setReadTimeout(readTimeout);
+        if (StrUtil.isNotBlank(user)) {
+            request.basicAuth(user, pass);
+        }
+        return request;
+    }
+
+    private static RcloneResult toResult(String error) {
+        boolean quotaExceeded = error != null && (error.contains("User rate limit exceeded")
+                || error.contains("userRateLimitExceeded")
+                || error.contains("quota exceeded"));
+        RcloneResult result = RcloneResult.failure(error, quotaExceeded);
+        // rc 模式只能看到 job 的最终错误，底层重试过程中的限流不可见
+        if (RcloneResult.isRateLimitMessage(error)) {
+            result.setRateLimitHits(1);
+        }
+        return result;
+    }
+
+    // ─── 具体操作 ─────────────────────────────────────────────────
+
+    /**
+     * operations/stat：返回条目信息，不存在时返回 null
+     */
+    public JSONObject stat(String remoteName, String path) {
+        JSONObject resp = call("operations/stat", fsParams(remoteName, path));
+        return resp.getJSONObject("item");
+    }
+
+    /**
+     * operations/size：返回总字节数
+     */
+    public long size(String remoteName, String path) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("fs", fs(remoteName, path));
+        return call("operations/size", params).getLong("bytes", 0L);
+    }
+
+    /**
+     * operations/mkdir
+     */
+    public void mkdir(String remoteName, String path) {
+        call("operations/mkdir", fsParams(remoteName, path));
+    }
+
+    /**
+     * operations/list，返回与 rclone lsjson 相同结构的 JSON 数组字符串
+     */
+    public String listJson(String remoteName, String path, boolean recursive, boolean filesOnly) {
+        return listJson(remoteName, path, recursive, filesOnly, false);
+    }
+
+    /**
+     * operations/list，md5 为 true 时同时返回 MD5（Hashes.md5）
+     */
+    public String listJson(String remoteName, String path, boolean recursive, boolean filesOnly, boolean md5) {
+        Map<String, Object> params = fsParams(remoteName, path);
+        Map<String, Object> opt = new LinkedHashMap<>();
+        if (recursive) opt.put("recurse", true);
+        if (filesOnly) opt.put("filesOnly", true);
+        if (md5) {
+            opt.put("showHash", true);
+            opt.put("hashTypes", Collections.singletonList("md5"));
+        }
+        if (!opt.isEmpty()) params.put("opt", opt);
+        JSONArray list = call("operations/list", params).getJSONArray("list");
+        return list != null ? list.toString() : "[]";
+    }
+
+    /**
+     * operations/deletefile
+     */
+    public void deleteFile(String remoteName, String path) {
+        callDelete("operations/deletefile", remoteName, path);
+    }
+
+    /**
+     * operations/purge
+     */
+    public void purge(String remoteName, String path) {
+        callDelete("operations/purge", remoteName, path);
+    }
+
+    /**
+     * 删除类操作：响应丢失时用 stat 确认结果，目标已不存在即视为成功，不重复删除
+     */
+    private void callDelete(String op, String remoteName, String path) {
+        try {
+            call(op, fsParams(remoteName, path));
+        } catch (RcloneRcException e) {
+            if (!e.isOutcomeUnknown()) throw e;
+            JSONObject item;
+            try {
+                item = stat(remoteName, path);
+            } catch (RcloneRcException statError) {
+                throw e;
+            }
+            if (item != null) {
+                throw new RcloneRcException(op + " 结果未知且目标仍存在: " + path, false);
+            }
+            log.info("{} 响应丢失，确认目标已删除: {}", op, path);
+        }
+    }
+
+    /**
+     * operations/movefile：同一远端内移动/重命名单个文件（服务端操作）
+     */
+    public RcloneResult moveFile(String remoteName, String oldPath, String newPath, Consumer<String> logConsumer) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("srcFs", remoteName + ":");
+        params.put("srcRemote", trimSlash(oldPath));
+        params.put("dstFs", remoteName + ":");
+        params.put("dstRemote", trimSlash(newPath));
+        return callJob("operations/movefile", params, logConsumer);
+    }
+
+    /**
+     * sync/move：移动整个目录并删除空的源目录
+     */
+    public RcloneResult moveDir(String remoteName, String oldPath, String newPath, Consumer<String> logConsumer) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("srcFs", fs(remoteName, oldPath));
+        params.put("dstFs", fs(remoteName, newPath));
+        params.put("deleteEmptySrcDirs", true);
+        return callJob("sync/move", params, logConsumer);
+    }
+
+    /**
+     * operations/movefile：把本地单个文件上传到远端指定路径（含文件名），成功后删除本地文件（等价 rclone moveto）
+     */
+    public RcloneResult uploadFile(String localFilePath, String remoteName, String targetFilePath, Consumer<String> logConsumer) {
+        File local = new File(localFilePath);
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("srcFs", local.getAbsoluteFile().getParent());
+        params.put("srcRemote", local.getName());
+        params.put("dstFs", remoteName + ":");
+        params.put("dstRemote", trimSlash(targetFilePath));
+        return callJob("operations/movefile", params, logConsumer);
+    }
+
+    /**
+     * operations/copyfile：把本地单个文件复制到远端指定路径（保留本地文件）
+     */
+    public RcloneResult copyFile(String localFilePath, String remoteName, String targetFilePath, Consumer<String> logConsumer) {
+        File local = new File(localFilePath);
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("srcFs", local.getAbsoluteFile().getParent());
+        params.put("srcRemote", local.getName());
+        params.put("dstFs", remoteName + ":");
+        params.put("dstRemote", trimSlash(targetFilePath));
+        return callJob("operations/copyfile", params, logConsumer);
+    }
+
+    /**
+     * core/stats：全局传输统计（速度、已传字节、正在传输的文件等）
+     */
+    public JSONObject coreStats() {
+        return call("core/stats", new LinkedHashMap<>());
+    }
+
+    private static Map<String, Object> fsParams(String remoteName, String path) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("fs", remoteName + ":");
+        params.put("remote", trimSlash(path));
+        return params;
+    }
+
+    private static String fs(String remoteName, String path) {
+        return StrUtil.isBlank(path) ? remoteName + ":" : remoteName + ":" + path;
+    }
+
+    private static String trimSlash(String path) {
+        if (path == null) return "";
+        String p = path;
+        while (p.startsWith("/")) p = p.substring(1);
+        while (p.endsWith("/")) p = p.substring(0, p.length() - 1);
+        return p;
+    }
+
+    /**
+     * rc 调用异常
+     */
+    public static class RcloneRcException extends RuntimeException {
+
+        /** 是否为传输层不可用（需要回退到进程模式） */
+        private final boolean unavailable;
+
+        /** 请求已发出但没拿到响应，rcd 侧可能已经执行 */
+        private final boolean outcomeUnknown;
+
+        public RcloneRcException(String message, boolean unavailable) {
+            this(message, unavailable, false);
+        }
+
+        public RcloneRcException(String message, boolean unavailable, boolean outcomeUnknown) {
+            super(message);
+            this.unavailable = unavailable;
+            this.outcomeUnknown = outcomeUnknown;
+        }
+
+        public boolean isUnavailable() {
+            return unavailable;
+        }
+
+        public boolean isOutcomeUnknown() {
+            return outcomeUnknown;
+        }
+    }
+}
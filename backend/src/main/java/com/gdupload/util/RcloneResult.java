@@ -35,15 +35,41 @@ public class RcloneResult {
      */
     private boolean timeout;
 
+    /**
+     * 是否因任务暂停/取消被主动终止
+     */
+    private boolean interrupted;
+
+    /**
+     * 执行过程中出现的限流错误次数（rclone 底层重试前输出的 403 rateLimitExceeded / 429 等），
+     * 用于自适应并发控制
+     */
+    private int rateLimitHits;
+
     public static RcloneResult success() {
-        return new RcloneResult(true, null, false, false);
+        return new RcloneResult(true, null, false, false, false, 0);
     }
 
     public static RcloneResult failure(String errorMessage, boolean quotaExceeded) {
-        return new RcloneResult(false, errorMessage, quotaExceeded, false);
+        return new RcloneResult(false, errorMessage, quotaExceeded, false, false, 0);
     }
 
     public static RcloneResult timeout(String errorMessage) {
-        return new RcloneResult(false, errorMessage, false, true);
+        return new RcloneResult(false, errorMessage, false, true, false, 0);
+    }
+
+    public static RcloneResult interrupted(String errorMessage) {
+        return new RcloneResult(false, errorMessage, false, false, true, 0);
+    }
+
+    /**
+     * 是否为临时限流错误（区别于 userRateLimitExceeded 的每日上传额度超限）
+     */
+    public static boolean isRateLimitMessage(String text) {
+        return text != null && (text.contains("rateLimitExceeded")
+            || text.contains("Rate Limit Exceeded")
+            || text.contains("backendRateLimitExceeded")
+            || text.contains("Error 429")
+            || text.contains("Too Many Requests"));
     }
 }
@@ -0,0 +1,103 @@
+package com.gdupload.util;
+
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * rclone 传输统计采样
+ * <p>
+ * 来源有两种，结构相同：
+ * <ul>
+ *   <li>进程模式：--use-json-log --stats 1s 时每秒输出一行日志，stats 字段即统计</li>
+ *   <li>rc 模式：core/stats（group=job/{jobid}）的返回值</li>
+ * </ul>
+ *
+ * @author GD Upload Manager
+ * @since 2026-02-24
+ */
+@Data
+public class RcloneStats {
+
+    /** 本次调用已传输字节 */
+    private long bytes;
+    /** 本次调用需传输的总字节（rclone 检查完成前可能偏小） */
+    private long totalBytes;
+    /** 当前速度（字节/秒） */
+    private long speed;
+    /** 预计剩余秒数，未知时为 null */
+    private Long eta;
+    /** 已完成传输的文件数 */
+    private long transfers;
+    private long errors;
+    /** 正在传输的文件 */
+    private List<Transfer> transferring = Collections.emptyList();
+
+    /**
+     * 单个正在传输的文件
+     */
+    @Data
+    public static class Transfer {
+        private String name;
+        private long size;
+        private long bytes;
+        private int percentage;
+        /** 当前速度（字节/秒） */
+        private long speed;
+        private Long eta;
+    }
+
+    /**
+     * 解析一行 --use-json-log 日志，不含 stats 时返回 null
+     */
+    public static RcloneStats parseLine(String line) {
+        if (line == null || !line.contains("\"stats\"")) {
+            return null;
+        }
+        RcloneJsonLog.Entry entry = RcloneJsonLog.parse(line);
+        if (entry == null) {
+            return null;
+        }
+        JSONObject stats = entry.getRaw().getJSONObject("stats");
+        return stats != null ? fromJson(stats) : null;
+    }
+
+    /**
+     * 从 stats JSON 对象构建
+     */
+    public static RcloneStats fromJson(JSONObject json) {
+        RcloneStats stats = new RcloneStats();
+        stats.setBytes(json.getLong("bytes", 0L));
+        stats.setTotalBytes(json.getLong("totalBytes", 0L));
+        stats.setSpeed(toLong(json.getDouble("speed", 0d)));
+        stats.setEta(json.getLong("eta"));
+        stats.setTransfers(json.getLong("transfers", 0L));
+        stats.setErrors(json.getLong("errors", 0L));
+
+        JSONArray array = json.getJSONArray("transferring");
+        if (array != null && !array.isEmpty()) {
+            List<Transfer> transferring = new ArrayList<>(array.size());
+            for (int i = 0; i < array.size(); i++) {
+                JSONObject item = array.getJSONObject(i);
+                Transfer transfer = new Transfer();
+                transfer.setName(item.getStr("name"));
+                transfer.setSize(item.getLong("size", 0L));
+                transfer.setBytes(item.getLong("bytes", 0L));
+                transfer.setPercentage(item.getInt("percentage", 0));
+                transfer.setSpeed(toLong(item.getDouble("speed", 0d)));
+                transfer.setEta(item.getLong("eta"));
+                transferring.add(transfer);
+            }
+            stats.setTransferring(transferring);
+        }
+        return stats;
+    }
+
+    private static long toLong(Double value) {
+        return value != null ? value.longValue() : 0L;
+    }
+}
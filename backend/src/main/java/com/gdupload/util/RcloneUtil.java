@@ -2,6 +2,7 @@ package com.gdupload.util;
 
 import cn.hutool.core.io.IoUtil;
 import cn.hutool.core.util.StrUtil;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -10,22 +11,32 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
  * Rclone工具类
+ * <p>
+ * 开启 app.rclone.rc.enabled 后，单文件上传、目录/文件查询、mkdir、移动、删除等操作优先通过常驻 rclone rcd
+ * 的 rc 接口执行（见 {@link RcloneRcClient}）；rcd 不可用时自动回退到每次操作启动一个 rclone 进程。
  *
  * @author GD Upload Manager
  * @since 2026-01-18
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class RcloneUtil {
 
+    private final RcloneRcClient rcClient;
+
     @Value("${app.rclone.path:/usr/bin/rclone}")
     private String rclonePath;
 
@@ -153,6 +164,14 @@ public class RcloneUtil {
             }
         }
 
+        if (rcClient.isAvailable()) {
+            try {
+                return rcClient.uploadFile(localFilePath, remoteName, targetFilePath, logConsumer);
+            } catch (RcloneRcClient.RcloneRcException e) {
+                log.warn("rc 上传不可用，回退到进程模式: {}", e.getMessage());
+            }
+        }
+
         List<String> command = new ArrayList<>();
         command.add(rclonePath);
         command.add("moveto");
@@ -178,11 +197,109 @@ public class RcloneUtil {
         command.add("3");
         command.add("--low-level-retries");
         command.add("10");
+        // JSON 日志 + 每秒统计：logConsumer 可解析实时速度 / ETA（见 RcloneStats）
+        command.add("--use-json-log");
+        command.add("--stats");
+        command.add("1s");
         command.add("-v");
 
         return executeCommand(command, logConsumer);
     }
 
+    /**
+     * 在一个 rclone 进程内批量上传同一本地目录下的多个文件到远端目录（rclone move --files-from-raw）。
+     * <p>
+     * 用于小文件（字幕、nfo、图片等）：一次进程启动、一次鉴权、共享 checker/transfer 池，
+     * 代替每个文件一次 {@link #uploadSingleFileTo}。与 moveto 一致，上传成功后删除源文件。
+     * 每个文件的结果从 --use-json-log 日志中解析。
+     *
+     * @param sourceDir  本地源目录
+     * @param fileNames  源目录下的文件名（不含目录）
+     * @param remoteName rclone远程配置名称
+     * @param targetDir  远端目标目录
+     * @param logConsumer 日志消费者（原始日志行）
+     * @return 批量上传结果
+     */
+    public RcloneBatchResult uploadBatch(String sourceDir, List<String> fileNames, String remoteName, String targetDir,
+                                         Consumer<String> logConsumer) {
+        Set<String> succeeded = ConcurrentHashMap.newKeySet();
+        Map<String, String> failed = new ConcurrentHashMap<>();
+
+        // 预创建目标目录，防止并发上传时 GD 产生同名文件夹
+        String dir = targetDir.endsWith("/") ? targetDir.substring(0, targetDir.length() - 1) : targetDir;
+        if (!dir.isEmpty()) {
+            makeDirectory(remoteName, dir);
+        }
+
+        Path listFile = null;
+        try {
+            listFile = Files.createTempFile("rclone-files-from-", ".txt");
+            Files.write(listFile, fileNames, StandardCharsets.UTF_8);
+
+            List<String> command = new ArrayList<>();
+            command.add(rclonePath);
+            command.add("move");
+            command.add(sourceDir);
+            command.add(remoteName + ":" + targetDir);
+            command.add("--config");
+            command.add(rcloneConfigPath);
+
+            // 按行原样读取文件名，不做过滤规则解析（文件名可能以 # ; 开头）
+            command.add("--files-from-raw");
+            command.add(listFile.toString());
+            // 只检查列表中的文件，不列出整个目标目录
+            command.add("--no-traverse");
+
+            command.add("--transfers");
+            command.add(String.valueOf(Math.min(concurrentTransfers, Math.max(1, fileNames.size()))));
+            command.add("--checkers");
+            command.add(String.valueOf(checkers));
+            command.add("--ignore-checksum");
+            command.add("--timeout");
+            command.add("30m");
+            command.add("--contimeout");
+            command.add("120s");
+            command.add("--retries");
+            command.add("3");
+            command.add("--low-level-retries");
+            command.add("10");
+            command.add("--use-json-log");
+            command.add("--stats");
+            command.add("1s");
+            command.add("-v");
+
+            RcloneResult result = executeCommand(command, line -> {
+                RcloneJsonLog.Entry entry = RcloneJsonLog.parse(line);
+                if (entry != null && entry.getObject() != null) {
+                    if (entry.isTransferred() || entry.isSourceDeleted()) {
+                        succeeded.add(entry.getObject());
+                        failed.remove(entry.getObject());
+                    } else if (entry.isError() && !succeeded.contains(entry.getObject())) {
+                        // --retries 重试成功后会再输出 Copied，以最后结果为准
+                        failed.put(entry.getObject(), entry.getMsg());
+                    }
+                }
+                if (logConsumer != null) {
+                    logConsumer.accept(line);
+                }
+            });
+            log.info("批量上传完成: {} -> {}:{}, 文件数={}, 成功={}, 失败={}, 进程结果={}",
+                sourceDir, remoteName, targetDir, fileNames.size(), succeeded.size(), failed.size(), result.isSuccess());
+            return new RcloneBatchResult(result, succeeded, failed);
+        } catch (IOException e) {
+            log.error("写入批量上传文件列表失败: sourceDir={}", sourceDir, e);
+            return new RcloneBatchResult(RcloneResult.failure(e.getMessage(), false), succeeded, failed);
+        } finally {
+            if (listFile != null) {
+                try {
+                    Files.deleteIfExists(listFile);
+                } catch (IOException e) {
+                    log.debug("删除临时文件列表失败: {}", listFile);
+                }
+            }
+        }
+    }
+
     /**
      * 使用rclone move上传（支持断点续传，上传成功后删除源文件）
      *
@@ -265,6 +382,17 @@ public class RcloneUtil {
      * @return 是否存在
      */
     public boolean checkFileExists(String remoteName, String filePath) {
+        if (rcClient.isAvailable()) {
+            try {
+                return rcClient.stat(remoteName, filePath) != null;
+            } catch (RcloneRcClient.RcloneRcException e) {
+                if (!e.isUnavailable()) {
+                    log.debug("rc stat 失败，视为不存在: {}:{}, err={}", remoteName, filePath, e.getMessage());
+                    return false;
+                }
+            }
+        }
+
         List<String> command = new ArrayList<>();
         command.add(rclonePath);
         command.add("lsf");
@@ -291,6 +419,17 @@ public class RcloneUtil {
      * @return 文件大小（字节）
      */
     public Long getRemoteFileSize(String remoteName, String filePath) {
+        if (rcClient.isAvailable()) {
+            try {
+                return rcClient.size(remoteName, filePath);
+            } catch (RcloneRcClient.RcloneRcException e) {
+                if (!e.isUnavailable()) {
+                    log.error("获取远程文件大小失败: {}:{}, err={}", remoteName, filePath, e.getMessage());
+                    return 0L;
+                }
+            }
+        }
+
         List<String> command = new ArrayList<>();
         command.add(rclonePath);
         command.add("size");
@@ -365,6 +504,7 @@ public class RcloneUtil {
      */
     private RcloneResult executeCommand(List<String> command, Consumer<String> logConsumer) {
         Process process = null;
+        TaskPauseManager.Registration stopHook = null;
         try {
             String commandStr = String.join(" ", command);
             log.info("执行rclone命令: {}", commandStr);
@@ -375,6 +515,15 @@ public class RcloneUtil {
 
             log.info("rclone进程已启动，等待输出...");
 
+            // 所属任务被暂停/取消时立即终止 rclone 子进程
+            final Process stoppable = process;
+            stopHook = TaskPauseManager.onStop(() -> {
+                if (stoppable.isAlive()) {
+                    log.info("任务已停止，终止rclone进程");
+                    stoppable.destroyForcibly();
+                }
+            });
+
             // 读取输出
             BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
             String line;
@@ -388,23 +537,30 @@ public class RcloneUtil {
             final Process finalProcess = process;
             final StringBuilder finalOutput = output;
             final boolean[] quotaExceededDetected = {false};
+            final int[] rateLimitHits = {0};
             Thread outputThread = new Thread(() -> {
                 try {
                     String outputLine;
                     while ((outputLine = reader.readLine()) != null) {
-                        finalOutput.append(outputLine).append("\n");
                         lastOutputTime[0] = System.currentTimeMillis();
                         hasAnyOutput[0] = true;
                         if (logConsumer != null) {
                             logConsumer.accept(outputLine);
                         }
+                        if (isStatsLine(outputLine)) {
+                            // 每秒一行的 JSON 统计：只在 debug 级别输出，不进输出缓冲；
+                            // 其中的 lastError 会一直重复之前的错误，不计入限流次数，也不参与配额检测
+                            log.debug("rclone统计: {}", outputLine);
+                            continue;
+                        }
+                        finalOutput.append(outputLine).append("\n");
                         log.info("rclone输出: {}", outputLine);
+                        if (RcloneResult.isRateLimitMessage(outputLine)) {
+                            rateLimitHits[0]++;
+                        }
 
                         // 实时检测配额超限错误
-                        if (!quotaExceededDetected[0] &&
-                            (outputLine.contains("User rate limit exceeded") ||
-                             outputLine.contains("userRateLimitExceeded") ||
-                             outputLine.contains("quota exceeded"))) {
+                        if (!quotaExceededDetected[0] && isQuotaExceededMessage(outputLine)) {
                             quotaExceededDetected[0] = true;
                             log.error("========== 实时检测到配额超限，立即终止rclone进程 ==========");
                             log.error("触发行: {}", outputLine);
@@ -433,10 +589,13 @@ public class RcloneUtil {
 
             log.info("rclone命令执行完成，退出码: {}, 输出长度: {} 字符", exitCode, outputStr.length());
 
-            // 只检查是否是配额超限错误（无论exitCode是什么）
-            boolean quotaExceeded = outputStr.contains("User rate limit exceeded")
-                || outputStr.contains("userRateLimitExceeded")
-                || outputStr.contains("quota exceeded");
+            if (exitCode != 0 && TaskPauseManager.isCurrentTaskStopping()) {
+                log.info("rclone进程因任务暂停/取消被终止: {}", commandStr);
+                return withRateLimitHits(RcloneResult.interrupted("任务已停止，rclone进程已终止"), rateLimitHits[0]);
+            }
+
+            // 只检查是否是配额超限错误（无论exitCode是什么；输出缓冲中不含统计行）
+            boolean quotaExceeded = isQuotaExceededMessage(outputStr);
 
             log.info("配额检测结果: quotaExceeded={}, exitCode={}", quotaExceeded, exitCode);
 
@@ -449,20 +608,26 @@ public class RcloneUtil {
                 log.error("失败的命令: {}", commandStr);
                 log.error("返回 RcloneResult.failure(outputStr, true)");
                 log.error("================================================");
-                return RcloneResult.failure(outputStr, true);
+                return withRateLimitHits(RcloneResult.failure(outputStr, true), rateLimitHits[0]);
             }
 
             // 根据退出码判断成功或失败（不再检测IP封禁）
             if (exitCode == 0) {
                 log.info("rclone命令执行成功，退出码: {}", exitCode);
-                return RcloneResult.success();
+                return withRateLimitHits(RcloneResult.success(), rateLimitHits[0]);
             } else {
                 log.error("rclone命令执行失败，退出码: {}, 完整输出:\n{}", exitCode, outputStr);
                 log.error("失败的命令: {}", commandStr);
                 // 非配额问题的失败，不封禁账号
-                return RcloneResult.failure(outputStr, false);
+                return withRateLimitHits(RcloneResult.failure(outputStr, false), rateLimitHits[0]);
             }
-        } catch (IOException | InterruptedException e) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (process != null && process.isAlive()) {
+                process.destroyForcibly();
+            }
+            return RcloneResult.interrupted("rclone命令被中断");
+        } catch (IOException e) {
             log.error("执行rclone命令异常", e);
             if (logConsumer != null) {
                 logConsumer.accept("错误: " + e.getMessage());
@@ -474,9 +639,31 @@ public class RcloneUtil {
             }
 
             return RcloneResult.failure(e.getMessage(), false);
+        } finally {
+            if (stopHook != null) {
+                stopHook.close();
+            }
         }
     }
 
+    private static RcloneResult withRateLimitHits(RcloneResult result, int rateLimitHits) {
+        result.setRateLimitHits(rateLimitHits);
+        return result;
+    }
+
+    /**
+     * --use-json-log 下每秒一行的统计（{"msg":"stats","stats":{...}}）
+     */
+    private static boolean isStatsLine(String line) {
+        return line.contains("\"stats\"");
+    }
+
+    private static boolean isQuotaExceededMessage(String text) {
+        return text.contains("User rate limit exceeded")
+            || text.contains("userRateLimitExceeded")
+            || text.contains("quota exceeded");
+    }
+
     /**
      * 测试rclone配置
      *
@@ -553,8 +740,10 @@ public class RcloneUtil {
             StringBuilder output = new StringBuilder();
             String line;
             while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
                 log.debug("探测输出: {}", line);
+                if (!isStatsLine(line)) {
+                    output.append(line).append("\n");
+                }
             }
 
             int exitCode = process.waitFor();
@@ -563,9 +752,7 @@ public class RcloneUtil {
             log.info("探测上传完成，退出码: {}", exitCode);
 
             // 检查是否配额超限
-            boolean quotaExceeded = outputStr.contains("User rate limit exceeded")
-                || outputStr.contains("userRateLimitExceeded")
-                || outputStr.contains("quota exceeded");
+            boolean quotaExceeded = isQuotaExceededMessage(outputStr);
 
             if (quotaExceeded) {
                 log.warn("探测检测到配额超限: remoteName={}", remoteName);
@@ -643,6 +830,17 @@ public class RcloneUtil {
      * @return JSON字符串
      */
     public String listJson(String remoteName, String path) {
+        if (rcClient.isAvailable()) {
+            try {
+                return rcClient.listJson(remoteName, path, false, false);
+            } catch (RcloneRcClient.RcloneRcException e) {
+                if (!e.isUnavailable()) {
+                    log.warn("rc list 失败: remoteName={}, path={}, err={}", remoteName, path, e.getMessage());
+                    return "[]";
+                }
+            }
+        }
+
         List<String> command = new ArrayList<>();
         command.add(rclonePath);
         command.add("lsjson");
@@ -698,6 +896,17 @@ public class RcloneUtil {
      * @return JSON字符串，元素 Path 相对于 path 参数
      */
     public String listJsonRecursive(String remoteName, String path) {
+        if (rcClient.isAvailable()) {
+            try {
+                return rcClient.listJson(remoteName, path, true, true);
+            } catch (RcloneRcClient.RcloneRcException e) {
+                if (!e.isUnavailable()) {
+                    log.warn("rc list recursive 失败: remoteName={}, path={}, err={}", remoteName, path, e.getMessage());
+                    return "[]";
+                }
+            }
+        }
+
         List<String> command = new ArrayList<>();
         command.add(rclonePath);
         command.add("lsjson");
@@ -746,6 +955,58 @@ public class RcloneUtil {
         }
     }
 
+    /**
+     * 列出目录下的文件及其 MD5（非递归，lsjson --files-only --hash --hash-type md5）
+     *
+     * @param remoteName rclone远程配置名称
+     * @param path 目录路径
+     * @return JSON字符串，元素含 Name / Size / Hashes.md5；目录不存在或失败时返回 "[]"
+     */
+    public String listJsonWithHash(String remoteName, String path) {
+        if (rcClient.isAvailable()) {
+            try {
+                return rcClient.listJson(remoteName, path, false, true, true);
+            } catch (RcloneRcClient.RcloneRcException e) {
+                if (!e.isUnavailable()) {
+                    log.debug("rc list hash 失败（目录可能不存在）: remoteName={}, path={}, err={}", remoteName, path, e.getMessage());
+                    return "[]";
+                }
+            }
+        }
+
+        List<String> command = new ArrayList<>();
+        command.add(rclonePath);
+        command.add("lsjson");
+        String remotePath = StrUtil.isBlank(path) ? remoteName + ":" : remoteName + ":" + path;
+        command.add(remotePath);
+        command.add("--files-only");
+        command.add("--hash");
+        command.add("--hash-type");
+        command.add("md5");
+        command.add("--no-mimetype");
+        command.add("--config");
+        command.add(rcloneConfigPath);
+
+        try {
+            ProcessBuilder pb = new ProcessBuilder(command);
+            pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+            Process process = pb.start();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+            String output = IoUtil.read(reader);
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                if (exitCode != 3) {
+                    log.warn("lsjson hash 失败: remoteName={}, path={}, exitCode={}", remoteName, path, exitCode);
+                }
+                return "[]";
+            }
+            return StrUtil.isBlank(output) ? "[]" : output;
+        } catch (Exception e) {
+            log.error("列出目录文件哈希失败: remoteName={}, path={}", remoteName, path, e);
+            return "[]";
+        }
+    }
+
     /**
      * 删除远程文件
      *
@@ -754,6 +1015,18 @@ public class RcloneUtil {
      * @return 是否成功
      */
     public boolean deleteFile(String remoteName, String filePath) {
+        if (rcClient.isAvailable()) {
+            try {
+                rcClient.deleteFile(remoteName, filePath);
+                return true;
+            } catch (RcloneRcClient.RcloneRcException e) {
+                if (!e.isUnavailable()) {
+                    log.error("删除文件失败: remoteName={}, filePath={}, err={}", remoteName, filePath, e.getMessage());
+                    return false;
+                }
+            }
+        }
+
         List<String> command = new ArrayList<>();
         command.add(rclonePath);
         command.add("deletefile");
@@ -781,6 +1054,18 @@ public class RcloneUtil {
      * @return 是否成功
      */
     public boolean purgeDirectory(String remoteName, String dirPath) {
+        if (rcClient.isAvailable()) {
+            try {
+                rcClient.purge(remoteName, dirPath);
+                return true;
+            } catch (RcloneRcClient.RcloneRcException e) {
+                if (!e.isUnavailable()) {
+                    log.error("删除目录失败: remoteName={}, dirPath={}, err={}", remoteName, dirPath, e.getMessage());
+                    return false;
+                }
+            }
+        }
+
         List<String> command = new ArrayList<>();
         command.add(rclonePath);
         command.add("purge");
@@ -810,6 +1095,29 @@ public class RcloneUtil {
      * @return 是否成功
      */
     public boolean moveItem(String remoteName, String oldPath, String newPath, boolean isDir) {
+        if (!isDir) {
+            // 先确保目标父目录存在，再用 server-side moveto（同盘重命名，无需下载/上传）
+            String targetParent = newPath.contains("/") ? newPath.substring(0, newPath.lastIndexOf('/')) : "";
+            if (!targetParent.isEmpty()) {
+                makeDirectory(remoteName, targetParent);
+            }
+        }
+
+        if (rcClient.isAvailable()) {
+            try {
+                RcloneResult rcResult = isDir
+                        ? rcClient.moveDir(remoteName, oldPath, newPath, line -> log.debug("rc move: {}", line))
+                        : rcClient.moveFile(remoteName, oldPath, newPath, line -> log.debug("rc moveto: {}", line));
+                if (!rcResult.isSuccess()) {
+                    log.error("移动/重命名失败: remoteName={}, oldPath={}, newPath={}, err={}",
+                            remoteName, oldPath, newPath, rcResult.getErrorMessage());
+                }
+                return rcResult.isSuccess();
+            } catch (RcloneRcClient.RcloneRcException e) {
+                log.warn("rc 移动不可用，回退到进程模式: {}", e.getMessage());
+            }
+        }
+
         List<String> command = new ArrayList<>();
         command.add(rclonePath);
         if (isDir) {
@@ -818,11 +1126,6 @@ public class RcloneUtil {
             command.add(remoteName + ":" + newPath);
             command.add("--delete-empty-src-dirs");
         } else {
-            // 先确保目标父目录存在，再用 server-side moveto（同盘重命名，无需下载/上传）
-            String targetParent = newPath.contains("/") ? newPath.substring(0, newPath.lastIndexOf('/')) : "";
-            if (!targetParent.isEmpty()) {
-                makeDirectory(remoteName, targetParent);
-            }
             command.add("moveto");
             command.add(remoteName + ":" + oldPath);
             command.add(remoteName + ":" + newPath);
@@ -849,7 +1152,7 @@ public class RcloneUtil {
     public boolean makeDirectory(String remoteName, String path) {
         if (StrUtil.isBlank(path)) return true;
 
-        String key = remoteName + ":" + path;
+        String key = dirKey(remoteName, path);
 
         // 快速路径：已创建过则直接返回
         if (createdDirs.containsKey(key)) {
@@ -866,6 +1169,21 @@ public class RcloneUtil {
                 return true;
             }
 
+            if (rcClient.isAvailable()) {
+                try {
+                    // operations/mkdir 对已存在目录是幂等的，per-path 锁已保证不会并发创建同名文件夹
+                    rcClient.mkdir(remoteName, path);
+                    createdDirs.put(key, Boolean.TRUE);
+                    log.info("✓ 目录已就绪(rc): {}", key);
+                    return true;
+                } catch (RcloneRcClient.RcloneRcException e) {
+                    if (!e.isUnavailable()) {
+                        log.error("✗ 目录创建失败(rc): remoteName={}, path={}, err={}", remoteName, path, e.getMessage());
+                        return false;
+                    }
+                }
+            }
+
             log.info("========== 开始创建目录 ==========");
             log.info("远程名称: {}", remoteName);
             log.info("目录路径: {}", path);
@@ -953,6 +1271,31 @@ public class RcloneUtil {
         }
     }
 
+    /**
+     * 登记已确认存在的目录（如从持久化的目录缓存加载），之后的 makeDirectory 直接跳过
+     */
+    public void markDirectoryKnown(String remoteName, String path) {
+        if (StrUtil.isNotBlank(path)) {
+            createdDirs.put(dirKey(remoteName, path), Boolean.TRUE);
+        }
+    }
+
+    /**
+     * 远端目录被删除 / 移动后清除该目录及其子目录的创建记录
+     */
+    public void forgetDirectory(String remoteName, String path) {
+        String key = dirKey(remoteName, path);
+        String prefix = key + "/";
+        createdDirs.keySet().removeIf(k -> k.equals(key) || k.startsWith(prefix));
+    }
+
+    /**
+     * 目录创建记录的 key：去掉首尾斜杠，"/X" 与 "X/" 视为同一目录
+     */
+    private static String dirKey(String remoteName, String path) {
+        return remoteName + ":" + StrUtil.strip(path.trim(), "/");
+    }
+
     /**
      * 重命名远程文件（使用 moveto 命令）
      *
@@ -970,6 +1313,15 @@ public class RcloneUtil {
             }
         }
 
+        if (rcClient.isAvailable()) {
+            try {
+                log.info("执行rclone重命名(rc): {} -> {}", oldPath, newPath);
+                return rcClient.moveFile(remoteName, oldPath, newPath, line -> log.debug("重命名输出: {}", line));
+            } catch (RcloneRcClient.RcloneRcException e) {
+                log.warn("rc 重命名不可用，回退到进程模式: {}", e.getMessage());
+            }
+        }
+
         List<String> command = new ArrayList<>();
         command.add(rclonePath);
         command.add("moveto");
@@ -983,6 +1335,19 @@ public class RcloneUtil {
         return executeCommand(command, line -> log.debug("重命名输出: {}", line));
     }
 
+    /**
+     * 获取 rclone 全局传输统计（rc core/stats），rc 模式不可用时返回 null
+     */
+    public cn.hutool.json.JSONObject getCoreStats() {
+        if (!rcClient.isAvailable()) return null;
+        try {
+            return rcClient.coreStats();
+        } catch (RcloneRcClient.RcloneRcException e) {
+            log.warn("获取 rclone core/stats 失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * 对 Google Drive 去重：合并同名文件夹、清理重复文件。
      * rclone dedupe 会将同名目录的内容合并到一个目录中，删除空的重复目录。
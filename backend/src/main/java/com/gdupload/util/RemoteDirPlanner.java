@@ -0,0 +1,303 @@
+package com.gdupload.util;
+
+import com.gdupload.entity.RemoteDirCache;
+import com.gdupload.mapper.RemoteDirCacheMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 远端目录预创建规划
+ * <p>
+ * 上传前把任务涉及的目录规划成最少的 mkdir 调用，并行创建：
+ * <ul>
+ *   <li>只创建叶子目录（rclone mkdir 会自动创建父目录），单链上的中间目录不单独创建</li>
+ *   <li>有两个以上子目录的分叉目录先创建，再并行创建其下的子目录，
+ *       避免多个 mkdir 同时创建同一个缺失的父目录（Google Drive 会产生同名文件夹）</li>
+ *   <li>按深度分组，组内每个账号最多 parallelism 个 mkdir 并行，账号之间并行</li>
+ *   <li>已确认存在的目录按远程名记录在 remote_dir_cache 表中，重复上传到同一目录树时直接跳过；
+ *       记录超过 cache-ttl-hours 未再确认即失效（目录可能在本服务之外被删除），上传失败时也会清除目标目录的记录</li>
+ * </ul>
+ * 路径统一为不含首尾斜杠的形式，上传、文件管理传入的 "/X" 与 "X" 视为同一目录。
+ *
+ * @author GD Upload Manager
+ * @since 2026-02-28
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RemoteDirPlanner {
+
+    /** 每次按 path_hash 批量查询 / 写入的条数 */
+    private static final int DB_CHUNK = 500;
+
+    private final RcloneUtil rcloneUtil;
+    private final RemoteDirCacheMapper remoteDirCacheMapper;
+
+    /** 每个账号同时执行的 mkdir 数 */
+    @Value("${app.upload.mkdir.parallelism:8}")
+    private int parallelism;
+
+    /** 目录记录的有效期（小时），过期后重新 mkdir 确认 */
+    @Value("${app.upload.mkdir.cache-ttl-hours:24}")
+    private int cacheTtlHours;
+
+    private ExecutorService mkdirExecutor;
+
+    @PostConstruct
+    private void init() {
+        mkdirExecutor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r);
+            thread.setName("mkdir-worker-" + thread.getId());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 在每个远端上确保目录存在
+     *
+     * @return 实际执行 mkdir 的次数（所有远端合计）
+     */
+    public int ensureDirectories(Collection<String> remoteNames, Collection<String> dirs) {
+        Set<String> leaves = leaves(dirs);
+        if (leaves.isEmpty() || remoteNames.isEmpty()) {
+            return 0;
+        }
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (String remoteName : new LinkedHashSet<>(remoteNames)) {
+            futures.add(CompletableFuture.supplyAsync(() -> ensureOnRemote(remoteName, leaves), mkdirExecutor));
+        }
+        int total = 0;
+        for (CompletableFuture<Integer> future : futures) {
+            try {
+                total += future.join();
+            } catch (Exception e) {
+                log.warn("预创建目录失败: {}", e.getMessage());
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 远端目录被删除 / 移动后清除记录（含子目录）
+     */
+    public void forget(String remoteName, String dirPath) {
+        String path = normalize(dirPath);
+        if (path == null) {
+            return;
+        }
+        rcloneUtil.forgetDirectory(remoteName, path);
+        String likePrefix = path.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        try {
+            remoteDirCacheMapper.deleteTree(remoteName, path, likePrefix);
+        } catch (Exception e) {
+            log.warn("清除目录缓存失败: {}:{}, {}", remoteName, path, e.getMessage());
+        }
+    }
+
+    private int ensureOnRemote(String remoteName, Set<String> leaves) {
+        long start = System.currentTimeMillis();
+
+        // 目录树：所有叶子及其祖先，统计每个节点的子节点数
+        Set<String> nodes = new HashSet<>();
+        Map<String, Integer> childCount = new HashMap<>();
+        for (String leaf : leaves) {
+            String node = leaf;
+            while (node != null && nodes.add(node)) {
+                String parent = parent(node);
+                if (parent != null) {
+                    childCount.merge(parent, 1, Integer::sum);
+                }
+                node = parent;
+            }
+        }
+
+        // 已确认存在的目录（及其祖先）跳过
+        Set<String> known = new HashSet<>();
+        for (String path : loadKnown(remoteName, nodes)) {
+            for (String node = path; node != null && known.add(node); node = parent(node)) {
+                rcloneUtil.markDirectoryKnown(remoteName, node);
+            }
+        }
+
+        // 需要 mkdir 的目录：叶子 + 分叉目录，按深度分组
+        TreeMap<Integer, List<String>> byDepth = new TreeMap<>();
+        for (String node : nodes) {
+            boolean target = leaves.contains(node) || childCount.getOrDefault(node, 0) >= 2;
+            if (target && !known.contains(node)) {
+                byDepth.computeIfAbsent(depth(node), d -> new ArrayList<>()).add(node);
+            }
+        }
+        if (byDepth.isEmpty()) {
+            log.info("目标目录均已存在（目录缓存命中）: remote={}, 目录数={}", remoteName, leaves.size());
+            return 0;
+        }
+
+        List<String> created = new ArrayList<>();
+        int calls = 0;
+        for (List<String> group : byDepth.values()) {
+            calls += group.size();
+            created.addAll(createParallel(remoteName, group));
+        }
+
+        // mkdir 成功的目录及其祖先都已存在
+        Set<String> existing = new LinkedHashSet<>();
+        for (String path : created) {
+            for (String node = path; node != null && !known.contains(node) && existing.add(node); node = parent(node)) {
+                rcloneUtil.markDirectoryKnown(remoteName, node);
+            }
+        }
+        saveKnown(remoteName, existing);
+        log.info("目标目录预创建完成: remote={}, 叶子目录={}, mkdir={}, 失败={}, 耗时={}ms",
+            remoteName, leaves.size(), calls, calls - created.size(), System.currentTimeMillis() - start);
+        return calls;
+    }
+
+    /**
+     * 同一深度的目录互不为祖先，且缺失的共同祖先已在更浅的分组中创建，可以安全并行
+     */
+    private List<String> createParallel(String remoteName, List<String> paths) {
+        Queue<String> queue = new ConcurrentLinkedQueue<>(paths);
+        Queue<String> succeeded = new ConcurrentLinkedQueue<>();
+        AtomicInteger failed = new AtomicInteger();
+        int workers = Math.max(1, Math.min(parallelism, paths.size()));
+        List<CompletableFuture<Void>> futures = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                String path;
+                while ((path = queue.poll()) != null) {
+                    if (rcloneUtil.makeDirectory(remoteName, path)) {
+                        succeeded.add(path);
+                    } else {
+                        failed.incrementAndGet();
+                    }
+                }
+            }, mkdirExecutor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        if (failed.get() > 0) {
+            log.warn("部分目录创建失败（上传时会再次尝试）: remote={}, 失败数={}", remoteName, failed.get());
+        }
+        return new ArrayList<>(succeeded);
+    }
+
+    private List<String> loadKnown(String remoteName, Collection<String> paths) {
+        List<String> result = new ArrayList<>();
+        List<String> hashes = new ArrayList<>(DB_CHUNK);
+        try {
+            for (String path : paths) {
+                hashes.add(RemoteDirCache.hash(remoteName, path));
+                if (hashes.size() >= DB_CHUNK) {
+                    result.addAll(remoteDirCacheMapper.selectKnownPaths(hashes, cacheTtlHours));
+                    hashes.clear();
+                }
+            }
+            if (!hashes.isEmpty()) {
+                result.addAll(remoteDirCacheMapper.selectKnownPaths(hashes, cacheTtlHours));
+            }
+        } catch (Exception e) {
+            log.warn("读取目录缓存失败（按全部不存在处理）: remote={}, {}", remoteName, e.getMessage());
+        }
+        return result;
+    }
+
+    private void saveKnown(String remoteName, Collection<String> paths) {
+        List<RemoteDirCache> batch = new ArrayList<>(DB_CHUNK);
+        try {
+            for (String path : paths) {
+                RemoteDirCache record = new RemoteDirCache();
+                record.setRemoteName(remoteName);
+                record.setDirPath(path);
+                record.setPathHash(RemoteDirCache.hash(remoteName, path));
+                batch.add(record);
+                if (batch.size() >= DB_CHUNK) {
+                    remoteDirCacheMapper.upsertVerifiedBatch(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                remoteDirCacheMapper.upsertVerifiedBatch(batch);
+            }
+        } catch (Exception e) {
+            log.warn("写入目录缓存失败: remote={}, {}", remoteName, e.getMessage());
+        }
+    }
+
+    /**
+     * 去掉是其他目录祖先的路径，只保留叶子（mkdir -p 语义）
+     */
+    static Set<String> leaves(Collection<String> dirs) {
+        Set<String> all = new HashSet<>();
+        for (String dir : dirs) {
+            String path = normalize(dir);
+            if (path != null) {
+                all.add(path);
+            }
+        }
+        Set<String> ancestors = new HashSet<>();
+        for (String path : all) {
+            String p = parent(path);
+            while (p != null && ancestors.add(p)) {
+                p = parent(p);
+            }
+        }
+        Set<String> leaves = new LinkedHashSet<>();
+        for (String path : all) {
+            if (!ancestors.contains(path)) {
+                leaves.add(path);
+            }
+        }
+        return leaves;
+    }
+
+    /**
+     * 合并重复斜杠、去掉首尾斜杠（与 remote_dir_cache.dir_path 的格式一致）
+     */
+    static String normalize(String dir) {
+        if (dir == null) {
+            return null;
+        }
+        String path = dir.trim().replaceAll("/{2,}", "/");
+        if (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        if (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path.isEmpty() ? null : path;
+    }
+
+    private static String parent(String path) {
+        int idx = path.lastIndexOf('/');
+        return idx > 0 ? path.substring(0, idx) : null;
+    }
+
+    private static int depth(String path) {
+        int depth = 0;
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) == '/') {
+                depth++;
+            }
+        }
+        return depth;
+    }
+}
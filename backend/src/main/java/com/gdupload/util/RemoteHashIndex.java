@@ -0,0 +1,173 @@
+package com.gdupload.util;
+
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 远端目录 MD5 索引
+ * <p>
+ * 按（远端, 目录）用 rclone lsjson --hash 列一次目录，缓存其中文件的大小与 MD5，
+ * 上传前据此判断目标文件是否已存在且内容相同（任务崩溃后重跑时跳过已传完的文件）。
+ * 只认同名文件：其他文件名下的相同内容不算，否则跳过后目标文件名下并没有文件。
+ * 只有远端存在同名同大小的文件时才需要计算本地 MD5，大部分文件不必读盘。
+ *
+ * @author GD Upload Manager
+ * @since 2026-02-25
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RemoteHashIndex {
+
+    /** 最多缓存的目录数 */
+    private static final int MAX_DIRS = 1000;
+
+    private final RcloneUtil rcloneUtil;
+
+    /** 目录索引有效期（秒），过期后下次访问重新列目录 */
+    @Value("${app.upload.hash.remote-index-ttl-seconds:600}")
+    private int ttlSeconds;
+
+    private final Map<String, DirIndex> indexes = new LinkedHashMap<String, DirIndex>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, DirIndex> eldest) {
+            return size() > MAX_DIRS;
+        }
+    };
+
+    /** 同一目录只列一次：key = "remoteName:dir" */
+    private final ConcurrentHashMap<String, Object> loadLocks = new ConcurrentHashMap<>();
+
+    private static final class DirIndex {
+        final long loadedAt = System.currentTimeMillis();
+        /** 远端文件名 -> 大小 / MD5 */
+        final Map<String, Entry> byName = new HashMap<>();
+
+        synchronized void add(String name, long size, String md5) {
+            byName.put(name, new Entry(size, md5));
+        }
+
+        synchronized Entry get(String name) {
+            return byName.get(name);
+        }
+
+        synchronized int size() {
+            return byName.size();
+        }
+    }
+
+    private static final class Entry {
+        final long size;
+        final String md5;
+
+        Entry(long size, String md5) {
+            this.size = size;
+            this.md5 = md5;
+        }
+    }
+
+    /**
+     * 目标目录中是否有同名、同样大小且带 MD5 的文件（为 false 时不必计算本地 MD5）
+     */
+    public boolean hasCandidate(String remoteName, String dir, String name, long size) {
+        Entry entry = index(remoteName, dir).get(name);
+        return entry != null && entry.size == size;
+    }
+
+    /**
+     * 目标目录中同名文件的 MD5 是否一致
+     */
+    public boolean matches(String remoteName, String dir, String name, String md5) {
+        if (md5 == null || name == null) {
+            return false;
+        }
+        Entry entry = index(remoteName, dir).get(name);
+        return entry != null && entry.md5.equalsIgnoreCase(md5);
+    }
+
+    /**
+     * 上传成功后登记到已加载的索引（未加载的目录不处理，下次访问时会列出）
+     */
+    public void record(String remoteName, String dir, String name, long size, String md5) {
+        if (md5 == null) {
+            return;
+        }
+        DirIndex index;
+        synchronized (indexes) {
+            index = indexes.get(key(remoteName, dir));
+        }
+        if (index != null) {
+            index.add(name, size, md5.toLowerCase());
+        }
+    }
+
+    private DirIndex index(String remoteName, String dir) {
+        String key = key(remoteName, dir);
+        DirIndex index = cached(key);
+        if (index != null) {
+            return index;
+        }
+        Object lock = loadLocks.computeIfAbsent(key, k -> new Object());
+        try {
+            synchronized (lock) {
+                index = cached(key);
+                if (index != null) {
+                    return index;
+                }
+                index = load(remoteName, dir);
+                synchronized (indexes) {
+                    indexes.put(key, index);
+                }
+                return index;
+            }
+        } finally {
+            loadLocks.remove(key, lock);
+        }
+    }
+
+    private DirIndex cached(String key) {
+        synchronized (indexes) {
+            DirIndex index = indexes.get(key);
+            if (index != null && System.currentTimeMillis() - index.loadedAt < ttlSeconds * 1000L) {
+                return index;
+            }
+            return null;
+        }
+    }
+
+    private DirIndex load(String remoteName, String dir) {
+        DirIndex index = new DirIndex();
+        long start = System.currentTimeMillis();
+        try {
+            JSONArray array = JSONUtil.parseArray(rcloneUtil.listJsonWithHash(remoteName, dir));
+            for (int i = 0; i < array.size(); i++) {
+                JSONObject item = array.getJSONObject(i);
+                JSONObject hashes = item.getJSONObject("Hashes");
+                String md5 = hashes != null ? hashes.getStr("md5") : null;
+                if (md5 != null && !md5.isEmpty()) {
+                    index.add(item.getStr("Name"), item.getLong("Size", -1L), md5.toLowerCase());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("构建远端MD5索引失败: {}:{}, {}", remoteName, dir, e.getMessage());
+        }
+        log.info("远端MD5索引: {}:{}, 文件数={}, 耗时={}ms",
+            remoteName, dir, index.size(), System.currentTimeMillis() - start);
+        return index;
+    }
+
+    private static String key(String remoteName, String dir) {
+        String d = dir.endsWith("/") && dir.length() > 1 ? dir.substring(0, dir.length() - 1) : dir;
+        return remoteName + ":" + d;
+    }
+}
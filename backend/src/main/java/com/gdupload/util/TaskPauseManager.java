@@ -3,11 +3,13 @@ package com.gdupload.util;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 /**
@@ -38,6 +40,10 @@ import java.util.function.Consumer;
  *   // ⑤ 任务彻底结束时清理
  *   TaskPauseManager.unregister(taskId);
  * </pre>
+ * <p>
+ * <strong>立即中断:</strong> 工作线程执行前 {@link #bindWorker(long)}，阻塞操作（rclone 子进程、rc job）
+ * 通过 {@link #onStop(Runnable)} 注册终止动作；暂停/取消信号到达时在发信号的线程里直接执行，
+ * 不再依赖轮询数据库状态。
  */
 @Slf4j
 public class TaskPauseManager {
@@ -47,6 +53,44 @@ public class TaskPauseManager {
     /** 每个任务的上下文 */
     private static final Map<Long, TaskContext> CONTEXTS = new ConcurrentHashMap<>();
 
+    /**
+     * 任务注册前收到的停止信号：taskId -> 信号。
+     * 任务从队列取出到 register 之间发出的暂停/取消记录在这里，由 register 应用，不会丢失
+     */
+    private static final Map<Long, PendingStop> PENDING_STOPS = new ConcurrentHashMap<>();
+
+    /**
+     * 每个任务当前这一次执行的编号（{@link #beginRun(long)} 分配）。
+     * 停止信号记录发出时的编号，只作用于同一次执行，重试 / 恢复后的新执行不会取到之前的取消或暂停
+     */
+    private static final Map<Long, Long> RUN_IDS = new ConcurrentHashMap<>();
+
+    private static final AtomicLong RUN_SEQUENCE = new AtomicLong();
+
+    /** 未被 register 取走的停止信号保留时长（任务已结束或不会再启动时不能一直留着） */
+    private static final long PENDING_STOP_TTL_MS = TimeUnit.MINUTES.toMillis(10);
+
+    /** 当前工作线程正在处理的任务ID（bindWorker 设置） */
+    private static final ThreadLocal<Long> CURRENT_TASK = new ThreadLocal<>();
+
+    /** {@link #onStop(Runnable)} 的注销句柄，配合 try-with-resources 使用 */
+    public interface Registration extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final Registration NOOP_REGISTRATION = () -> { };
+
+    private static final class PendingStop {
+        final long runId;
+        final long signaledAt;
+
+        PendingStop(long runId, long signaledAt) {
+            this.runId = runId;
+            this.signaledAt = signaledAt;
+        }
+    }
+
     // ─── 内部上下文 ──────────────────────────────────────────��───
 
     private static class TaskContext {
@@ -56,6 +100,8 @@ public class TaskPauseManager {
         final AtomicInteger activeThreads;
         /** 所有线程都完成时触发的回调（用于把状态 6→3） */
         volatile Consumer<Long> onAllStopped;
+        /** 停止信号到达时立即执行的动作（终止 rclone 进程等） */
+        final Set<Runnable> stopListeners = ConcurrentHashMap.newKeySet();
 
         TaskContext(int threadCount) {
             this.activeThreads = new AtomicInteger(threadCount);
@@ -71,8 +117,30 @@ public class TaskPauseManager {
      * @param threadCount 预计会有多少工作线程/工作项
      */
     public static void register(long taskId, int threadCount) {
-        CONTEXTS.put(taskId, new TaskContext(threadCount));
+        TaskContext ctx = new TaskContext(threadCount);
+        CONTEXTS.put(taskId, ctx);
         log.info("[TaskPauseManager] 注册任务: taskId={}, threadCount={}", taskId, threadCount);
+        // 注册前已收到本次执行的停止信号：立即置位（先放入 CONTEXTS 再取，与 signalStop 并发时两边至少有一边生效）
+        PendingStop pending = PENDING_STOPS.remove(taskId);
+        if (pending != null && pending.runId == currentRunId(taskId)
+            && System.currentTimeMillis() - pending.signaledAt < PENDING_STOP_TTL_MS) {
+            ctx.stopFlag.set(true);
+            log.info("[TaskPauseManager] 应用注册前收到的停止信号: taskId={}", taskId);
+        }
+    }
+
+    /**
+     * 开始任务的一次新执行（启动、重试、恢复、重启后自动继续时，在提交执行前调用）。
+     * 之前执行收到但未被取走的停止信号作废，不会让新的执行一注册就停止
+     */
+    public static void beginRun(long taskId) {
+        RUN_IDS.put(taskId, RUN_SEQUENCE.incrementAndGet());
+        PENDING_STOPS.remove(taskId);
+    }
+
+    private static long currentRunId(long taskId) {
+        Long runId = RUN_IDS.get(taskId);
+        return runId != null ? runId : 0L;
     }
 
     /**
@@ -183,6 +251,7 @@ public class TaskPauseManager {
                 fireNow = onAllStopped;
             }
         }
+        fireStopListeners(taskId, ctx);
         // 在 synchronized 外触发回调，避免持锁调用外部代码
         if (fireNow != null) {
             log.info("[TaskPauseManager] 无活跃线程，直接触发暂停完成: taskId={}", taskId);
@@ -190,6 +259,95 @@ public class TaskPauseManager {
         }
     }
 
+    /**
+     * 发送停止信号（不注册完成回调）。
+     * <p>
+     * 供服务层在把数据库状态改为暂停中/已取消时直接调用：立即置 stopFlag 并终止正在执行的
+     * rclone 进程，正在运行的任务无需再轮询数据库感知状态变化。
+     * 任务尚未注册（已排队、正在启动）时记录下来，由 {@link #register(long, int)} 应用；
+     * 之后再 {@link #beginRun(long)} 开始新的执行时作废。
+     */
+    public static void signalStop(long taskId) {
+        TaskContext ctx = CONTEXTS.get(taskId);
+        if (ctx == null) {
+            long now = System.currentTimeMillis();
+            PENDING_STOPS.values().removeIf(pending -> now - pending.signaledAt >= PENDING_STOP_TTL_MS);
+            PENDING_STOPS.put(taskId, new PendingStop(currentRunId(taskId), now));
+            // 与 register 并发：register 已放入上下文但可能在我们写入前就取过了，直接对新上下文置位
+            ctx = CONTEXTS.get(taskId);
+            if (ctx == null) {
+                log.info("[TaskPauseManager] 任务未注册，记录停止信号待注册时应用: taskId={}", taskId);
+                return;
+            }
+            PENDING_STOPS.remove(taskId);
+        }
+        if (ctx.stopFlag.compareAndSet(false, true)) {
+            log.info("[TaskPauseManager] 停止信号: taskId={}, activeThreads={}", taskId, ctx.activeThreads.get());
+        }
+        fireStopListeners(taskId, ctx);
+    }
+
+    /**
+     * 将当前工作线程绑定到任务，之后本线程内的 {@link #onStop(Runnable)} 注册都归属该任务。
+     * 必须与 {@link #unbindWorker()} 成对调用（线程池线程会被复用）。
+     */
+    public static void bindWorker(long taskId) {
+        CURRENT_TASK.set(taskId);
+    }
+
+    /**
+     * 解除当前工作线程与任务的绑定
+     */
+    public static void unbindWorker() {
+        CURRENT_TASK.remove();
+    }
+
+    /**
+     * 当前工作线程所属任务是否已收到停止信号（未绑定时返回 false）
+     */
+    public static boolean isCurrentTaskStopping() {
+        Long taskId = CURRENT_TASK.get();
+        return taskId != null && shouldStop(taskId);
+    }
+
+    /**
+     * 为当前工作线程所属任务注册停止动作（如终止 rclone 子进程）。
+     * <p>
+     * 若任务已经收到停止信号则立即执行；当前线程未绑定任务时不做任何事。
+     * 阻塞操作结束后必须关闭返回的句柄。
+     */
+    public static Registration onStop(Runnable action) {
+        Long taskId = CURRENT_TASK.get();
+        if (taskId == null) return NOOP_REGISTRATION;
+        TaskContext ctx = CONTEXTS.get(taskId);
+        if (ctx == null) return NOOP_REGISTRATION;
+
+        ctx.stopListeners.add(action);
+        // 注册与发信号可能并发：注册后再检查一次，已停止则自行执行（动作需幂等）
+        if (ctx.stopFlag.get() && ctx.stopListeners.remove(action)) {
+            runQuietly(taskId, action);
+            return NOOP_REGISTRATION;
+        }
+        return () -> ctx.stopListeners.remove(action);
+    }
+
+    private static void fireStopListeners(long taskId, TaskContext ctx) {
+        for (Runnable action : ctx.stopListeners) {
+            // remove 成功才执行，保证与 onStop 中的自检不会重复执行
+            if (ctx.stopListeners.remove(action)) {
+                runQuietly(taskId, action);
+            }
+        }
+    }
+
+    private static void runQuietly(long taskId, Runnable action) {
+        try {
+            action.run();
+        } catch (Exception e) {
+            log.warn("[TaskPauseManager] 停止动作执行异常: taskId={}, {}", taskId, e.getMessage());
+        }
+    }
+
     /**
      * 请求取消任务（与暂停相同的机制，但最终状态不同）。
      */
@@ -0,0 +1,250 @@
+package com.gdupload.util;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 任务进度合并器。
+ * <p>
+ * 工作线程每完成一个文件只做原子计数，由后台线程按固定节奏（每 N 毫秒，或累计 N 个文件）
+ * 把最新快照交给 sink 统一落库 / 推送 WebSocket，避免高并发小文件时每个文件都写一次 DB。
+ * <p>
+ * <strong>使用方法:</strong>
+ * <pre>
+ *   TaskProgressAggregator&lt;Void&gt; progress = TaskProgressAggregator.start(taskId, 500, 50, snap -&gt; {...});
+ *   progress.recordSuccess(bytes, fileName);   // 工作线程
+ *   progress.close();                          // 完成 / 暂停 / 取消时强制刷最后一次
+ * </pre>
+ *
+ * @param <E> 随进度一起批量下发的附加事件类型（如文件状态、日志），不需要时用 {@link Void}
+ * @author GD Upload Manager
+ * @since 2026-01-26
+ */
+@Slf4j
+public class TaskProgressAggregator<E> implements AutoCloseable {
+
+    /** 所有任务共用的刷新线程（sink 可能写 DB，给 2 个线程避免单个慢任务拖住其它任务） */
+    private static final ScheduledExecutorService FLUSHER = Executors.newScheduledThreadPool(2, r -> {
+        Thread thread = new Thread(r, "progress-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final long taskId;
+    private final int flushEveryItems;
+    private final Consumer<Snapshot<E>> sink;
+
+    private final AtomicInteger successCount = new AtomicInteger();
+    private final AtomicInteger failedCount = new AtomicInteger();
+    private final AtomicInteger otherCount = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+    private volatile String currentItem;
+
+    /** 每次计数变化自增，用于判断是否有未刷出的变化 */
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicInteger sinceLastFlush = new AtomicInteger();
+    private final ConcurrentLinkedQueue<E> events = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    /** 仅在 flush 锁内读写 */
+    private long flushedVersion = -1;
+    /** 上次 sink 失败时未处理的事件，下次刷新时排在新事件前面重新下发（仅在 flush 锁内读写） */
+    private List<E> unflushed = Collections.emptyList();
+    private volatile ScheduledFuture<?> ticker;
+
+    private TaskProgressAggregator(long taskId, int flushEveryItems, Consumer<Snapshot<E>> sink) {
+        this.taskId = taskId;
+        this.flushEveryItems = Math.max(1, flushEveryItems);
+        this.sink = sink;
+    }
+
+    /**
+     * 创建并启动合并器
+     *
+     * @param taskId          任务ID（仅用于日志）
+     * @param flushIntervalMs 定时刷新间隔（毫秒）
+     * @param flushEveryItems 累计处理多少个文件后立即触发一次刷新
+     * @param sink            刷新回调，在刷新线程（或 close 调用线程）中串行执行；
+     *                        抛出异常时本次的事件保留，下次刷新时重新下发（sink 需能处理重复事件）
+     */
+    public static <E> TaskProgressAggregator<E> start(long taskId, long flushIntervalMs, int flushEveryItems,
+                                                      Consumer<Snapshot<E>> sink) {
+        TaskProgressAggregator<E> aggregator = new TaskProgressAggregator<>(taskId, flushEveryItems, sink);
+        long interval = Math.max(50, flushIntervalMs);
+        aggregator.ticker = FLUSHER.scheduleWithFixedDelay(() -> aggregator.flush(false),
+            interval, interval, TimeUnit.MILLISECONDS);
+        return aggregator;
+    }
+
+    /**
+     * 设置初始计数（断点续传时从 DB 恢复），不触发刷新
+     */
+    public TaskProgressAggregator<E> seed(int success, int failed, int other, long initialBytes) {
+        successCount.set(success);
+        failedCount.set(failed);
+        otherCount.set(other);
+        bytes.set(initialBytes);
+        return this;
+    }
+
+    public void recordSuccess(long itemBytes, String itemName) {
+        successCount.incrementAndGet();
+        if (itemBytes > 0) {
+            bytes.addAndGet(itemBytes);
+        }
+        onChange(itemName, true);
+    }
+
+    public void recordFailure(String itemName) {
+        failedCount.incrementAndGet();
+        onChange(itemName, true);
+    }
+
+    /** 既非成功也非失败的结果（如归档任务的「待人工处理」） */
+    public void recordOther(String itemName) {
+        otherCount.incrementAndGet();
+        onChange(itemName, true);
+    }
+
+    /** 仅更新当前处理项名称（不计入文件数） */
+    public void setCurrentItem(String itemName) {
+        onChange(itemName, false);
+    }
+
+    /** 追加一条随下次刷新批量下发的事件 */
+    public void addEvent(E event) {
+        events.add(event);
+        version.incrementAndGet();
+    }
+
+    public int getSuccessCount() {
+        return successCount.get();
+    }
+
+    public int getFailedCount() {
+        return failedCount.get();
+    }
+
+    public int getOtherCount() {
+        return otherCount.get();
+    }
+
+    public int getProcessedCount() {
+        return successCount.get() + failedCount.get() + otherCount.get();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * 停止定时刷新并强制刷最后一次（任务完成、暂停、取消时调用，可重复调用）
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        ScheduledFuture<?> t = ticker;
+        if (t != null) {
+            t.cancel(false);
+        }
+        flush(true);
+    }
+
+    private void onChange(String itemName, boolean countsItem) {
+        if (itemName != null) {
+            currentItem = itemName;
+        }
+        version.incrementAndGet();
+        if (countsItem && sinceLastFlush.incrementAndGet() >= flushEveryItems && !closed.get()) {
+            sinceLastFlush.set(0);
+            try {
+                FLUSHER.execute(() -> flush(false));
+            } catch (Exception e) {
+                log.debug("提交进度刷新失败: taskId={}, {}", taskId, e.getMessage());
+            }
+        }
+    }
+
+    private synchronized void flush(boolean finalFlush) {
+        long v = version.get();
+        if (!finalFlush && (v == flushedVersion || closed.get())) {
+            return;
+        }
+        flushedVersion = v;
+        sinceLastFlush.set(0);
+
+        List<E> drained;
+        if (events.isEmpty()) {
+            drained = unflushed;
+        } else {
+            drained = new ArrayList<>(unflushed);
+            E event;
+            while ((event = events.poll()) != null) {
+                drained.add(event);
+            }
+        }
+
+        Snapshot<E> snapshot = new Snapshot<>(taskId, successCount.get(), failedCount.get(), otherCount.get(),
+            bytes.get(), currentItem, drained, finalFlush);
+        try {
+            sink.accept(snapshot);
+            unflushed = Collections.emptyList();
+        } catch (Exception e) {
+            // 事件保留到下次刷新；没有新变化时也要重试
+            unflushed = drained;
+            flushedVersion = -1;
+            if (finalFlush) {
+                log.error("任务最后一次进度刷新失败，{} 个事件未处理: taskId={}, {}", drained.size(), taskId, e.getMessage());
+            } else {
+                log.warn("任务进度刷新失败，{} 个事件保留到下次刷新: taskId={}, {}", drained.size(), taskId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 某一时刻的进度快照
+     */
+    @Getter
+    public static class Snapshot<E> {
+        private final long taskId;
+        private final int successCount;
+        private final int failedCount;
+        private final int otherCount;
+        private final long bytes;
+        private final String currentItem;
+        private final List<E> events;
+        /** 是否为 close() 触发的最后一次刷新 */
+        private final boolean finalFlush;
+
+        Snapshot(long taskId, int successCount, int failedCount, int otherCount, long bytes,
+                 String currentItem, List<E> events, boolean finalFlush) {
+            this.taskId = taskId;
+            this.successCount = successCount;
+            this.failedCount = failedCount;
+            this.otherCount = otherCount;
+            this.bytes = bytes;
+            this.currentItem = currentItem;
+            this.events = events;
+            this.finalFlush = finalFlush;
+        }
+
+        public int getProcessedCount() {
+            return successCount + failedCount + otherCount;
+        }
+    }
+}
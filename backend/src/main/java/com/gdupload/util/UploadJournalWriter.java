@@ -0,0 +1,89 @@
+package com.gdupload.util;
+
+import com.gdupload.entity.UploadJournal;
+import com.gdupload.mapper.UploadJournalMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 上传预写日志
+ * <p>
+ * 启动 rclone 传输前写入（文件、账号、本地路径、远端路径、开始时间），传输结束后删除。
+ * JVM 异常退出时 file_info 会停留在“上传中”，启动时由 {@code UploadRecoveryService}
+ * 按日志核对远端并续传未完成的文件。日志写入失败只记警告，不影响上传。
+ *
+ * @author GD Upload Manager
+ * @since 2026-02-26
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UploadJournalWriter {
+
+    private final UploadJournalMapper uploadJournalMapper;
+
+    /**
+     * 记录一个即将开始传输的文件
+     */
+    public void begin(Long taskId, Long fileId, Long accountId, String localPath, String remotePath, Long fileSize) {
+        begin(Collections.singletonList(entry(taskId, fileId, accountId, localPath, remotePath, fileSize)));
+    }
+
+    /**
+     * 批量记录（小文件批次）
+     */
+    public void begin(List<UploadJournal> entries) {
+        if (entries == null || entries.isEmpty()) {
+            return;
+        }
+        try {
+            uploadJournalMapper.replaceBatch(entries);
+        } catch (Exception e) {
+            log.warn("写入上传日志失败（不影响上传）: 文件数={}, {}", entries.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 传输结束（成功 / 失败 / 中断）后删除
+     */
+    public void end(Long fileId) {
+        end(Collections.singletonList(fileId));
+    }
+
+    public void end(Collection<Long> fileIds) {
+        if (fileIds == null || fileIds.isEmpty()) {
+            return;
+        }
+        try {
+            uploadJournalMapper.deleteBatchIds(new ArrayList<>(fileIds));
+        } catch (Exception e) {
+            log.warn("删除上传日志失败: 文件数={}, {}", fileIds.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 读取全部未结束的日志（启动恢复用）
+     */
+    public List<UploadJournal> listAll() {
+        return uploadJournalMapper.selectList(null);
+    }
+
+    public static UploadJournal entry(Long taskId, Long fileId, Long accountId, String localPath,
+                                      String remotePath, Long fileSize) {
+        UploadJournal journal = new UploadJournal();
+        journal.setFileId(fileId);
+        journal.setTaskId(taskId);
+        journal.setAccountId(accountId);
+        journal.setLocalPath(localPath);
+        journal.setRemotePath(remotePath);
+        journal.setFileSize(fileSize);
+        journal.setStartTime(DateTimeUtil.now());
+        return journal;
+    }
+}
@@ -0,0 +1,110 @@
+package com.gdupload.util;
+
+import com.gdupload.common.BusinessException;
+import com.gdupload.dto.EmbyItem;
+import com.gdupload.dto.PagedResult;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * EmbyItemJsonReader 单元测试：字段映射、跳过未使用的字段、容错
+ *
+ * @author GD Upload Manager
+ * @since 2026-03-12
+ */
+class EmbyItemJsonReaderTest {
+
+    @Test
+    void readsPageAndSkipsUnusedFields() throws Exception {
+        String json = "{\"Items\": [{"
+            + "\"Id\": \"100\", \"Name\": \"钢铁侠\", \"OriginalTitle\": \"Iron Man\", \"Type\": \"Movie\","
+            + "\"ImageTags\": {\"Primary\": \"abc\"},"
+            + "\"UserData\": {\"Played\": true, \"PlayCount\": 9},"
+            + "\"ProductionYear\": \"2008\", \"CommunityRating\": 7.9, \"RunTimeTicks\": 75600000000,"
+            + "\"Played\": true, \"PlayCount\": 2,"
+            + "\"Genres\": [\"动作\", \"科幻\"], \"Tags\": [],"
+            + "\"People\": [{\"Name\": \"Robert Downey Jr.\", \"Type\": \"Actor\"}],"
+            + "\"ProviderIds\": {\"Tmdb\": \"1726\", \"Imdb\": \"tt0371746\"},"
+            + "\"MediaSources\": [{\"Id\": \"ms1\", \"Container\": \"mkv\", \"Size\": 1073741824,"
+            + "  \"MediaStreams\": [{\"Codec\": \"h264\"}, {\"Codec\": \"aac\"}]},"
+            + "  {\"Id\": \"ms2\", \"Size\": 42}]"
+            + "}, {\"Id\": \"101\", \"Name\": \"钢铁侠2\"}],"
+            + "\"TotalRecordCount\": 250, \"StartIndex\": 0}";
+
+        PagedResult<EmbyItem> page = EmbyItemJsonReader.readPage(stream(json), 0, 2);
+
+        assertEquals(250, page.getTotalCount());
+        assertEquals(0, page.getStartIndex());
+        assertEquals(2, page.getLimit());
+        assertEquals(2, page.getItems().size());
+
+        EmbyItem item = page.getItems().get(0);
+        assertEquals("100", item.getId());
+        assertEquals("钢铁侠", item.getName());
+        assertEquals("Iron Man", item.getOriginalTitle());
+        assertEquals("Movie", item.getType());
+        assertEquals(2008, item.getProductionYear());
+        assertEquals(7.9, item.getCommunityRating());
+        assertEquals(75600000000L, item.getRunTimeTicks());
+        assertTrue(item.getPlayed());
+        assertEquals(2, item.getPlayCount());
+        assertEquals(Arrays.asList("动作", "科幻"), item.getGenres());
+        assertNull(item.getTags());
+        assertEquals(Arrays.asList("Robert Downey Jr."), item.getPeople());
+        assertEquals("1726", item.getProviderIds().get("Tmdb"));
+        assertEquals(2, item.getMediaSources().size());
+        assertEquals("mkv", item.getMediaSources().get(0).getContainer());
+        // 文件大小取第一个媒体源
+        assertEquals(1073741824L, item.getSize());
+
+        EmbyItem second = page.getItems().get(1);
+        assertEquals("101", second.getId());
+        assertFalse(second.getPlayed());
+        assertEquals(0, second.getPlayCount());
+        assertNull(second.getMediaSources());
+    }
+
+    @Test
+    void arrayResponseUsesArraySizeAsTotal() throws Exception {
+        PagedResult<EmbyItem> page = EmbyItemJsonReader.readPage(
+            stream("[{\"Id\": \"1\"}, {\"Id\": \"2\"}, 3]"), null, null);
+        assertEquals(2, page.getTotalCount());
+        assertEquals("2", page.getItems().get(1).getId());
+    }
+
+    @Test
+    void toleratesUnexpectedValueTypes() throws Exception {
+        EmbyItem item = EmbyItemJsonReader.readItem(stream("{\"Id\": \"1\", \"Name\": {\"x\": 1},"
+            + "\"IndexNumber\": \"abc\", \"ParentIndexNumber\": null, \"Played\": null,"
+            + "\"Genres\": \"not-an-array\", \"MediaSources\": [], \"Path\": \"/media/a.mkv\"}"));
+        assertEquals("1", item.getId());
+        assertNull(item.getName());
+        assertNull(item.getIndexNumber());
+        assertNull(item.getParentIndexNumber());
+        assertFalse(item.getPlayed());
+        assertNull(item.getGenres());
+        assertNull(item.getMediaSources());
+        assertEquals("/media/a.mkv", item.getPath());
+    }
+
+    @Test
+    void rejectsEmptyAndNonObjectResponses() {
+        assertThrows(BusinessException.class, () -> EmbyItemJsonReader.readPage(stream(""), 0, 10));
+        assertThrows(BusinessException.class, () -> EmbyItemJsonReader.readPage(stream("\"error\""), 0, 10));
+        assertThrows(BusinessException.class, () -> EmbyItemJsonReader.readItem(stream("[]")));
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
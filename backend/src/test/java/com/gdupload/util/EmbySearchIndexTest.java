@@ -0,0 +1,199 @@
+package com.gdupload.util;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.gdupload.entity.EmbyItemCache;
+import com.gdupload.mapper.EmbyItemCacheMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * EmbySearchIndex 单元测试：规范化、拼音首字母、打分排序，以及加载期间的同步写入 / 删除
+ *
+ * @author GD Upload Manager
+ * @since 2026-03-12
+ */
+class EmbySearchIndexTest {
+
+    private static final Long CONFIG_ID = 1L;
+
+    private EmbyItemCacheMapper mapper;
+    private EmbySearchIndex index;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // LambdaQueryWrapper.select 需要实体的列缓存
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), EmbyItemCache.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        mapper = Mockito.mock(EmbyItemCacheMapper.class);
+        index = new EmbySearchIndex(mapper);
+        ReflectionTestUtils.setField(index, "enabled", true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.shutdown();
+    }
+
+    @Test
+    void normalizeFoldsWidthAccentsAndPunctuation() {
+        assertEquals("ironman", EmbySearchIndex.normalize("Ｉｒｏｎ Ｍａｎ！"));
+        assertEquals("amelie", EmbySearchIndex.normalize("Amélie"));
+        assertEquals("钢铁侠3", EmbySearchIndex.normalize("钢铁侠 3"));
+        assertEquals("", EmbySearchIndex.normalize(null));
+        assertEquals("", EmbySearchIndex.normalize("·-·"));
+    }
+
+    @Test
+    void initialsOfHanziKeepAsciiAndSkipLatinOnlyNames() {
+        assertEquals("gtx3", EmbySearchIndex.initials("钢铁侠3"));
+        assertEquals("", EmbySearchIndex.initials("ironman"));
+        assertEquals("", EmbySearchIndex.initials(""));
+    }
+
+    @Test
+    void searchReturnsNullUntilIndexIsReady() {
+        assertNull(index.search(CONFIG_ID, "钢铁侠", 10));
+        index.clear(CONFIG_ID);
+        assertEquals(Collections.emptyList(), index.search(CONFIG_ID, "钢铁侠", 10));
+        // 规范化后为空的关键词交给数据库
+        assertNull(index.search(CONFIG_ID, "！！", 10));
+    }
+
+    @Test
+    void exactBeatsPrefixBeatsContains() {
+        index.clear(CONFIG_ID);
+        index.upsert(CONFIG_ID, Arrays.asList(
+            row("3", "超级钢铁侠大战", null),
+            row("2", "钢铁侠2", null),
+            row("1", "钢铁侠", "Iron Man")));
+
+        assertEquals(Arrays.asList("1", "2", "3"), index.search(CONFIG_ID, "钢铁侠", 10));
+        assertEquals(Arrays.asList("1", "2"), index.search(CONFIG_ID, "钢铁侠", 2));
+    }
+
+    @Test
+    void matchesOriginalTitleAndPinyinInitials() {
+        index.clear(CONFIG_ID);
+        index.upsert(CONFIG_ID, Arrays.asList(
+            row("1", "钢铁侠", "Iron Man"),
+            row("2", "钢铁侠2", null),
+            row("3", "超级钢铁侠大战", null)));
+
+        assertEquals(Collections.singletonList("1"), index.search(CONFIG_ID, "iron man", 10));
+        assertEquals(Arrays.asList("1", "2", "3"), index.search(CONFIG_ID, "GTX", 10));
+    }
+
+    @Test
+    void substringMatchesRankAboveFuzzyMatches() {
+        index.clear(CONFIG_ID);
+        index.upsert(CONFIG_ID, Arrays.asList(
+            row("1", "钢铁侠", null),
+            row("3", "超级钢铁侠大战", null),
+            row("4", "蜘蛛侠", null)));
+
+        List<String> hits = index.search(CONFIG_ID, "钢铁侠大", 10);
+        assertNotNull(hits);
+        // "钢铁侠大" 是 3 号的子串；1 号只命中 3 个 bigram 中的 2 个，作为模糊结果排后面；4 号不够比例
+        assertEquals(Arrays.asList("3", "1"), hits);
+    }
+
+    @Test
+    void singleCharacterQueryScansAllDocs() {
+        index.clear(CONFIG_ID);
+        index.upsert(CONFIG_ID, Arrays.asList(
+            row("1", "钢铁侠", null),
+            row("4", "蜘蛛侠", null),
+            row("5", "星际穿越", null)));
+
+        List<String> hits = index.search(CONFIG_ID, "侠", 10);
+        assertEquals(2, hits.size());
+        assertTrue(hits.containsAll(Arrays.asList("1", "4")));
+    }
+
+    @Test
+    void upsertReplacesOldNameAndRemoveDropsDoc() {
+        index.clear(CONFIG_ID);
+        index.upsert(CONFIG_ID, Collections.singletonList(row("1", "旧名字", null)));
+        index.upsert(CONFIG_ID, Collections.singletonList(row("1", "新名字", null)));
+
+        assertEquals(Collections.emptyList(), index.search(CONFIG_ID, "旧名字", 10));
+        assertEquals(Collections.singletonList("1"), index.search(CONFIG_ID, "新名字", 10));
+
+        index.remove(CONFIG_ID, Collections.singletonList("1"));
+        assertEquals(Collections.emptyList(), index.search(CONFIG_ID, "新名字", 10));
+    }
+
+    @Test
+    void writesDuringLoadWinOverLoadedRows() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        Mockito.when(mapper.selectList(ArgumentMatchers.any())).thenAnswer(invocation -> {
+            loadStarted.countDown();
+            releaseLoad.await(5, TimeUnit.SECONDS);
+            // 数据库读到的是同步写入之前的数据
+            List<EmbyItemCache> rows = new ArrayList<>();
+            rows.add(row("a", "旧名字", null));
+            rows.add(row("b", "将被删除", null));
+            rows.add(row("c", "不变的名字", null));
+            return rows;
+        });
+
+        // 首次写入触发后台加载
+        index.upsert(CONFIG_ID, Collections.singletonList(row("a", "新名字", null)));
+        assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+        index.remove(CONFIG_ID, Collections.singletonList("b"));
+        assertNull(index.search(CONFIG_ID, "新名字", 10));
+        releaseLoad.countDown();
+
+        List<String> hits = awaitReady("新名字");
+        assertEquals(Collections.singletonList("a"), hits);
+        assertEquals(Collections.emptyList(), index.search(CONFIG_ID, "旧名字", 10));
+        assertEquals(Collections.emptyList(), index.search(CONFIG_ID, "将被删除", 10));
+        assertEquals(Collections.singletonList("c"), index.search(CONFIG_ID, "不变的名字", 10));
+    }
+
+    private List<String> awaitReady(String keyword) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            List<String> hits = index.search(CONFIG_ID, keyword, 10);
+            if (hits != null) {
+                return hits;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("索引加载超时");
+    }
+
+    private static EmbyItemCache row(String id, String name, String originalTitle) {
+        EmbyItemCache row = new EmbyItemCache();
+        row.setId(id);
+        row.setEmbyConfigId(CONFIG_ID);
+        row.setName(name);
+        row.setOriginalTitle(originalTitle);
+        row.setUpdateTime(LocalDateTime.of(2026, 3, 1, 0, 0));
+        return row;
+    }
+}
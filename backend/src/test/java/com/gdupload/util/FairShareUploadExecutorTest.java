@@ -0,0 +1,120 @@
+package com.gdupload.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * FairShareUploadExecutor 单元测试：按权重的 DRR 轮询顺序和优先级登记
+ *
+ * @author GD Upload Manager
+ * @since 2026-03-12
+ */
+class FairShareUploadExecutorTest {
+
+    private FairShareUploadExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new FairShareUploadExecutor();
+        // 单个工作线程，执行顺序即调度顺序
+        ReflectionTestUtils.setField(executor, "concurrentFiles", 1);
+        ReflectionTestUtils.invokeMethod(executor, "init");
+    }
+
+    @Test
+    void tasksShareWorkerInProportionToWeight() throws Exception {
+        CountDownLatch gateStarted = new CountDownLatch(1);
+        CountDownLatch releaseGate = new CountDownLatch(1);
+        // 先占住工作线程，保证后面的工作全部入队后才开始调度
+        executor.submit(0L, () -> {
+            gateStarted.countDown();
+            await(releaseGate);
+        });
+        assertTrue(gateStarted.await(5, TimeUnit.SECONDS));
+
+        executor.register(1L, 2);
+        executor.register(2L, 1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(6);
+        for (int i = 1; i <= 4; i++) {
+            String label = "A" + i;
+            executor.submit(1L, () -> {
+                order.add(label);
+                done.countDown();
+            });
+        }
+        for (int i = 1; i <= 2; i++) {
+            String label = "B" + i;
+            executor.submit(2L, () -> {
+                order.add(label);
+                done.countDown();
+            });
+        }
+        releaseGate.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("A1", "A2", "B1", "A3", "A4", "B2"), order);
+    }
+
+    @Test
+    void failingJobDoesNotStopWorker() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        executor.submit(1L, () -> {
+            throw new IllegalStateException("boom");
+        });
+        executor.submit(1L, done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void setPriorityOnlyUpdatesRegisteredTasks() {
+        Map<Long, Integer> weights = weights();
+
+        executor.setPriority(3L, 8);
+        assertFalse(weights.containsKey(3L));
+
+        executor.register(4L, 20);
+        assertEquals(FairShareUploadExecutor.MAX_PRIORITY, weights.get(4L));
+        executor.setPriority(4L, 0);
+        assertEquals(FairShareUploadExecutor.MIN_PRIORITY, weights.get(4L));
+
+        executor.unregister(4L);
+        assertFalse(weights.containsKey(4L));
+        executor.setPriority(4L, 7);
+        assertFalse(weights.containsKey(4L));
+    }
+
+    @Test
+    void normalizeClampsPriority() {
+        assertEquals(FairShareUploadExecutor.DEFAULT_PRIORITY, FairShareUploadExecutor.normalize(null));
+        assertEquals(FairShareUploadExecutor.MIN_PRIORITY, FairShareUploadExecutor.normalize(-3));
+        assertEquals(FairShareUploadExecutor.MAX_PRIORITY, FairShareUploadExecutor.normalize(99));
+        assertEquals(7, FairShareUploadExecutor.normalize(7));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, Integer> weights() {
+        return (Map<Long, Integer>) ReflectionTestUtils.getField(executor, "weights");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
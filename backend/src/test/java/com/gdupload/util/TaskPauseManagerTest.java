@@ -0,0 +1,54 @@
+package com.gdupload.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * TaskPauseManager 单元测试：注册前收到的停止信号只作用于同一次执行
+ *
+ * @author GD Upload Manager
+ * @since 2026-03-13
+ */
+class TaskPauseManagerTest {
+
+    private static final long TASK_ID = 9_000_001L;
+
+    @AfterEach
+    void tearDown() {
+        TaskPauseManager.unregister(TASK_ID);
+    }
+
+    @Test
+    void stopSignaledBeforeRegisterIsApplied() {
+        TaskPauseManager.beginRun(TASK_ID);
+        TaskPauseManager.signalStop(TASK_ID);
+
+        TaskPauseManager.register(TASK_ID, 0);
+        assertTrue(TaskPauseManager.shouldStop(TASK_ID));
+    }
+
+    @Test
+    void newRunDiscardsStopMeantForEarlierRun() {
+        TaskPauseManager.beginRun(TASK_ID);
+        // 取消一个未在运行的任务（如已暂停），信号留待注册
+        TaskPauseManager.signalStop(TASK_ID);
+
+        // 之后重试：新的执行不应被之前的取消立即停止
+        TaskPauseManager.beginRun(TASK_ID);
+        TaskPauseManager.register(TASK_ID, 0);
+        assertFalse(TaskPauseManager.shouldStop(TASK_ID));
+    }
+
+    @Test
+    void stopAfterRegisterSetsFlagDirectly() {
+        TaskPauseManager.beginRun(TASK_ID);
+        TaskPauseManager.register(TASK_ID, 0);
+        assertFalse(TaskPauseManager.shouldStop(TASK_ID));
+
+        TaskPauseManager.signalStop(TASK_ID);
+        assertTrue(TaskPauseManager.shouldStop(TASK_ID));
+    }
+}
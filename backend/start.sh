@@ -14,6 +14,8 @@ JAVA_OPTS="$JAVA_OPTS -Xms512m"
 JAVA_OPTS="$JAVA_OPTS -Xmx2g"
 JAVA_OPTS="$JAVA_OPTS -XX:+UseG1GC"
 JAVA_OPTS="$JAVA_OPTS -XX:MaxGCPauseMillis=200"
+# 每个 HTTP 服务器保留的 keep-alive 空闲连接数（JDK 默认 5），与 app.emby.http.max-connections 保持一致
+JAVA_OPTS="$JAVA_OPTS -Dhttp.maxConnections=16"
 
 # 应用参数
 APP_OPTS="--spring.profiles.active=prod"
@@ -0,0 +1,43 @@
+-- 数据库迁移脚本：Emby 媒体项最新状态表
+-- 用途：维护每个媒体项最新的转存 / 下载状态，媒体库按状态筛选分页时按主键关联，不再对历史表全表分组取最新记录
+-- 日期：2026-03-05
+
+USE `gd_upload_manager`;
+
+CREATE TABLE IF NOT EXISTS `emby_item_status` (
+    `emby_config_id` BIGINT NOT NULL COMMENT 'Emby配置ID',
+    `emby_item_id` VARCHAR(100) NOT NULL COMMENT 'Emby媒体项ID',
+    `transfer_status` VARCHAR(50) NULL COMMENT '最新转存状态：success, failed, pending（无转存记录为NULL）',
+    `transfer_time` DATETIME NULL COMMENT '最新转存记录时间',
+    `download_status` VARCHAR(20) NULL COMMENT '最新下载状态：success, failed（无下载记录为NULL）',
+    `download_time` DATETIME NULL COMMENT '最新下载记录时间',
+    `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`emby_config_id`, `emby_item_id`),
+    KEY `idx_config_transfer` (`emby_config_id`, `transfer_status`),
+    KEY `idx_config_download` (`emby_config_id`, `download_status`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Emby媒体项最新状态表';
+
+-- 媒体库分页（按配置 + 媒体库过滤，更新时间倒序）
+ALTER TABLE `emby_item`
+    ADD INDEX `idx_config_parent_update` (`emby_config_id`, `parent_id`, `update_time`);
+
+-- 回填：每个媒体项最新的下载记录（自增ID最大即最新）
+INSERT INTO `emby_item_status` (`emby_config_id`, `emby_item_id`, `download_status`, `download_time`, `update_time`)
+SELECT h.emby_config_id, h.emby_item_id, h.download_status, h.create_time, NOW()
+FROM `emby_download_history` h
+INNER JOIN (
+    SELECT MAX(id) AS max_id FROM `emby_download_history` GROUP BY emby_config_id, emby_item_id
+) m ON h.id = m.max_id
+ON DUPLICATE KEY UPDATE download_status = VALUES(download_status),
+    download_time = VALUES(download_time), update_time = NOW();
+
+-- 回填：每个媒体项最新的转存记录（转存历史不区分配置，写到所有配置下）
+INSERT INTO `emby_item_status` (`emby_config_id`, `emby_item_id`, `transfer_status`, `transfer_time`, `update_time`)
+SELECT c.id, h.emby_item_id, h.transfer_status, h.create_time, NOW()
+FROM `transfer_history` h
+INNER JOIN (
+    SELECT MAX(id) AS max_id FROM `transfer_history` GROUP BY emby_item_id
+) m ON h.id = m.max_id
+CROSS JOIN `emby_config` c
+ON DUPLICATE KEY UPDATE transfer_status = VALUES(transfer_status),
+    transfer_time = VALUES(transfer_time), update_time = NOW();
@@ -0,0 +1,16 @@
+-- 数据库迁移脚本：Emby 媒体库同步状态
+-- 用途：记录每个媒体库上次成功同步的水位线，增量同步只向 Emby 请求此后有变更的媒体项
+-- 日期：2026-03-04
+
+USE `gd_upload_manager`;
+
+CREATE TABLE IF NOT EXISTS `emby_sync_state` (
+    `emby_config_id` BIGINT NOT NULL COMMENT 'Emby配置ID',
+    `library_id` VARCHAR(100) NOT NULL COMMENT '媒体库ID',
+    `watermark` DATETIME NULL COMMENT '上次成功同步的开始时间（增量同步从此之后开始）',
+    `last_full_sync_time` DATETIME NULL COMMENT '最后一次全量同步完成时间',
+    `last_delta_sync_time` DATETIME NULL COMMENT '最后一次增量同步完成时间',
+    `item_count` INT NULL COMMENT '同步完成时Emby中的媒体项数',
+    `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`emby_config_id`, `library_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Emby媒体库同步状态表';
@@ -0,0 +1,10 @@
+-- 数据库迁移脚本：file_info 按任务分页读取待上传文件
+-- 用途：UploadServiceImpl.executeTask 按主键分页（keyset）读取待上传文件，不再一次性加载整个任务
+-- 日期：2026-02-20
+
+USE `gd_upload_manager`;
+
+-- WHERE task_id = ? AND status IN (0, 3) AND id > ? ORDER BY id LIMIT ?
+-- 以及按任务 + 状态聚合统计（COUNT / SUM(file_size) GROUP BY status）
+ALTER TABLE `file_info`
+    ADD INDEX `idx_task_status_id` (`task_id`, `status`, `id`);
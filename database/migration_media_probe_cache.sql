@@ -0,0 +1,21 @@
+-- 数据库迁移脚本：媒体探测结果缓存
+-- 用途：按 路径 + 大小 + 修改时间 缓存上传前 ffprobe 的探测结果，任务重试 / 重跑时不再重复探测同一文件
+-- 日期：2026-03-01
+
+USE `gd_upload_manager`;
+
+CREATE TABLE IF NOT EXISTS `media_probe_cache` (
+    `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+    `path_hash` CHAR(32) NOT NULL COMMENT '文件绝对路径的MD5',
+    `file_path` VARCHAR(1000) NOT NULL COMMENT '文件绝对路径',
+    `file_size` BIGINT NOT NULL COMMENT '探测时的文件大小(字节)',
+    `file_mtime` BIGINT NOT NULL COMMENT '探测时的文件修改时间(毫秒)',
+    `video_codec` VARCHAR(50) NULL COMMENT '视频编码',
+    `audio_codec` VARCHAR(50) NULL COMMENT '音频编码',
+    `resolution` VARCHAR(20) NULL COMMENT '分辨率',
+    `width` INT NULL COMMENT '宽度(像素)',
+    `height` INT NULL COMMENT '高度(像素)',
+    `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_path_hash` (`path_hash`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='媒体探测结果缓存表';
@@ -0,0 +1,7 @@
+-- 数据库迁移脚本：媒体探测缓存过期清理
+-- 用途：按 update_time 定期清理超过保留天数的探测记录，为清理语句增加索引
+-- 日期：2026-03-12
+
+USE `gd_upload_manager`;
+
+ALTER TABLE `media_probe_cache` ADD INDEX `idx_update_time` (`update_time`);
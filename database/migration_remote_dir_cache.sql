@@ -0,0 +1,16 @@
+-- 数据库迁移脚本：远端目录缓存
+-- 用途：按 rclone 远程名记录已确认存在的目录，重复上传到同一目录树时跳过 mkdir（原先只缓存在内存中，重启后丢失）
+-- 日期：2026-02-28
+
+USE `gd_upload_manager`;
+
+CREATE TABLE IF NOT EXISTS `remote_dir_cache` (
+    `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+    `remote_name` VARCHAR(100) NOT NULL COMMENT 'rclone远程名',
+    `dir_path` VARCHAR(1000) NOT NULL COMMENT '目录路径',
+    `path_hash` CHAR(32) NOT NULL COMMENT 'remote_name:dir_path 的MD5',
+    `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_path_hash` (`path_hash`),
+    KEY `idx_remote_name` (`remote_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='已存在的远端目录缓存表';
@@ -0,0 +1,13 @@
+-- 数据库迁移脚本：远端目录缓存有效期
+-- 用途：记录目录最近一次确认存在的时间，超过有效期的记录重新 mkdir 确认（目录可能在本服务之外被删除）；
+--       目录路径统一为不含首尾斜杠的形式，清理旧的以 "/" 开头的记录
+-- 日期：2026-03-12
+
+USE `gd_upload_manager`;
+
+ALTER TABLE `remote_dir_cache`
+    ADD COLUMN `verify_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '最近确认存在的时间' AFTER `create_time`;
+
+UPDATE `remote_dir_cache` SET `verify_time` = `create_time`;
+
+DELETE FROM `remote_dir_cache` WHERE `dir_path` LIKE '/%';
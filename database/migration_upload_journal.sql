@@ -0,0 +1,17 @@
+-- 数据库迁移脚本：上传预写日志
+-- 用途：记录正在传输的文件（账号、本地路径、远端路径、开始时间），JVM 异常退出后启动时核对远端并续传
+-- 日期：2026-02-26
+
+USE `gd_upload_manager`;
+
+CREATE TABLE IF NOT EXISTS `upload_journal` (
+    `file_id` BIGINT NOT NULL COMMENT '文件ID',
+    `task_id` BIGINT NOT NULL COMMENT '任务ID',
+    `account_id` BIGINT NOT NULL COMMENT '上传使用的账号ID',
+    `local_path` VARCHAR(1000) NOT NULL COMMENT '本地文件路径',
+    `remote_path` VARCHAR(1000) NOT NULL COMMENT '远端文件完整路径',
+    `file_size` BIGINT NOT NULL DEFAULT 0 COMMENT '文件大小(字节)',
+    `start_time` DATETIME NOT NULL COMMENT '传输开始时间',
+    PRIMARY KEY (`file_id`),
+    KEY `idx_task_id` (`task_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='上传预写日志表';
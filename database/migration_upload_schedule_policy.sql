@@ -0,0 +1,13 @@
+-- 数据库迁移脚本：上传任务调度策略
+-- 用途：按任务选择文件投喂顺序和账号分配方式（0-按顺序轮询，1-大小均衡：大文件优先+小文件穿插，按剩余额度/在途字节分配账号）
+-- 日期：2026-02-21
+
+USE `gd_upload_manager`;
+
+ALTER TABLE `upload_task`
+    ADD COLUMN `schedule_policy` TINYINT NOT NULL DEFAULT 0 COMMENT '调度策略: 0-按顺序轮询 1-大小均衡' AFTER `task_type`;
+
+-- 大小均衡策略按 (file_size, id) 双向 keyset 分页读取待上传文件
+-- WHERE task_id = ? AND status IN (0, 3) AND (file_size, id) < (?, ?) ORDER BY file_size DESC, id DESC LIMIT ?
+ALTER TABLE `file_info`
+    ADD INDEX `idx_task_size_id` (`task_id`, `file_size`, `id`);
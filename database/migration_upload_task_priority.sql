@@ -0,0 +1,8 @@
+-- 数据库迁移脚本：上传任务优先级
+-- 用途：全局上传调度器按任务优先级加权轮询（Deficit Round Robin）分配上传工作线程，多个任务同时推进
+-- 日期：2026-02-27
+
+USE `gd_upload_manager`;
+
+ALTER TABLE `upload_task`
+    ADD COLUMN `priority` TINYINT NOT NULL DEFAULT 5 COMMENT '优先级(1-10)：多任务并发时按优先级加权分配上传线程' AFTER `schedule_policy`;
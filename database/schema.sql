@@ -28,6 +28,8 @@ CREATE TABLE `upload_task` (
     `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键ID',
     `task_name` VARCHAR(200) NOT NULL COMMENT '任务名称',
     `task_type` TINYINT NOT NULL DEFAULT 1 COMMENT '任务类型: 1-普通上传 2-增量上传',
+    `schedule_policy` TINYINT NOT NULL DEFAULT 0 COMMENT '调度策略: 0-按顺序轮询 1-大小均衡',
+    `priority` TINYINT NOT NULL DEFAULT 5 COMMENT '优先级(1-10)：多任务并发时按优先级加权分配上传线程',
     `source_path` VARCHAR(500) NOT NULL COMMENT '源文件路径',
     `target_path` VARCHAR(500) NOT NULL COMMENT '目标路径',
     `total_count` INT NOT NULL DEFAULT 0 COMMENT '总文件数',
@@ -68,6 +70,8 @@ CREATE TABLE `file_info` (
     `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     PRIMARY KEY (`id`),
     KEY `idx_task_id` (`task_id`),
+    KEY `idx_task_status_id` (`task_id`, `status`, `id`),
+    KEY `idx_task_size_id` (`task_id`, `file_size`, `id`),
     KEY `idx_status` (`status`),
     KEY `idx_file_md5` (`file_md5`),
     KEY `fk_upload_account` (`upload_account_id`),
@@ -148,6 +152,76 @@ CREATE TABLE `system_config` (
     UNIQUE KEY `uk_config_key` (`config_key`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='系统配置表';
 
+-- 8. 上传预写日志表（正在传输的文件，传输结束后删除；崩溃后启动时据此恢复）
+CREATE TABLE `upload_journal` (
+    `file_id` BIGINT NOT NULL COMMENT '文件ID',
+    `task_id` BIGINT NOT NULL COMMENT '任务ID',
+    `account_id` BIGINT NOT NULL COMMENT '上传使用的账号ID',
+    `local_path` VARCHAR(1000) NOT NULL COMMENT '本地文件路径',
+    `remote_path` VARCHAR(1000) NOT NULL COMMENT '远端文件完整路径',
+    `file_size` BIGINT NOT NULL DEFAULT 0 COMMENT '文件大小(字节)',
+    `start_time` DATETIME NOT NULL COMMENT '传输开始时间',
+    PRIMARY KEY (`file_id`),
+    KEY `idx_task_id` (`task_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='上传预写日志表';
+
+-- 9. 远端目录缓存表（上传前预创建目录时跳过已确认存在的目录）
+CREATE TABLE `remote_dir_cache` (
+    `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+    `remote_name` VARCHAR(100) NOT NULL COMMENT 'rclone远程名',
+    `dir_path` VARCHAR(1000) NOT NULL COMMENT '目录路径（不含首尾斜杠）',
+    `path_hash` CHAR(32) NOT NULL COMMENT 'remote_name:dir_path 的MD5',
+    `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `verify_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '最近确认存在的时间',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_path_hash` (`path_hash`),
+    KEY `idx_remote_name` (`remote_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='已存在的远端目录缓存表';
+
+-- 10. 媒体探测结果缓存表（上传前 ffprobe 结果，按 路径 + 大小 + 修改时间 校验）
+CREATE TABLE `media_probe_cache` (
+    `id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+    `path_hash` CHAR(32) NOT NULL COMMENT '文件绝对路径的MD5',
+    `file_path` VARCHAR(1000) NOT NULL COMMENT '文件绝对路径',
+    `file_size` BIGINT NOT NULL COMMENT '探测时的文件大小(字节)',
+    `file_mtime` BIGINT NOT NULL COMMENT '探测时的文件修改时间(毫秒)',
+    `video_codec` VARCHAR(50) NULL COMMENT '视频编码',
+    `audio_codec` VARCHAR(50) NULL COMMENT '音频编码',
+    `resolution` VARCHAR(20) NULL COMMENT '分辨率',
+    `width` INT NULL COMMENT '宽度(像素)',
+    `height` INT NULL COMMENT '高度(像素)',
+    `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`id`),
+    UNIQUE KEY `uk_path_hash` (`path_hash`),
+    KEY `idx_update_time` (`update_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='媒体探测结果缓存表';
+
+-- 11. Emby媒体库同步状态表（增量同步水位线）
+CREATE TABLE `emby_sync_state` (
+    `emby_config_id` BIGINT NOT NULL COMMENT 'Emby配置ID',
+    `library_id` VARCHAR(100) NOT NULL COMMENT '媒体库ID',
+    `watermark` DATETIME NULL COMMENT '上次成功同步的开始时间（增量同步从此之后开始）',
+    `last_full_sync_time` DATETIME NULL COMMENT '最后一次全量同步完成时间',
+    `last_delta_sync_time` DATETIME NULL COMMENT '最后一次增量同步完成时间',
+    `item_count` INT NULL COMMENT '同步完成时Emby中的媒体项数',
+    `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`emby_config_id`, `library_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Emby媒体库同步状态表';
+
+-- 12. Emby媒体项最新状态表（转存 / 下载状态筛选）
+CREATE TABLE `emby_item_status` (
+    `emby_config_id` BIGINT NOT NULL COMMENT 'Emby配置ID',
+    `emby_item_id` VARCHAR(100) NOT NULL COMMENT 'Emby媒体项ID',
+    `transfer_status` VARCHAR(50) NULL COMMENT '最新转存状态：success, failed, pending（无转存记录为NULL）',
+    `transfer_time` DATETIME NULL COMMENT '最新转存记录时间',
+    `download_status` VARCHAR(20) NULL COMMENT '最新下载状态：success, failed（无下载记录为NULL）',
+    `download_time` DATETIME NULL COMMENT '最新下载记录时间',
+    `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (`emby_config_id`, `emby_item_id`),
+    KEY `idx_config_transfer` (`emby_config_id`, `transfer_status`),
+    KEY `idx_config_download` (`emby_config_id`, `download_status`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Emby媒体项最新状态表';
+
 -- 插入默认系统配置
 INSERT INTO `system_config` (`config_key`, `config_value`, `config_type`, `description`, `is_system`) VALUES
 ('rclone.path', '/usr/bin/rclone', 'string', 'rclone可执行文件路径', 1),
@@ -97,3 +97,19 @@ export function probeAccount(id) {
     method: 'post'
   })
 }
+
+// 获取各账号自适应上传并发上限
+export function getAccountConcurrency() {
+  return request({
+    url: '/account/concurrency',
+    method: 'get'
+  })
+}
+
+// 获取各账号实时吞吐采样
+export function getAccountThroughput() {
+  return request({
+    url: '/account/throughput',
+    method: 'get'
+  })
+}